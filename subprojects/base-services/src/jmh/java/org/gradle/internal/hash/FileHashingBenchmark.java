@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Compares the throughput of hashing a file with MD5 by file size, when reading it through a heap buffer,
+ * reading it through a direct buffer, or mapping it into memory.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class FileHashingBenchmark {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+    private static final long MAPPED_REGION_SIZE = 16 * 1024 * 1024;
+
+    @Param({"4096", "65536", "1048576", "16777216", "134217728"})
+    int fileSize;
+
+    File file;
+    byte[] buffer;
+    ByteBuffer directBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("hashing", ".bin");
+        Random random = new Random(1234L);
+        byte[] chunk = new byte[Math.min(fileSize, 1024 * 1024)];
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            for (int written = 0; written < fileSize; written += chunk.length) {
+                random.nextBytes(chunk);
+                outputStream.write(chunk);
+            }
+        } finally {
+            outputStream.close();
+        }
+        buffer = new byte[BUFFER_SIZE];
+        directBuffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public HashCode heapBuffer() throws IOException {
+        Hasher hasher = Hashing.md5().newHasher();
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) >= 0) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return hasher.hash();
+    }
+
+    @Benchmark
+    public HashCode directBuffer() throws IOException {
+        Hasher hasher = Hashing.md5().newHasher();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            while (channel.read(directBuffer) >= 0) {
+                directBuffer.flip();
+                hasher.putBytes(directBuffer);
+                directBuffer.clear();
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+        return hasher.hash();
+    }
+
+    @Benchmark
+    public HashCode mapped() throws IOException {
+        Hasher hasher = Hashing.md5().newHasher();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                hasher.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position)));
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+        return hasher.hash();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Measures the heap taken by the MD5 hash codes of a 100k file snapshot, comparing {@link HashCode} with a hash code that wraps a copy
+ * of the digest in a byte array, which is how {@code HashCode} stored every hash before.
+ *
+ * <p>All hash codes created by an operation are retained by the returned array, so the footprint is the {@code gc.alloc.rate.norm}
+ * figure reported by the GC profiler ({@code -prof gc}), in bytes per operation.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class HashCodeFootprintBenchmark {
+    @Param({"hashCode", "byteArray"})
+    String representation;
+
+    @Param({"100000"})
+    int count;
+
+    byte[][] digests;
+
+    @Setup(Level.Trial)
+    public void setup() throws NoSuchAlgorithmException {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        digests = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            digests[i] = md5.digest(Integer.toString(i).getBytes());
+        }
+    }
+
+    @Benchmark
+    public Object[] createHashCodes() {
+        Object[] hashCodes = new Object[count];
+        if (representation.equals("hashCode")) {
+            for (int i = 0; i < count; i++) {
+                hashCodes[i] = HashCode.fromBytes(digests[i]);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                hashCodes[i] = new ByteArrayHashCode(digests[i].clone());
+            }
+        }
+        return hashCodes;
+    }
+
+    /**
+     * The layout of a hash code that holds a separate byte array.
+     */
+    private static class ByteArrayHashCode {
+        private final byte[] bytes;
+
+        ByteArrayHashCode(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
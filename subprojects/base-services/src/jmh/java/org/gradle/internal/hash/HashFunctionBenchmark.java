@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Compares the throughput of the available hash functions by input size, feeding the input in 8 KiB chunks like the stream hasher does.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class HashFunctionBenchmark {
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"md5", "sha1", "murmur3"})
+    String algorithm;
+
+    @Param({"64", "4096", "1048576"})
+    int inputSize;
+
+    HashFunction hashFunction;
+    byte[] input;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (algorithm.equals("md5")) {
+            hashFunction = Hashing.md5();
+        } else if (algorithm.equals("sha1")) {
+            hashFunction = Hashing.sha1();
+        } else {
+            hashFunction = Hashing.murmur3_128();
+        }
+        input = new byte[inputSize];
+        new Random(1234L).nextBytes(input);
+    }
+
+    @Benchmark
+    public HashCode hash() {
+        Hasher hasher = hashFunction.newHasher();
+        for (int offset = 0; offset < input.length; offset += CHUNK_SIZE) {
+            hasher.putBytes(input, offset, Math.min(CHUNK_SIZE, input.length - offset));
+        }
+        return hasher.hash();
+    }
+}
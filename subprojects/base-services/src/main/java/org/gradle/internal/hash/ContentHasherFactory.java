@@ -19,4 +19,9 @@ package org.gradle.internal.hash;
 import org.gradle.internal.Factory;
 
 public interface ContentHasherFactory extends Factory<Hasher> {
+    /**
+     * Returns the name to use for a persistent cache that stores hashes created by this factory.
+     * Hashes created with different hash functions are kept in differently named caches, so they are never mixed.
+     */
+    String versionedCacheName(String baseName);
 }
@@ -23,20 +23,23 @@ import java.io.Serializable;
 /**
  * An immutable hash code. Must be 4-255 bytes long.
  * Inspired by the Google Guava project – https://github.com/google/guava.
+ *
+ * <p>Hash codes of 16 bytes, such as MD5 and Murmur3 hashes, are stored in two {@code long} fields instead of a separate byte array.</p>
  */
-public class HashCode implements Serializable, Comparable<HashCode> {
+public abstract class HashCode implements Serializable, Comparable<HashCode> {
     private static final int MIN_NUMBER_OF_BYTES = 4;
     private static final int MAX_NUMBER_OF_BYTES = 255;
+    private static final int BYTES_128_BIT = 16;
     private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
-    private final byte[] bytes;
-
-    private HashCode(byte[] bytes) {
-        this.bytes = bytes;
+    private HashCode() {
     }
 
     static HashCode fromBytesNoCopy(byte[] bytes) {
-        return new HashCode(bytes);
+        if (bytes.length == BYTES_128_BIT) {
+            return new HashCode128(bigEndianLong(bytes, 0), bigEndianLong(bytes, 8));
+        }
+        return new ByteArrayBackedHashCode(bytes);
     }
 
     public static HashCode fromBytes(byte[] bytes) {
@@ -44,7 +47,14 @@ public class HashCode implements Serializable, Comparable<HashCode> {
         if (bytes.length < MIN_NUMBER_OF_BYTES || bytes.length > MAX_NUMBER_OF_BYTES) {
             throw new IllegalArgumentException(String.format("Invalid hash code length: %d bytes", bytes.length));
         }
-        return fromBytesNoCopy(bytes.clone());
+        return bytes.length == BYTES_128_BIT ? fromBytesNoCopy(bytes) : fromBytesNoCopy(bytes.clone());
+    }
+
+    /**
+     * Creates a 16 byte hash code from its first and last 8 bytes, in big-endian order.
+     */
+    public static HashCode fromLongs(long mostSignificantBits, long leastSignificantBits) {
+        return new HashCode128(mostSignificantBits, leastSignificantBits);
     }
 
     public static HashCode fromInt(int value) {
@@ -88,58 +98,49 @@ public class HashCode implements Serializable, Comparable<HashCode> {
         throw new IllegalArgumentException("Illegal hexadecimal character: " + ch);
     }
 
-    public int length() {
-        return bytes.length;
+    private static long bigEndianLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
     }
 
-    public byte[] toByteArray() {
-        return bytes.clone();
-    }
+    public abstract int length();
 
-    @Override
-    public int hashCode() {
-        return (bytes[0] & 0xFF)
-            | ((bytes[1] & 0xFF) << 8)
-            | ((bytes[2] & 0xFF) << 16)
-            | ((bytes[3] & 0xFF) << 24);
-    }
+    public abstract byte[] toByteArray();
 
-    @Override
-    public boolean equals(@Nullable Object obj) {
-        if (obj == this) {
-            return true;
-        }
+    /**
+     * Returns the first 8 bytes of a 16 byte hash code, in big-endian order.
+     *
+     * @throws IllegalStateException if this hash code is not 16 bytes long.
+     */
+    public long getMostSignificantBits() {
+        throw new IllegalStateException(String.format("Hash code of %d bytes cannot be represented as two longs", length()));
+    }
 
-        if (obj == null || obj.getClass() != HashCode.class) {
-            return false;
-        }
+    /**
+     * Returns the last 8 bytes of a 16 byte hash code, in big-endian order.
+     *
+     * @throws IllegalStateException if this hash code is not 16 bytes long.
+     */
+    public long getLeastSignificantBits() {
+        throw new IllegalStateException(String.format("Hash code of %d bytes cannot be represented as two longs", length()));
+    }
 
-        byte[] a = bytes;
-        byte[] b = ((HashCode) obj).bytes;
-        int length = a.length;
+    abstract byte getByte(int index);
 
-        if (b.length != length) {
-            return false;
-        }
-
-        for (int i = 0; i < length; i++) {
-            if (a[i] != b[i]) {
-                return false;
-            }
-        }
-
-        return true;
-    }
+    // Package private, used by the hashers in Hashing to add this hash code without copying it
+    abstract void appendToHasher(Hasher hasher);
 
     @Override
     public int compareTo(@Nonnull HashCode o) {
-        byte[] bytes2 = o.bytes;
         int result;
-        int len1 = bytes.length;
-        int len2 = bytes2.length;
+        int len1 = length();
+        int len2 = o.length();
         int length = Math.min(len1, len2);
         for (int idx = 0; idx < length; idx++) {
-            result = bytes[idx] - bytes2[idx];
+            result = getByte(idx) - o.getByte(idx);
             if (result != 0) {
                 return result;
             }
@@ -149,15 +150,163 @@ public class HashCode implements Serializable, Comparable<HashCode> {
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder(2 * bytes.length);
-        for (byte b : bytes) {
+        int length = length();
+        StringBuilder sb = new StringBuilder(2 * length);
+        for (int i = 0; i < length; i++) {
+            byte b = getByte(i);
             sb.append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
         }
         return sb.toString();
     }
 
-    // Package private accessor used by MessageDigestHasher.putHash for performance reasons
-    byte[] getBytes() {
-        return bytes;
+    private static class HashCode128 extends HashCode {
+        private final long bits1;
+        private final long bits2;
+
+        HashCode128(long bits1, long bits2) {
+            this.bits1 = bits1;
+            this.bits2 = bits2;
+        }
+
+        @Override
+        public int length() {
+            return BYTES_128_BIT;
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[BYTES_128_BIT];
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (bits1 >>> (56 - i * 8));
+                bytes[i + 8] = (byte) (bits2 >>> (56 - i * 8));
+            }
+            return bytes;
+        }
+
+        @Override
+        public long getMostSignificantBits() {
+            return bits1;
+        }
+
+        @Override
+        public long getLeastSignificantBits() {
+            return bits2;
+        }
+
+        @Override
+        byte getByte(int index) {
+            long bits = index < 8 ? bits1 : bits2;
+            return (byte) (bits >>> (56 - (index & 7) * 8));
+        }
+
+        @Override
+        void appendToHasher(Hasher hasher) {
+            // The hashers in Hashing add longs in little-endian order
+            hasher.putLong(Long.reverseBytes(bits1));
+            hasher.putLong(Long.reverseBytes(bits2));
+        }
+
+        @Override
+        public int compareTo(@Nonnull HashCode o) {
+            if (o.getClass() != HashCode128.class) {
+                return super.compareTo(o);
+            }
+            HashCode128 other = (HashCode128) o;
+            long difference = bits1 ^ other.bits1;
+            long bits = bits1;
+            long otherBits = other.bits1;
+            if (difference == 0) {
+                difference = bits2 ^ other.bits2;
+                bits = bits2;
+                otherBits = other.bits2;
+                if (difference == 0) {
+                    return 0;
+                }
+            }
+            // Compare the first differing byte as a signed value, like the byte array based comparison does
+            int shift = 56 - (Long.numberOfLeadingZeros(difference) & ~7);
+            return (byte) (bits >>> shift) - (byte) (otherBits >>> shift);
+        }
+
+        @Override
+        public int hashCode() {
+            // The first 4 bytes in little-endian order, same as for other hash codes
+            return Integer.reverseBytes((int) (bits1 >>> 32));
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != HashCode128.class) {
+                return false;
+            }
+            HashCode128 other = (HashCode128) obj;
+            return bits1 == other.bits1 && bits2 == other.bits2;
+        }
+    }
+
+    private static class ByteArrayBackedHashCode extends HashCode {
+        private final byte[] bytes;
+
+        ByteArrayBackedHashCode(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.length;
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return bytes.clone();
+        }
+
+        @Override
+        byte getByte(int index) {
+            return bytes[index];
+        }
+
+        @Override
+        void appendToHasher(Hasher hasher) {
+            hasher.putBytes(bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return (bytes[0] & 0xFF)
+                | ((bytes[1] & 0xFF) << 8)
+                | ((bytes[2] & 0xFF) << 16)
+                | ((bytes[3] & 0xFF) << 24);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj == this) {
+                return true;
+            }
+
+            if (obj == null || obj.getClass() != ByteArrayBackedHashCode.class) {
+                return false;
+            }
+
+            byte[] a = bytes;
+            byte[] b = ((ByteArrayBackedHashCode) obj).bytes;
+            int length = a.length;
+
+            if (b.length != length) {
+                return false;
+            }
+
+            for (int i = 0; i < length; i++) {
+                if (a[i] != b[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
     }
 }
@@ -34,6 +34,8 @@ public class Hashing {
 
     private static final HashFunction SHA1 = MessageDigestHashFunction.of("SHA-1");
 
+    private static final HashFunction MURMUR3_128 = new Murmur3HashFunction();
+
     public static HashFunction md5() {
         return MD5;
     }
@@ -42,6 +44,13 @@ public class Hashing {
         return SHA1;
     }
 
+    /**
+     * A fast, non-cryptographic 128-bit hash function. Produces the same hashes as Guava's {@code Hashing.murmur3_128()}.
+     */
+    public static HashFunction murmur3_128() {
+        return MURMUR3_128;
+    }
+
     private static abstract class MessageDigestHashFunction implements HashFunction {
         public static MessageDigestHashFunction of(String algorithm) {
             MessageDigest prototype;
@@ -148,6 +157,12 @@ public class Hashing {
             digest.update(bytes, off, len);
         }
 
+        @Override
+        public void putBytes(ByteBuffer bytes) {
+            checkNotDone();
+            digest.update(bytes);
+        }
+
         @Override
         public HashCode hash() {
             done = true;
@@ -192,7 +207,226 @@ public class Hashing {
 
         @Override
         public void putHash(HashCode hashCode) {
-            putBytes(hashCode.getBytes());
+            hashCode.appendToHasher(this);
+        }
+    }
+
+    private static class Murmur3HashFunction implements HashFunction {
+        @Override
+        public Hasher newHasher() {
+            return new Murmur3Hasher();
+        }
+
+        @Override
+        public HashCode hashBytes(byte[] bytes) {
+            Hasher hasher = newHasher();
+            hasher.putBytes(bytes);
+            return hasher.hash();
+        }
+
+        @Override
+        public HashCode hashString(CharSequence string) {
+            Hasher hasher = newHasher();
+            hasher.putString(string);
+            return hasher.hash();
+        }
+    }
+
+    /**
+     * Streaming implementation of the x64 variant of MurmurHash3 with 128-bit output and a seed of 0.
+     */
+    private static class Murmur3Hasher implements Hasher {
+        private static final int CHUNK_SIZE = 16;
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long h1;
+        private long h2;
+        private long length;
+        private boolean done;
+
+        private void checkNotDone() {
+            if (done) {
+                throw new IllegalStateException("Cannot reuse hasher");
+            }
+        }
+
+        @Override
+        public void putByte(byte b) {
+            checkNotDone();
+            buffer.put(b);
+            length++;
+            if (!buffer.hasRemaining()) {
+                processBuffer();
+            }
+        }
+
+        @Override
+        public void putBytes(byte[] bytes) {
+            putBytes(ByteBuffer.wrap(bytes));
+        }
+
+        @Override
+        public void putBytes(byte[] bytes, int off, int len) {
+            putBytes(ByteBuffer.wrap(bytes, off, len));
+        }
+
+        @Override
+        public void putBytes(ByteBuffer bytes) {
+            checkNotDone();
+            length += bytes.remaining();
+            ByteOrder order = bytes.order();
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                if (buffer.position() > 0) {
+                    while (buffer.hasRemaining() && bytes.hasRemaining()) {
+                        buffer.put(bytes.get());
+                    }
+                    if (buffer.hasRemaining()) {
+                        return;
+                    }
+                    processBuffer();
+                }
+                while (bytes.remaining() >= CHUNK_SIZE) {
+                    long k1 = bytes.getLong();
+                    long k2 = bytes.getLong();
+                    bmix64(k1, k2);
+                }
+                buffer.put(bytes);
+            } finally {
+                bytes.order(order);
+            }
+        }
+
+        @Override
+        public void putInt(int value) {
+            if (buffer.remaining() >= 4) {
+                checkNotDone();
+                buffer.putInt(value);
+                length += 4;
+                if (!buffer.hasRemaining()) {
+                    processBuffer();
+                }
+                return;
+            }
+            putByte((byte) value);
+            putByte((byte) (value >>> 8));
+            putByte((byte) (value >>> 16));
+            putByte((byte) (value >>> 24));
+        }
+
+        @Override
+        public void putLong(long value) {
+            if (buffer.remaining() >= 8) {
+                checkNotDone();
+                buffer.putLong(value);
+                length += 8;
+                if (!buffer.hasRemaining()) {
+                    processBuffer();
+                }
+                return;
+            }
+            for (int i = 0; i < 8; i++) {
+                putByte((byte) (value >>> (i * 8)));
+            }
+        }
+
+        @Override
+        public void putDouble(double value) {
+            long longValue = Double.doubleToRawLongBits(value);
+            putLong(longValue);
+        }
+
+        @Override
+        public void putBoolean(boolean value) {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public void putString(CharSequence value) {
+            putBytes(value.toString().getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void putHash(HashCode hashCode) {
+            hashCode.appendToHasher(this);
+        }
+
+        @Override
+        public HashCode hash() {
+            checkNotDone();
+            done = true;
+            processRemaining();
+
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] bytes = ByteBuffer.allocate(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN).putLong(h1).putLong(h2).array();
+            return HashCode.fromBytesNoCopy(bytes);
+        }
+
+        private void processBuffer() {
+            bmix64(buffer.getLong(0), buffer.getLong(8));
+            buffer.clear();
+        }
+
+        private void processRemaining() {
+            long k1 = 0;
+            long k2 = 0;
+            int remaining = buffer.position();
+            for (int i = 0; i < remaining; i++) {
+                long b = buffer.get(i) & 0xFFL;
+                if (i < 8) {
+                    k1 ^= b << (i * 8);
+                } else {
+                    k2 ^= b << ((i - 8) * 8);
+                }
+            }
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+            buffer.clear();
+        }
+
+        private void bmix64(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            return k1;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            return k2;
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
         }
     }
 }
@@ -106,6 +106,50 @@ class HashCodeTest extends Specification {
         "bcdef123"   | "abcdef12"   | 1
     }
 
+    def "16 byte hash codes created in different ways are equal"() {
+        def string = "0123456789abcdeffedcba9876543210"
+        def fromString = HashCode.fromString(string)
+        def fromBytes = HashCode.fromBytes(toBytes(0x01, 0x23, 0x45, 0x67, 0x89, 0xab, 0xcd, 0xef, 0xfe, 0xdc, 0xba, 0x98, 0x76, 0x54, 0x32, 0x10))
+        def fromLongs = HashCode.fromLongs(0x0123456789abcdefL, new BigInteger("fedcba9876543210", 16).longValue())
+
+        expect:
+        fromString == fromBytes
+        fromBytes == fromLongs
+        fromString.hashCode() == fromLongs.hashCode()
+        fromString.hashCode() == 0x67452301
+        fromLongs.toString() == string
+        fromLongs.length() == 16
+        fromLongs.toByteArray() == fromBytes.toByteArray()
+        fromBytes.mostSignificantBits == 0x0123456789abcdefL
+        fromBytes.leastSignificantBits == new BigInteger("fedcba9876543210", 16).longValue()
+    }
+
+    def "16 byte #a <=> #b: #result"() {
+        def hashA = HashCode.fromString(a)
+        def hashB = HashCode.fromString(b)
+
+        expect:
+        Math.signum(hashA <=> hashB) == result
+        Math.signum(hashB <=> hashA) == -result
+
+        where:
+        a                                  | b                                  | result
+        "00000000000000000000000000000000" | "00000000000000000000000000000000" | 0
+        "00000000000000000000000000000000" | "00000000000000000000000000000001" | -1
+        "00000000000000000000000000000000" | "80000000000000000000000000000000" | 1
+        "0000000000000000ff00000000000000" | "00000000000000000100000000000000" | -1
+        "abcdef12abcdef12abcdef12abcdef12" | "abcdef12"                         | 1
+        "abcdef12000000000000000000000000" | "abcdef1200000000000000000000000000" | -1
+    }
+
+    def "cannot get longs of hash code that is not 16 bytes long"() {
+        when:
+        HashCode.fromInt(0x12345678).mostSignificantBits
+
+        then:
+        thrown IllegalStateException
+    }
+
     def "not equals with null"() {
         expect:
         HashCode.fromInt(0x12345678) != null
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.ByteBuffer
+
+@Unroll
+class HashingTest extends Specification {
+    def "murmur3 hash of #length bytes matches reference implementation"() {
+        def bytes = new byte[length]
+        new Random(length).nextBytes(bytes)
+
+        expect:
+        Hashing.murmur3_128().hashBytes(bytes).toString() == com.google.common.hash.Hashing.murmur3_128().hashBytes(bytes).toString()
+
+        where:
+        length << [0, 1, 7, 8, 15, 16, 17, 31, 32, 33, 1000]
+    }
+
+    def "murmur3 hash does not depend on how the input is split"() {
+        def bytes = new byte[100]
+        new Random(1).nextBytes(bytes)
+        def hasher = Hashing.murmur3_128().newHasher()
+
+        when:
+        hasher.putByte(bytes[0])
+        hasher.putBytes(bytes, 1, 20)
+        hasher.putBytes(ByteBuffer.wrap(bytes, 21, 40))
+        hasher.putBytes(Arrays.copyOfRange(bytes, 61, 100))
+
+        then:
+        hasher.hash() == Hashing.murmur3_128().hashBytes(bytes)
+    }
+
+    def "murmur3 hashes primitives in little endian order"() {
+        def hasher = Hashing.murmur3_128().newHasher()
+        hasher.putInt(42)
+        hasher.putLong(-7L)
+        hasher.putBoolean(true)
+        hasher.putDouble(1.5d)
+        hasher.putString("hello")
+
+        def reference = com.google.common.hash.Hashing.murmur3_128().newHasher()
+            .putInt(42)
+            .putLong(-7L)
+            .putBoolean(true)
+            .putDouble(1.5d)
+            .putBytes("hello".getBytes("UTF-8"))
+
+        expect:
+        hasher.hash().toString() == reference.hash().toString()
+    }
+
+    def "murmur3 hasher cannot be reused"() {
+        def hasher = Hashing.murmur3_128().newHasher()
+        hasher.hash()
+
+        when:
+        hasher.putInt(1)
+
+        then:
+        thrown(IllegalStateException)
+    }
+}
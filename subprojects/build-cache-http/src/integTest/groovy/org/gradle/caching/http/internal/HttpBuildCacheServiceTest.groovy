@@ -25,7 +25,11 @@ import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.http.HttpBuildCache
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resource.transport.http.DefaultHttpSettings
 import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
+import org.gradle.internal.resource.transport.http.HttpClientHelper
+import org.gradle.test.fixtures.ConcurrentTestUtil
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.test.fixtures.server.http.AuthScheme
 import org.gradle.test.fixtures.server.http.HttpResourceInteraction
@@ -56,6 +60,7 @@ class HttpBuildCacheServiceTest extends Specification {
 
     BuildCacheService cache
     BuildCacheServiceFactory.Describer buildCacheDescriber
+    def executorFactory = new DefaultExecutorFactory()
 
     def key = new BuildCacheKey() {
         @Override
@@ -79,7 +84,11 @@ class HttpBuildCacheServiceTest extends Specification {
         def config = new HttpBuildCache()
         config.url = server.uri.resolve("/cache/")
         buildCacheDescriber = new NoopBuildCacheDescriber()
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(config, buildCacheDescriber)
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), executorFactory).createBuildCacheService(config, buildCacheDescriber)
+    }
+
+    def cleanup() {
+        executorFactory.stop()
     }
 
     def "can cache artifact"() {
@@ -267,7 +276,7 @@ class HttpBuildCacheServiceTest extends Specification {
         configuration.url = server.uri.resolve("/cache/")
         configuration.credentials.username = 'user'
         configuration.credentials.password = 'password'
-        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
+        cache = new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory(), executorFactory).createBuildCacheService(configuration, buildCacheDescriber) as HttpBuildCacheService
 
         server.authenticationScheme = AuthScheme.BASIC
 
@@ -293,6 +302,78 @@ class HttpBuildCacheServiceTest extends Specification {
         server.authenticationAttempts == ['Basic'] as Set
     }
 
+    def "stores artifact asynchronously and uploads it before closing"() {
+        def destFile = tempDir.file("cached.zip")
+        def content = "Data".bytes
+        cache = asyncCache(1024)
+        server.expectPut("/cache/${key.hashCode}", destFile, HttpStatus.SC_OK, null, content.length)
+
+        when:
+        cache.store(key, writer(content))
+        cache.close()
+        then:
+        destFile.bytes == content
+    }
+
+    def "stores artifact synchronously when it does not fit in the upload queue"() {
+        def destFile = tempDir.file("cached.zip")
+        def content = "Data".bytes
+        cache = asyncCache(2)
+        server.expectPut("/cache/${key.hashCode}", destFile, HttpStatus.SC_OK, null, content.length)
+
+        when:
+        cache.store(key, writer(content))
+        then:
+        destFile.bytes == content
+
+        cleanup:
+        cache.close()
+    }
+
+    def "disables the cache when an asynchronous store fails"() {
+        cache = asyncCache(1024)
+        expectError(HttpStatus.SC_INTERNAL_SERVER_ERROR, 'PUT')
+
+        when:
+        cache.store(key, writer("Data".bytes))
+        then:
+        ConcurrentTestUtil.poll {
+            assert cache.disabled
+        }
+
+        when:
+        def fromCache = cache.load(key) { input -> }
+        cache.store(key, writer("Data".bytes))
+        cache.close()
+        then:
+        !fromCache
+        noExceptionThrown()
+    }
+
+    def "counts a request as in flight until its response has been read"() {
+        def srcFile = tempDir.file("cached.zip")
+        srcFile.text = "Data"
+        server.expectGet("/cache/${key.hashCode}", srcFile)
+        def inFlightWhileReading = -1
+
+        when:
+        cache.load(key) { input ->
+            inFlightWhileReading = cache.requestsInFlight.get()
+        }
+        then:
+        inFlightWhileReading == 1
+        cache.requestsInFlight.get() == 0
+    }
+
+    private HttpBuildCacheService asyncCache(long maxPendingUploadSize) {
+        def settings = DefaultHttpSettings.builder()
+            .withAuthenticationSettings([])
+            .withSslContextFactory(new DefaultSslContextFactory())
+            .followRedirects(false)
+            .build()
+        new HttpBuildCacheService(new HttpClientHelper(settings), server.uri.resolve("/cache/"), executorFactory, 1, maxPendingUploadSize)
+    }
+
     private HttpResourceInteraction expectError(int httpCode, String method) {
         server.expect("/cache/${key.hashCode}", false, [method], new HttpServer.ActionSupport("return ${httpCode} broken") {
             @Override
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.http.internal;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.gradle.authentication.Authentication;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory;
+import org.gradle.internal.resource.transport.http.HttpClientHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the round-trip throughput of the HTTP build cache against a local in-memory stand-in server,
+ * for different connection pool sizes and with synchronous or asynchronous stores.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(16)
+@State(Scope.Benchmark)
+public class HttpBuildCacheServiceBenchmark {
+    private static final String LOADED_KEY = "0123456789abcdef";
+
+    @Param({"1", "4", "20"})
+    int maxConnections;
+
+    @Param({"false", "true"})
+    boolean asyncStore;
+
+    @Param({"1024", "1048576"})
+    int entrySize;
+
+    HttpServer server;
+    ExecutorService serverExecutor;
+    DefaultExecutorFactory executorFactory;
+    HttpBuildCacheService service;
+    byte[] content;
+    AtomicLong counter;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        content = new byte[entrySize];
+        new Random(1234L).nextBytes(content);
+        counter = new AtomicLong();
+
+        final ConcurrentMap<String, byte[]> entries = new ConcurrentHashMap<String, byte[]>();
+        entries.put(LOADED_KEY, content);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cache/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                String key = path.substring(path.lastIndexOf('/') + 1);
+                try {
+                    if ("PUT".equals(exchange.getRequestMethod())) {
+                        entries.put(key, ByteStreams.toByteArray(exchange.getRequestBody()));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        byte[] entry = entries.get(key);
+                        if (entry == null) {
+                            exchange.sendResponseHeaders(404, -1);
+                        } else {
+                            exchange.sendResponseHeaders(200, entry.length);
+                            exchange.getResponseBody().write(entry);
+                        }
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        HttpClientHelper httpClientHelper = new HttpClientHelper(DefaultHttpSettings.builder()
+            .withAuthenticationSettings(Collections.<Authentication>emptyList())
+            .withSslContextFactory(new DefaultSslContextFactory())
+            .followRedirects(false)
+            .maxConnectionsPerRoute(maxConnections)
+            .build());
+        URI root = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/cache/");
+        if (asyncStore) {
+            executorFactory = new DefaultExecutorFactory();
+            service = new HttpBuildCacheService(httpClientHelper, root, executorFactory, Math.max(1, maxConnections / 2), 64L * 1024 * 1024);
+        } else {
+            service = new HttpBuildCacheService(httpClientHelper, root);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        service.close();
+        if (executorFactory != null) {
+            executorFactory.stop();
+            executorFactory = null;
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean load() {
+        return service.load(key(LOADED_KEY), new BuildCacheEntryReader() {
+            @Override
+            public void readFrom(InputStream input) throws IOException {
+                ByteStreams.exhaust(input);
+            }
+        });
+    }
+
+    @Benchmark
+    public void store() {
+        service.store(key(Long.toHexString(counter.incrementAndGet())), new BuildCacheEntryWriter() {
+            @Override
+            public void writeTo(OutputStream output) throws IOException {
+                output.write(content);
+            }
+
+            @Override
+            public long getSize() {
+                return content.length;
+            }
+        });
+    }
+
+    private static BuildCacheKey key(final String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            public String getHashCode() {
+                return hashCode;
+            }
+
+            @Override
+            public String getDisplayName() {
+                return hashCode;
+            }
+        };
+    }
+}
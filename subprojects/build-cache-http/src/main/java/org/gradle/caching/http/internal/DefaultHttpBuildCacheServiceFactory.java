@@ -24,6 +24,7 @@ import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.http.HttpBuildCache;
 import org.gradle.caching.http.HttpBuildCacheCredentials;
 import org.gradle.internal.authentication.DefaultBasicAuthentication;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.resource.transport.http.DefaultHttpSettings;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.internal.resource.transport.http.SslContextFactory;
@@ -39,11 +40,19 @@ import java.util.Collections;
  */
 public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFactory<HttpBuildCache> {
 
+    public static final String MAX_CONNECTIONS_PROPERTY = "org.gradle.caching.http.maxConnections";
+    public static final String ASYNC_STORE_PROPERTY = "org.gradle.caching.http.asyncStore";
+
+    private static final int MAX_UPLOAD_THREAD_COUNT = 4;
+    private static final long MAX_PENDING_UPLOAD_SIZE = 64 * 1024 * 1024;
+
     private final SslContextFactory sslContextFactory;
+    private final ExecutorFactory executorFactory;
 
     @Inject
-    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory) {
+    public DefaultHttpBuildCacheServiceFactory(SslContextFactory sslContextFactory, ExecutorFactory executorFactory) {
         this.sslContextFactory = sslContextFactory;
+        this.executorFactory = executorFactory;
     }
 
     @Override
@@ -68,9 +77,12 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
 
         boolean authenticated = !authentications.isEmpty();
         boolean allowUntrustedServer = configuration.isAllowUntrustedServer();
+        int maxConnections = Integer.getInteger(MAX_CONNECTIONS_PROPERTY, DefaultHttpSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        boolean asyncStore = Boolean.getBoolean(ASYNC_STORE_PROPERTY);
         DefaultHttpSettings.Builder builder = DefaultHttpSettings.builder()
             .withAuthenticationSettings(authentications)
-            .followRedirects(false);
+            .followRedirects(false)
+            .maxConnectionsPerRoute(maxConnections);
         if (allowUntrustedServer) {
             builder.allowUntrustedConnections();
         } else {
@@ -82,7 +94,15 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
             .config("url", noUserInfoUrl.toASCIIString())
             .config("authenticated", Boolean.toString(authenticated))
             .config("allowUntrustedServer", Boolean.toString(allowUntrustedServer));
+        if (maxConnections != DefaultHttpSettings.DEFAULT_MAX_CONNECTIONS_PER_ROUTE) {
+            describer.config("maxConnections", Integer.toString(maxConnections));
+        }
 
+        if (asyncStore) {
+            describer.config("asyncStore", "true");
+            int uploadThreadCount = Math.max(1, Math.min(MAX_UPLOAD_THREAD_COUNT, maxConnections / 2));
+            return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl, executorFactory, uploadThreadCount, MAX_PENDING_UPLOAD_SIZE);
+        }
         return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl);
     }
 
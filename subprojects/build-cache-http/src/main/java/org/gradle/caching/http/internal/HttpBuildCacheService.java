@@ -19,6 +19,7 @@ package org.gradle.caching.http.internal;
 import com.google.common.collect.ImmutableSet;
 import org.apache.commons.lang.IncompleteArgumentException;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpStatus;
@@ -26,8 +27,10 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
@@ -36,11 +39,16 @@ import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.tasks.TaskOutputPacker;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
 import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -48,9 +56,20 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Build cache implementation that delegates to a service accessible via HTTP.
+ *
+ * <p>When an {@link ExecutorFactory} is given, entries are stored asynchronously: the entry is copied into memory and
+ * uploaded by a small pool of threads, so that the task producing it does not wait for the upload. The amount of
+ * memory held by pending uploads is bounded; entries that do not fit are stored synchronously. Pending uploads
+ * are served from memory when loaded again, and are drained when the service is closed at the end of the build.
+ * A failed asynchronous upload is logged against its own entry and disables the service for the rest of the build,
+ * in the same way a failed synchronous store disables the remote build cache.</p>
  */
 public class HttpBuildCacheService implements BuildCacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCacheService.class);
@@ -69,17 +88,51 @@ public class HttpBuildCacheService implements BuildCacheService {
 
     private final URI root;
     private final HttpClientHelper httpClientHelper;
+    private final ExecutorFactory executorFactory;
+    private final int uploadThreadCount;
+    private final long maxPendingUploadSize;
+
+    private final ConcurrentMap<String, byte[]> pendingUploads = new ConcurrentHashMap<String, byte[]>();
+    private final AtomicLong pendingUploadSize = new AtomicLong();
+    private final AtomicInteger asyncUploadCount = new AtomicInteger();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final AtomicInteger maxRequestsInFlight = new AtomicInteger();
+    private ManagedExecutor uploadExecutor;
+    private volatile boolean disabled;
 
     public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url) {
+        this(httpClientHelper, url, null, 0, 0);
+    }
+
+    public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url, @Nullable ExecutorFactory executorFactory, int uploadThreadCount, long maxPendingUploadSize) {
         if (!url.getPath().endsWith("/")) {
             throw new IncompleteArgumentException("HTTP cache root URI must end with '/'");
         }
+        if (executorFactory != null && uploadThreadCount < 1) {
+            throw new IllegalArgumentException("Upload thread count must be positive.");
+        }
         this.root = url;
         this.httpClientHelper = httpClientHelper;
+        this.executorFactory = executorFactory;
+        this.uploadThreadCount = uploadThreadCount;
+        this.maxPendingUploadSize = maxPendingUploadSize;
     }
 
     @Override
     public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        if (disabled) {
+            return false;
+        }
+        byte[] pendingUpload = pendingUploads.get(key.getHashCode());
+        if (pendingUpload != null) {
+            try {
+                reader.readFrom(new ByteArrayInputStream(pendingUpload));
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         final URI uri = root.resolve("./" + key.getHashCode());
         HttpGet httpGet = new HttpGet(uri);
         httpGet.addHeader(HttpHeaders.ACCEPT, BUILD_CACHE_CONTENT_TYPE + ", */*");
@@ -87,7 +140,7 @@ public class HttpBuildCacheService implements BuildCacheService {
 
         CloseableHttpResponse response = null;
         try {
-            response = httpClientHelper.performHttpRequest(httpGet);
+            response = performHttpRequest(httpGet);
             StatusLine statusLine = response.getStatusLine();
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Response for GET {}: {}", safeUri(uri), statusLine);
@@ -111,7 +164,7 @@ public class HttpBuildCacheService implements BuildCacheService {
             // Right now, everything is considered recoverable.
             throw new BuildCacheException(String.format("Unable to load entry from '%s': %s", safeUri(uri), e.getMessage()), e);
         } finally {
-            HttpClientUtils.closeQuietly(response);
+            completeHttpRequest(response);
         }
     }
 
@@ -138,12 +191,18 @@ public class HttpBuildCacheService implements BuildCacheService {
 
     @Override
     public void store(BuildCacheKey key, final BuildCacheEntryWriter output) throws BuildCacheException {
-        final URI uri = root.resolve(key.getHashCode());
-        HttpPut httpPut = new HttpPut(uri);
-        httpPut.addHeader(HttpHeaders.CONTENT_TYPE, BUILD_CACHE_CONTENT_TYPE);
-        addDiagnosticHeaders(httpPut);
+        if (disabled) {
+            return;
+        }
+        if (executorFactory != null) {
+            long size = output.getSize();
+            if (reservePendingUpload(size)) {
+                storeAsync(key, output, size);
+                return;
+            }
+        }
 
-        httpPut.setEntity(new AbstractHttpEntity() {
+        doStore(root.resolve(key.getHashCode()), new AbstractHttpEntity() {
             @Override
             public boolean isRepeatable() {
                 return true;
@@ -169,9 +228,74 @@ public class HttpBuildCacheService implements BuildCacheService {
                 return false;
             }
         });
+    }
+
+    private void storeAsync(final BuildCacheKey key, BuildCacheEntryWriter output, final long size) {
+        final String hashCode = key.getHashCode();
+        final byte[] content;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) size);
+            output.writeTo(buffer);
+            content = buffer.toByteArray();
+        } catch (IOException e) {
+            pendingUploadSize.addAndGet(-size);
+            throw new BuildCacheException(String.format("Unable to read entry %s for storing: %s", hashCode, e.getMessage()), e);
+        }
+
+        pendingUploads.put(hashCode, content);
+        asyncUploadCount.incrementAndGet();
+        getUploadExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!disabled) {
+                        doStore(root.resolve(hashCode), new ByteArrayEntity(content));
+                    }
+                } catch (Exception e) {
+                    uploadFailed(key, e);
+                } finally {
+                    pendingUploads.remove(hashCode, content);
+                    pendingUploadSize.addAndGet(-size);
+                }
+            }
+        });
+    }
+
+    private boolean reservePendingUpload(long size) {
+        while (true) {
+            long current = pendingUploadSize.get();
+            if (current + size > maxPendingUploadSize) {
+                return false;
+            }
+            if (pendingUploadSize.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized ManagedExecutor getUploadExecutor() {
+        if (uploadExecutor == null) {
+            uploadExecutor = executorFactory.create("Build cache upload", uploadThreadCount);
+        }
+        return uploadExecutor;
+    }
+
+    private void uploadFailed(BuildCacheKey key, Exception e) {
+        disabled = true;
+        String description = "Could not store entry " + key.getDisplayName() + " in HTTP build cache at " + safeUri(root);
+        LOGGER.warn(description + ": " + e.getMessage());
+        LOGGER.debug(description, e);
+    }
+
+    private void doStore(URI uri, HttpEntity entity) {
+        HttpPut httpPut = new HttpPut(uri);
+        httpPut.addHeader(HttpHeaders.CONTENT_TYPE, BUILD_CACHE_CONTENT_TYPE);
+        addDiagnosticHeaders(httpPut);
+        httpPut.setEntity(entity);
+
         CloseableHttpResponse response = null;
         try {
-            response = httpClientHelper.performHttpRequest(httpPut);
+            response = performHttpRequest(httpPut);
             StatusLine statusLine = response.getStatusLine();
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Response for PUT {}: {}", safeUri(uri), statusLine);
@@ -192,7 +316,7 @@ public class HttpBuildCacheService implements BuildCacheService {
             // Right now, everything is considered recoverable.
             throw new BuildCacheException(String.format("Unable to store entry at '%s': %s", safeUri(uri), e.getMessage()), e);
         } finally {
-            HttpClientUtils.closeQuietly(response);
+            completeHttpRequest(response);
         }
     }
 
@@ -208,9 +332,55 @@ public class HttpBuildCacheService implements BuildCacheService {
         }
     }
 
+    /**
+     * Sends the request. The request counts as in flight until {@link #completeHttpRequest(CloseableHttpResponse)} is called with the response.
+     */
+    private CloseableHttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
+        int inFlight = requestsInFlight.incrementAndGet();
+        while (true) {
+            int max = maxRequestsInFlight.get();
+            if (inFlight <= max || maxRequestsInFlight.compareAndSet(max, inFlight)) {
+                break;
+            }
+        }
+        CloseableHttpResponse response = null;
+        try {
+            response = httpClientHelper.performHttpRequest(request);
+            return response;
+        } finally {
+            if (response == null) {
+                requestsInFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void completeHttpRequest(@Nullable CloseableHttpResponse response) {
+        if (response != null) {
+            HttpClientUtils.closeQuietly(response);
+            requestsInFlight.decrementAndGet();
+        }
+    }
+
     @Override
     public void close() throws IOException {
-        httpClientHelper.close();
+        try {
+            ManagedExecutor uploadExecutor;
+            synchronized (this) {
+                uploadExecutor = this.uploadExecutor;
+                this.uploadExecutor = null;
+            }
+            if (uploadExecutor != null) {
+                uploadExecutor.stop();
+            }
+        } finally {
+            httpClientHelper.close();
+        }
+        if (LOGGER.isInfoEnabled() && maxRequestsInFlight.get() > 0) {
+            LOGGER.info("HTTP build cache at {} performed at most {} concurrent requests, {} entries were stored asynchronously.", safeUri(root), maxRequestsInFlight.get(), asyncUploadCount.get());
+        }
+        if (disabled) {
+            LOGGER.warn("The HTTP build cache at {} was disabled during the build because an entry could not be stored.", safeUri(root));
+        }
     }
 
     /**
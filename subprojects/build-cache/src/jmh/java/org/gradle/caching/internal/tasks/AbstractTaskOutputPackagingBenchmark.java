@@ -35,6 +35,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.zip.Deflater;
 
 @Fork(1)
 @Warmup(iterations = 3)
@@ -55,6 +56,10 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .put("tar.small", new AntTarPacker(2))
         .put("tar.large", new AntTarPacker(64))
         .put("tar.gz", new GzipPacker(new AntTarPacker(4)))
+        .put("tar.gz.buffered", new GzipPacker(new AntTarPacker(4), Deflater.DEFAULT_COMPRESSION, 64 * 1024))
+        .put("tar.gz.fastest", new GzipPacker(new AntTarPacker(4), Deflater.BEST_SPEED, 64 * 1024))
+        .put("tar.gz.best", new GzipPacker(new AntTarPacker(4), Deflater.BEST_COMPRESSION, 64 * 1024))
+        .put("tar.gz.stored", new GzipPacker(new AntTarPacker(4), Deflater.NO_COMPRESSION, 64 * 1024))
         .put("zip", new ZipPacker(4))
         .build();
 
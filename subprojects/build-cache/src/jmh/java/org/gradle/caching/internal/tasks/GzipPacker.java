@@ -20,14 +20,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class GzipPacker implements Packer {
     private final Packer delegate;
+    private final int level;
+    private final int bufferSize;
 
     public GzipPacker(Packer delegate) {
+        this(delegate, Deflater.DEFAULT_COMPRESSION, 512);
+    }
+
+    public GzipPacker(Packer delegate, int level, int bufferSize) {
         this.delegate = delegate;
+        this.level = level;
+        this.bufferSize = bufferSize;
     }
 
     @Override
@@ -35,7 +44,11 @@ public class GzipPacker implements Packer {
         delegate.pack(inputs, new DelegatingDataTarget(output) {
             @Override
             public OutputStream openOutput() throws IOException {
-                return new GZIPOutputStream(super.openOutput());
+                return new GZIPOutputStream(super.openOutput(), bufferSize) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
             }
         });
     }
@@ -45,7 +58,7 @@ public class GzipPacker implements Packer {
         delegate.unpack(new DelegatingDataSource(input) {
             @Override
             public InputStream openInput() throws IOException {
-                return new GZIPInputStream(super.openInput());
+                return new GZIPInputStream(super.openInput(), bufferSize);
             }
         }, targetFactory);
     }
@@ -31,6 +31,7 @@ import javax.annotation.Nullable;
 public class DirectoryBuildCache extends AbstractBuildCache {
     private Object directory;
     private int removeUnusedEntriesAfterDays = 7;
+    private long maxSizeInMB;
 
     /**
      * Returns the directory to use to store the build cache.
@@ -94,4 +95,31 @@ public class DirectoryBuildCache extends AbstractBuildCache {
         }
         this.removeUnusedEntriesAfterDays = removeUnusedEntriesAfterDays;
     }
+
+    /**
+     * Returns the maximum size of the build cache in megabytes, or {@code 0} when the size is not limited. Defaults to {@code 0}.
+     *
+     * When the build cache grows larger than this size, the least recently used entries are removed in the background.
+     *
+     * @since 4.7
+     */
+    @Incubating
+    public long getMaxSizeInMB() {
+        return maxSizeInMB;
+    }
+
+    /**
+     * Sets the maximum size of the build cache in megabytes, or {@code 0} to not limit the size.
+     *
+     * When the build cache grows larger than this size, the least recently used entries are removed in the background.
+     *
+     * @since 4.7
+     */
+    @Incubating
+    public void setMaxSizeInMB(long maxSizeInMB) {
+        if (maxSizeInMB < 0) {
+            throw new IllegalArgumentException("Directory build cache maximum size must not be negative.");
+        }
+        this.maxSizeInMB = maxSizeInMB;
+    }
 }
@@ -16,7 +16,10 @@
 
 package org.gradle.caching.local.internal;
 
+import com.google.common.collect.Lists;
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.io.FileUtils;
 import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.PersistentCache;
@@ -26,33 +29,79 @@ import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
 
+/**
+ * A build cache service that stores entries in a directory.
+ *
+ * <p>The file store is not safe for concurrent access to the same entry, so access to each entry is guarded by a lock.
+ * The locks are striped by key, so that loads and stores of different entries usually do not contend with each other.</p>
+ *
+ * <p>When a maximum size is given, the least recently used entries are evicted in the background once the stored entries
+ * may have grown beyond that size. Entries are evicted until the cache is below {@value #EVICTION_TARGET_PERCENTAGE}%
+ * of the maximum size, so that the cache directory is not scanned again after every store.</p>
+ */
 public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryBuildCacheService.class);
+    private static final int EVICTION_TARGET_PERCENTAGE = 90;
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]+");
 
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
     private final String failedFileSuffix;
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Striped<ReadWriteLock> locks = Striped.readWriteLock(Runtime.getRuntime().availableProcessors() * 4);
+    private final long maxSize;
+    private final ExecutorFactory executorFactory;
+    private final AtomicLong estimatedSize;
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private final AtomicLong evictedEntries = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
+    private ManagedExecutor evictionExecutor;
 
     public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix) {
+        this(fileStore, persistentCache, tempFileStore, failedFileSuffix, 0, null);
+    }
+
+    /**
+     * @param maxSize the maximum size of the cache in bytes, or 0 when the size is not limited.
+     * @param executorFactory used to evict entries in the background, can be {@code null} when the size is not limited.
+     */
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix, long maxSize, @Nullable ExecutorFactory executorFactory) {
+        if (maxSize > 0 && executorFactory == null) {
+            throw new IllegalArgumentException("An executor factory is required to limit the size of the cache.");
+        }
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
         this.failedFileSuffix = failedFileSuffix;
+        this.maxSize = maxSize;
+        this.executorFactory = executorFactory;
+        // The size of the existing entries is unknown until the first eviction, so the first store triggers one
+        this.estimatedSize = new AtomicLong(maxSize);
     }
 
     private static class LoadAction implements Action<File> {
@@ -96,6 +145,7 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
+                ReadWriteLock lock = locks.get(key.getHashCode());
                 lock.readLock().lock();
                 try {
                     loadInsideLock(key, reader);
@@ -157,6 +207,7 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.withFileLock(new Runnable() {
             @Override
             public void run() {
+                ReadWriteLock lock = locks.get(key.getHashCode());
                 lock.writeLock().lock();
                 try {
                     storeInsideLock(key, file);
@@ -168,7 +219,115 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     }
 
     private void storeInsideLock(BuildCacheKey key, File file) {
+        long size = file.length();
         fileStore.move(key.getHashCode(), file);
+        recordStored(size);
+    }
+
+    private void recordStored(long size) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (estimatedSize.addAndGet(size) > maxSize && evictionScheduled.compareAndSet(false, true)) {
+            scheduleEviction();
+        }
+    }
+
+    private synchronized void scheduleEviction() {
+        if (evictionExecutor == null) {
+            evictionExecutor = executorFactory.create("Build cache eviction", 1);
+        }
+        evictionExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    persistentCache.withFileLock(new Runnable() {
+                        @Override
+                        public void run() {
+                            evictLeastRecentlyUsedEntries();
+                        }
+                    });
+                } catch (Exception e) {
+                    LOGGER.warn("Could not evict entries from " + persistentCache, e);
+                } finally {
+                    evictionScheduled.set(false);
+                }
+            }
+        });
+    }
+
+    private void evictLeastRecentlyUsedEntries() {
+        List<Entry> entries = findEntries();
+        long size = 0;
+        for (Entry entry : entries) {
+            size += entry.size;
+        }
+        long targetSize = maxSize / 100 * EVICTION_TARGET_PERCENTAGE;
+        long entriesEvicted = 0;
+        long bytesEvicted = 0;
+        for (Entry entry : entries) {
+            if (size <= targetSize) {
+                break;
+            }
+            if (evict(entry)) {
+                size -= entry.size;
+                entriesEvicted++;
+                bytesEvicted += entry.size;
+            }
+        }
+        estimatedSize.set(size);
+        if (entriesEvicted > 0) {
+            evictedEntries.addAndGet(entriesEvicted);
+            evictedBytes.addAndGet(bytesEvicted);
+            LOGGER.info("{} evicted {} least recently used entries ({} reclaimed).", persistentCache, entriesEvicted, FileUtils.byteCountToDisplaySize(bytesEvicted));
+        }
+    }
+
+    private List<Entry> findEntries() {
+        File[] files = persistentCache.getBaseDir().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                // Temporary files, failed entries and the files of the cache itself are not entries
+                return ENTRY_NAME.matcher(file.getName()).matches() && file.isFile();
+            }
+        });
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = Lists.newArrayListWithCapacity(files.length);
+        for (File file : files) {
+            entries.add(new Entry(file, file.lastModified(), file.length()));
+        }
+        // Loading an entry marks it as recently used
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                return Long.compare(o1.lastUsed, o2.lastUsed);
+            }
+        });
+        return entries;
+    }
+
+    private boolean evict(Entry entry) {
+        ReadWriteLock lock = locks.get(entry.file.getName());
+        lock.writeLock().lock();
+        try {
+            return GFileUtils.deleteQuietly(entry.file);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class Entry {
+        private final File file;
+        private final long lastUsed;
+        private final long size;
+
+        Entry(File file, long lastUsed, long size) {
+            this.file = file;
+            this.lastUsed = lastUsed;
+            this.size = size;
+        }
     }
 
     @Override
@@ -183,6 +342,15 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
 
     @Override
     public void close() {
+        synchronized (this) {
+            if (evictionExecutor != null) {
+                evictionExecutor.stop();
+                evictionExecutor = null;
+            }
+        }
+        if (evictedEntries.get() > 0) {
+            LOGGER.info("{} evicted {} entries ({} reclaimed) in total.", persistentCache, evictedEntries.get(), FileUtils.byteCountToDisplaySize(evictedBytes.get()));
+        }
         persistentCache.close();
     }
 
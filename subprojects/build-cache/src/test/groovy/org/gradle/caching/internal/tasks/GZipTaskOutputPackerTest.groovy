@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks
+
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.zip.Deflater
+
+class GZipTaskOutputPackerTest extends Specification {
+    def delegate = Mock(TaskOutputPacker)
+    def readOrigin = Stub(TaskOutputOriginReader)
+    def writeOrigin = Stub(TaskOutputOriginWriter)
+    def content = ("output " * 1000).bytes
+
+    @Unroll
+    def "entries packed with compression level #packLevel can be unpacked by a packer with compression level #unpackLevel"() {
+        def output = new ByteArrayOutputStream()
+        def unpacked = new ByteArrayOutputStream()
+
+        when:
+        new GZipTaskOutputPacker(delegate, packLevel).pack(new TreeSet(), [:], output, writeOrigin)
+
+        then:
+        1 * delegate.pack(_, _, _, writeOrigin) >> { specs, files, OutputStream stream, origin ->
+            stream.write(content)
+            return null
+        }
+
+        when:
+        new GZipTaskOutputPacker(delegate, unpackLevel).unpack(new TreeSet(), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        1 * delegate.unpack(_, _, readOrigin) >> { specs, InputStream stream, origin ->
+            unpacked << stream
+            return null
+        }
+        unpacked.toByteArray() == content
+
+        where:
+        packLevel                     | unpackLevel
+        Deflater.DEFAULT_COMPRESSION  | Deflater.BEST_SPEED
+        Deflater.NO_COMPRESSION       | Deflater.DEFAULT_COMPRESSION
+        Deflater.BEST_SPEED           | Deflater.DEFAULT_COMPRESSION
+        Deflater.BEST_COMPRESSION     | Deflater.BEST_SPEED
+    }
+
+    def "lower compression levels produce larger entries"() {
+        def fastOutput = new ByteArrayOutputStream()
+        def storedOutput = new ByteArrayOutputStream()
+        _ * delegate.pack(_, _, _, _) >> { specs, files, OutputStream stream, origin ->
+            stream.write(content)
+            return null
+        }
+
+        when:
+        new GZipTaskOutputPacker(delegate, Deflater.BEST_SPEED).pack(new TreeSet(), [:], fastOutput, writeOrigin)
+        new GZipTaskOutputPacker(delegate, Deflater.NO_COMPRESSION).pack(new TreeSet(), [:], storedOutput, writeOrigin)
+
+        then:
+        fastOutput.size() < content.length
+        storedOutput.size() > content.length
+    }
+
+    def "rejects invalid compression level"() {
+        when:
+        new GZipTaskOutputPacker(delegate, 10)
+
+        then:
+        def ex = thrown IllegalArgumentException
+        ex.message == "Invalid compression level 10, must be between 0 and 9."
+    }
+}
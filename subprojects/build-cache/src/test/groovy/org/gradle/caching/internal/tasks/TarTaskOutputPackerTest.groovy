@@ -21,10 +21,13 @@ import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.changedetection.state.DirContentSnapshot
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot
 import org.gradle.api.internal.changedetection.state.FileHashSnapshot
+import org.gradle.api.internal.changedetection.state.RegularFileSnapshot
 import org.gradle.api.internal.tasks.OutputType
 import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.hash.DefaultStreamHasher
 import org.gradle.internal.hash.Hashing
 import org.gradle.internal.nativeplatform.filesystem.FileSystem
@@ -331,6 +334,82 @@ class TarTaskOutputPackerTest extends Specification {
         0 * _
     }
 
+    def "can unpack task output directory with multiple writers"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        def sourceFiles = (1..20).collect { index ->
+            sourceOutputDir.file("subdir-${index % 3}/file-${index}.txt") << "output ${index}"
+        }
+        def largeSourceFile = sourceOutputDir.file("large.bin") << ("x" * (2 * 1024 * 1024))
+        def targetOutputDir = temporaryFolder.file("target")
+        def output = new ByteArrayOutputStream()
+        def executorFactory = new DefaultExecutorFactory()
+        def parallelPacker = new TarTaskOutputPacker(fileSystem, streamHasher, stringInterner, executorFactory, 4)
+        def targetFor = { File sourceFile -> new File(targetOutputDir, sourceOutputDir.toPath().relativize(sourceFile.toPath()).toString()) }
+
+        when:
+        pack output, prop(DIRECTORY, sourceOutputDir)
+
+        then:
+        _ * fileSystem.getUnixMode(_) >> 0644
+        0 * _
+
+        when:
+        def result = parallelPacker.unpack([prop(DIRECTORY, targetOutputDir).property] as SortedSet, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        _ * fileSystem.chmod(_, _)
+        0 * _
+
+        and:
+        sourceFiles.each { sourceFile ->
+            assert targetFor(sourceFile).text == sourceFile.text
+        }
+        targetOutputDir.file("large.bin").length() == largeSourceFile.length()
+        def snapshots = result.snapshots.get("test")
+        // Entries are packed in the order of the output snapshots, which is the traversal order of the source directory
+        def sourceDescendants = []
+        sourceOutputDir.traverse(type: FileType.ANY, visitRoot: true) { sourceDescendants += it }
+        snapshots*.path == sourceDescendants.collect { targetFor(it).absolutePath }
+        snapshots.findAll { it instanceof RegularFileSnapshot }.every { snapshot ->
+            snapshot.content.contentMd5 == Hashing.md5().hashBytes(new File(snapshot.path).bytes)
+        }
+
+        cleanup:
+        parallelPacker.stop()
+        executorFactory.stop()
+    }
+
+    def "shares the writer threads between unpacks"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        (1..10).each { index -> sourceOutputDir.file("file-${index}.txt") << "output ${index}" }
+        def output = new ByteArrayOutputStream()
+        pack output, prop(DIRECTORY, sourceOutputDir)
+        def delegateExecutorFactory = new DefaultExecutorFactory()
+        def executorFactory = Mock(ExecutorFactory)
+        def parallelPacker = new TarTaskOutputPacker(fileSystem, streamHasher, stringInterner, executorFactory, 4)
+
+        when:
+        def targetOutputDirs = (1..3).collect { index ->
+            def targetOutputDir = temporaryFolder.file("target-${index}")
+            parallelPacker.unpack([prop(DIRECTORY, targetOutputDir).property] as SortedSet, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+            targetOutputDir
+        }
+
+        then:
+        1 * executorFactory.create("Build cache unpack", 4) >> { delegateExecutorFactory.create("Build cache unpack", 4) }
+        _ * fileSystem.chmod(_, _)
+        0 * _
+
+        and:
+        targetOutputDirs.every { targetOutputDir ->
+            (1..10).every { index -> targetOutputDir.file("file-${index}.txt").text == "output ${index}" }
+        }
+
+        cleanup:
+        parallelPacker.stop()
+        delegateExecutorFactory.stop()
+    }
+
     def pack(OutputStream output, TaskOutputOriginWriter writeOrigin = this.writeOrigin, PropertyDefinition... propertyDefs) {
         def propertySpecs = propertyDefs*.property as SortedSet
         def outputSnapshots = propertyDefs.collectEntries { propertyDef ->
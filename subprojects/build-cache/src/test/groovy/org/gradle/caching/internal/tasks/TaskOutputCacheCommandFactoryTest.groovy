@@ -92,7 +92,10 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         def result = load.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged(_) >> { Iterable<String> affectedPaths ->
+            assert affectedPaths as List == [outputDir.absolutePath, outputFile.absolutePath, localStateFile.absolutePath]
+        }
         1 * originFactory.createReader(task)
 
         then:
@@ -112,9 +115,6 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
             assert propertySnapshots["outputDir"].elements == [outputDir, outputDirFile]
         }
 
-        then:
-        1 * taskProperties.getLocalStateFiles() >> localStateFiles
-
         then:
         result.artifactEntryCount == 123
         result.metadata == originMetadata
@@ -134,7 +134,8 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         command.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged(_)
         1 * originFactory.createReader(task)
 
         then:
@@ -146,9 +147,6 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         then:
         1 * taskArtifactState.afterOutputsRemovedBeforeTask()
 
-        then:
-        1 * taskProperties.getLocalStateFiles() >> localStateFiles
-
         then:
         def ex = thrown Exception
         !(ex instanceof UnrecoverableTaskOutputUnpackingException)
@@ -169,7 +167,8 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         command.load(input)
 
         then:
-        1 * taskOutputsGenerationListener.beforeTaskOutputChanged()
+        1 * taskProperties.getLocalStateFiles() >> localStateFiles
+        1 * taskOutputsGenerationListener.beforeTaskOutputChanged(_)
         1 * originFactory.createReader(task)
 
         then:
@@ -180,9 +179,6 @@ class TaskOutputCacheCommandFactoryTest extends Specification {
         then:
         1 * outputProperties.iterator() >> { throw new RuntimeException("cleanup error") }
 
-        then:
-        1 * taskProperties.getLocalStateFiles() >> localStateFiles
-
         then:
         def ex = thrown UnrecoverableTaskOutputUnpackingException
         ex.cause.message == "unpacking error"
@@ -19,6 +19,7 @@ package org.gradle.caching.local.internal
 import org.gradle.cache.PersistentCache
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -68,4 +69,50 @@ class DirectoryBuildCacheServiceTest extends Specification {
         cacheDir.listFiles() as List == []
         1 * key.getHashCode() >> hashCode
     }
+
+    def "evicts least recently used entries when the cache grows beyond its maximum size"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def limitedService = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, ".failed", 3000, executorFactory)
+        def oldest = cacheDir.file("0001") << ("x" * 1000)
+        def older = cacheDir.file("0002") << ("x" * 1000)
+        def recent = cacheDir.file("0003") << ("x" * 1000)
+        def unrelated = cacheDir.file("gc.properties") << ("x" * 1000)
+        oldest.lastModified = 1000
+        older.lastModified = 2000
+        recent.lastModified = 3000
+        def stored = cacheDir.file("0004")
+
+        when:
+        limitedService.store(key, new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output << ("x" * 1000)
+            }
+
+            @Override
+            long getSize() {
+                return 1000
+            }
+        })
+        limitedService.close()
+
+        then:
+        _ * key.getHashCode() >> "0004"
+        _ * persistentCache.withFileLock(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * fileStore.move("0004", _ as File) >> { String path, File file ->
+            assert file.renameTo(stored)
+            return null
+        }
+        1 * persistentCache.close()
+
+        and:
+        !oldest.exists()
+        !older.exists()
+        recent.exists()
+        stored.exists()
+        unrelated.exists()
+
+        cleanup:
+        executorFactory.stop()
+    }
 }
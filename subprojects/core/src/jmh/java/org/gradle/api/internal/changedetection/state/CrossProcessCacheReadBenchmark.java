@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.CacheBuilder;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.CacheAccessWorkerStatistics;
+import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.cache.internal.DefaultCacheFactory;
+import org.gradle.cache.internal.DefaultFileLockManager;
+import org.gradle.cache.internal.ProcessMetaDataProvider;
+import org.gradle.cache.internal.locklistener.DefaultFileLockContentionHandler;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.event.DefaultListenerManager;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.remote.internal.inet.InetAddressFactory;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Measures reads of an in-memory decorated, multi-process safe cache while another process uses the same cache, as happens when several daemons share a Gradle user home.
+ *
+ * The other process either does not exist, repeatedly reads entries of the cache, or repeatedly writes entries to the cache.
+ *
+ * Without another process, this process keeps the file lock and reads need no file access. With another process, the file lock is released
+ * when contended, and every read then checks that the cache is unchanged by reading the state of the lock file through a memory mapping.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CrossProcessCacheReadBenchmark {
+    private static final int ENTRY_COUNT = 1000;
+
+    @Param({"none", "reader", "writer"})
+    String otherProcess;
+
+    File cacheDir;
+    DefaultExecutorFactory executorFactory;
+    DefaultFileLockContentionHandler contentionHandler;
+    PersistentCache persistentCache;
+    PersistentIndexedCache<HashCode, HashCode> cache;
+    HashCode[] keys;
+    Process process;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        cacheDir = Files.createTempDirectory("cross-process-cache").toFile();
+        executorFactory = new DefaultExecutorFactory();
+        contentionHandler = new DefaultFileLockContentionHandler(executorFactory, new InetAddressFactory());
+        persistentCache = openCache(cacheDir, contentionHandler, executorFactory);
+        cache = createIndexedCache(persistentCache);
+        keys = createKeys();
+        for (int i = 0; i < keys.length; i++) {
+            cache.put(keys[i], keys[keys.length - 1 - i]);
+        }
+        // Populate the in-memory cache
+        for (HashCode key : keys) {
+            cache.get(key);
+        }
+        if (!otherProcess.equals("none")) {
+            String java = new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+            process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), OtherProcess.class.getName(), cacheDir.getAbsolutePath(), otherProcess)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            // Give the other process time to start using the cache
+            Thread.sleep(2000);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            process.waitFor();
+        }
+        persistentCache.close();
+        contentionHandler.stop();
+        executorFactory.stop();
+        FileUtils.deleteQuietly(cacheDir);
+    }
+
+    @Benchmark
+    public HashCode read() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(keys.length)]);
+    }
+
+    private static PersistentCache openCache(File cacheDir, DefaultFileLockContentionHandler contentionHandler, DefaultExecutorFactory executorFactory) {
+        ProcessMetaDataProvider metaDataProvider = new ProcessMetaDataProvider() {
+            @Override
+            public String getProcessIdentifier() {
+                return ManagementFactory.getRuntimeMXBean().getName();
+            }
+
+            @Override
+            public String getProcessDisplayName() {
+                return "benchmark";
+            }
+        };
+        FileLockManager lockManager = new DefaultFileLockManager(metaDataProvider, contentionHandler);
+        DefaultCacheFactory cacheFactory = new DefaultCacheFactory(lockManager, executorFactory, new CacheAccessWorkerStatistics());
+        return cacheFactory.open(cacheDir, "benchmark", null, Collections.<String, Object>emptyMap(), CacheBuilder.LockTarget.DefaultTarget, mode(FileLockManager.LockMode.None), null, null);
+    }
+
+    private static PersistentIndexedCache<HashCode, HashCode> createIndexedCache(PersistentCache persistentCache) {
+        InMemoryCacheDecoratorFactory decoratorFactory = new InMemoryCacheDecoratorFactory(true, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()));
+        HashCodeSerializer serializer = new HashCodeSerializer();
+        return persistentCache.createCache(new PersistentIndexedCacheParameters<HashCode, HashCode>("entries", serializer, serializer)
+            .cacheDecorator(decoratorFactory.decorator(ENTRY_COUNT * 2, true)));
+    }
+
+    private static HashCode[] createKeys() {
+        Random random = new Random(1234L);
+        HashCode[] keys = new HashCode[ENTRY_COUNT];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = HashCode.fromLongs(random.nextLong(), random.nextLong());
+        }
+        return keys;
+    }
+
+    /**
+     * The other process, which uses the cache until it is destroyed.
+     */
+    public static class OtherProcess {
+        public static void main(String[] args) throws InterruptedException {
+            File cacheDir = new File(args[0]);
+            boolean writer = args[1].equals("writer");
+            DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+            DefaultFileLockContentionHandler contentionHandler = new DefaultFileLockContentionHandler(executorFactory, new InetAddressFactory());
+            PersistentIndexedCache<HashCode, HashCode> cache = createIndexedCache(openCache(cacheDir, contentionHandler, executorFactory));
+            HashCode[] keys = createKeys();
+            Random random = new Random();
+            while (true) {
+                int index = random.nextInt(keys.length);
+                if (writer) {
+                    // Write less often than the batch window of the cache access worker, so that the lock is released in between
+                    cache.put(keys[index], keys[keys.length - 1 - index]);
+                    Thread.sleep(500);
+                } else {
+                    cache.get(keys[index]);
+                    Thread.sleep(1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory;
+import org.gradle.initialization.DefaultParallelismConfigurationManager;
+import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.event.DefaultListenerManager;
+import org.gradle.internal.hash.DefaultContentHasherFactory;
+import org.gradle.internal.hash.DefaultFileHasher;
+import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Measures snapshotting a directory tree without any cached file hashes, hashing files inline or concurrently.
+ *
+ * A deep tree nests its directories, a wide tree has all of its directories directly below the root.
+ * The tree either contains many small files or a few large ones.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class DirectoryTreeSnapshottingBenchmark {
+    private static final int DIRECTORY_COUNT = 16;
+
+    @Param({"deep", "wide"})
+    String shape;
+
+    @Param({"many-small", "few-large"})
+    String files;
+
+    @Param({"false", "true"})
+    boolean parallel;
+
+    File root;
+    DefaultExecutorFactory executorFactory;
+    DefaultFileSystemMirror fileSystemMirror;
+    DefaultFileSystemSnapshotter snapshotter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("snapshotting").toFile();
+        int filesPerDirectory = "many-small".equals(files) ? 256 : 2;
+        int fileSize = "many-small".equals(files) ? 1024 : 4 * 1024 * 1024;
+        Random random = new Random(1234L);
+        byte[] content = new byte[fileSize];
+        File dir = root;
+        for (int i = 0; i < DIRECTORY_COUNT; i++) {
+            dir = "deep".equals(shape) ? new File(dir, "dir" + i) : new File(root, "dir" + i);
+            for (int j = 0; j < filesPerDirectory; j++) {
+                random.nextBytes(content);
+                FileUtils.writeByteArrayToFile(new File(dir, "file" + j + ".bin"), content);
+            }
+        }
+        FileHasher fileHasher = new DefaultFileHasher(new DefaultStreamHasher(new DefaultContentHasherFactory()));
+        FileSystem fileSystem = FileSystems.getDefault();
+        executorFactory = new DefaultExecutorFactory();
+        fileSystemMirror = new DefaultFileSystemMirror(Collections.<CachedJarFileStore>emptyList());
+        snapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), fileSystem, new DefaultDirectoryFileTreeFactory(), fileSystemMirror, parallel ? executorFactory : null, new DefaultParallelismConfigurationManager(new DefaultListenerManager()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        snapshotter.stop();
+        executorFactory.stop();
+        FileUtils.forceDelete(root);
+    }
+
+    @Benchmark
+    public FileTreeSnapshot snapshotDirectoryTree() {
+        // Discard the snapshot of the previous invocation so that the tree is walked and hashed again
+        fileSystemMirror.beforeTaskOutputChanged();
+        return snapshotter.snapshotDirectoryTree(root);
+    }
+}
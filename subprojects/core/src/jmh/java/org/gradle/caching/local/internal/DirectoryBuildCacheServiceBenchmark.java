@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.Factory;
+import org.gradle.internal.resource.local.DefaultPathKeyFileStore;
+import org.gradle.internal.serialize.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+
+/**
+ * Measures the throughput of the local directory build cache when it is used by a number of workers in parallel.
+ * Each operation stores a new entry and loads it back.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class DirectoryBuildCacheServiceBenchmark {
+    private static final int OPERATIONS_PER_INVOCATION = 256;
+
+    @Param({"1", "4", "16", "32"})
+    int workerCount;
+
+    @Param({"1024", "1048576"})
+    int entrySize;
+
+    File cacheDir;
+    DirectoryBuildCacheService service;
+    ExecutorService executor;
+    byte[] content;
+    AtomicLong counter;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        cacheDir = Files.createTempDirectory("build-cache-benchmark").toFile();
+        service = new DirectoryBuildCacheService(new DefaultPathKeyFileStore(cacheDir), new UnlockedPersistentCache(cacheDir), new DefaultBuildCacheTempFileStore(cacheDir), DirectoryBuildCacheServiceFactory.FAILED_READ_SUFFIX);
+        executor = Executors.newFixedThreadPool(workerCount);
+        content = new byte[entrySize];
+        new Random(1234).nextBytes(content);
+        counter = new AtomicLong();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        executor.shutdownNow();
+        service.close();
+        FileUtils.forceDelete(cacheDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS_PER_INVOCATION)
+    public long storeAndLoad() throws InterruptedException, ExecutionException {
+        List<Future<Long>> results = newArrayListWithCapacity(OPERATIONS_PER_INVOCATION);
+        for (int i = 0; i < OPERATIONS_PER_INVOCATION; i++) {
+            results.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return storeAndLoad(new Key(counter.incrementAndGet()));
+                }
+            }));
+        }
+        long bytesRead = 0;
+        for (Future<Long> result : results) {
+            bytesRead += result.get();
+        }
+        return bytesRead;
+    }
+
+    private long storeAndLoad(BuildCacheKey key) {
+        service.store(key, new BuildCacheEntryWriter() {
+            @Override
+            public void writeTo(OutputStream output) throws IOException {
+                output.write(content);
+            }
+
+            @Override
+            public long getSize() {
+                return content.length;
+            }
+        });
+        final long[] bytesRead = new long[1];
+        service.load(key, new BuildCacheEntryReader() {
+            @Override
+            public void readFrom(InputStream input) throws IOException {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) >= 0) {
+                    bytesRead[0] += read;
+                }
+            }
+        });
+        return bytesRead[0];
+    }
+
+    private static class Key implements BuildCacheKey {
+        private final String hashCode;
+
+        Key(long value) {
+            this.hashCode = String.format("%032x", value);
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Stands in for the cache directory, without any cross-process locking, so that only the locking done by the service itself is measured.
+     */
+    private static class UnlockedPersistentCache implements PersistentCache {
+        private final File baseDir;
+
+        UnlockedPersistentCache(File baseDir) {
+            this.baseDir = baseDir;
+        }
+
+        @Override
+        public File getBaseDir() {
+            return baseDir;
+        }
+
+        @Override
+        public Collection<File> getReservedCacheFiles() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public <K, V> PersistentIndexedCache<K, V> createCache(PersistentIndexedCacheParameters<K, V> parameters) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <K, V> PersistentIndexedCache<K, V> createCache(String name, Class<K> keyType, Serializer<V> valueSerializer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public <T> T useCache(Factory<? extends T> action) {
+            return action.create();
+        }
+
+        @Override
+        public void useCache(Runnable action) {
+            action.run();
+        }
+
+        @Override
+        public <T> T withFileLock(Factory<? extends T> action) {
+            return action.create();
+        }
+
+        @Override
+        public void withFileLock(Runnable action) {
+            action.run();
+        }
+    }
+}
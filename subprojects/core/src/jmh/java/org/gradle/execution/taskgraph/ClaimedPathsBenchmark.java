@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares checking candidate output roots for overlaps with the output roots of running tasks,
+ * using {@link ClaimedPaths} and using a prefix check against every claimed path.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ClaimedPathsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    int claimedPathCount;
+
+    @Param({"trie", "prefix"})
+    String type;
+
+    private final List<String> claimed = new ArrayList<String>();
+    private final List<String> candidates = new ArrayList<String>();
+    private ClaimedPaths claimedPaths;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1234L);
+        claimed.clear();
+        candidates.clear();
+        claimedPaths = new ClaimedPaths();
+        for (int i = 0; i < claimedPathCount; i++) {
+            String path = outputRoot(random.nextInt(claimedPathCount * 2));
+            claimed.add(path);
+            claimedPaths.claim(path);
+        }
+        for (int i = 0; i < 100; i++) {
+            candidates.add(outputRoot(random.nextInt(claimedPathCount * 2)));
+        }
+    }
+
+    private static String outputRoot(int index) {
+        String sep = File.separator;
+        return sep + "home" + sep + "user" + sep + "build" + sep + "project" + (index / 10) + sep + "build" + sep + "classes" + sep + "task" + index;
+    }
+
+    @Benchmark
+    public void checkOverlaps(Blackhole blackhole) {
+        if (type.equals("trie")) {
+            for (String candidate : candidates) {
+                blackhole.consume(claimedPaths.overlaps(candidate));
+            }
+        } else {
+            for (String candidate : candidates) {
+                blackhole.consume(overlapsAny(candidate));
+            }
+        }
+    }
+
+    @Benchmark
+    public void claimAndRelease() {
+        if (type.equals("trie")) {
+            for (String candidate : candidates) {
+                claimedPaths.claim(candidate);
+            }
+            for (String candidate : candidates) {
+                claimedPaths.release(candidate);
+            }
+        } else {
+            claimed.addAll(candidates);
+            for (String candidate : candidates) {
+                claimed.remove(candidate);
+            }
+        }
+    }
+
+    private boolean overlapsAny(String candidate) {
+        for (String path : claimed) {
+            if (overlaps(candidate, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlaps(String firstPath, String secondPath) {
+        if (firstPath.equals(secondPath)) {
+            return true;
+        }
+        if (firstPath.length() == secondPath.length()) {
+            return false;
+        }
+        String shorter = firstPath.length() > secondPath.length() ? secondPath : firstPath;
+        String longer = firstPath.length() > secondPath.length() ? firstPath : secondPath;
+        return longer.startsWith(shorter) && longer.charAt(shorter.length()) == File.separatorChar;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.io.Files;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.initialization.DefaultParallelismConfigurationManager;
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration;
+import org.gradle.internal.event.DefaultListenerManager;
+import org.gradle.internal.resources.DefaultResourceLockCoordinationService;
+import org.gradle.internal.work.DefaultWorkerLeaseService;
+import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost of selecting and completing every task of an execution plan, for different graph sizes.
+ * Tasks form a binary tree, so that a large number of tasks become ready at the same time.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class TaskExecutionPlanSelectionBenchmark {
+
+    @Param({"100", "1000", "4000"})
+    int taskCount;
+
+    @Param({"1", "50"})
+    int projectCount;
+
+    private final List<Task> tasks = new ArrayList<Task>();
+    private ProjectInternal root;
+    private DefaultResourceLockCoordinationService coordinationService;
+    private DefaultWorkerLeaseService workerLeaseService;
+    private WorkerLease workerLease;
+
+    @Setup(Level.Trial)
+    public void createTasks() {
+        File projectDir = Files.createTempDir();
+        root = (ProjectInternal) ProjectBuilder.builder().withProjectDir(projectDir).build();
+        List<Project> projects = new ArrayList<Project>();
+        for (int i = 0; i < projectCount; i++) {
+            projects.add(ProjectBuilder.builder().withParent(root).withName("project" + i).withProjectDir(new File(projectDir, "project" + i)).build());
+        }
+        tasks.clear();
+        for (int i = 0; i < taskCount; i++) {
+            Task task = projects.get(i % projectCount).getTasks().create("task" + i);
+            if (i > 0) {
+                task.dependsOn(tasks.get((i - 1) / 2));
+            }
+            tasks.add(task);
+        }
+
+        coordinationService = new DefaultResourceLockCoordinationService();
+        DefaultParallelismConfigurationManager parallelismConfigurationManager = new DefaultParallelismConfigurationManager(new DefaultListenerManager());
+        parallelismConfigurationManager.setParallelismConfiguration(new DefaultParallelismConfiguration(true, 1));
+        workerLeaseService = new DefaultWorkerLeaseService(coordinationService, parallelismConfigurationManager);
+        WorkerLease rootWorkerLease = workerLeaseService.getWorkerLease();
+        rootWorkerLease.startChild();
+        workerLease = workerLeaseService.getCurrentWorkerLease().createChild();
+    }
+
+    @Benchmark
+    public void selectAllTasks(final Blackhole blackhole) {
+        final DefaultTaskExecutionPlan executionPlan = new DefaultTaskExecutionPlan(new DefaultBuildCancellationToken(), coordinationService, workerLeaseService, root.getGradle());
+        executionPlan.addToTaskGraph(tasks);
+        executionPlan.determineExecutionPlan();
+        Action<TaskInfo> taskExecution = new Action<TaskInfo>() {
+            @Override
+            public void execute(TaskInfo taskInfo) {
+                blackhole.consume(taskInfo);
+                executionPlan.taskComplete(taskInfo);
+            }
+        };
+        while (executionPlan.executeWithTask(workerLease, taskExecution)) {
+            // Keep selecting until the plan is drained
+        }
+        executionPlan.clear();
+    }
+}
@@ -29,6 +29,7 @@ import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.rules.DefaultTaskUpToDateState;
+import org.gradle.api.internal.changedetection.rules.FileCollectionChangeDetector;
 import org.gradle.api.internal.changedetection.rules.NoHistoryTaskUpToDateState;
 import org.gradle.api.internal.changedetection.rules.TaskStateChange;
 import org.gradle.api.internal.changedetection.rules.TaskUpToDateState;
@@ -61,13 +62,16 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
     private final Instantiator instantiator;
     private final TaskOutputFilesRepository taskOutputFilesRepository;
     private final TaskCacheKeyCalculator taskCacheKeyCalculator;
+    private final FileCollectionChangeDetector changeDetector;
 
     public DefaultTaskArtifactStateRepository(TaskHistoryRepository taskHistoryRepository, Instantiator instantiator,
-                                              TaskOutputFilesRepository taskOutputFilesRepository, TaskCacheKeyCalculator taskCacheKeyCalculator) {
+                                              TaskOutputFilesRepository taskOutputFilesRepository, TaskCacheKeyCalculator taskCacheKeyCalculator,
+                                              FileCollectionChangeDetector changeDetector) {
         this.taskHistoryRepository = taskHistoryRepository;
         this.instantiator = instantiator;
         this.taskOutputFilesRepository = taskOutputFilesRepository;
         this.taskCacheKeyCalculator = taskCacheKeyCalculator;
+        this.changeDetector = changeDetector;
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task, TaskProperties taskProperties) {
@@ -209,7 +213,7 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
                 if (previousExecution == null) {
                     states = NoHistoryTaskUpToDateState.INSTANCE;
                 } else {
-                    states = new DefaultTaskUpToDateState(previousExecution, currentExecution, task);
+                    states = new DefaultTaskUpToDateState(previousExecution, currentExecution, task, changeDetector);
                 }
             }
             return states;
@@ -31,11 +31,13 @@ public abstract class AbstractNamedFileSnapshotTaskStateChanges implements TaskS
     protected final TaskExecution previous;
     protected final TaskExecution current;
     private final String title;
+    private final FileCollectionChangeDetector changeDetector;
 
-    protected AbstractNamedFileSnapshotTaskStateChanges(TaskExecution previous, TaskExecution current, String title) {
+    protected AbstractNamedFileSnapshotTaskStateChanges(TaskExecution previous, TaskExecution current, String title, FileCollectionChangeDetector changeDetector) {
         this.previous = previous;
         this.current = current;
         this.title = title;
+        this.changeDetector = changeDetector;
     }
 
     private ImmutableSortedMap<String, FileCollectionSnapshot> getPrevious() {
@@ -62,7 +64,7 @@ public abstract class AbstractNamedFileSnapshotTaskStateChanges implements TaskS
             @Override
             public void updated(String property, FileCollectionSnapshot previousSnapshot, FileCollectionSnapshot currentSnapshot) {
                 String propertyTitle = title + " property '" + property + "'";
-                iterators.add(currentSnapshot.iterateContentChangesSince(previousSnapshot, propertyTitle, includeAdded));
+                iterators.add(changeDetector.iterateContentChangesSince(currentSnapshot, previousSnapshot, propertyTitle, includeAdded));
             }
         });
 
@@ -29,7 +29,7 @@ public class DefaultTaskUpToDateState implements TaskUpToDateState {
     private final TaskStateChanges rebuildChanges;
     private final TaskStateChanges outputFilePropertyChanges;
 
-    public DefaultTaskUpToDateState(TaskExecution lastExecution, TaskExecution thisExecution, TaskInternal task) {
+    public DefaultTaskUpToDateState(TaskExecution lastExecution, TaskExecution thisExecution, TaskInternal task, FileCollectionChangeDetector changeDetector) {
         TaskStateChanges previousSuccessState = new PreviousSuccessTaskStateChanges(lastExecution);
         TaskStateChanges taskTypeState = new TaskTypeTaskStateChanges(lastExecution, thisExecution, task);
         TaskStateChanges inputPropertyChanges = new InputPropertyTaskStateChanges(lastExecution, thisExecution, task);
@@ -37,18 +37,18 @@ public class DefaultTaskUpToDateState implements TaskUpToDateState {
 
         // Capture outputs state
         this.outputFilePropertyChanges = new OutputPropertyTaskChanges(lastExecution, thisExecution, task);
-        OutputFileTaskStateChanges uncachedOutputChanges = new OutputFileTaskStateChanges(lastExecution, thisExecution);
+        OutputFileTaskStateChanges uncachedOutputChanges = new OutputFileTaskStateChanges(lastExecution, thisExecution, changeDetector);
         TaskStateChanges outputFileChanges = caching(uncachedOutputChanges);
         this.outputFileChanges = uncachedOutputChanges;
 
         // Capture input files state
         TaskStateChanges inputFilePropertyChanges = new InputFilePropertyTaskStateChanges(lastExecution, thisExecution, task);
-        TaskStateChanges directInputFileChanges = new InputFileTaskStateChanges(lastExecution, thisExecution);
+        TaskStateChanges directInputFileChanges = new InputFileTaskStateChanges(lastExecution, thisExecution, changeDetector);
         TaskStateChanges inputFileChanges = caching(directInputFileChanges);
         this.inputFileChanges = new ErrorHandlingTaskStateChanges(task, inputFileChanges);
 
         // Capture discovered inputs state from previous execution
-        DiscoveredInputTaskStateChanges discoveredChanges = new DiscoveredInputTaskStateChanges(lastExecution, thisExecution);
+        DiscoveredInputTaskStateChanges discoveredChanges = new DiscoveredInputTaskStateChanges(lastExecution, thisExecution, changeDetector);
         TaskStateChanges discoveredInputFileChanges = caching(discoveredChanges);
 
         this.allTaskChanges = new ErrorHandlingTaskStateChanges(task, new SummaryTaskStateChanges(MAX_OUT_OF_DATE_MESSAGES, previousSuccessState, taskTypeState, inputPropertyChanges, inputPropertyValueChanges, outputFilePropertyChanges, outputFileChanges, inputFilePropertyChanges, inputFileChanges, discoveredInputFileChanges));
@@ -26,15 +26,17 @@ import java.util.Iterator;
 public class DiscoveredInputTaskStateChanges implements TaskStateChanges {
     private final TaskExecution previous;
     private final TaskExecution current;
+    private final FileCollectionChangeDetector changeDetector;
 
-    public DiscoveredInputTaskStateChanges(TaskExecution previous, TaskExecution current) {
+    public DiscoveredInputTaskStateChanges(TaskExecution previous, TaskExecution current, FileCollectionChangeDetector changeDetector) {
         this.previous = previous;
         this.current = current;
+        this.changeDetector = changeDetector;
     }
 
     @Override
     public Iterator<TaskStateChange> iterator() {
         FileCollectionSnapshot previousDiscoveredInputs = previous.getDiscoveredInputFilesSnapshot();
-        return current.getDiscoveredInputFilesSnapshot().iterateContentChangesSince(previousDiscoveredInputs, "discovered input", true);
+        return changeDetector.iterateContentChangesSince(current.getDiscoveredInputFilesSnapshot(), previousDiscoveredInputs, "discovered input", true);
     }
 }
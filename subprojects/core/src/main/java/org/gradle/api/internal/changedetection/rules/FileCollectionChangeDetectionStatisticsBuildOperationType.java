@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.rules;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Reports how often the file collections of tasks could be detected as unchanged by their combined hash during a build.
+ *
+ * @since 4.7
+ */
+public final class FileCollectionChangeDetectionStatisticsBuildOperationType implements BuildOperationType<FileCollectionChangeDetectionStatisticsBuildOperationType.Details, FileCollectionChangeDetectionStatisticsBuildOperationType.Result> {
+
+    public interface Details {
+    }
+
+    public interface Result {
+        /**
+         * The number of file collections whose combined hash was the same as in the previous execution.
+         */
+        long getUnchangedByHashCount();
+
+        /**
+         * The number of file collections whose combined hash was different, and which were compared file by file.
+         */
+        long getComparedFileByFileCount();
+    }
+
+    private FileCollectionChangeDetectionStatisticsBuildOperationType() {
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.rules;
+
+import com.google.common.collect.Iterators;
+import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
+import org.gradle.internal.operations.ResettableStatistics;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects the changes between two snapshots of a file collection. Compares the combined hashes of the snapshots first,
+ * and only compares the snapshots file by file when the hashes differ.
+ */
+public class FileCollectionChangeDetector implements ResettableStatistics<FileCollectionChangeDetector.Statistics> {
+    private final AtomicLong unchangedByHash = new AtomicLong();
+    private final AtomicLong comparedFileByFile = new AtomicLong();
+
+    public Iterator<TaskStateChange> iterateContentChangesSince(FileCollectionSnapshot current, FileCollectionSnapshot previous, String title, boolean includeAdded) {
+        if (current.getHash().equals(previous.getHash())) {
+            unchangedByHash.incrementAndGet();
+            return Iterators.emptyIterator();
+        }
+        comparedFileByFile.incrementAndGet();
+        return current.iterateContentChangesSince(previous, title, includeAdded);
+    }
+
+    /**
+     * Returns the statistics collected since the last call to this method, and resets them.
+     */
+    @Override
+    public Statistics getAndResetStatistics() {
+        return new Statistics(unchangedByHash.getAndSet(0), comparedFileByFile.getAndSet(0));
+    }
+
+    public static class Statistics implements FileCollectionChangeDetectionStatisticsBuildOperationType.Result {
+        private final long unchangedByHash;
+        private final long comparedFileByFile;
+
+        Statistics(long unchangedByHash, long comparedFileByFile) {
+            this.unchangedByHash = unchangedByHash;
+            this.comparedFileByFile = comparedFileByFile;
+        }
+
+        @Override
+        public long getUnchangedByHashCount() {
+            return unchangedByHash;
+        }
+
+        @Override
+        public long getComparedFileByFileCount() {
+            return comparedFileByFile;
+        }
+    }
+}
@@ -25,8 +25,8 @@ import java.util.Iterator;
 
 @NonNullApi
 public class InputFileTaskStateChanges extends AbstractNamedFileSnapshotTaskStateChanges {
-    public InputFileTaskStateChanges(TaskExecution previous, TaskExecution current) {
-        super(previous, current, "Input");
+    public InputFileTaskStateChanges(TaskExecution previous, TaskExecution current, FileCollectionChangeDetector changeDetector) {
+        super(previous, current, "Input", changeDetector);
     }
 
     @Override
@@ -26,8 +26,8 @@ import java.util.Iterator;
 @NonNullApi
 public class OutputFileTaskStateChanges extends AbstractNamedFileSnapshotTaskStateChanges {
 
-    public OutputFileTaskStateChanges(TaskExecution previous, TaskExecution current) {
-        super(previous, current, "Output");
+    public OutputFileTaskStateChanges(TaskExecution previous, TaskExecution current, FileCollectionChangeDetector changeDetector) {
+        super(previous, current, "Output", changeDetector);
     }
 
     @Override
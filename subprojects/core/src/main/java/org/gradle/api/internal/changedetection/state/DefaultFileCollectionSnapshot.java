@@ -27,21 +27,30 @@ import org.gradle.caching.internal.BuildCacheHasher;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
-    private final Map<String, NormalizedFileSnapshot> snapshots;
+    private Map<String, NormalizedFileSnapshot> snapshots;
+    // Snapshots read from the task history are kept in their serialized form until they are first needed
+    private volatile byte[] encodedSnapshots;
+    private final SnapshotMapSerializer snapshotMapSerializer;
+    private final boolean empty;
     private final TaskFilePropertyCompareStrategy compareStrategy;
     private final boolean pathIsAbsolute;
     private final Factory<List<File>> cachedElementsFactory = Factories.softReferenceCache(new Factory<List<File>>() {
@@ -64,6 +73,19 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
 
     DefaultFileCollectionSnapshot(Map<String, NormalizedFileSnapshot> snapshots, @Nullable HashCode hashCode, TaskFilePropertyCompareStrategy compareStrategy, boolean pathIsAbsolute) {
         this.snapshots = snapshots;
+        this.encodedSnapshots = null;
+        this.snapshotMapSerializer = null;
+        this.empty = snapshots.isEmpty();
+        this.hashCode = hashCode;
+        this.compareStrategy = compareStrategy;
+        this.pathIsAbsolute = pathIsAbsolute;
+    }
+
+    private DefaultFileCollectionSnapshot(byte[] encodedSnapshots, SnapshotMapSerializer snapshotMapSerializer, boolean empty, HashCode hashCode, TaskFilePropertyCompareStrategy compareStrategy, boolean pathIsAbsolute) {
+        this.snapshots = null;
+        this.encodedSnapshots = encodedSnapshots;
+        this.snapshotMapSerializer = snapshotMapSerializer;
+        this.empty = empty;
         this.hashCode = hashCode;
         this.compareStrategy = compareStrategy;
         this.pathIsAbsolute = pathIsAbsolute;
@@ -71,11 +93,27 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
 
     @Override
     public Map<String, NormalizedFileSnapshot> getSnapshots() {
+        if (encodedSnapshots != null) {
+            decodeSnapshots();
+        }
         return snapshots;
     }
 
+    private synchronized void decodeSnapshots() {
+        byte[] encoded = encodedSnapshots;
+        if (encoded == null) {
+            return;
+        }
+        try {
+            snapshots = snapshotMapSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(encoded)));
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        encodedSnapshots = null;
+    }
+
     public Map<String, FileContentSnapshot> getContentSnapshots() {
-        return Maps.transformValues(snapshots, new Function<NormalizedFileSnapshot, FileContentSnapshot>() {
+        return Maps.transformValues(getSnapshots(), new Function<NormalizedFileSnapshot, FileContentSnapshot>() {
             @Override
             public FileContentSnapshot apply(NormalizedFileSnapshot normalizedSnapshot) {
                 return normalizedSnapshot.getSnapshot();
@@ -85,7 +123,7 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
 
     @Override
     public boolean isEmpty() {
-        return snapshots.isEmpty();
+        return empty;
     }
 
     @Override
@@ -93,14 +131,14 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
         if (includeAdded && hashCode != null && getHash().equals(oldSnapshot.getHash())) {
             return Iterators.emptyIterator();
         }
-        return compareStrategy.iterateContentChangesSince(snapshots, oldSnapshot.getSnapshots(), fileType, pathIsAbsolute, includeAdded);
+        return compareStrategy.iterateContentChangesSince(getSnapshots(), oldSnapshot.getSnapshots(), fileType, pathIsAbsolute, includeAdded);
     }
 
     @Override
     public HashCode getHash() {
         if (hashCode == null) {
             DefaultBuildCacheHasher hasher = new DefaultBuildCacheHasher();
-            compareStrategy.appendToHasher(hasher, snapshots.values());
+            compareStrategy.appendToHasher(hasher, getSnapshots().values());
             hashCode = hasher.hash();
         }
         return hashCode;
@@ -117,6 +155,7 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
     }
 
     private List<File> doGetElements() {
+        Map<String, NormalizedFileSnapshot> snapshots = getSnapshots();
         List<File> files = Lists.newArrayListWithCapacity(snapshots.size());
         for (String name : snapshots.keySet()) {
             files.add(new File(name));
@@ -131,12 +170,12 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
 
     @Override
     public String toString() {
-        return compareStrategy + (pathIsAbsolute ? " with absolute paths" : "") + ": " + snapshots;
+        return compareStrategy + (pathIsAbsolute ? " with absolute paths" : "") + ": " + getSnapshots();
     }
 
     private List<File> doGetFiles() {
         List<File> files = Lists.newArrayList();
-        for (Map.Entry<String, NormalizedFileSnapshot> entry : snapshots.entrySet()) {
+        for (Map.Entry<String, NormalizedFileSnapshot> entry : getSnapshots().entrySet()) {
             if (entry.getValue().getSnapshot().getType() == FileType.RegularFile) {
                 files.add(new File(entry.getKey()));
             }
@@ -155,22 +194,29 @@ public class DefaultFileCollectionSnapshot implements FileCollectionSnapshot {
 
         public DefaultFileCollectionSnapshot read(Decoder decoder) throws Exception {
             TaskFilePropertyCompareStrategy compareStrategy = TaskFilePropertyCompareStrategy.values()[decoder.readSmallInt()];
-            boolean hasHash = decoder.readBoolean();
-            HashCode hash = hasHash ? hashCodeSerializer.read(decoder) : null;
-            Map<String, NormalizedFileSnapshot> snapshots = snapshotMapSerializer.read(decoder);
-            boolean pathIsUnique = decoder.readBoolean();
-            return new DefaultFileCollectionSnapshot(snapshots, hash, compareStrategy, pathIsUnique);
+            HashCode hash = hashCodeSerializer.read(decoder);
+            boolean pathIsAbsolute = decoder.readBoolean();
+            boolean empty = decoder.readBoolean();
+            byte[] encodedSnapshots = decoder.readBinary();
+            return new DefaultFileCollectionSnapshot(encodedSnapshots, snapshotMapSerializer, empty, hash, compareStrategy, pathIsAbsolute);
         }
 
         public void write(Encoder encoder, DefaultFileCollectionSnapshot value) throws Exception {
             encoder.writeSmallInt(value.compareStrategy.ordinal());
-            boolean hasHash = value.hashCode != null;
-            encoder.writeBoolean(hasHash);
-            if (hasHash) {
-                hashCodeSerializer.write(encoder, value.getHash());
-            }
-            snapshotMapSerializer.write(encoder, value.snapshots);
+            // Always store the combined hash, so unchanged snapshots can be detected without decoding them
+            hashCodeSerializer.write(encoder, value.getHash());
             encoder.writeBoolean(value.pathIsAbsolute);
+            encoder.writeBoolean(value.empty);
+            byte[] encodedSnapshots = value.encodedSnapshots;
+            encoder.writeBinary(encodedSnapshots != null ? encodedSnapshots : encode(value.getSnapshots()));
+        }
+
+        private byte[] encode(Map<String, NormalizedFileSnapshot> snapshots) throws Exception {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+            snapshotMapSerializer.write(encoder, snapshots);
+            encoder.flush();
+            return outputStream.toByteArray();
         }
 
         @Override
@@ -16,34 +16,107 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Action;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.tasks.execution.TaskOutputChangesListener;
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.classpath.CachedJarFileStore;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.DefaultFileHierarchySet;
 import org.gradle.internal.file.FileHierarchySet;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.gradle.internal.filewatch.jdk7.Jdk7FileWatcherFactory;
+import org.gradle.internal.operations.ResettableStatistics;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * See {@link DefaultFileSystemSnapshotter} for some more details
+ * See {@link DefaultFileSystemSnapshotter} for some more details.
+ *
+ * <p>When the {@value #RETAIN_FILE_TREES_PROPERTY} system property is set for a build, the directory tree snapshots are retained
+ * for the next build in the same process, such as the next build in a daemon. The retained directories are watched for changes,
+ * and the state for a changed path is discarded as soon as the change is reported. When the watcher cannot tell which paths
+ * have changed, for example because too many events happened at once, or when the watcher fails, all retained state is discarded
+ * and the next build scans the file system again.</p>
+ *
+ * <p>A directory tree is watched before it is walked, and its snapshot is not retained when a change in the tree is reported while
+ * it is walked. Where the file system reports changes to a whole directory tree natively, see {@link Jdk7FileWatcherFactory#isFileTreeWatchingSupported()},
+ * the root of the tree is watched. Elsewhere, each directory of the tree is watched as the walk reaches it, before its entries are read.</p>
+ *
+ * <p>At the start of each build, the mirror waits until the changes that happened before the build started have been reported, so that
+ * no retained tree is used after a change to it. To do that, it creates a marker file in a directory of its own and waits for the marker to be
+ * reported. This relies on changes being reported in the order in which they happen, so trees are only retained where the operating
+ * system reports changes natively, see {@link Jdk7FileWatcherFactory#isNativeWatchingSupported()}. Elsewhere, changes are polled for.</p>
  */
-public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener {
+public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChangesListener, RootBuildLifecycleListener, Stoppable, ResettableStatistics<DefaultFileSystemMirror.Statistics> {
+    public static final String RETAIN_FILE_TREES_PROPERTY = "org.gradle.internal.fileSystemMirror.retainFileTrees";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileSystemMirror.class);
+    private static final long PENDING_CHANGES_TIMEOUT_SECONDS = 10;
+
     // Maps from interned absolute path for a file to known details for the file.
-    private final Map<String, FileSnapshot> files = new ConcurrentHashMap<String, FileSnapshot>();
+    // The state for files that do not live in an append-only cache is kept sorted by path, so that the state for all descendants of a path can be found without a full scan.
+    private final ConcurrentNavigableMap<String, FileSnapshot> files = new ConcurrentSkipListMap<String, FileSnapshot>();
     private final Map<String, FileSnapshot> cacheFiles = new ConcurrentHashMap<String, FileSnapshot>();
     // Maps from interned absolute path for a directory to known details for the directory.
-    private final Map<String, FileTreeSnapshot> trees = new ConcurrentHashMap<String, FileTreeSnapshot>();
+    private final ConcurrentNavigableMap<String, FileTreeSnapshot> trees = new ConcurrentSkipListMap<String, FileTreeSnapshot>();
     private final Map<String, FileTreeSnapshot> cacheTrees = new ConcurrentHashMap<String, FileTreeSnapshot>();
     // Maps from interned absolute path to a snapshot
-    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+    private final ConcurrentNavigableMap<String, Snapshot> snapshots = new ConcurrentSkipListMap<String, Snapshot>();
     private final Map<String, Snapshot> cacheSnapshots = new ConcurrentHashMap<String, Snapshot>();
     private final FileHierarchySet cachedDirectories;
+    @Nullable
+    private final FileWatcherFactory fileWatcherFactory;
+    @Nullable
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final boolean watchingSupported;
+    private final boolean fileTreeWatchingSupported;
+    private final AtomicReference<FileWatcher> fileTreeWatcher = new AtomicReference<FileWatcher>();
+    // The directory trees being walked while watching, mapped to whether they are still unchanged
+    private final ConcurrentNavigableMap<String, Boolean> walkingTrees = new ConcurrentSkipListMap<String, Boolean>();
+    // The directory holding the marker files, which is watched along with the retained trees
+    private volatile File markerDir;
+    private final AtomicReference<ChangeMarker> pendingMarker = new AtomicReference<ChangeMarker>();
+    private final AtomicLong markerCount = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fullInvalidations = new AtomicLong();
+    private final AtomicLong partialInvalidations = new AtomicLong();
+    private final AtomicLong invalidatedEntries = new AtomicLong();
 
     public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores) {
+        this(fileStores, null, null);
+    }
+
+    public DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, @Nullable FileWatcherFactory fileWatcherFactory, @Nullable TemporaryFileProvider temporaryFileProvider) {
+        this(fileStores, fileWatcherFactory, temporaryFileProvider, Jdk7FileWatcherFactory.isNativeWatchingSupported(), Jdk7FileWatcherFactory.isFileTreeWatchingSupported());
+    }
+
+    DefaultFileSystemMirror(List<CachedJarFileStore> fileStores, @Nullable FileWatcherFactory fileWatcherFactory, @Nullable TemporaryFileProvider temporaryFileProvider, boolean watchingSupported, boolean fileTreeWatchingSupported) {
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.watchingSupported = watchingSupported;
+        this.fileTreeWatchingSupported = fileTreeWatchingSupported;
         FileHierarchySet cachedDirectories = DefaultFileHierarchySet.of();
         for (CachedJarFileStore fileStore : fileStores) {
             for (File file : fileStore.getFileStoreRoots()) {
@@ -59,9 +132,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         // Could potentially also look whether we have the details for an ancestor directory tree
         // Could possibly infer that the path refers to a directory, if we have details for a descendant path (and it's not a missing file)
         if (cachedDirectories.contains(path)) {
-            return cacheFiles.get(path);
+            return record(cacheFiles.get(path));
         } else {
-            return files.get(path);
+            return record(files.get(path));
         }
     }
 
@@ -78,9 +151,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
     @Override
     public Snapshot getContent(String path) {
         if (cachedDirectories.contains(path)) {
-            return cacheSnapshots.get(path);
+            return record(cacheSnapshots.get(path));
         } else {
-            return snapshots.get(path);
+            return record(snapshots.get(path));
         }
     }
 
@@ -99,42 +172,297 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputChan
         // Could potentially also look whether we have the details for an ancestor directory tree
         // Could possibly also short-circuit some scanning if we have details for some sub trees
         if (cachedDirectories.contains(path)) {
-            return cacheTrees.get(path);
+            return record(cacheTrees.get(path));
         } else {
-            return trees.get(path);
+            return record(trees.get(path));
+        }
+    }
+
+    @Override
+    public void beforeDirectoryTreeWalked(String path) {
+        FileWatcher watcher = fileTreeWatcher.get();
+        if (watcher != null && !cachedDirectories.contains(path)) {
+            walkingTrees.put(path, Boolean.TRUE);
+            if (fileTreeWatchingSupported) {
+                watch(watcher, path);
+            } else {
+                watchDirectory(watcher, path);
+            }
+        }
+    }
+
+    @Override
+    public void beforeDirectoryListed(String path) {
+        FileWatcher watcher = fileTreeWatcher.get();
+        if (watcher != null && !fileTreeWatchingSupported && !cachedDirectories.contains(path)) {
+            watchDirectory(watcher, path);
         }
     }
 
     @Override
     public void putDirectory(FileTreeSnapshot directory) {
-        if (cachedDirectories.contains(directory.getPath())) {
-            cacheTrees.put(directory.getPath(), directory);
+        String path = directory.getPath();
+        if (cachedDirectories.contains(path)) {
+            cacheTrees.put(path, directory);
+        } else {
+            if (fileTreeWatcher.get() != null && walkingTrees.remove(path) == null) {
+                // The tree was not watched for the whole of its walk, or has changed during the walk
+                return;
+            }
+            trees.put(path, directory);
+        }
+    }
+
+    @Nullable
+    private <T> T record(@Nullable T value) {
+        if (value == null) {
+            misses.incrementAndGet();
         } else {
-            trees.put(directory.getPath(), directory);
+            hits.incrementAndGet();
         }
+        return value;
     }
 
     @Override
     public void beforeTaskOutputChanged() {
         // When the task outputs are generated, throw away all state for files that do not live in an append-only cache.
-        // This is intentionally very simple, to be improved later
+        fullInvalidations.incrementAndGet();
+        invalidatedEntries.addAndGet(files.size() + trees.size() + snapshots.size());
         files.clear();
         trees.clear();
         snapshots.clear();
     }
 
+    @Override
+    public void beforeTaskOutputChanged(Iterable<String> affectedOutputPaths) {
+        // Throw away the state for the affected paths, their ancestors and their descendants, for files that do not live in an append-only cache.
+        partialInvalidations.incrementAndGet();
+        long removed = 0;
+        for (String path : affectedOutputPaths) {
+            if (cachedDirectories.contains(path)) {
+                continue;
+            }
+            removed += invalidate(files, path);
+            removed += invalidate(trees, path);
+            removed += invalidate(snapshots, path);
+        }
+        invalidatedEntries.addAndGet(removed);
+    }
+
+    private static int invalidate(ConcurrentNavigableMap<String, ?> entries, String path) {
+        int removed = 0;
+        for (File ancestorOrSelf = new File(path); ancestorOrSelf != null; ancestorOrSelf = ancestorOrSelf.getParentFile()) {
+            if (entries.remove(ancestorOrSelf.getPath()) != null) {
+                removed++;
+            }
+        }
+        String prefix = path.endsWith(File.separator) ? path : path + File.separatorChar;
+        String end = prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1);
+        Iterator<String> descendants = entries.subMap(prefix, true, end, false).keySet().iterator();
+        while (descendants.hasNext()) {
+            descendants.next();
+            descendants.remove();
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the statistics collected since the last call to this method, and resets them.
+     */
+    @Override
+    public Statistics getAndResetStatistics() {
+        return new Statistics(hits.getAndSet(0), misses.getAndSet(0), fullInvalidations.getAndSet(0), partialInvalidations.getAndSet(0), invalidatedEntries.getAndSet(0));
+    }
+
     @Override
     public void afterStart() {
+        if (fileWatcherFactory != null && temporaryFileProvider != null && watchingSupported && Boolean.getBoolean(RETAIN_FILE_TREES_PROPERTY)) {
+            if (fileTreeWatcher.get() == null) {
+                startWatching(fileWatcherFactory, temporaryFileProvider);
+            } else if (!awaitPendingChanges()) {
+                LOGGER.debug("Changes to the file system were not reported in time, discarding retained file tree state.");
+                walkingTrees.clear();
+                trees.clear();
+            }
+        } else {
+            stopWatching();
+        }
+    }
+
+    /**
+     * Waits until the changes that happened before this method was called have been reported, by creating a marker file and waiting for it to be reported.
+     *
+     * The marker is created twice. A directory whose changes are being reported when the first marker is created is queued to be reported again
+     * only when its new changes are picked up, and so after the first marker. It is queued before the second marker.
+     */
+    private boolean awaitPendingChanges() {
+        for (int i = 0; i < 2; i++) {
+            File file = new File(markerDir, "marker-" + markerCount.incrementAndGet());
+            ChangeMarker marker = new ChangeMarker(file.getPath());
+            pendingMarker.set(marker);
+            try {
+                if (!file.createNewFile() || !marker.reported.await(PENDING_CHANGES_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    return false;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Could not create marker file {}.", file, e);
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                pendingMarker.set(null);
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+        return true;
     }
 
     @Override
     public void beforeComplete() {
-        // We throw away all state between builds
+        // We throw away all state between builds, except for the directory trees that are being watched for changes
         files.clear();
         cacheFiles.clear();
-        trees.clear();
+        if (!isWatching()) {
+            trees.clear();
+        }
         cacheTrees.clear();
         snapshots.clear();
         cacheSnapshots.clear();
     }
+
+    @Override
+    public void stop() {
+        stopWatching();
+    }
+
+    private boolean isWatching() {
+        FileWatcher watcher = fileTreeWatcher.get();
+        return watcher != null && watcher.isRunning();
+    }
+
+    private void startWatching(FileWatcherFactory fileWatcherFactory, TemporaryFileProvider temporaryFileProvider) {
+        // The trees snapshotted before the watcher was started may already be out of date
+        trees.clear();
+        final File markerDir = temporaryFileProvider.createTemporaryDirectory("file-system-mirror", null);
+        this.markerDir = markerDir;
+        FileWatcher watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+            @Override
+            public void execute(Throwable throwable) {
+                LOGGER.debug("Watching the file system failed, discarding retained file tree state.", throwable);
+                stopWatching();
+            }
+        }, new FileWatcherListener() {
+            @Override
+            public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+                    // We don't know what has changed, so we need to scan everything again
+                    walkingTrees.clear();
+                    trees.clear();
+                    // Changes reported after the marker may have been lost, but none of them needs to be waited for any more
+                    releasePendingMarker(null);
+                } else if (markerDir.equals(event.getFile().getParentFile())) {
+                    releasePendingMarker(event.getFile().getPath());
+                } else {
+                    String path = event.getFile().getPath();
+                    invalidate(walkingTrees, path);
+                    invalidate(files, path);
+                    invalidate(trees, path);
+                    invalidate(snapshots, path);
+                }
+            }
+        });
+        if (!fileTreeWatcher.compareAndSet(null, watcher)) {
+            watcher.stop();
+            GFileUtils.deleteQuietly(markerDir);
+            return;
+        }
+        watch(watcher, markerDir.getPath());
+    }
+
+    private void releasePendingMarker(@Nullable String path) {
+        ChangeMarker marker = pendingMarker.get();
+        if (marker != null && (path == null || marker.path.equals(path))) {
+            marker.reported.countDown();
+        }
+    }
+
+    private void watch(FileWatcher watcher, String path) {
+        try {
+            watcher.watch(FileSystemSubset.builder().add(new File(path)).build());
+        } catch (IOException e) {
+            LOGGER.debug("Could not watch {} for changes, discarding retained file tree state.", path, e);
+            stopWatching();
+        }
+    }
+
+    private void watchDirectory(FileWatcher watcher, String path) {
+        try {
+            watcher.watchDirectory(new File(path));
+        } catch (IOException e) {
+            LOGGER.debug("Could not watch {} for changes, not retaining the directory tree it belongs to.", path, e);
+            invalidate(walkingTrees, path);
+        }
+    }
+
+    private void stopWatching() {
+        FileWatcher watcher = fileTreeWatcher.getAndSet(null);
+        if (watcher != null) {
+            watcher.stop();
+            walkingTrees.clear();
+            trees.clear();
+            GFileUtils.deleteQuietly(markerDir);
+        }
+    }
+
+    private static class ChangeMarker {
+        private final String path;
+        private final CountDownLatch reported = new CountDownLatch(1);
+
+        ChangeMarker(String path) {
+            this.path = path;
+        }
+    }
+
+    public static class Statistics implements FileSystemMirrorStatisticsBuildOperationType.Result {
+        private final long hits;
+        private final long misses;
+        private final long fullInvalidations;
+        private final long partialInvalidations;
+        private final long invalidatedEntries;
+
+        Statistics(long hits, long misses, long fullInvalidations, long partialInvalidations, long invalidatedEntries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.fullInvalidations = fullInvalidations;
+            this.partialInvalidations = partialInvalidations;
+            this.invalidatedEntries = invalidatedEntries;
+        }
+
+        @Override
+        public long getHitCount() {
+            return hits;
+        }
+
+        @Override
+        public long getMissCount() {
+            return misses;
+        }
+
+        @Override
+        public long getFullInvalidationCount() {
+            return fullInvalidations;
+        }
+
+        @Override
+        public long getPartialInvalidationCount() {
+            return partialInvalidations;
+        }
+
+        @Override
+        public long getInvalidatedEntryCount() {
+            return invalidatedEntries;
+        }
+    }
 }
@@ -34,17 +34,28 @@ import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.caching.internal.BuildCacheHasher;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.concurrent.ParallelismConfiguration;
 import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.ParallelismConfigurationListener;
+import org.gradle.internal.concurrent.ParallelismConfigurationManager;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.file.FileMetadataSnapshot;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.nativeintegration.filesystem.DefaultFileMetadata;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.normalization.internal.InputNormalizationStrategy;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Responsible for snapshotting various aspects of the file system.
@@ -56,8 +67,15 @@ import java.util.List;
  * the same as before (e.g. don't scan the output directory of a task a bunch of times).
  *
  * The implementations are currently intentionally very, very simple, and so there are a number of ways in which they can be made much more efficient. This can happen over time.
+ *
+ * When an {@link ExecutorFactory} is given, the files of a directory tree are hashed concurrently once the tree has been walked. The walk itself is still
+ * sequential, so the resulting snapshot has the same elements in the same order as when hashing inline. The hashing pool has as many threads as the
+ * maximum number of workers, and follows changes to it.
  */
-public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
+public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter, Stoppable, ParallelismConfigurationListener {
+    private static final int PARALLEL_HASHING_THRESHOLD = 32;
+    private static final int MIN_HASHING_BATCH_SIZE = 16;
+
     private final FileHasher hasher;
     private final StringInterner stringInterner;
     private final FileSystem fileSystem;
@@ -67,13 +85,35 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
     private final ProducerGuard<String> producingTrees = ProducerGuard.striped();
     private final ProducerGuard<String> producingAllSnapshots = ProducerGuard.striped();
     private final DefaultGenericFileCollectionSnapshotter snapshotter;
+    private final ExecutorFactory executorFactory;
+    private final ParallelismConfigurationManager parallelismConfigurationManager;
+    private volatile int hashingThreadCount;
+    private ManagedExecutor hashingExecutor;
 
     public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+        this(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, null, null);
+    }
+
+    /**
+     * @param executorFactory used to create the hashing threads, files are hashed by the calling thread when {@code null}.
+     * @param parallelismConfigurationManager provides the maximum number of workers, required when an executor factory is given.
+     */
+    public DefaultFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror,
+                                        @Nullable ExecutorFactory executorFactory, @Nullable ParallelismConfigurationManager parallelismConfigurationManager) {
+        if (executorFactory != null && parallelismConfigurationManager == null) {
+            throw new IllegalArgumentException("A parallelism configuration manager is required when an executor factory is given.");
+        }
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileSystemMirror = fileSystemMirror;
+        this.executorFactory = executorFactory;
+        this.parallelismConfigurationManager = executorFactory == null ? null : parallelismConfigurationManager;
+        if (this.parallelismConfigurationManager != null) {
+            this.hashingThreadCount = parallelismConfigurationManager.getParallelismConfiguration().getMaxWorkerCount();
+            parallelismConfigurationManager.addListener(this);
+        }
         snapshotter = new DefaultGenericFileCollectionSnapshotter(stringInterner, directoryFileTreeFactory, this);
     }
 
@@ -188,8 +228,8 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
 
     private FileTreeSnapshot snapshotAndCache(DirectoryFileTree directoryTree) {
         String path = internPath(directoryTree.getDir());
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
+        fileSystemMirror.beforeDirectoryTreeWalked(path);
+        List<FileSnapshot> elements = visitDirectoryTree(directoryTree, true);
         ImmutableList<FileSnapshot> descendants = ImmutableList.copyOf(elements);
         DirectoryTreeDetails snapshot = new DirectoryTreeDetails(path, descendants);
         fileSystemMirror.putDirectory(snapshot);
@@ -202,11 +242,96 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
      */
     private FileTreeSnapshot snapshotWithoutCaching(DirectoryFileTree directoryTree) {
         String path = directoryTree.getDir().getAbsolutePath();
-        List<FileSnapshot> elements = Lists.newArrayList();
-        directoryTree.visit(new FileVisitorImpl(elements));
+        List<FileSnapshot> elements = visitDirectoryTree(directoryTree, false);
         return new DirectoryTreeDetails(path, elements);
     }
 
+    private List<FileSnapshot> visitDirectoryTree(DirectoryFileTree directoryTree, boolean mirrored) {
+        List<FileSnapshot> elements = Lists.newArrayList();
+        if (executorFactory == null) {
+            directoryTree.visit(new FileVisitorImpl(elements, null, mirrored));
+        } else {
+            List<PendingFile> pendingFiles = Lists.newArrayList();
+            directoryTree.visit(new FileVisitorImpl(elements, pendingFiles, mirrored));
+            hashFiles(elements, pendingFiles);
+        }
+        return elements;
+    }
+
+    /**
+     * Hashes the given files and puts their snapshots at their place in the list of elements.
+     * The calling thread hashes one batch of files itself and waits for the rest.
+     */
+    private void hashFiles(final List<FileSnapshot> elements, List<PendingFile> pendingFiles) {
+        if (pendingFiles.size() < PARALLEL_HASHING_THRESHOLD) {
+            hashFilesInline(elements, pendingFiles);
+            return;
+        }
+
+        ManagedExecutor executor = getHashingExecutor();
+        int batchSize = Math.max(MIN_HASHING_BATCH_SIZE, pendingFiles.size() / (hashingThreadCount * 4) + 1);
+        List<List<PendingFile>> batches = Lists.partition(pendingFiles, batchSize);
+        List<Future<?>> futures = Lists.newArrayListWithCapacity(batches.size() - 1);
+        try {
+            for (final List<PendingFile> batch : batches.subList(1, batches.size())) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        hashFilesInline(elements, batch);
+                    }
+                }));
+            }
+            hashFilesInline(elements, batches.get(0));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private void hashFilesInline(List<FileSnapshot> elements, List<PendingFile> pendingFiles) {
+        for (PendingFile pendingFile : pendingFiles) {
+            elements.set(pendingFile.index, new RegularFileSnapshot(pendingFile.path, pendingFile.relativePath, false, fileSnapshot(pendingFile.file, pendingFile.metadata)));
+        }
+    }
+
+    private synchronized ManagedExecutor getHashingExecutor() {
+        if (hashingExecutor == null) {
+            hashingExecutor = executorFactory.create("File hashing", hashingThreadCount);
+        }
+        return hashingExecutor;
+    }
+
+    @Override
+    public synchronized void onParallelismConfigurationChange(ParallelismConfiguration parallelismConfiguration) {
+        hashingThreadCount = parallelismConfiguration.getMaxWorkerCount();
+        if (hashingExecutor != null) {
+            hashingExecutor.setFixedPoolSize(hashingThreadCount);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (parallelismConfigurationManager != null) {
+            parallelismConfigurationManager.removeListener(this);
+        }
+        ManagedExecutor hashingExecutor;
+        synchronized (this) {
+            hashingExecutor = this.hashingExecutor;
+            this.hashingExecutor = null;
+        }
+        if (hashingExecutor != null) {
+            hashingExecutor.stop();
+        }
+    }
+
     private FileTreeSnapshot filterSnapshot(FileTreeSnapshot snapshot, PatternSet patterns) {
         if (patterns.isEmpty()) {
             return snapshot;
@@ -280,21 +405,59 @@ public class DefaultFileSystemSnapshotter implements FileSystemSnapshotter {
         }
     }
 
+    private static class PendingFile {
+        private final int index;
+        private final String path;
+        private final RelativePath relativePath;
+        private final File file;
+        private final FileMetadataSnapshot metadata;
+
+        PendingFile(int index, String path, RelativePath relativePath, File file, FileMetadataSnapshot metadata) {
+            this.index = index;
+            this.path = path;
+            this.relativePath = relativePath;
+            this.file = file;
+            this.metadata = metadata;
+        }
+    }
+
     private class FileVisitorImpl implements FileVisitor {
         private final List<FileSnapshot> fileTreeElements;
+        private final List<PendingFile> pendingFiles;
+        private final boolean mirrored;
 
         FileVisitorImpl(List<FileSnapshot> fileTreeElements) {
+            this(fileTreeElements, null, false);
+        }
+
+        /**
+         * When {@code pendingFiles} is given, files are not hashed while visiting. Instead, a placeholder is added to the elements and the file is added to the pending files.
+         * When {@code mirrored} is true, the tree is walked to store it in the file system mirror, which is told about each directory before its entries are read.
+         */
+        FileVisitorImpl(List<FileSnapshot> fileTreeElements, @Nullable List<PendingFile> pendingFiles, boolean mirrored) {
             this.fileTreeElements = fileTreeElements;
+            this.pendingFiles = pendingFiles;
+            this.mirrored = mirrored;
         }
 
         @Override
         public void visitDir(FileVisitDetails dirDetails) {
+            if (mirrored) {
+                fileSystemMirror.beforeDirectoryListed(internPath(dirDetails.getFile()));
+            }
             fileTreeElements.add(new DirectoryFileSnapshot(internPath(dirDetails.getFile()), dirDetails.getRelativePath(), false));
         }
 
         @Override
         public void visitFile(FileVisitDetails fileDetails) {
-            fileTreeElements.add(new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
+            if (pendingFiles == null) {
+                fileTreeElements.add(new RegularFileSnapshot(internPath(fileDetails.getFile()), fileDetails.getRelativePath(), false, fileSnapshot(fileDetails)));
+            } else {
+                File file = fileDetails.getFile();
+                FileMetadataSnapshot metadata = DefaultFileMetadata.file(fileDetails.getLastModified(), fileDetails.getSize());
+                pendingFiles.add(new PendingFile(fileTreeElements.size(), internPath(file), fileDetails.getRelativePath(), file, metadata));
+                fileTreeElements.add(null);
+            }
         }
     }
 }
@@ -32,9 +32,13 @@ public class DefaultTaskHistoryStore implements TaskHistoryStore, Closeable {
     private final PersistentCache cache;
 
     public DefaultTaskHistoryStore(Gradle gradle, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+        this(gradle, "taskHistory", cacheRepository, inMemoryCacheDecoratorFactory);
+    }
+
+    public DefaultTaskHistoryStore(Gradle gradle, String cacheKey, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
         cache = cacheRepository
-                .cache(gradle, "taskHistory")
+                .cache(gradle, cacheKey)
                 .withDisplayName("task history cache")
                 .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
                 .open();
@@ -40,5 +40,15 @@ public interface FileSystemMirror {
     @Nullable
     FileTreeSnapshot getDirectoryTree(String path);
 
+    /**
+     * Called before the given directory tree is walked to snapshot it, and so before {@link #putDirectory(FileTreeSnapshot)} for the tree.
+     */
+    void beforeDirectoryTreeWalked(String path);
+
+    /**
+     * Called while a directory tree is walked after {@link #beforeDirectoryTreeWalked(String)}, before the entries of each directory below the root of the tree are read.
+     */
+    void beforeDirectoryListed(String path);
+
     void putDirectory(FileTreeSnapshot directory);
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Reports how effective the in-memory file system mirror was during a build.
+ *
+ * @since 4.7
+ */
+public final class FileSystemMirrorStatisticsBuildOperationType implements BuildOperationType<FileSystemMirrorStatisticsBuildOperationType.Details, FileSystemMirrorStatisticsBuildOperationType.Result> {
+
+    public interface Details {
+    }
+
+    public interface Result {
+        /**
+         * The number of lookups that were answered by the mirror.
+         */
+        long getHitCount();
+
+        /**
+         * The number of lookups for which the mirror had no state, and the file system needed to be queried.
+         */
+        long getMissCount();
+
+        /**
+         * The number of times all state was discarded, for example because a task without declared outputs was executed.
+         */
+        long getFullInvalidationCount();
+
+        /**
+         * The number of times the state for the outputs of a task was discarded.
+         */
+        long getPartialInvalidationCount();
+
+        /**
+         * The total number of entries discarded by invalidations.
+         */
+        long getInvalidatedEntryCount();
+    }
+
+    private FileSystemMirrorStatisticsBuildOperationType() {
+    }
+}
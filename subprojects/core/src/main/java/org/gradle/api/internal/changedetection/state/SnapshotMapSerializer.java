@@ -27,6 +27,11 @@ import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Serializes file snapshots column by column: first all paths, each prefix compressed against the previous one,
+ * then the kind of each snapshot, then the content hashes of the regular files, and finally the normalized paths.
+ * Paths are written in the order of the map, as the order is significant for some compare strategies.
+ */
 public class SnapshotMapSerializer extends AbstractSerializer<Map<String, NormalizedFileSnapshot>> {
     private static final byte DIR_SNAPSHOT = 1;
     private static final byte MISSING_FILE_SNAPSHOT = 2;
@@ -47,99 +52,159 @@ public class SnapshotMapSerializer extends AbstractSerializer<Map<String, Normal
     @Override
     public Map<String, NormalizedFileSnapshot> read(Decoder decoder) throws Exception {
         int snapshotsCount = decoder.readSmallInt();
+
+        String[] absolutePaths = new String[snapshotsCount];
+        String previousPath = "";
+        for (int i = 0; i < snapshotsCount; i++) {
+            previousPath = readPrefixCompressed(decoder, previousPath);
+            absolutePaths[i] = previousPath;
+        }
+
+        byte[] kinds = new byte[snapshotsCount];
+        decoder.readBytes(kinds);
+
+        FileContentSnapshot[] contentSnapshots = new FileContentSnapshot[snapshotsCount];
+        for (int i = 0; i < snapshotsCount; i++) {
+            contentSnapshots[i] = readContentSnapshot(kinds[i] >> 4, decoder);
+        }
+
         Map<String, NormalizedFileSnapshot> snapshots = new LinkedHashMap<String, NormalizedFileSnapshot>(snapshotsCount);
+        String previousNormalizedPath = "";
         for (int i = 0; i < snapshotsCount; i++) {
-            String absolutePath = stringInterner.intern(decoder.readString());
-            NormalizedFileSnapshot snapshot = readSnapshot(absolutePath, decoder, stringInterner);
-            snapshots.put(absolutePath, snapshot);
+            String absolutePath = absolutePaths[i];
+            FileContentSnapshot snapshot = contentSnapshots[i];
+            NormalizedFileSnapshot normalizedSnapshot;
+            switch (kinds[i] & 0xF) {
+                case NO_NORMALIZATION:
+                    normalizedSnapshot = new NonNormalizedFileSnapshot(absolutePath, snapshot);
+                    break;
+                case DEFAULT_NORMALIZATION:
+                    previousNormalizedPath = readPrefixCompressed(decoder, previousNormalizedPath);
+                    normalizedSnapshot = new DefaultNormalizedFileSnapshot(previousNormalizedPath, snapshot);
+                    break;
+                case INDEXED_NORMALIZATION:
+                    int index = decoder.readSmallInt();
+                    normalizedSnapshot = new IndexedNormalizedFileSnapshot(absolutePath, index, snapshot);
+                    break;
+                case IGNORED_PATH_NORMALIZATION:
+                    normalizedSnapshot = new IgnoredPathFileSnapshot(snapshot);
+                    break;
+                default:
+                    throw new RuntimeException("Unable to read serialized file snapshot. Unrecognized value found in the data stream.");
+            }
+            snapshots.put(absolutePath, normalizedSnapshot);
         }
         return snapshots;
     }
 
-    private NormalizedFileSnapshot readSnapshot(String absolutePath, Decoder decoder, StringInterner stringInterner) throws IOException {
-        byte fileSnapshotKind = decoder.readByte();
-        FileContentSnapshot snapshot;
+    private FileContentSnapshot readContentSnapshot(int fileSnapshotKind, Decoder decoder) throws IOException {
         switch (fileSnapshotKind) {
             case DIR_SNAPSHOT:
-                snapshot = DirContentSnapshot.getInstance();
-                break;
+                return DirContentSnapshot.getInstance();
             case MISSING_FILE_SNAPSHOT:
-                snapshot = MissingFileContentSnapshot.getInstance();
-                break;
+                return MissingFileContentSnapshot.getInstance();
             case REGULAR_FILE_SNAPSHOT:
-                snapshot = new FileHashSnapshot(hashCodeSerializer.read(decoder));
-                break;
+                return new FileHashSnapshot(hashCodeSerializer.read(decoder));
             default:
                 throw new RuntimeException("Unable to read serialized file snapshot. Unrecognized value found in the data stream.");
         }
+    }
 
-        int normalizedSnapshotKind = decoder.readByte();
-        switch (normalizedSnapshotKind) {
-            case NO_NORMALIZATION:
-                return new NonNormalizedFileSnapshot(absolutePath, snapshot);
-            case DEFAULT_NORMALIZATION:
-                String normalizedPath = stringInterner.intern(decoder.readString());
-                return new DefaultNormalizedFileSnapshot(normalizedPath, snapshot);
-            case INDEXED_NORMALIZATION:
-                int index = decoder.readSmallInt();
-                return new IndexedNormalizedFileSnapshot(absolutePath, index, snapshot);
-            case IGNORED_PATH_NORMALIZATION:
-                return new IgnoredPathFileSnapshot(snapshot);
-            default:
-                throw new RuntimeException("Unable to read serialized file snapshot. Unrecognized value found in the data stream.");
-        }
+    private String readPrefixCompressed(Decoder decoder, String previous) throws IOException {
+        int prefixLength = decoder.readSmallInt();
+        String suffix = decoder.readString();
+        return stringInterner.intern(prefixLength == 0 ? suffix : previous.substring(0, prefixLength) + suffix);
     }
 
     @Override
     public void write(Encoder encoder, Map<String, NormalizedFileSnapshot> value) throws Exception {
-        encoder.writeSmallInt(value.size());
-        for (String key : value.keySet()) {
-            encoder.writeString(key);
-            NormalizedFileSnapshot snapshot = value.get(key);
-            writeSnapshot(encoder, snapshot);
+        int snapshotsCount = value.size();
+        encoder.writeSmallInt(snapshotsCount);
+
+        String previousPath = "";
+        for (String absolutePath : value.keySet()) {
+            writePrefixCompressed(encoder, absolutePath, previousPath);
+            previousPath = absolutePath;
         }
-    }
 
-    @Override
-    public boolean equals(Object obj) {
-        if (!super.equals(obj)) {
-            return false;
+        byte[] kinds = new byte[snapshotsCount];
+        int i = 0;
+        for (NormalizedFileSnapshot snapshot : value.values()) {
+            kinds[i++] = (byte) ((contentSnapshotKind(snapshot.getSnapshot()) << 4) | normalizationKind(snapshot));
         }
+        encoder.writeBytes(kinds);
 
-        SnapshotMapSerializer rhs = (SnapshotMapSerializer) obj;
-        return Objects.equal(hashCodeSerializer, rhs.hashCodeSerializer);
+        for (NormalizedFileSnapshot snapshot : value.values()) {
+            FileContentSnapshot contentSnapshot = snapshot.getSnapshot();
+            if (contentSnapshot instanceof FileHashSnapshot) {
+                hashCodeSerializer.write(encoder, contentSnapshot.getContentMd5());
+            }
+        }
+
+        String previousNormalizedPath = "";
+        for (NormalizedFileSnapshot snapshot : value.values()) {
+            if (snapshot instanceof DefaultNormalizedFileSnapshot) {
+                String normalizedPath = snapshot.getNormalizedPath();
+                writePrefixCompressed(encoder, normalizedPath, previousNormalizedPath);
+                previousNormalizedPath = normalizedPath;
+            } else if (snapshot instanceof IndexedNormalizedFileSnapshot) {
+                encoder.writeSmallInt(((IndexedNormalizedFileSnapshot) snapshot).getIndex());
+            }
+        }
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hashCode(super.hashCode(), hashCodeSerializer);
+    private static void writePrefixCompressed(Encoder encoder, String value, String previous) throws IOException {
+        int maxPrefixLength = Math.min(value.length(), previous.length());
+        int prefixLength = 0;
+        while (prefixLength < maxPrefixLength && value.charAt(prefixLength) == previous.charAt(prefixLength)) {
+            prefixLength++;
+        }
+        // Do not split surrogate pairs
+        if (prefixLength > 0 && Character.isHighSurrogate(value.charAt(prefixLength - 1))) {
+            prefixLength--;
+        }
+        encoder.writeSmallInt(prefixLength);
+        encoder.writeString(value.substring(prefixLength));
     }
 
-    private void writeSnapshot(Encoder encoder, NormalizedFileSnapshot value) throws IOException {
-        FileContentSnapshot snapshot = value.getSnapshot();
+    private static int contentSnapshotKind(FileContentSnapshot snapshot) {
         if (snapshot instanceof DirContentSnapshot) {
-            encoder.writeByte(DIR_SNAPSHOT);
+            return DIR_SNAPSHOT;
         } else if (snapshot instanceof MissingFileContentSnapshot) {
-            encoder.writeByte(MISSING_FILE_SNAPSHOT);
+            return MISSING_FILE_SNAPSHOT;
         } else if (snapshot instanceof FileHashSnapshot) {
-            encoder.writeByte(REGULAR_FILE_SNAPSHOT);
-            hashCodeSerializer.write(encoder, snapshot.getContentMd5());
+            return REGULAR_FILE_SNAPSHOT;
         } else {
             throw new AssertionError();
         }
+    }
 
+    private static int normalizationKind(NormalizedFileSnapshot value) {
         if (value instanceof NonNormalizedFileSnapshot) {
-            encoder.writeByte(NO_NORMALIZATION);
+            return NO_NORMALIZATION;
         } else if (value instanceof DefaultNormalizedFileSnapshot) {
-            encoder.writeByte(DEFAULT_NORMALIZATION);
-            encoder.writeString(value.getNormalizedPath());
+            return DEFAULT_NORMALIZATION;
         } else if (value instanceof IndexedNormalizedFileSnapshot) {
-            encoder.writeByte(INDEXED_NORMALIZATION);
-            encoder.writeSmallInt(((IndexedNormalizedFileSnapshot) value).getIndex());
+            return INDEXED_NORMALIZATION;
         } else if (value instanceof IgnoredPathFileSnapshot) {
-            encoder.writeByte(IGNORED_PATH_NORMALIZATION);
+            return IGNORED_PATH_NORMALIZATION;
         } else {
             throw new AssertionError();
         }
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj)) {
+            return false;
+        }
+
+        SnapshotMapSerializer rhs = (SnapshotMapSerializer) obj;
+        return Objects.equal(hashCodeSerializer, rhs.hashCodeSerializer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(super.hashCode(), hashCodeSerializer);
+    }
 }
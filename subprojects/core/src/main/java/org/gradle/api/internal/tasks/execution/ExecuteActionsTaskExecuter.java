@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.tasks.execution;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.gradle.api.GradleException;
 import org.gradle.api.execution.TaskActionListener;
@@ -41,6 +43,7 @@ import org.gradle.internal.progress.BuildOperationState;
 import org.gradle.internal.scopeids.id.BuildInvocationScopeId;
 import org.gradle.internal.work.AsyncWorkTracker;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -66,7 +69,18 @@ public class ExecuteActionsTaskExecuter implements TaskExecuter {
     public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
         listener.beforeActions(task);
         if (!task.getTaskActions().isEmpty()) {
-            outputsGenerationListener.beforeTaskOutputChanged();
+            TaskProperties taskProperties = context.getTaskProperties();
+            if (taskProperties.hasDeclaredOutputs()) {
+                outputsGenerationListener.beforeTaskOutputChanged(Iterables.transform(Iterables.concat(taskProperties.getOutputFiles(), taskProperties.getLocalStateFiles(), taskProperties.getDestroyableFiles()), new Function<File, String>() {
+                    @Override
+                    public String apply(File file) {
+                        return file.getAbsolutePath();
+                    }
+                }));
+            } else {
+                // Task actions of a task without declared outputs can change anything
+                outputsGenerationListener.beforeTaskOutputChanged();
+            }
         }
         state.setExecuting(true);
         try {
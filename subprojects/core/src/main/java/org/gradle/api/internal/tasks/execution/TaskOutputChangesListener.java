@@ -22,4 +22,10 @@ public interface TaskOutputChangesListener {
      * This is for example just before the task actions are executed or the outputs are loaded from the cache.
      */
     void beforeTaskOutputChanged();
+
+    /**
+     * Invoked when some outputs of a task are about to change.
+     * Only the state for the given absolute paths, their ancestors and their descendants is affected by the change.
+     */
+    void beforeTaskOutputChanged(Iterable<String> affectedOutputPaths);
 }
@@ -99,6 +99,12 @@ public class DefaultFileContentCacheFactory implements FileContentCacheFactory,
             cache.clear();
         }
 
+        @Override
+        public void beforeTaskOutputChanged(Iterable<String> affectedOutputPaths) {
+            // Only a small number of files are cached here, so there is no point in being more selective
+            cache.clear();
+        }
+
         @Override
         public V get(File file) {
             // TODO - don't calculate the same value concurrently
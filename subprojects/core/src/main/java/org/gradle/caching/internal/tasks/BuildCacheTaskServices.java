@@ -32,6 +32,7 @@ import org.gradle.caching.internal.controller.RootBuildCacheControllerRef;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
 import org.gradle.initialization.buildsrc.BuildSourceBuilder;
 import org.gradle.internal.SystemProperties;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -44,6 +45,7 @@ import org.gradle.util.GradleVersion;
 import org.gradle.util.Path;
 
 import java.io.File;
+import java.util.zip.Deflater;
 
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildCacheMode.DISABLED;
 import static org.gradle.caching.internal.controller.BuildCacheControllerFactory.BuildCacheMode.ENABLED;
@@ -54,9 +56,14 @@ import static org.gradle.caching.internal.controller.BuildCacheControllerFactory
 public class BuildCacheTaskServices {
 
     private static final Path ROOT_BUILD_SRC_PATH = Path.path(":" + BuildSourceBuilder.BUILD_SRC);
-
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner) {
-        return new GZipTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner));
+    private static final String COMPRESSION_LEVEL_PROPERTY = "org.gradle.caching.compressionLevel";
+    private static final int MAX_UNPACK_WRITER_COUNT = 4;
+
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, StreamHasher fileHasher, StringInterner stringInterner, ExecutorFactory executorFactory) {
+        int compressionLevel = Integer.getInteger(COMPRESSION_LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION);
+        // Writing many small files is bound by the latency of file system operations rather than by the CPU, so a few writers are enough
+        int writerCount = Math.min(Runtime.getRuntime().availableProcessors(), MAX_UNPACK_WRITER_COUNT);
+        return new GZipTaskOutputPacker(new TarTaskOutputPacker(fileSystem, fileHasher, stringInterner, executorFactory, writerCount), compressionLevel);
     }
 
     TaskOutputOriginFactory createTaskOutputOriginFactory(
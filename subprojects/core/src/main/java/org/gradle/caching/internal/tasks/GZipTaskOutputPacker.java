@@ -22,23 +22,43 @@ import org.gradle.api.internal.changedetection.state.FileContentSnapshot;
 import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Adds compression and CRC32 checks to the packed task output.
+ *
+ * <p>The compression level only affects how the output is packed. Entries are always written in the GZip format,
+ * so entries packed with any compression level can be unpacked, including the ones written by earlier versions.</p>
  */
-public class GZipTaskOutputPacker implements TaskOutputPacker {
+public class GZipTaskOutputPacker implements TaskOutputPacker, Stoppable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final TaskOutputPacker delegate;
+    private final int compressionLevel;
 
     public GZipTaskOutputPacker(TaskOutputPacker delegate) {
+        this(delegate, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compressionLevel the compression level between {@link Deflater#NO_COMPRESSION} and {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public GZipTaskOutputPacker(TaskOutputPacker delegate, int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException(String.format("Invalid compression level %d, must be between %d and %d.", compressionLevel, Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION));
+        }
         this.delegate = delegate;
+        this.compressionLevel = compressionLevel;
     }
 
     @Override
@@ -53,7 +73,11 @@ public class GZipTaskOutputPacker implements TaskOutputPacker {
 
     private GZIPOutputStream createGzipOutputStream(OutputStream output) {
         try {
-            return new GZIPOutputStream(output);
+            return new GZIPOutputStream(output, BUFFER_SIZE) {
+                {
+                    def.setLevel(compressionLevel);
+                }
+            };
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -69,9 +93,14 @@ public class GZipTaskOutputPacker implements TaskOutputPacker {
         }
     }
 
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable(delegate).stop();
+    }
+
     private GZIPInputStream createGzipInputStream(InputStream input) {
         try {
-            return new GZIPInputStream(input);
+            return new GZIPInputStream(input, BUFFER_SIZE);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
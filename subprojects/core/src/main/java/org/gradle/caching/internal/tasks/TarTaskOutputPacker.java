@@ -19,8 +19,10 @@ package org.gradle.caching.internal.tasks;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
@@ -43,11 +45,17 @@ import org.gradle.api.internal.tasks.ResolvedTaskOutputFilePropertySpec;
 import org.gradle.api.internal.tasks.TaskFilePropertySpec;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 
+import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -60,8 +68,12 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,14 +82,21 @@ import static org.gradle.caching.internal.tasks.TaskOutputPackerUtils.makeDirect
 
 /**
  * Packages task output to a POSIX TAR file.
+ *
+ * <p>When more than one writer is requested, the archive is still decoded on the calling thread, but small files are written
+ * to disk by a bounded pool of writer threads. The files are hashed while being written, so the snapshots of the unpacked
+ * outputs are available without scanning the outputs again. The pool is created on first use, is shared by all unpacks and
+ * is stopped when the packer is stopped.</p>
  */
 @SuppressWarnings("Since15")
-public class TarTaskOutputPacker implements TaskOutputPacker {
+public class TarTaskOutputPacker implements TaskOutputPacker, Stoppable {
     private static final String METADATA_PATH = "METADATA";
     private static final Pattern PROPERTY_PATH = Pattern.compile("(missing-)?property-([^/]+)(?:/(.*))?");
     @SuppressWarnings("OctalInteger")
     private static final int FILE_PERMISSION_MASK = 0777;
     private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BACKGROUND_WRITE_SIZE = 1024 * 1024;
+    private static final int PENDING_WRITES_PER_WRITER = 4;
     private static final ThreadLocal<byte[]> COPY_BUFFERS = new ThreadLocal<byte[]>() {
         @Override
         protected byte[] initialValue() {
@@ -88,11 +107,27 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
     private final FileSystem fileSystem;
     private final StreamHasher streamHasher;
     private final StringInterner stringInterner;
+    private final ExecutorFactory executorFactory;
+    private final int writerCount;
+    private ManagedExecutor writers;
 
     public TarTaskOutputPacker(FileSystem fileSystem, StreamHasher streamHasher, StringInterner stringInterner) {
+        this(fileSystem, streamHasher, stringInterner, null, 1);
+    }
+
+    /**
+     * @param executorFactory used to create the writer threads, can be {@code null} when there is a single writer.
+     * @param writerCount the number of threads to write unpacked files with, all files are written by the calling thread when this is one.
+     */
+    public TarTaskOutputPacker(FileSystem fileSystem, StreamHasher streamHasher, StringInterner stringInterner, @Nullable ExecutorFactory executorFactory, int writerCount) {
+        if (writerCount > 1 && executorFactory == null) {
+            throw new IllegalArgumentException("An executor factory is required for more than one writer.");
+        }
         this.fileSystem = fileSystem;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
+        this.executorFactory = executorFactory;
+        this.writerCount = writerCount;
     }
 
     @Override
@@ -256,42 +291,46 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
         });
         TarArchiveEntry tarEntry;
         OriginTaskExecutionMetadata originMetadata = null;
-        ImmutableListMultimap.Builder<String, FileSnapshot> propertyFileSnapshots = ImmutableListMultimap.builder();
+        UnpackedFiles unpackedFiles = new UnpackedFiles();
 
-        long entries = 0;
-        while ((tarEntry = tarInput.getNextTarEntry()) != null) {
-            ++entries;
-            String path = tarEntry.getName();
+        try {
+            long entries = 0;
+            while ((tarEntry = tarInput.getNextTarEntry()) != null) {
+                ++entries;
+                String path = tarEntry.getName();
+
+                if (path.equals(METADATA_PATH)) {
+                    // handle origin metadata
+                    originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
+                } else {
+                    // handle output property
+                    Matcher matcher = PROPERTY_PATH.matcher(path);
+                    if (!matcher.matches()) {
+                        throw new IllegalStateException("Cached result format error, invalid contents: " + path);
+                    }
 
-            if (path.equals(METADATA_PATH)) {
-                // handle origin metadata
-                originMetadata = readOriginAction.execute(new CloseShieldInputStream(tarInput));
-            } else {
-                // handle output property
-                Matcher matcher = PROPERTY_PATH.matcher(path);
-                if (!matcher.matches()) {
-                    throw new IllegalStateException("Cached result format error, invalid contents: " + path);
-                }
+                    String propertyName = unescape(matcher.group(2));
+                    ResolvedTaskOutputFilePropertySpec propertySpec = propertySpecsMap.get(propertyName);
+                    if (propertySpec == null) {
+                        throw new IllegalStateException(String.format("No output property '%s' registered", propertyName));
+                    }
 
-                String propertyName = unescape(matcher.group(2));
-                ResolvedTaskOutputFilePropertySpec propertySpec = propertySpecsMap.get(propertyName);
-                if (propertySpec == null) {
-                    throw new IllegalStateException(String.format("No output property '%s' registered", propertyName));
+                    boolean outputMissing = matcher.group(1) != null;
+                    String childPath = matcher.group(3);
+                    unpackPropertyEntry(propertySpec, tarInput, tarEntry, childPath, outputMissing, unpackedFiles);
                 }
-
-                boolean outputMissing = matcher.group(1) != null;
-                String childPath = matcher.group(3);
-                unpackPropertyEntry(propertySpec, tarInput, tarEntry, childPath, outputMissing, propertyFileSnapshots);
             }
-        }
-        if (originMetadata == null) {
-            throw new IllegalStateException("Cached result format error, no origin metadata was found.");
-        }
+            if (originMetadata == null) {
+                throw new IllegalStateException("Cached result format error, no origin metadata was found.");
+            }
 
-        return new UnpackResult(originMetadata, entries, propertyFileSnapshots.build());
+            return new UnpackResult(originMetadata, entries, unpackedFiles.getSnapshots());
+        } finally {
+            unpackedFiles.stop();
+        }
     }
 
-    private void unpackPropertyEntry(ResolvedTaskOutputFilePropertySpec propertySpec, InputStream input, TarArchiveEntry entry, String childPath, boolean missing, ImmutableMultimap.Builder<String, FileSnapshot> fileSnapshots) throws IOException {
+    private void unpackPropertyEntry(ResolvedTaskOutputFilePropertySpec propertySpec, InputStream input, TarArchiveEntry entry, String childPath, boolean missing, UnpackedFiles unpackedFiles) throws IOException {
         File propertyRoot = propertySpec.getOutputFile();
         String propertyName = propertySpec.getPropertyName();
         if (propertyRoot == null) {
@@ -331,22 +370,140 @@ public class TarTaskOutputPacker implements TaskOutputPacker {
 
         String internedPath = stringInterner.intern(outputFile.getAbsolutePath());
         RelativePath relativePath = root ? RelativePath.parse(!isDirEntry, outputFile.getName()) : RelativePath.parse(!isDirEntry, childPath);
+        int mode = entry.getMode() & FILE_PERMISSION_MASK;
         if (isDirEntry) {
             FileUtils.forceMkdir(outputFile);
-            fileSnapshots.put(propertyName, new DirectoryFileSnapshot(internedPath, relativePath, root));
+            unpackedFiles.add(propertyName, new DirectoryFileSnapshot(internedPath, relativePath, root));
+            fileSystem.chmod(outputFile, mode);
+        } else if (unpackedFiles.canWriteInBackground(entry.getSize())) {
+            // The directories of the file have been created already, as they precede the file in the archive
+            byte[] content = IOUtils.toByteArray(input, entry.getSize());
+            unpackedFiles.writeInBackground(propertyName, new FileContent(outputFile, internedPath, relativePath, root, mode, content));
         } else {
-            OutputStream output = new FileOutputStream(outputFile);
-            HashCode hash;
+            unpackedFiles.add(propertyName, unpackFile(input, outputFile, internedPath, relativePath, root, mode));
+        }
+    }
+
+    private FileSnapshot unpackFile(InputStream input, File outputFile, String internedPath, RelativePath relativePath, boolean root, int mode) throws IOException {
+        OutputStream output = new FileOutputStream(outputFile);
+        HashCode hash;
+        try {
+            hash = streamHasher.hashCopy(input, output);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+        FileHashSnapshot contentSnapshot = new FileHashSnapshot(hash, outputFile.lastModified());
+        fileSystem.chmod(outputFile, mode);
+        return new RegularFileSnapshot(internedPath, relativePath, root, contentSnapshot);
+    }
+
+    private static class FileContent {
+        private final File outputFile;
+        private final String internedPath;
+        private final RelativePath relativePath;
+        private final boolean root;
+        private final int mode;
+        private final byte[] content;
+
+        FileContent(File outputFile, String internedPath, RelativePath relativePath, boolean root, int mode, byte[] content) {
+            this.outputFile = outputFile;
+            this.internedPath = internedPath;
+            this.relativePath = relativePath;
+            this.root = root;
+            this.mode = mode;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Collects the snapshots of the unpacked files in archive order, and writes files in the background when possible.
+     */
+    private synchronized ManagedExecutor getWriters() {
+        if (writers == null) {
+            writers = executorFactory.create("Build cache unpack", writerCount);
+        }
+        return writers;
+    }
+
+    @Override
+    public void stop() {
+        ManagedExecutor writers;
+        synchronized (this) {
+            writers = this.writers;
+            this.writers = null;
+        }
+        if (writers != null) {
+            writers.stop();
+        }
+    }
+
+    private class UnpackedFiles {
+        private final List<Map.Entry<String, Future<FileSnapshot>>> snapshots = Lists.newArrayList();
+        private final int maxPendingWrites = writerCount * PENDING_WRITES_PER_WRITER;
+        private final Semaphore pendingWrites = new Semaphore(maxPendingWrites);
+        private volatile boolean stopped;
+
+        void add(String propertyName, FileSnapshot snapshot) {
+            snapshots.add(Maps.immutableEntry(propertyName, Futures.immediateFuture(snapshot)));
+        }
+
+        boolean canWriteInBackground(long size) {
+            return writerCount > 1 && size <= MAX_BACKGROUND_WRITE_SIZE;
+        }
+
+        void writeInBackground(String propertyName, final FileContent file) {
+            // Limit the memory used by the content of pending writes
+            pendingWrites.acquireUninterruptibly();
+            Future<FileSnapshot> snapshot;
+            try {
+                snapshot = getWriters().submit(new Callable<FileSnapshot>() {
+                    @Override
+                    public FileSnapshot call() throws IOException {
+                        try {
+                            if (stopped) {
+                                // Unpacking has failed, the snapshot is not used
+                                return null;
+                            }
+                            return unpackFile(new ByteArrayInputStream(file.content), file.outputFile, file.internedPath, file.relativePath, file.root, file.mode);
+                        } finally {
+                            pendingWrites.release();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                pendingWrites.release();
+                throw e;
+            }
+            snapshots.add(Maps.immutableEntry(propertyName, snapshot));
+        }
+
+        ImmutableListMultimap<String, FileSnapshot> getSnapshots() throws IOException {
+            ImmutableListMultimap.Builder<String, FileSnapshot> builder = ImmutableListMultimap.builder();
+            for (Map.Entry<String, Future<FileSnapshot>> entry : snapshots) {
+                builder.put(entry.getKey(), getSnapshot(entry.getValue()));
+            }
+            return builder.build();
+        }
+
+        private FileSnapshot getSnapshot(Future<FileSnapshot> snapshot) throws IOException {
             try {
-                hash = streamHasher.hashCopy(input, output);
-            } finally {
-                IOUtils.closeQuietly(output);
+                return Futures.getUnchecked(snapshot);
+            } catch (UncheckedExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
             }
-            FileHashSnapshot contentSnapshot = new FileHashSnapshot(hash, outputFile.lastModified());
-            fileSnapshots.put(propertyName, new RegularFileSnapshot(internedPath, relativePath, root, contentSnapshot));
         }
 
-        fileSystem.chmod(outputFile, entry.getMode() & FILE_PERMISSION_MASK);
+        /**
+         * Waits for the pending writes of this unpack to finish, so that no files are written after unpacking has finished or failed.
+         * Writes that have not started yet are skipped.
+         */
+        void stop() {
+            stopped = true;
+            pendingWrites.acquireUninterruptibly(maxPendingWrites);
+        }
     }
 
     private static String escape(String name) {
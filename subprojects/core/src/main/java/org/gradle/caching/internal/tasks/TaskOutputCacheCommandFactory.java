@@ -16,7 +16,9 @@
 
 package org.gradle.caching.internal.tasks;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSortedMap;
@@ -24,6 +26,7 @@ import com.google.common.collect.Iterables;
 import org.apache.commons.io.FileUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.cache.StringInterner;
@@ -115,7 +118,8 @@ public class TaskOutputCacheCommandFactory {
 
         @Override
         public BuildCacheLoadCommand.Result<OriginTaskExecutionMetadata> load(InputStream input) {
-            taskOutputChangesListener.beforeTaskOutputChanged();
+            FileCollection localStateFiles = taskProperties.getLocalStateFiles();
+            taskOutputChangesListener.beforeTaskOutputChanged(affectedOutputPaths(localStateFiles));
             final TaskOutputPacker.UnpackResult unpackResult;
             try {
                 unpackResult = packer.unpack(outputProperties, input, taskOutputOriginFactory.createReader(task));
@@ -131,7 +135,7 @@ public class TaskOutputCacheCommandFactory {
                 }
                 throw new GradleException(String.format("Failed to unpack outputs for %s", task), e);
             } finally {
-                cleanLocalState();
+                cleanLocalState(localStateFiles);
             }
             LOGGER.info("Unpacked output for {} from cache.", task);
 
@@ -188,8 +192,23 @@ public class TaskOutputCacheCommandFactory {
             taskArtifactState.snapshotAfterLoadedFromCache(propertySnapshotsBuilder.build(), originMetadata);
         }
 
-        private void cleanLocalState() {
-            for (File localStateFile : taskProperties.getLocalStateFiles()) {
+        private Iterable<String> affectedOutputPaths(FileCollection localStateFiles) {
+            Iterable<File> outputFiles = Iterables.transform(outputProperties, new Function<ResolvedTaskOutputFilePropertySpec, File>() {
+                @Override
+                public File apply(ResolvedTaskOutputFilePropertySpec property) {
+                    return property.getOutputFile();
+                }
+            });
+            return Iterables.transform(Iterables.filter(Iterables.concat(outputFiles, localStateFiles), Predicates.notNull()), new Function<File, String>() {
+                @Override
+                public String apply(File file) {
+                    return file.getAbsolutePath();
+                }
+            });
+        }
+
+        private void cleanLocalState(FileCollection localStateFiles) {
+            for (File localStateFile : localStateFiles) {
                 try {
                     remove(localStateFile);
                 } catch (IOException ex) {
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the canonical paths that are currently claimed, e.g. the outputs and destroyables of running tasks.
+ *
+ * Paths are stored in a tree of path segments, so that checking whether a path overlaps with a claimed path, that is whether it is equal to,
+ * an ancestor of or a descendant of a claimed path, as well as claiming and releasing a path, takes time proportional to the depth of the path
+ * and not to the number of claimed paths. A path may be claimed multiple times, in which case it needs to be released the same number of times.
+ *
+ * This class is not thread-safe.
+ */
+class ClaimedPaths {
+    private final Node root = new Node(null, null);
+
+    public boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    public void claim(String path) {
+        Node node = root;
+        int start = skipSeparators(path, 0);
+        while (true) {
+            int end = nextSeparator(path, start);
+            if (end == start) {
+                break;
+            }
+            node.descendantClaims++;
+            node = node.getOrCreateChild(path.substring(start, end));
+            start = skipSeparators(path, end);
+        }
+        node.claims++;
+    }
+
+    public void release(String path) {
+        Node node = find(path);
+        if (node == null || node.claims == 0) {
+            throw new IllegalStateException("Path " + path + " is not claimed.");
+        }
+        node.claims--;
+        while (node.parent != null) {
+            Node parent = node.parent;
+            parent.descendantClaims--;
+            if (node.isEmpty()) {
+                parent.children.remove(node.segment);
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Returns true if the given path is equal to, an ancestor of, or a descendant of a claimed path.
+     */
+    public boolean overlaps(String path) {
+        Node node = root;
+        int start = skipSeparators(path, 0);
+        while (true) {
+            if (node.claims > 0) {
+                return true;
+            }
+            int end = nextSeparator(path, start);
+            if (end == start) {
+                return node.descendantClaims > 0;
+            }
+            node = node.children == null ? null : node.children.get(path.substring(start, end));
+            if (node == null) {
+                return false;
+            }
+            start = skipSeparators(path, end);
+        }
+    }
+
+    public void clear() {
+        root.children = null;
+        root.claims = 0;
+        root.descendantClaims = 0;
+    }
+
+    private Node find(String path) {
+        Node node = root;
+        int start = skipSeparators(path, 0);
+        while (true) {
+            int end = nextSeparator(path, start);
+            if (end == start) {
+                return node;
+            }
+            node = node.children == null ? null : node.children.get(path.substring(start, end));
+            if (node == null) {
+                return null;
+            }
+            start = skipSeparators(path, end);
+        }
+    }
+
+    private static int nextSeparator(String path, int start) {
+        int end = path.indexOf(File.separatorChar, start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static int skipSeparators(String path, int pos) {
+        while (pos < path.length() && path.charAt(pos) == File.separatorChar) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static class Node {
+        private final Node parent;
+        private final String segment;
+        private Map<String, Node> children;
+        // Number of claims of exactly this path
+        private int claims;
+        // Number of claims of paths below this path
+        private int descendantClaims;
+
+        Node(Node parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+
+        Node getOrCreateChild(String segment) {
+            if (children == null) {
+                children = new HashMap<String, Node>();
+            }
+            Node child = children.get(segment);
+            if (child == null) {
+                child = new Node(this, segment);
+                children.put(segment, child);
+            }
+            return child;
+        }
+
+        boolean isEmpty() {
+            return claims == 0 && descendantClaims == 0;
+        }
+    }
+}
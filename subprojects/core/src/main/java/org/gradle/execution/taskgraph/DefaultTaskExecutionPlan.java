@@ -21,8 +21,10 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import org.gradle.api.Action;
 import org.gradle.api.BuildCancelledException;
@@ -71,13 +73,13 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -96,7 +98,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Set<TaskInfo> executionQueue = new LinkedHashSet<TaskInfo>();
     private final Map<Project, ResourceLock> projectLocks = Maps.newHashMap();
     private final TaskFailureCollector failureCollector = new TaskFailureCollector();
     private final TaskInfoFactory nodeFactory = new TaskInfoFactory(failureCollector);
@@ -106,11 +108,22 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private final BuildCancellationToken cancellationToken;
     private final Set<TaskInfo> runningTasks = Sets.newIdentityHashSet();
+    private final ClaimedPaths runningTaskMutations = new ClaimedPaths();
     private final Set<Task> filteredTasks = Sets.newIdentityHashSet();
     private final Map<TaskInfo, TaskMutationInfo> taskMutations = Maps.newIdentityHashMap();
     private final Map<File, String> canonicalizedFileCache = Maps.newIdentityHashMap();
     private final Map<Pair<TaskInfo, TaskInfo>, Boolean> reachableCache = Maps.newHashMap();
     private final Set<TaskInfo> dependenciesCompleteCache = Sets.newHashSet();
+    private final Map<TaskInfo, Integer> executionOrder = Maps.newIdentityHashMap();
+    private final SetMultimap<TaskInfo, TaskInfo> dependentTasks = LinkedHashMultimap.create();
+    private final Set<TaskInfo> readyCandidates = new LinkedHashSet<TaskInfo>();
+    private final Map<Project, TreeSet<TaskInfo>> readyTasksByProject = new LinkedHashMap<Project, TreeSet<TaskInfo>>();
+    private final Comparator<TaskInfo> executionOrderComparator = new Comparator<TaskInfo>() {
+        @Override
+        public int compare(TaskInfo left, TaskInfo right) {
+            return executionOrder.get(left) - executionOrder.get(right);
+        }
+    };
     private final ResourceLockCoordinationService coordinationService;
     private final WorkerLeaseService workerLeaseService;
     private final GradleInternal gradle;
@@ -359,7 +372,29 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        buildReadyQueue();
+    }
 
+    /**
+     * Records the position of each task in the plan and the reverse dependency edges, so that completing a task only needs to
+     * re-evaluate the tasks that were waiting for it instead of scanning the whole execution queue.
+     */
+    private void buildReadyQueue() {
+        executionOrder.clear();
+        dependentTasks.clear();
+        readyCandidates.clear();
+        readyTasksByProject.clear();
+        int index = 0;
+        for (TaskInfo taskInfo : executionQueue) {
+            executionOrder.put(taskInfo, index++);
+            for (TaskInfo dependency : taskInfo.getDependencySuccessors()) {
+                dependentTasks.put(dependency, taskInfo);
+            }
+            for (TaskInfo dependency : taskInfo.getMustSuccessors()) {
+                dependentTasks.put(dependency, taskInfo);
+            }
+        }
+        readyCandidates.addAll(executionQueue);
     }
 
     @Override
@@ -532,7 +567,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 canonicalizedFileCache.clear();
                 reachableCache.clear();
                 dependenciesCompleteCache.clear();
+                executionOrder.clear();
+                dependentTasks.clear();
+                readyCandidates.clear();
+                readyTasksByProject.clear();
                 runningTasks.clear();
+                runningTaskMutations.clear();
                 return FINISHED;
             }
         });
@@ -599,19 +639,37 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private TaskInfo selectNextTask(final WorkerLease workerLease) {
+        processReadyCandidates();
+
         final AtomicReference<TaskInfo> selected = new AtomicReference<TaskInfo>();
-        final Iterator<TaskInfo> iterator = executionQueue.iterator();
-        while (iterator.hasNext()) {
-            final TaskInfo taskInfo = iterator.next();
-            if (taskInfo.isReady() && allDependenciesComplete(taskInfo)) {
+        final AtomicBoolean projectLocked = new AtomicBoolean();
+        final AtomicBoolean workerLeaseUnavailable = new AtomicBoolean();
+        for (TreeSet<TaskInfo> projectReadyTasks : readyTasksInExecutionOrder()) {
+            projectLocked.set(false);
+            final Iterator<TaskInfo> iterator = projectReadyTasks.iterator();
+            while (iterator.hasNext()) {
+                final TaskInfo taskInfo = iterator.next();
+                if (!taskInfo.isReady()) {
+                    // Execution was aborted while the task was waiting in the ready queue
+                    iterator.remove();
+                    continue;
+                }
                 coordinationService.withStateLock(new Transformer<ResourceLockState.Disposition, ResourceLockState>() {
                     @Override
                     public ResourceLockState.Disposition transform(ResourceLockState resourceLockState) {
                         ResourceLock projectLock = getProjectLock(taskInfo);
                         TaskMutationInfo taskMutationInfo = getResolvedTaskMutationInfo(taskInfo);
 
+                        if (!projectLock.tryLock()) {
+                            projectLocked.set(true);
+                            return FAILED;
+                        }
+                        if (!workerLease.tryLock()) {
+                            workerLeaseUnavailable.set(true);
+                            return FAILED;
+                        }
                         // TODO: convert output file checks to a resource lock
-                        if (!projectLock.tryLock() || !workerLease.tryLock() || !canRunWithCurrentlyExecutedTasks(taskInfo, taskMutationInfo)) {
+                        if (!canRunWithCurrentlyExecutedTasks(taskInfo, taskMutationInfo)) {
                             return FAILED;
                         }
 
@@ -621,18 +679,72 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                             taskInfo.startExecution();
                         } else {
                             taskInfo.skipExecution();
+                            taskFinished(taskInfo);
                         }
                         iterator.remove();
+                        executionQueue.remove(taskInfo);
                         return FINISHED;
                     }
                 });
 
-                if (selected.get() != null) {
+                if (selected.get() != null || workerLeaseUnavailable.get()) {
+                    return selected.get();
+                }
+                if (projectLocked.get()) {
+                    // None of the remaining tasks of this project can run either, move on to the next project
                     break;
                 }
             }
         }
-        return selected.get();
+        return null;
+    }
+
+    /**
+     * Moves the tasks that may have become ready since the last selection into the ready queue of their project.
+     */
+    private void processReadyCandidates() {
+        for (TaskInfo taskInfo : readyCandidates) {
+            if (executionQueue.contains(taskInfo) && taskInfo.isReady() && allDependenciesComplete(taskInfo)) {
+                Project project = taskInfo.getTask().getProject();
+                TreeSet<TaskInfo> projectReadyTasks = readyTasksByProject.get(project);
+                if (projectReadyTasks == null) {
+                    projectReadyTasks = new TreeSet<TaskInfo>(executionOrderComparator);
+                    readyTasksByProject.put(project, projectReadyTasks);
+                }
+                projectReadyTasks.add(taskInfo);
+            }
+        }
+        readyCandidates.clear();
+    }
+
+    /**
+     * Returns the non-empty per-project ready queues, ordered by the position of their first task in the execution plan.
+     */
+    private List<TreeSet<TaskInfo>> readyTasksInExecutionOrder() {
+        List<TreeSet<TaskInfo>> queues = new ArrayList<TreeSet<TaskInfo>>(readyTasksByProject.size());
+        Iterator<TreeSet<TaskInfo>> iterator = readyTasksByProject.values().iterator();
+        while (iterator.hasNext()) {
+            TreeSet<TaskInfo> projectReadyTasks = iterator.next();
+            if (projectReadyTasks.isEmpty()) {
+                iterator.remove();
+            } else {
+                queues.add(projectReadyTasks);
+            }
+        }
+        Collections.sort(queues, new Comparator<TreeSet<TaskInfo>>() {
+            @Override
+            public int compare(TreeSet<TaskInfo> left, TreeSet<TaskInfo> right) {
+                return executionOrderComparator.compare(left.first(), right.first());
+            }
+        });
+        return queues;
+    }
+
+    /**
+     * Schedules the tasks waiting for the given task to be re-evaluated on the next selection.
+     */
+    private void taskFinished(TaskInfo taskInfo) {
+        readyCandidates.addAll(dependentTasks.get(taskInfo));
     }
 
     private TaskMutationInfo getResolvedTaskMutationInfo(TaskInfo taskInfo) {
@@ -714,12 +826,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
         }
 
-        if (!runningTasks.isEmpty()) {
+        if (!runningTaskMutations.isEmpty()) {
             Set<String> candidateTaskOutputs = taskMutationInfo.outputPaths;
             Set<String> candidateTaskMutations = !candidateTaskOutputs.isEmpty() ? candidateTaskOutputs : candidateTaskDestroyables;
-            Pair<TaskInfo, String> overlap = firstRunningTaskWithOverlappingMutations(candidateTaskMutations);
-            if (overlap != null) {
-                return false;
+            for (String candidateTaskMutation : candidateTaskMutations) {
+                if (runningTaskMutations.overlaps(candidateTaskMutation)) {
+                    return false;
+                }
             }
         }
 
@@ -749,22 +862,6 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return builder.build();
     }
 
-    @Nullable
-    private Pair<TaskInfo, String> firstRunningTaskWithOverlappingMutations(Set<String> candidateTaskMutations) {
-        if (!candidateTaskMutations.isEmpty()) {
-            for (TaskInfo runningTask : runningTasks) {
-                TaskMutationInfo taskMutationInfo = taskMutations.get(runningTask);
-                Iterable<String> runningTaskMutations = Iterables.concat(taskMutationInfo.outputPaths, taskMutationInfo.destroyablePaths);
-                String firstOverlap = findFirstOverlap(candidateTaskMutations, runningTaskMutations);
-                if (firstOverlap != null) {
-                    return Pair.of(runningTask, firstOverlap);
-                }
-            }
-        }
-
-        return null;
-    }
-
     @Nullable
     private Pair<TaskInfo, String> firstTaskWithDestroyedIntermediateInput(final TaskInfo taskInfo, Set<String> destroyablePaths) {
         if (!destroyablePaths.isEmpty()) {
@@ -869,11 +966,19 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private void recordTaskStarted(TaskInfo taskInfo) {
         runningTasks.add(taskInfo);
+        TaskMutationInfo taskMutationInfo = taskMutations.get(taskInfo);
+        for (String path : Iterables.concat(taskMutationInfo.outputPaths, taskMutationInfo.destroyablePaths)) {
+            runningTaskMutations.claim(path);
+        }
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
         runningTasks.remove(taskInfo);
+        taskFinished(taskInfo);
         TaskMutationInfo taskMutationInfo = taskMutations.get(taskInfo);
+        for (String path : Iterables.concat(taskMutationInfo.outputPaths, taskMutationInfo.destroyablePaths)) {
+            runningTaskMutations.release(path);
+        }
         for (TaskInfo producerTask : taskMutationInfo.consumesOutputOf) {
             TaskMutationInfo producerTaskMutationInfo = taskMutations.get(producerTask);
             if (producerTaskMutationInfo.consumingTasks.remove(taskInfo) && canRemoveTaskMutation(producerTaskMutationInfo)) {
@@ -906,10 +1011,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         });
     }
 
-    private static void enforceFinalizerTasks(TaskInfo taskInfo) {
+    private void enforceFinalizerTasks(TaskInfo taskInfo) {
         for (TaskInfo finalizerNode : taskInfo.getFinalizers()) {
             if (finalizerNode.isRequired() || finalizerNode.isMustNotRun()) {
-                enforceWithDependencies(finalizerNode, Sets.<TaskInfo>newHashSet());
+                Set<TaskInfo> enforcedTasks = Sets.newHashSet();
+                enforceWithDependencies(finalizerNode, enforcedTasks);
+                readyCandidates.addAll(enforcedTasks);
             }
         }
     }
@@ -967,12 +1074,14 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             // Allow currently executing and enforced tasks to complete, but skip everything else.
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                taskFinished(taskInfo);
                 aborted = true;
             }
 
             // If abortAll is set, also stop enforced tasks.
             if (abortAll && taskInfo.isReady()) {
                 taskInfo.abortExecution();
+                taskFinished(taskInfo);
                 aborted = true;
             }
         }
@@ -20,6 +20,7 @@ import net.jcip.annotations.ThreadSafe;
 import org.gradle.api.internal.file.FileSystemSubset;
 import org.gradle.internal.concurrent.Stoppable;
 
+import java.io.File;
 import java.io.IOException;
 
 @ThreadSafe
@@ -39,4 +40,11 @@ public interface FileWatcher extends Stoppable {
     boolean isRunning();
 
     void watch(FileSystemSubset fileSystemSubset) throws IOException;
+
+    /**
+     * Watches the entries of the given directory, but not the entries of its subdirectories.
+     * <p>
+     * Events are emitted for changes to the directory itself and to its direct children.
+     */
+    void watchDirectory(File directory) throws IOException;
 }
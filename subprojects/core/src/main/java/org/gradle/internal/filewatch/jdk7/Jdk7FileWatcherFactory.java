@@ -40,6 +40,20 @@ public class Jdk7FileWatcherFactory implements FileWatcherFactory {
         this.fileSystem = fileSystem;
     }
 
+    /**
+     * Returns whether a directory tree is watched as a whole, with events reported natively for the entire tree, rather than by walking the tree and watching each directory in it.
+     */
+    public static boolean isFileTreeWatchingSupported() {
+        return WatchServiceRegistrar.FILE_TREE_WATCHING_SUPPORTED;
+    }
+
+    /**
+     * Returns whether changes are reported by the operating system as they happen, in the order in which they happen, rather than found by polling the watched directories.
+     */
+    public static boolean isNativeWatchingSupported() {
+        return WatchServiceRegistrar.NATIVE_WATCHING_SUPPORTED;
+    }
+
     @Override
     public FileWatcher watch(Action<? super Throwable> onError, FileWatcherListener listener) {
         try {
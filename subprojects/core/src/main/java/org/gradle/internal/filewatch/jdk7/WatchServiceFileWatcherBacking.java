@@ -30,6 +30,7 @@ import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.nio.file.ClosedWatchServiceException;
@@ -63,6 +64,11 @@ public class WatchServiceFileWatcherBacking {
             WatchServiceFileWatcherBacking.this.watchServiceRegistrar.watch(fileSystemSubset);
         }
 
+        @Override
+        public void watchDirectory(File directory) throws IOException {
+            WatchServiceFileWatcherBacking.this.watchServiceRegistrar.watchDirectory(directory);
+        }
+
         @Override
         public void stop() {
             WatchServiceFileWatcherBacking.this.stop();
@@ -42,15 +42,19 @@ import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 class WatchServiceRegistrar implements FileWatcherListener {
     private final static Logger LOG = Logging.getLogger(WatchServiceRegistrar.class);
-    private static final boolean FILE_TREE_WATCHING_SUPPORTED = OperatingSystem.current().isWindows() && !JavaVersion.current().isJava9Compatible();
+    static final boolean FILE_TREE_WATCHING_SUPPORTED = OperatingSystem.current().isWindows() && !JavaVersion.current().isJava9Compatible();
+    // The JDK polls for changes on other operating systems, such as macOS
+    static final boolean NATIVE_WATCHING_SUPPORTED = OperatingSystem.current().isLinux() || OperatingSystem.current().isWindows();
     private static final WatchEvent.Modifier[] WATCH_MODIFIERS = instantiateWatchModifiers();
     private static final WatchEvent.Kind[] WATCH_KINDS = new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY};
 
@@ -59,6 +63,8 @@ class WatchServiceRegistrar implements FileWatcherListener {
     private final Lock lock = new ReentrantLock(true);
     private final WatchPointsRegistry watchPointsRegistry;
     private final HashMap<Path, WatchKey> watchKeys = new HashMap<Path, WatchKey>();
+    // The directories watched without their subdirectories
+    private final Set<Path> watchedDirectories = new HashSet<Path>();
 
     WatchServiceRegistrar(WatchService watchService, FileWatcherListener delegate, FileSystem fileSystem) {
         this.watchService = watchService;
@@ -126,6 +132,17 @@ class WatchServiceRegistrar implements FileWatcherListener {
         }
     }
 
+    void watchDirectory(File directory) throws IOException {
+        lock.lock();
+        try {
+            Path dirPath = directory.toPath();
+            watchDir(dirPath);
+            watchedDirectories.add(dirPath);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private Iterable<File> getCurrentWatchPoints() {
         List<File> currentWatchPoints = new LinkedList<File>();
         for (Map.Entry<Path, WatchKey> entry : watchKeys.entrySet()) {
@@ -234,7 +251,7 @@ class WatchServiceRegistrar implements FileWatcherListener {
     }
 
     private void maybeFire(FileWatcher watcher, FileWatcherEvent event) {
-        if (watchPointsRegistry.shouldFire(event.getFile())) {
+        if (watchPointsRegistry.shouldFire(event.getFile()) || isInWatchedDirectory(event.getFile())) {
             LOG.debug("Calling onChange with event {}", event);
             deliverEventToDelegate(watcher, event);
         } else {
@@ -242,6 +259,12 @@ class WatchServiceRegistrar implements FileWatcherListener {
         }
     }
 
+    private boolean isInWatchedDirectory(File file) {
+        Path path = file.toPath();
+        Path parent = path.getParent();
+        return watchedDirectories.contains(path) || (parent != null && watchedDirectories.contains(parent));
+    }
+
     private void maybeWatchNewDirectory(FileWatcher watcher, File dir) throws IOException {
         LOG.debug("Begin - maybeWatchNewDirectory {}", dir);
         if (isStopRequested(watcher)) {
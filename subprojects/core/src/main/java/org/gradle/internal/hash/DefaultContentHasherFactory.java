@@ -17,12 +17,50 @@
 package org.gradle.internal.hash;
 
 public class DefaultContentHasherFactory implements ContentHasherFactory {
-    private static final HashCode SIGNATURE = Hashing.md5().hashString(DefaultContentHasherFactory.class.getName());
+    /**
+     * Selects the hash function used for file contents and task history, either {@value #MD5} (the default) or {@value #MURMUR3}.
+     */
+    public static final String HASH_FUNCTION_PROPERTY = "org.gradle.internal.hash.contentHashFunction";
+    public static final String MD5 = "md5";
+    public static final String MURMUR3 = "murmur3";
+
+    private static final HashCode MD5_SIGNATURE = Hashing.md5().hashString(DefaultContentHasherFactory.class.getName());
+
+    private final String hashFunctionName;
+    private final HashFunction hashFunction;
+    private final HashCode signature;
+
+    public DefaultContentHasherFactory() {
+        this(MD5);
+    }
+
+    public DefaultContentHasherFactory(String hashFunctionName) {
+        this.hashFunctionName = hashFunctionName;
+        if (MD5.equals(hashFunctionName)) {
+            this.hashFunction = Hashing.md5();
+            this.signature = MD5_SIGNATURE;
+        } else if (MURMUR3.equals(hashFunctionName)) {
+            this.hashFunction = Hashing.murmur3_128();
+            this.signature = hashFunction.hashString(DefaultContentHasherFactory.class.getName() + ":" + hashFunctionName);
+        } else {
+            throw new IllegalArgumentException("Unsupported content hash function '" + hashFunctionName + "'. Supported values are '" + MD5 + "' and '" + MURMUR3 + "'.");
+        }
+    }
+
+    public static DefaultContentHasherFactory fromSystemProperties() {
+        return new DefaultContentHasherFactory(System.getProperty(HASH_FUNCTION_PROPERTY, MD5));
+    }
 
     @Override
     public Hasher create() {
-        Hasher hasher = Hashing.md5().newHasher();
-        hasher.putHash(SIGNATURE);
+        Hasher hasher = hashFunction.newHasher();
+        hasher.putHash(signature);
         return hasher;
     }
+
+    @Override
+    public String versionedCacheName(String baseName) {
+        // Keep the existing cache names for the default hash function
+        return MD5.equals(hashFunctionName) ? baseName : baseName + "-" + hashFunctionName;
+    }
 }
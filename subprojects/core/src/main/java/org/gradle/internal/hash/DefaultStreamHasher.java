@@ -18,23 +18,50 @@ package org.gradle.internal.hash;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.io.NullOutputStream;
 
+import javax.annotation.Nullable;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
+/**
+ * Hashes streams by reading them through a pooled heap buffer.
+ *
+ * The remaining content of a plain {@link FileInputStream} that is at least as large as the direct hashing threshold is instead
+ * read from the file channel into a pooled direct buffer, which saves copying the content through a temporary native buffer
+ * into the heap buffer.
+ */
 public class DefaultStreamHasher implements StreamHasher {
+    private static final long DEFAULT_DIRECT_HASHING_THRESHOLD = 1024 * 1024;
+    private static final int DIRECT_BUFFER_SIZE = 64 * 1024;
+
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final Queue<ByteBuffer> directBuffers = new ArrayBlockingQueue<ByteBuffer>(16);
     private final ContentHasherFactory hasherFactory;
+    private final long directHashingThreshold;
 
     public DefaultStreamHasher(ContentHasherFactory hasherFactory) {
+        this(hasherFactory, DEFAULT_DIRECT_HASHING_THRESHOLD);
+    }
+
+    public DefaultStreamHasher(ContentHasherFactory hasherFactory, long directHashingThreshold) {
         this.hasherFactory = hasherFactory;
+        this.directHashingThreshold = directHashingThreshold;
     }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
+            if (inputStream.getClass() == FileInputStream.class) {
+                HashCode hashCode = hashDirect(((FileInputStream) inputStream).getChannel());
+                if (hashCode != null) {
+                    return hashCode;
+                }
+            }
             return doHash(inputStream, NullOutputStream.INSTANCE);
         } catch (IOException e) {
             throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
@@ -46,6 +73,30 @@ public class DefaultStreamHasher implements StreamHasher {
         return doHash(inputStream, outputStream);
     }
 
+    /**
+     * Hashes the remaining content of the channel by reading it through a pooled direct buffer, which leaves the channel at its end.
+     * Returns {@code null} when the remaining content is smaller than the direct hashing threshold.
+     */
+    @Nullable
+    private HashCode hashDirect(FileChannel channel) throws IOException {
+        if (channel.size() - channel.position() < directHashingThreshold) {
+            return null;
+        }
+        ByteBuffer buffer = takeDirectBuffer();
+        try {
+            Hasher hasher = hasherFactory.create();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                hasher.putBytes(buffer);
+                buffer.clear();
+            }
+            return hasher.hash();
+        } finally {
+            buffer.clear();
+            returnDirectBuffer(buffer);
+        }
+    }
+
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
@@ -76,4 +127,17 @@ public class DefaultStreamHasher implements StreamHasher {
         }
         return buffer;
     }
+
+    private void returnDirectBuffer(ByteBuffer buffer) {
+        // Retain buffer if there is capacity in the queue, otherwise discard
+        directBuffers.offer(buffer);
+    }
+
+    private ByteBuffer takeDirectBuffer() {
+        ByteBuffer buffer = directBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        return buffer;
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations;
+
+import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+
+/**
+ * Reports some {@link ResettableStatistics} as a build operation at the end of each build.
+ */
+public class StatisticsReporter implements RootBuildLifecycleListener {
+    private final String displayName;
+    private final Object details;
+    private final ResettableStatistics<?> statistics;
+    private final BuildOperationExecutor buildOperationExecutor;
+
+    /**
+     * @param displayName The display name of the build operation.
+     * @param details The details of the build operation, which identify the type of the statistics.
+     */
+    public StatisticsReporter(String displayName, Object details, ResettableStatistics<?> statistics, BuildOperationExecutor buildOperationExecutor) {
+        this.displayName = displayName;
+        this.details = details;
+        this.statistics = statistics;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    @Override
+    public void afterStart() {
+        // Discard anything recorded outside of a build
+        statistics.getAndResetStatistics();
+    }
+
+    @Override
+    public void beforeComplete() {
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                context.setResult(statistics.getAndResetStatistics());
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName(displayName).details(details);
+            }
+        });
+    }
+}
@@ -21,6 +21,8 @@ import org.gradle.api.Action;
 import org.gradle.api.internal.FeaturePreviews;
 import org.gradle.api.internal.attributes.DefaultImmutableAttributesFactory;
 import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.rules.FileCollectionChangeDetectionStatisticsBuildOperationType;
+import org.gradle.api.internal.changedetection.rules.FileCollectionChangeDetector;
 import org.gradle.api.internal.changedetection.state.BuildScopeFileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.ClasspathSnapshotter;
@@ -28,9 +30,11 @@ import org.gradle.api.internal.changedetection.state.CompileClasspathSnapshotter
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
 import org.gradle.api.internal.changedetection.state.DefaultClasspathSnapshotter;
 import org.gradle.api.internal.changedetection.state.DefaultCompileClasspathSnapshotter;
+import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror;
 import org.gradle.api.internal.changedetection.state.DefaultFileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.DefaultGenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.FileSystemMirror;
+import org.gradle.api.internal.changedetection.state.FileSystemMirrorStatisticsBuildOperationType;
 import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
@@ -44,6 +48,8 @@ import org.gradle.api.internal.project.CrossProjectConfigurator;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.CacheAccessWorkerStatistics;
+import org.gradle.cache.internal.CacheAccessWorkerStatisticsBuildOperationType;
 import org.gradle.cache.internal.CacheRepositoryServices;
 import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.cache.internal.CleanupActionFactory;
@@ -74,6 +80,7 @@ import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationIdFactory;
 import org.gradle.internal.operations.DefaultBuildOperationQueueFactory;
+import org.gradle.internal.operations.StatisticsReporter;
 import org.gradle.internal.operations.trace.BuildOperationTrace;
 import org.gradle.internal.progress.BuildOperationListener;
 import org.gradle.internal.progress.BuildOperationListenerManager;
@@ -122,6 +129,7 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
 
         // Must be no higher than this scope as needs cache repository services.
         addProvider(new ScopeIdsServices());
+        addProvider(new StatisticsReporterServices());
     }
 
     PendingChangesManager createPendingChangesManager(ListenerManager listenerManager) {
@@ -189,9 +197,10 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
         return timeStampInspector;
     }
 
-    CrossBuildFileHashCache createCrossBuildFileHashCache(ProjectCacheDir projectCacheDir, CacheScopeMapping cacheScopeMapping, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
-        File cacheDir = cacheScopeMapping.getBaseDirectory(projectCacheDir.getDir(), "fileHashes", VersionStrategy.CachePerVersion);
-        return new CrossBuildFileHashCache(cacheDir, cacheRepository, inMemoryCacheDecoratorFactory);
+    CrossBuildFileHashCache createCrossBuildFileHashCache(ProjectCacheDir projectCacheDir, CacheScopeMapping cacheScopeMapping, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, ContentHasherFactory contentHasherFactory) {
+        String cacheKey = contentHasherFactory.versionedCacheName("fileHashes");
+        File cacheDir = cacheScopeMapping.getBaseDirectory(projectCacheDir.getDir(), cacheKey, VersionStrategy.CachePerVersion);
+        return new CrossBuildFileHashCache(cacheDir, cacheKey, cacheRepository, inMemoryCacheDecoratorFactory);
     }
 
     FileHasher createFileSnapshotter(TaskHistoryStore cacheAccess, StringInterner stringInterner, FileSystem fileSystem, BuildScopeFileTimeStampInspector fileTimeStampInspector, StreamHasher streamHasher) {
@@ -202,8 +211,12 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
         return new DefaultScriptSourceHasher(fileHasher, contentHasherFactory);
     }
 
-    FileSystemSnapshotter createFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
-        return new DefaultFileSystemSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    FileSystemSnapshotter createFileSystemSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ExecutorFactory executorFactory, ParallelismConfigurationManager parallelismConfigurationManager) {
+        return new DefaultFileSystemSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, executorFactory, parallelismConfigurationManager);
+    }
+
+    FileCollectionChangeDetector createFileCollectionChangeDetector() {
+        return new FileCollectionChangeDetector();
     }
 
     GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(StringInterner stringInterner, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter) {
@@ -259,4 +272,15 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
     CleanupActionFactory createCleanupActionFactory(BuildOperationExecutor buildOperationExecutor) {
         return new CleanupActionFactory(buildOperationExecutor);
     }
+
+    private static class StatisticsReporterServices {
+        void configure(ServiceRegistration registration, ListenerManager listenerManager, BuildOperationExecutor buildOperationExecutor, DefaultFileSystemMirror fileSystemMirror, FileCollectionChangeDetector changeDetector, CacheAccessWorkerStatistics cacheAccessWorkerStatistics) {
+            listenerManager.addListener(new StatisticsReporter("File system mirror statistics", new FileSystemMirrorStatisticsBuildOperationType.Details() {
+            }, fileSystemMirror, buildOperationExecutor));
+            listenerManager.addListener(new StatisticsReporter("File collection change detection statistics", new FileCollectionChangeDetectionStatisticsBuildOperationType.Details() {
+            }, changeDetector, buildOperationExecutor));
+            listenerManager.addListener(new StatisticsReporter("Cache access worker statistics", new CacheAccessWorkerStatisticsBuildOperationType.Details() {
+            }, cacheAccessWorkerStatistics, buildOperationExecutor));
+        }
+    }
 }
@@ -49,6 +49,7 @@ import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.api.tasks.util.internal.CachingPatternSpecFactory;
 import org.gradle.api.tasks.util.internal.PatternSpecFactory;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.internal.CacheAccessWorkerStatistics;
 import org.gradle.cache.internal.CacheFactory;
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.DefaultCacheFactory;
@@ -191,8 +192,12 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
     }
 
 
-    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory) {
-        return new DefaultCacheFactory(fileLockManager, executorFactory);
+    CacheAccessWorkerStatistics createCacheAccessWorkerStatistics() {
+        return new CacheAccessWorkerStatistics();
+    }
+
+    protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, CacheAccessWorkerStatistics cacheAccessWorkerStatistics) {
+        return new DefaultCacheFactory(fileLockManager, executorFactory, cacheAccessWorkerStatistics);
     }
 
     ClassLoaderRegistry createClassLoaderRegistry(ClassPathRegistry classPathRegistry, LegacyTypesSupport legacyTypesSupport) {
@@ -341,7 +346,7 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
     }
 
     ContentHasherFactory createHasherFactory() {
-        return new DefaultContentHasherFactory();
+        return DefaultContentHasherFactory.fromSystemProperties();
     }
 
     StreamHasher createStreamHasher(ContentHasherFactory hasherFactory) {
@@ -22,6 +22,7 @@ import org.gradle.api.Task
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.changedetection.rules.FileCollectionChangeDetector
 import org.gradle.api.internal.changedetection.state.CacheBackedTaskHistoryRepository
 import org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotterRegistry
 import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror
@@ -121,7 +122,7 @@ class DefaultTaskArtifactStateRepositoryTest extends AbstractProjectBuilderSpec
             snapshotterRegistry,
             TestFiles.fileCollectionFactory()
         )
-        repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, taskOutputFilesRepository, taskCacheKeyCalculator)
+        repository = new DefaultTaskArtifactStateRepository(taskHistoryRepository, DirectInstantiator.INSTANCE, taskOutputFilesRepository, taskCacheKeyCalculator, new FileCollectionChangeDetector())
     }
 
     def "artifacts are not up to date when cache is empty"() {
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.rules;
+package org.gradle.api.internal.changedetection.rules
+
+import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot
+import org.gradle.internal.hash.HashCode
+import spock.lang.Specification
+
+class FileCollectionChangeDetectorTest extends Specification {
+    def changeDetector = new FileCollectionChangeDetector()
+    def current = Mock(FileCollectionSnapshot)
+    def previous = Mock(FileCollectionSnapshot)
+
+    def "does not compare snapshots file by file when the combined hashes are the same"() {
+        when:
+        def changes = changeDetector.iterateContentChangesSince(current, previous, "Input", true)
+
+        then:
+        1 * current.getHash() >> HashCode.fromInt(123)
+        1 * previous.getHash() >> HashCode.fromInt(123)
+        0 * current.iterateContentChangesSince(_, _, _)
+        !changes.hasNext()
+
+        and:
+        def statistics = changeDetector.getAndResetStatistics()
+        statistics.unchangedByHashCount == 1
+        statistics.comparedFileByFileCount == 0
+    }
+
+    def "compares snapshots file by file when the combined hashes differ"() {
+        def change = Mock(TaskStateChange)
+
+        when:
+        def changes = changeDetector.iterateContentChangesSince(current, previous, "Input", false)
+
+        then:
+        1 * current.getHash() >> HashCode.fromInt(123)
+        1 * previous.getHash() >> HashCode.fromInt(456)
+        1 * current.iterateContentChangesSince(previous, "Input", false) >> [change].iterator()
+        changes.toList() == [change]
+
+        and:
+        def statistics = changeDetector.getAndResetStatistics()
+        statistics.unchangedByHashCount == 0
+        statistics.comparedFileByFileCount == 1
+    }
+
+    def "resets statistics"() {
+        given:
+        current.getHash() >> HashCode.fromInt(123)
+        previous.getHash() >> HashCode.fromInt(123)
+        changeDetector.iterateContentChangesSince(current, previous, "Input", true)
+
+        when:
+        changeDetector.getAndResetStatistics()
+        def statistics = changeDetector.getAndResetStatistics()
+
+        then:
+        statistics.unchangedByHashCount == 0
+        statistics.comparedFileByFileCount == 0
+    }
+}
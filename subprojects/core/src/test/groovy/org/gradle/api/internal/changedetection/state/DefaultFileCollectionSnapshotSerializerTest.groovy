@@ -63,4 +63,55 @@ class DefaultFileCollectionSnapshotSerializerTest extends SerializerSpec {
         then:
         out.snapshots.keySet() as List == ['/3', '/2', '/1']
     }
+
+    def "reads and writes all kinds of normalized snapshots"() {
+        def hash = Hashing.md5().hashString("foo")
+        def original = new DefaultFileCollectionSnapshot([
+            "/dir/sub/a": new NonNormalizedFileSnapshot("/dir/sub/a", new FileHashSnapshot(hash)),
+            "/dir/sub/b": new DefaultNormalizedFileSnapshot("sub/b", DirContentSnapshot.getInstance()),
+            "/dir/sub/bc": new DefaultNormalizedFileSnapshot("sub/bc", MissingFileContentSnapshot.getInstance()),
+            "/dir/other/c": new IndexedNormalizedFileSnapshot("/dir/other/c", 5, new FileHashSnapshot(hash)),
+            "/d": new IgnoredPathFileSnapshot(new FileHashSnapshot(hash))
+        ], ORDERED, true)
+
+        when:
+        DefaultFileCollectionSnapshot out = serialize(original, serializer)
+
+        then:
+        out.snapshots == original.snapshots
+        out.snapshots.keySet() as List == original.snapshots.keySet() as List
+        out.snapshots.values()*.normalizedPath == ["/dir/sub/a", "sub/b", "sub/bc", "other/c", ""]
+        out.hash == original.hash
+    }
+
+    def "stores combined hash and emptiness without decoding snapshots"() {
+        def original = new DefaultFileCollectionSnapshot([
+            "/1": new DefaultNormalizedFileSnapshot("1", DirContentSnapshot.getInstance())
+        ], UNORDERED, true)
+
+        when:
+        DefaultFileCollectionSnapshot out = serialize(original, serializer)
+
+        then:
+        out.encodedSnapshots != null
+        out.hash == original.hash
+        !out.empty
+        out.encodedSnapshots != null
+    }
+
+    def "writes previously read snapshot unchanged"() {
+        def hash = Hashing.md5().hashString("foo")
+        def original = new DefaultFileCollectionSnapshot([
+            "/some/dir/1": new DefaultNormalizedFileSnapshot("1", new FileHashSnapshot(hash)),
+            "/some/dir/2": new DefaultNormalizedFileSnapshot("2", new FileHashSnapshot(hash))
+        ], UNORDERED, true)
+        def bytes = toBytes(original, serializer)
+
+        when:
+        def copy = fromBytes(bytes, serializer)
+
+        then:
+        toBytes(copy, serializer) == bytes
+        copy.encodedSnapshots != null
+    }
 }
@@ -18,21 +18,42 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.BuildResult
 import org.gradle.api.internal.GradleInternal
+import org.gradle.api.Action
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TemporaryFileProvider
+import org.gradle.api.internal.file.TestFiles
 import org.gradle.internal.classpath.CachedJarFileStore
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.filewatch.DefaultFileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
 import org.gradle.test.fixtures.file.TestFile
+import org.gradle.internal.hash.TestFileHasher
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.SetSystemProperties
+import org.gradle.util.TestPrecondition
 import org.junit.Rule
 import spock.lang.Specification
 
 class DefaultFileSystemMirrorTest extends Specification {
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
 
     DefaultFileSystemMirror mirror
     TestFile cacheDir
+    TestFile markerDir
+    TemporaryFileProvider temporaryFileProvider = Stub(TemporaryFileProvider)
+    Thread markerReporter
 
     def setup() {
         cacheDir = tmpDir.createDir("cache")
+        markerDir = tmpDir.createDir("markers")
+        temporaryFileProvider.createTemporaryDirectory(*_) >> markerDir
         def fileStore = Stub(CachedJarFileStore)
         fileStore.fileStoreRoots >> [cacheDir]
         mirror = new DefaultFileSystemMirror([fileStore])
@@ -141,4 +162,387 @@ class DefaultFileSystemMirrorTest extends Specification {
         mirror.getDirectoryTree(file.path) == null
         mirror.getContent(file.path) == null
     }
+
+    def "discards state about affected paths, their ancestors and their descendants when task outputs are generated"() {
+        def parent = tmpDir.file("parent")
+        def output = parent.file("output")
+        def child = output.file("child")
+        def sibling = parent.file("output-sibling")
+        def paths = [parent, output, child, sibling]
+
+        given:
+        paths.each { file ->
+            def fileSnapshot = Stub(FileSnapshot)
+            _ * fileSnapshot.path >> file.path
+            def fileTreeSnapshot = Stub(FileTreeSnapshot)
+            _ * fileTreeSnapshot.path >> file.path
+            mirror.putFile(fileSnapshot)
+            mirror.putDirectory(fileTreeSnapshot)
+            mirror.putContent(file.path, Stub(Snapshot))
+        }
+
+        when:
+        mirror.beforeTaskOutputChanged([output.path])
+
+        then:
+        mirror.getFile(parent.path) == null
+        mirror.getDirectoryTree(parent.path) == null
+        mirror.getContent(parent.path) == null
+        mirror.getFile(output.path) == null
+        mirror.getDirectoryTree(output.path) == null
+        mirror.getContent(output.path) == null
+        mirror.getFile(child.path) == null
+        mirror.getDirectoryTree(child.path) == null
+        mirror.getContent(child.path) == null
+        mirror.getFile(sibling.path) != null
+        mirror.getDirectoryTree(sibling.path) != null
+        mirror.getContent(sibling.path) != null
+
+        when:
+        def statistics = mirror.getAndResetStatistics()
+
+        then:
+        statistics.partialInvalidationCount == 1
+        statistics.fullInvalidationCount == 0
+        statistics.invalidatedEntryCount == 9
+        statistics.hitCount == 3
+        statistics.missCount == 9
+    }
+
+    def "does not discard state about affected paths that live in the caches"() {
+        def file = cacheDir.file("some/dir/a")
+        def fileSnapshot = Stub(FileSnapshot)
+
+        given:
+        _ * fileSnapshot.path >> file.path
+        mirror.putFile(fileSnapshot)
+
+        when:
+        mirror.beforeTaskOutputChanged([file.path])
+
+        then:
+        mirror.getFile(file.path) == fileSnapshot
+    }
+
+    def "retains directory trees between builds while they are watched for changes"() {
+        def fileStore = Stub(CachedJarFileStore)
+        def watcherFactory = Mock(FileWatcherFactory)
+        def watcher = Mock(FileWatcher)
+        def dir = tmpDir.createDir("dir")
+        def otherDir = tmpDir.createDir("other")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+        def otherFileTreeSnapshot = Stub(FileTreeSnapshot)
+        def fileSnapshot = Stub(FileSnapshot)
+        FileWatcherListener listener = null
+
+        given:
+        fileStore.fileStoreRoots >> [cacheDir]
+        mirror = new DefaultFileSystemMirror([fileStore], watcherFactory, temporaryFileProvider, true, true)
+        _ * fileTreeSnapshot.path >> dir.path
+        _ * otherFileTreeSnapshot.path >> otherDir.path
+        _ * fileSnapshot.path >> dir.path
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+
+        when:
+        mirror.afterStart()
+
+        then:
+        1 * watcherFactory.watch(_ as Action, _ as FileWatcherListener) >> { Action onError, FileWatcherListener l ->
+            listener = l
+            watcher
+        }
+        1 * watcher.watch({ it.contains(markerDir) })
+        0 * _
+
+        when:
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        mirror.beforeDirectoryTreeWalked(otherDir.path)
+
+        then:
+        1 * watcher.watch({ it.contains(dir) })
+        1 * watcher.watch({ it.contains(otherDir) })
+        0 * _
+
+        when:
+        mirror.putDirectory(fileTreeSnapshot)
+        mirror.putDirectory(otherFileTreeSnapshot)
+        mirror.putFile(fileSnapshot)
+
+        then:
+        0 * _
+
+        when:
+        mirror.beforeComplete()
+        reportMarkers(watcher, listener)
+        mirror.afterStart()
+
+        then:
+        _ * watcher.running >> true
+        0 * _
+
+        and:
+        mirror.getDirectoryTree(dir.path) == fileTreeSnapshot
+        mirror.getDirectoryTree(otherDir.path) == otherFileTreeSnapshot
+        mirror.getFile(dir.path) == null
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.modify(dir.file("some/file")))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+        mirror.getDirectoryTree(otherDir.path) == otherFileTreeSnapshot
+
+        when:
+        listener.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        mirror.getDirectoryTree(otherDir.path) == null
+    }
+
+    def "stops watching and discards directory trees when retaining them is disabled"() {
+        def fileStore = Stub(CachedJarFileStore)
+        def watcherFactory = Mock(FileWatcherFactory)
+        def watcher = Mock(FileWatcher)
+        def dir = tmpDir.createDir("dir")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+
+        given:
+        fileStore.fileStoreRoots >> [cacheDir]
+        mirror = new DefaultFileSystemMirror([fileStore], watcherFactory, temporaryFileProvider, true, true)
+        _ * fileTreeSnapshot.path >> dir.path
+        _ * watcherFactory.watch(_, _) >> watcher
+        _ * watcher.running >> true
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+        mirror.afterStart()
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        mirror.putDirectory(fileTreeSnapshot)
+        mirror.beforeComplete()
+
+        when:
+        System.clearProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY)
+        mirror.afterStart()
+
+        then:
+        1 * watcher.stop()
+
+        and:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "does not retain directory trees between builds by default"() {
+        def fileStore = Stub(CachedJarFileStore)
+        def watcherFactory = Mock(FileWatcherFactory)
+        def dir = tmpDir.createDir("dir")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+
+        given:
+        fileStore.fileStoreRoots >> [cacheDir]
+        mirror = new DefaultFileSystemMirror([fileStore], watcherFactory, temporaryFileProvider, true, true)
+        _ * fileTreeSnapshot.path >> dir.path
+
+        when:
+        mirror.afterStart()
+        mirror.putDirectory(fileTreeSnapshot)
+        mirror.beforeComplete()
+
+        then:
+        0 * watcherFactory._
+
+        and:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "does not retain directory tree that changes while it is walked"() {
+        def watcherFactory = Mock(FileWatcherFactory)
+        def watcher = Mock(FileWatcher)
+        def dir = tmpDir.createDir("dir")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+        FileWatcherListener listener = null
+
+        given:
+        mirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider, true, true)
+        _ * fileTreeSnapshot.path >> dir.path
+        _ * watcherFactory.watch(_, _) >> { Action onError, FileWatcherListener l ->
+            listener = l
+            watcher
+        }
+        _ * watcher.running >> true
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+        mirror.afterStart()
+
+        when:
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        listener.onChange(watcher, FileWatcherEvent.create(dir.file("some/new-file")))
+        mirror.putDirectory(fileTreeSnapshot)
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+
+        when:
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        mirror.putDirectory(fileTreeSnapshot)
+
+        then:
+        mirror.getDirectoryTree(dir.path) == fileTreeSnapshot
+    }
+
+    def "does not retain directory tree that was not watched while it was walked"() {
+        def watcherFactory = Mock(FileWatcherFactory)
+        def watcher = Mock(FileWatcher)
+        def dir = tmpDir.createDir("dir")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+
+        given:
+        mirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider, true, true)
+        _ * fileTreeSnapshot.path >> dir.path
+        _ * watcherFactory.watch(_, _) >> watcher
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+        mirror.afterStart()
+
+        when:
+        mirror.putDirectory(fileTreeSnapshot)
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "does not watch directory trees when changes are not reported natively"() {
+        def watcherFactory = Mock(FileWatcherFactory)
+        def dir = tmpDir.createDir("dir")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+
+        given:
+        mirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider, false, false)
+        _ * fileTreeSnapshot.path >> dir.path
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+
+        when:
+        mirror.afterStart()
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        mirror.putDirectory(fileTreeSnapshot)
+
+        then:
+        mirror.getDirectoryTree(dir.path) == fileTreeSnapshot
+
+        when:
+        mirror.beforeComplete()
+
+        then:
+        0 * watcherFactory._
+
+        and:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "watches each directory of a tree when changes to a whole tree are not reported natively"() {
+        def watcherFactory = Mock(FileWatcherFactory)
+        def watcher = Mock(FileWatcher)
+        def dir = tmpDir.createDir("dir")
+        def subDir = dir.createDir("sub")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+
+        given:
+        mirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider, true, false)
+        _ * fileTreeSnapshot.path >> dir.path
+        _ * watcherFactory.watch(_, _) >> watcher
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+        mirror.afterStart()
+
+        when:
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        mirror.beforeDirectoryListed(subDir.path)
+        mirror.putDirectory(fileTreeSnapshot)
+
+        then:
+        1 * watcher.watchDirectory(dir)
+        1 * watcher.watchDirectory(subDir)
+        0 * watcher._
+
+        and:
+        mirror.getDirectoryTree(dir.path) == fileTreeSnapshot
+    }
+
+    def "does not retain directory tree when one of its directories cannot be watched"() {
+        def watcherFactory = Mock(FileWatcherFactory)
+        def watcher = Mock(FileWatcher)
+        def dir = tmpDir.createDir("dir")
+        def subDir = dir.createDir("sub")
+        def fileTreeSnapshot = Stub(FileTreeSnapshot)
+
+        given:
+        mirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider, true, false)
+        _ * fileTreeSnapshot.path >> dir.path
+        _ * watcherFactory.watch(_, _) >> watcher
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+        mirror.afterStart()
+
+        when:
+        mirror.beforeDirectoryTreeWalked(dir.path)
+        mirror.beforeDirectoryListed(subDir.path)
+        mirror.putDirectory(fileTreeSnapshot)
+
+        then:
+        1 * watcher.watchDirectory(subDir) >> { throw new IOException("too many watches") }
+
+        and:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    @Requires(TestPrecondition.LINUX)
+    def "discards retained directory tree that changed before the next build started"() {
+        def executorFactory = new DefaultExecutorFactory()
+        def watcherFactory = new DefaultFileWatcherFactory(executorFactory, TestFiles.fileSystem())
+        def changedDir = tmpDir.createDir("changed")
+        def changedFile = changedDir.file("sub/dir/file.txt").createFile()
+        def unchangedDir = tmpDir.createDir("unchanged")
+        unchangedDir.file("sub/file.txt").createFile()
+
+        given:
+        mirror = new DefaultFileSystemMirror([], watcherFactory, temporaryFileProvider)
+        def snapshotter = new DefaultFileSystemSnapshotter(new TestFileHasher(), new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), mirror)
+        System.setProperty(DefaultFileSystemMirror.RETAIN_FILE_TREES_PROPERTY, "true")
+
+        when:
+        mirror.afterStart()
+        snapshotter.snapshotDirectoryTree(TestFiles.directoryFileTreeFactory().create(changedDir))
+        def unchangedTree = snapshotter.snapshotDirectoryTree(TestFiles.directoryFileTreeFactory().create(unchangedDir))
+        mirror.beforeComplete()
+        changedFile.text = "changed"
+        mirror.afterStart()
+
+        then:
+        mirror.getDirectoryTree(changedDir.path) == null
+        mirror.getDirectoryTree(unchangedDir.path) == unchangedTree
+
+        cleanup:
+        mirror.stop()
+        watcherFactory.stop()
+        executorFactory.stop()
+    }
+
+    def cleanup() {
+        markerReporter?.interrupt()
+        markerReporter?.join()
+    }
+
+    /**
+     * Reports the marker files that the mirror creates while it waits for pending changes, as a watcher would.
+     */
+    private void reportMarkers(FileWatcher watcher, FileWatcherListener listener) {
+        markerReporter = Thread.start {
+            def reported = [] as Set
+            try {
+                while (true) {
+                    markerDir.listFiles().each { File marker ->
+                        if (reported.add(marker)) {
+                            listener.onChange(watcher, FileWatcherEvent.create(marker))
+                        }
+                    }
+                    Thread.sleep(10)
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        }
+    }
 }
@@ -16,10 +16,16 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.util.concurrent.Futures
 import org.gradle.api.internal.cache.StringInterner
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.DirectoryFileTree
 import org.gradle.caching.internal.DefaultBuildCacheHasher
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelismConfiguration
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.concurrent.ParallelismConfigurationManager
 import org.gradle.internal.file.FileType
 import org.gradle.internal.hash.TestFileHasher
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -250,6 +256,78 @@ class DefaultFileSystemSnapshotterTest extends Specification {
         !snapshotter.exists(m)
     }
 
+    def "hashes files of a directory tree concurrently in the same order as when hashing inline"() {
+        def d = tmpDir.createDir("d")
+        10.times { i ->
+            d.createDir("d$i")
+            10.times { j ->
+                d.file("d$i/f$j").text = "content $i $j"
+            }
+            d.file("f$i").text = "content $i"
+        }
+        def executorFactory = new DefaultExecutorFactory()
+        def parallelismConfigurationManager = Stub(ParallelismConfigurationManager) {
+            getParallelismConfiguration() >> new DefaultParallelismConfiguration(false, 4)
+        }
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), executorFactory, parallelismConfigurationManager)
+
+        when:
+        def snapshot = snapshotter.snapshotDirectoryTree(d)
+        def parallelSnapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+
+        then:
+        parallelSnapshot.descendants.size() == 120
+        parallelSnapshot.descendants*.path == snapshot.descendants*.path
+        parallelSnapshot.descendants*.relativePath == snapshot.descendants*.relativePath
+        parallelSnapshot.descendants*.content == snapshot.descendants*.content
+
+        cleanup:
+        parallelSnapshotter.stop()
+        executorFactory.stop()
+    }
+
+    def "sizes the hashing threads from the maximum number of workers"() {
+        def d = tmpDir.createDir("d")
+        40.times { i ->
+            d.file("f$i").text = "content $i"
+        }
+        def executorFactory = Mock(ExecutorFactory)
+        def executor = Mock(ManagedExecutor)
+        def parallelismConfigurationManager = Mock(ParallelismConfigurationManager)
+
+        when:
+        def parallelSnapshotter = new DefaultFileSystemSnapshotter(fileHasher, new StringInterner(), TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror([]), executorFactory, parallelismConfigurationManager)
+
+        then:
+        1 * parallelismConfigurationManager.getParallelismConfiguration() >> new DefaultParallelismConfiguration(false, 3)
+        1 * parallelismConfigurationManager.addListener(_)
+        0 * _
+
+        when:
+        def snapshot = parallelSnapshotter.snapshotDirectoryTree(d)
+
+        then:
+        snapshot.descendants.size() == 40
+        1 * executorFactory.create("File hashing", 3) >> executor
+        _ * executor.submit(_ as Runnable) >> { Runnable runnable ->
+            runnable.run()
+            Futures.immediateFuture(null)
+        }
+
+        when:
+        parallelSnapshotter.onParallelismConfigurationChange(new DefaultParallelismConfiguration(false, 5))
+
+        then:
+        1 * executor.setFixedPoolSize(5)
+
+        when:
+        parallelSnapshotter.stop()
+
+        then:
+        1 * parallelismConfigurationManager.removeListener(parallelSnapshotter)
+        1 * executor.stop()
+    }
+
     def hash(Snapshot snapshot) {
         def builder = new DefaultBuildCacheHasher()
         snapshot.appendToHasher(builder)
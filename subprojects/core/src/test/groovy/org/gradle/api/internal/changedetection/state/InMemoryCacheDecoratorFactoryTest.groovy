@@ -68,6 +68,36 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "uses cached result without file lock when allowed by cross-process access"() {
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * crossProcessCacheAccess.tryWithoutFileLock(_) >> { Factory task -> task.create() }
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        1 * target.get("key") >> "result"
+        0 * target._
+
+        when:
+        result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * crossProcessCacheAccess.tryWithoutFileLock(_) >> { Factory task -> task.create() }
+        0 * crossProcessCacheAccess._
+        0 * asyncCacheAccess._
+        0 * target._
+    }
+
     def "does not cache result when not long running process"() {
         given:
         def cache = cacheFactory.decorator(100, false).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
@@ -147,7 +177,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
 
         then:
         1 * crossProcessCacheAccess.acquireFileLock() >> lock
-        1 * asyncCacheAccess.enqueue(_) >> { Runnable action -> action.run() }
+        1 * asyncCacheAccess.enqueueUpdate("key", _, _) >> { Object key, Runnable update, Runnable completion -> update.run(); completion.run() }
         1 * target.put("key", "new value")
         1 * lock.run()
         0 * _._
@@ -186,7 +216,7 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
 
         then:
         1 * crossProcessCacheAccess.acquireFileLock() >> lock
-        1 * asyncCacheAccess.enqueue(_) >> { Runnable action -> action.run() }
+        1 * asyncCacheAccess.enqueueUpdate("key", _, _) >> { Object key, Runnable update, Runnable completion -> update.run(); completion.run() }
         1 * target.remove("key")
         1 * lock.run()
         0 * _._
@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.execution
 import org.gradle.api.execution.TaskActionListener
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.changedetection.TaskArtifactState
+import org.gradle.api.internal.file.collections.SimpleFileCollection
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.tasks.ContextAwareTaskAction
 import org.gradle.api.internal.tasks.OriginTaskExecutionMetadata
@@ -48,6 +49,7 @@ class ExecuteActionsTaskExecutorTest extends Specification {
     def state = new TaskStateInternal()
     def taskArtifactState = Mock(TaskArtifactState)
     def executionContext = Mock(TaskExecutionContext)
+    def taskProperties = Mock(TaskProperties)
     def scriptSource = Mock(ScriptSource)
     def standardOutputCapture = Mock(StandardOutputCapture)
     def publicListener = Mock(TaskActionListener)
@@ -67,6 +69,7 @@ class ExecuteActionsTaskExecutorTest extends Specification {
         project.getBuildScriptSource() >> scriptSource
         task.getStandardOutputCapture() >> standardOutputCapture
         executionContext.taskArtifactState >> taskArtifactState
+        executionContext.taskProperties >> taskProperties
     }
 
     void noMoreInteractions() {
@@ -104,6 +107,27 @@ class ExecuteActionsTaskExecutorTest extends Specification {
         state.actionable
     }
 
+    def invalidatesOnlyDeclaredOutputsLocalStateAndDestroyablesOfTaskWithDeclaredOutputs() {
+        given:
+        def outputFile = new File("output").absoluteFile
+        def localStateFile = new File("local-state").absoluteFile
+        def destroyableFile = new File("destroyable").absoluteFile
+        task.getTaskActions() >> [action1]
+        taskProperties.hasDeclaredOutputs() >> true
+        taskProperties.outputFiles >> new SimpleFileCollection(outputFile)
+        taskProperties.localStateFiles >> new SimpleFileCollection(localStateFile)
+        taskProperties.destroyableFiles >> new SimpleFileCollection(destroyableFile)
+
+        when:
+        executer.execute(task, state, executionContext)
+
+        then:
+        1 * internalListener.beforeTaskOutputChanged(_) >> { Iterable<String> affectedPaths ->
+            assert affectedPaths as List == [outputFile.absolutePath, localStateFile.absolutePath, destroyableFile.absolutePath]
+        }
+        0 * internalListener.beforeTaskOutputChanged()
+    }
+
     def executesEachActionInOrder() {
         given:
         task.getTaskActions() >> [action1, action2]
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClaimedPathsTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def claimedPaths = new ClaimedPaths()
+
+    def "empty set does not overlap with anything"() {
+        expect:
+        claimedPaths.empty
+        !claimedPaths.overlaps(tmpDir.file("any").absolutePath)
+    }
+
+    def "claimed path overlaps with itself, its ancestors and its descendants"() {
+        def dir = tmpDir.file("parent/dir")
+
+        when:
+        claimedPaths.claim(dir.absolutePath)
+
+        then:
+        !claimedPaths.empty
+        claimedPaths.overlaps(dir.absolutePath)
+        claimedPaths.overlaps(dir.parentFile.absolutePath)
+        claimedPaths.overlaps(dir.file("child").absolutePath)
+        claimedPaths.overlaps(dir.file("child/grand-child").absolutePath)
+        !claimedPaths.overlaps(tmpDir.file("parent/dir2").absolutePath)
+        !claimedPaths.overlaps(tmpDir.file("parent/d").absolutePath)
+        !claimedPaths.overlaps(tmpDir.file("other").absolutePath)
+    }
+
+    def "released path no longer overlaps"() {
+        def dir1 = tmpDir.file("parent/dir1")
+        def dir2 = tmpDir.file("parent/dir2")
+
+        when:
+        claimedPaths.claim(dir1.absolutePath)
+        claimedPaths.claim(dir2.absolutePath)
+        claimedPaths.release(dir1.absolutePath)
+
+        then:
+        !claimedPaths.overlaps(dir1.absolutePath)
+        claimedPaths.overlaps(dir2.absolutePath)
+        claimedPaths.overlaps(dir1.parentFile.absolutePath)
+
+        when:
+        claimedPaths.release(dir2.absolutePath)
+
+        then:
+        claimedPaths.empty
+        !claimedPaths.overlaps(dir1.parentFile.absolutePath)
+    }
+
+    def "path claimed multiple times needs to be released multiple times"() {
+        def dir = tmpDir.file("dir")
+
+        when:
+        claimedPaths.claim(dir.absolutePath)
+        claimedPaths.claim(dir.absolutePath)
+        claimedPaths.release(dir.absolutePath)
+
+        then:
+        claimedPaths.overlaps(dir.absolutePath)
+
+        when:
+        claimedPaths.release(dir.absolutePath)
+
+        then:
+        !claimedPaths.overlaps(dir.absolutePath)
+        claimedPaths.empty
+    }
+
+    def "can claim nested paths"() {
+        def parent = tmpDir.file("parent")
+        def child = parent.file("child")
+
+        when:
+        claimedPaths.claim(parent.absolutePath)
+        claimedPaths.claim(child.absolutePath)
+        claimedPaths.release(parent.absolutePath)
+
+        then:
+        claimedPaths.overlaps(parent.absolutePath)
+        claimedPaths.overlaps(child.absolutePath)
+        !claimedPaths.overlaps(parent.file("other").absolutePath)
+    }
+
+    def "fails to release a path that is not claimed"() {
+        claimedPaths.claim(tmpDir.file("dir").absolutePath)
+
+        when:
+        claimedPaths.release(tmpDir.file("dir2").absolutePath)
+
+        then:
+        thrown(IllegalStateException)
+    }
+}
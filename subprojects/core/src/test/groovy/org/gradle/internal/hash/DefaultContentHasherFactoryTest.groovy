@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import spock.lang.Specification
+
+class DefaultContentHasherFactoryTest extends Specification {
+    def "uses md5 and unversioned cache names by default"() {
+        def factory = new DefaultContentHasherFactory()
+
+        expect:
+        hash(factory) == hash(new DefaultContentHasherFactory("md5"))
+        factory.versionedCacheName("fileHashes") == "fileHashes"
+    }
+
+    def "murmur3 hashes differ from md5 hashes and use separate caches"() {
+        def factory = new DefaultContentHasherFactory("murmur3")
+
+        expect:
+        hash(factory) != hash(new DefaultContentHasherFactory())
+        hash(factory) == hash(new DefaultContentHasherFactory("murmur3"))
+        factory.versionedCacheName("fileHashes") == "fileHashes-murmur3"
+        factory.versionedCacheName("taskHistory") == "taskHistory-murmur3"
+    }
+
+    def "rejects unknown hash function"() {
+        when:
+        new DefaultContentHasherFactory("crc32")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unsupported content hash function 'crc32'. Supported values are 'md5' and 'murmur3'."
+    }
+
+    private static HashCode hash(ContentHasherFactory factory) {
+        def hasher = factory.create()
+        hasher.putString("content")
+        return hasher.hash()
+    }
+}
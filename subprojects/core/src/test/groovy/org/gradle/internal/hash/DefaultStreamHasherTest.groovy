@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DefaultStreamHasherTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def contentHasherFactory = new DefaultContentHasherFactory()
+    def streamingHasher = new DefaultStreamHasher(contentHasherFactory, Long.MAX_VALUE)
+    def directHasher = new DefaultStreamHasher(contentHasherFactory, 0)
+
+    def "hashes file read through direct buffer the same as streamed file of size #size"() {
+        def file = tmpDir.file("file")
+        def content = new byte[size]
+        new Random(1234L).nextBytes(content)
+        file.bytes = content
+
+        expect:
+        hash(directHasher, file) == hash(streamingHasher, file)
+        hash(directHasher, file) == streamingHasher.hash(new ByteArrayInputStream(content))
+
+        where:
+        size << [0, 1, 8192, 65536, 100000, 200000]
+    }
+
+    def "hashes remaining content of a partially read file"() {
+        def file = tmpDir.file("file")
+        file.bytes = "header content".bytes
+
+        when:
+        def inputStream = new FileInputStream(file)
+        def hashCode
+        try {
+            inputStream.skip(7)
+            hashCode = directHasher.hash(inputStream)
+            assert inputStream.read() == -1
+        } finally {
+            inputStream.close()
+        }
+
+        then:
+        hashCode == streamingHasher.hash(new ByteArrayInputStream("content".bytes))
+    }
+
+    private static HashCode hash(StreamHasher hasher, File file) {
+        def inputStream = new FileInputStream(file)
+        try {
+            return hasher.hash(inputStream)
+        } finally {
+            inputStream.close()
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations
+
+import org.gradle.api.internal.changedetection.state.FileSystemMirrorStatisticsBuildOperationType
+import spock.lang.Specification
+
+class StatisticsReporterTest extends Specification {
+    def statistics = Mock(ResettableStatistics)
+    def details = Stub(FileSystemMirrorStatisticsBuildOperationType.Details)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def reporter = new StatisticsReporter("File system mirror statistics", details, statistics, buildOperationExecutor)
+
+    def "discards statistics recorded before the build starts"() {
+        when:
+        reporter.afterStart()
+
+        then:
+        1 * statistics.getAndResetStatistics()
+        0 * _
+
+        and:
+        buildOperationExecutor.operations.empty
+    }
+
+    def "reports statistics as the result of a build operation at the end of the build"() {
+        def result = Stub(FileSystemMirrorStatisticsBuildOperationType.Result)
+
+        when:
+        reporter.beforeComplete()
+
+        then:
+        1 * statistics.getAndResetStatistics() >> result
+        0 * _
+
+        and:
+        buildOperationExecutor.operations*.displayName == ["File system mirror statistics"]
+        buildOperationExecutor.log.mostRecentDetails(FileSystemMirrorStatisticsBuildOperationType) == details
+        buildOperationExecutor.log.mostRecentResult(FileSystemMirrorStatisticsBuildOperationType) == result
+    }
+}
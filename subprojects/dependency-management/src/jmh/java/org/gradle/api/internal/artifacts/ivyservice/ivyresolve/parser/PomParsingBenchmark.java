@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares reading POM files with {@link PomStreamParser} to building a DOM of the same files, as POMs were read before.
+ *
+ * <p>The generated corpora resemble the shapes of POM that are expensive to read: a typical library POM, a BOM with a large dependency management
+ * section, and a deep chain of parent POMs, where each POM mostly declares build configuration that is not used for dependency resolution.
+ * The published corpus is the set of POM files from Maven Central that {@code PomStreamParserTest} reads.</p>
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class PomParsingBenchmark {
+    private static final String SYSTEM_ID = "file:/benchmark/pom.xml";
+    private static final String[] PUBLISHED_POMS = {
+        "apache-18.pom",
+        "commons-parent-42.pom",
+        "commons-lang3-3.7.pom",
+        "jackson-bom-2.9.5.pom",
+        "spring-cloud-dependencies-Finchley.RELEASE.pom",
+        "plexus-1.0.4.pom",
+        "log4j-2.11.0.pom"
+    };
+
+    @Param({"library", "bom", "parentChain", "published"})
+    String corpus;
+
+    List<byte[]> poms;
+    byte[] m2Entities;
+    DocumentBuilderFactory documentBuilderFactory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        poms = new ArrayList<byte[]>();
+        if (corpus.equals("library")) {
+            poms.add(pom(1, 25, 0, 40, true));
+        } else if (corpus.equals("bom")) {
+            poms.add(pom(1, 400, 1500, 0, false));
+        } else if (corpus.equals("parentChain")) {
+            for (int i = 0; i < 8; i++) {
+                poms.add(pom(i, 30, 60, 5, true));
+            }
+        } else {
+            for (String pom : PUBLISHED_POMS) {
+                poms.add(IOUtils.toByteArray(PomParsingBenchmark.class.getResourceAsStream("PomStreamParserTest/" + pom)));
+            }
+        }
+        m2Entities = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setValidating(false);
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) throws Exception {
+        for (byte[] pom : poms) {
+            blackhole.consume(PomStreamParser.parse(new ByteArrayInputStream(pom), SYSTEM_ID));
+        }
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) throws Exception {
+        for (byte[] pom : poms) {
+            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            documentBuilder.setEntityResolver(new EntityResolver() {
+                public InputSource resolveEntity(String publicId, String systemId) {
+                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                        return new InputSource(new ByteArrayInputStream(m2Entities));
+                    }
+                    return null;
+                }
+            });
+            blackhole.consume(documentBuilder.parse(new PomStreamParser.AddDTDFilterInputStream(new ByteArrayInputStream(pom)), SYSTEM_ID));
+        }
+    }
+
+    private static byte[] pom(int index, int properties, int managedDependencies, int dependencies, boolean withBuild) throws IOException {
+        StringBuilder pom = new StringBuilder();
+        pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n");
+        pom.append("         xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/maven-v4_0_0.xsd\">\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+        if (index > 0) {
+            pom.append("  <parent>\n");
+            pom.append("    <groupId>org.example</groupId>\n");
+            pom.append("    <artifactId>parent-").append(index - 1).append("</artifactId>\n");
+            pom.append("    <version>1.0</version>\n");
+            pom.append("  </parent>\n");
+        }
+        pom.append("  <groupId>org.example</groupId>\n");
+        pom.append("  <artifactId>module-").append(index).append("</artifactId>\n");
+        pom.append("  <version>1.0</version>\n");
+        pom.append("  <packaging>").append(managedDependencies > 0 ? "pom" : "jar").append("</packaging>\n");
+        pom.append("  <name>Module ").append(index).append("</name>\n");
+        pom.append("  <description>A module of the example project &#169; Example&nbsp;Inc.</description>\n");
+        pom.append("  <url>https://example.org/module-").append(index).append("</url>\n");
+        pom.append("  <licenses>\n    <license>\n      <name>The Apache Software License, Version 2.0</name>\n");
+        pom.append("      <url>http://www.apache.org/licenses/LICENSE-2.0.txt</url>\n      <distribution>repo</distribution>\n    </license>\n  </licenses>\n");
+        pom.append("  <developers>\n");
+        for (int i = 0; i < 5; i++) {
+            pom.append("    <developer>\n      <id>dev").append(i).append("</id>\n      <name>Developer ").append(i).append("</name>\n");
+            pom.append("      <email>dev").append(i).append("@example.org</email>\n      <roles><role>developer</role></roles>\n    </developer>\n");
+        }
+        pom.append("  </developers>\n");
+        pom.append("  <properties>\n");
+        for (int i = 0; i < properties; i++) {
+            pom.append("    <library").append(i).append(".version>").append(i).append(".2.3</library").append(i).append(".version>\n");
+        }
+        pom.append("  </properties>\n");
+        if (managedDependencies > 0) {
+            pom.append("  <dependencyManagement>\n    <dependencies>\n");
+            for (int i = 0; i < managedDependencies; i++) {
+                dependency(pom, "managed", i, "${library" + (i % Math.max(properties, 1)) + ".version}", i % 10 == 0 ? "import" : null, i % 7 == 0);
+            }
+            pom.append("    </dependencies>\n  </dependencyManagement>\n");
+        }
+        if (dependencies > 0) {
+            pom.append("  <dependencies>\n");
+            for (int i = 0; i < dependencies; i++) {
+                dependency(pom, "direct", i, "${library" + (i % Math.max(properties, 1)) + ".version}", i % 4 == 0 ? "test" : null, i % 3 == 0);
+            }
+            pom.append("  </dependencies>\n");
+        }
+        if (withBuild) {
+            pom.append("  <build>\n    <pluginManagement>\n      <plugins>\n");
+            for (int i = 0; i < 30; i++) {
+                pom.append("        <plugin>\n          <groupId>org.apache.maven.plugins</groupId>\n");
+                pom.append("          <artifactId>maven-plugin-").append(i).append("</artifactId>\n          <version>3.").append(i).append("</version>\n");
+                pom.append("          <configuration>\n            <source>1.8</source>\n            <target>1.8</target>\n");
+                pom.append("            <excludes><exclude>**/generated/**</exclude><exclude>**/*.txt</exclude></excludes>\n          </configuration>\n");
+                pom.append("          <executions>\n            <execution>\n              <id>default-").append(i).append("</id>\n");
+                pom.append("              <phase>package</phase>\n              <goals><goal>run</goal></goals>\n            </execution>\n          </executions>\n");
+                pom.append("        </plugin>\n");
+            }
+            pom.append("      </plugins>\n    </pluginManagement>\n  </build>\n");
+        }
+        pom.append("  <profiles>\n    <profile>\n      <id>release</id>\n      <activation><property><name>performRelease</name></property></activation>\n");
+        pom.append("      <properties><release.flag>true</release.flag></properties>\n    </profile>\n  </profiles>\n");
+        pom.append("</project>\n");
+        return pom.toString().getBytes("UTF-8");
+    }
+
+    private static void dependency(StringBuilder pom, String prefix, int index, String version, String scope, boolean withExclusions) {
+        pom.append("      <dependency>\n");
+        pom.append("        <groupId>org.example.").append(prefix).append("</groupId>\n");
+        pom.append("        <artifactId>").append(prefix).append("-").append(index).append("</artifactId>\n");
+        pom.append("        <version>").append(version).append("</version>\n");
+        if (scope != null) {
+            pom.append("        <scope>").append(scope).append("</scope>\n");
+            if (scope.equals("import")) {
+                pom.append("        <type>pom</type>\n");
+            }
+        }
+        if (withExclusions) {
+            pom.append("        <exclusions>\n          <exclusion>\n            <groupId>commons-logging</groupId>\n");
+            pom.append("            <artifactId>commons-logging</artifactId>\n          </exclusion>\n        </exclusions>\n");
+        }
+        pom.append("      </dependency>\n");
+    }
+}
@@ -19,12 +19,21 @@ package org.gradle.api.internal.artifacts;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultCacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParsedPomCache;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParsedPomCacheStatisticsBuildOperationType;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetchExecutor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.DefaultResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.transform.DefaultTransformedFileCache;
 import org.gradle.api.internal.artifacts.transform.TransformedFileCache;
 import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.CacheRepository;
+import org.gradle.cache.internal.CleanupActionFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.StatisticsReporter;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
 
@@ -63,5 +72,18 @@ public class DependencyServices extends AbstractPluginServiceRegistry {
             listenerManager.addListener(transformedFileCache);
             return transformedFileCache;
         }
+
+        ResolvedGraphCache createResolvedGraphCache(CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory, ImmutableModuleIdentifierFactory moduleIdentifierFactory, CleanupActionFactory cleanupActionFactory) {
+            return new DefaultResolvedGraphCache(cacheRepository, cacheDecoratorFactory, moduleIdentifierFactory, cleanupActionFactory);
+        }
+
+        MetadataPrefetchExecutor createMetadataPrefetchExecutor(ExecutorFactory executorFactory) {
+            return new MetadataPrefetchExecutor(executorFactory);
+        }
+
+        void configure(ServiceRegistration registration, ListenerManager listenerManager, ParsedPomCache parsedPomCache, BuildOperationExecutor buildOperationExecutor) {
+            listenerManager.addListener(new StatisticsReporter("Parsed POM cache statistics", new ParsedPomCacheStatisticsBuildOperationType.Details() {
+            }, parsedPomCache, buildOperationExecutor));
+        }
     }
 }
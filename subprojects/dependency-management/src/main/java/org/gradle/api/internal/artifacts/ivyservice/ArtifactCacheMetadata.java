@@ -37,13 +37,6 @@ public interface ArtifactCacheMetadata {
      */
     File getExternalResourcesStoreDirectory();
 
-    /**
-     * Returns the root directory for the meta-data file store.
-     *
-     * @return Metadata store location
-     */
-    File getMetaDataStoreDirectory();
-
     /**
      * Returns the root directory for the transforms cache.
      */
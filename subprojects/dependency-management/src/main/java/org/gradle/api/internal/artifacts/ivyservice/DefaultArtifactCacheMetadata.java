@@ -60,11 +60,6 @@ public class DefaultArtifactCacheMetadata implements ArtifactCacheMetadata, Cach
         return createCacheRelativeDir(CacheLayout.RESOURCES);
     }
 
-    @Override
-    public File getMetaDataStoreDirectory() {
-        return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors");
-    }
-
     private File createCacheRelativeDir(CacheLayout cacheLayout) {
         return cacheLayout.getPath(getCacheDir());
     }
@@ -22,6 +22,7 @@ import org.gradle.cache.FileLockManager;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.PersistentIndexedCacheParameters.StorageFormat;
 import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Serializer;
 
@@ -69,8 +70,13 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
 
     @Override
     public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return createCache(cacheName, keySerializer, valueSerializer, StorageFormat.BTREE);
+    }
+
+    @Override
+    public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, StorageFormat storageFormat) {
         String cacheFileInMetaDataStore = CacheLayout.META_DATA.getKey() + "/" + cacheName;
-        final PersistentIndexedCache<K, V> persistentCache = cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInMetaDataStore, keySerializer, valueSerializer));
+        final PersistentIndexedCache<K, V> persistentCache = cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInMetaDataStore, keySerializer, valueSerializer).storageFormat(storageFormat));
         return new CacheLockingPersistentCache<K, V>(persistentCache);
     }
 
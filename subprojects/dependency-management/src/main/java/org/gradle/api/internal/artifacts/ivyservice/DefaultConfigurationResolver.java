@@ -17,21 +17,39 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import com.google.common.collect.ImmutableList;
+import groovy.lang.Closure;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.LenientConfiguration;
 import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.ResolveException;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ResolvedConfiguration;
+import org.gradle.api.artifacts.ResolvedDependency;
 import org.gradle.api.artifacts.UnresolvedDependency;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolutionResult;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.ConfigurationResolver;
+import org.gradle.api.internal.artifacts.DefaultResolverResults;
 import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
 import org.gradle.api.internal.artifacts.ResolverResults;
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.BuildDependenciesOnlyVisitedArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.BuildDependenciesVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.SelectedArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedArtifactSet;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedArtifactsResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.VisitedFileDependencyResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor;
@@ -48,11 +66,16 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.projectresult.
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.FileDependencyCollectingGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.CachedResolvedGraph;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.CachedResolvedGraphBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.RecordingBinaryStore;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.StoreSet;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.artifacts.transform.ArtifactTransforms;
 import org.gradle.api.internal.artifacts.type.ArtifactTypeRegistry;
+import org.gradle.api.internal.attributes.AttributeContainerInternal;
 import org.gradle.api.internal.attributes.AttributesSchemaInternal;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
@@ -62,9 +85,14 @@ import org.gradle.initialization.BuildIdentity;
 import org.gradle.internal.Transformers;
 import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.util.BuildCommencedTimeProvider;
 import org.gradle.util.CollectionUtils;
 
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -88,6 +116,12 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final ComponentSelectorConverter componentSelectorConverter;
     private final AttributeContainerSerializer attributeContainerSerializer;
     private final BuildIdentity buildIdentity;
+    private final ResolutionInputsHasher inputsHasher;
+    private final ResolvedGraphCache resolvedGraphCache;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final boolean offline;
+    private final boolean refreshDependencies;
 
     public DefaultConfigurationResolver(ArtifactDependencyResolver resolver, RepositoryHandler repositories,
                                         GlobalDependencyResolutionRules metadataHandler,
@@ -100,7 +134,13 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
                                         ArtifactTypeRegistry artifactTypeRegistry,
                                         ComponentSelectorConverter componentSelectorConverter,
                                         AttributeContainerSerializer attributeContainerSerializer,
-                                        BuildIdentity buildIdentity) {
+                                        BuildIdentity buildIdentity,
+                                        ResolutionInputsHasher inputsHasher,
+                                        ResolvedGraphCache resolvedGraphCache,
+                                        VersionSelectorScheme versionSelectorScheme,
+                                        BuildCommencedTimeProvider timeProvider,
+                                        boolean offline,
+                                        boolean refreshDependencies) {
         this.resolver = resolver;
         this.repositories = repositories;
         this.metadataHandler = metadataHandler;
@@ -114,6 +154,12 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         this.componentSelectorConverter = componentSelectorConverter;
         this.attributeContainerSerializer = attributeContainerSerializer;
         this.buildIdentity = buildIdentity;
+        this.inputsHasher = inputsHasher;
+        this.resolvedGraphCache = resolvedGraphCache;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.timeProvider = timeProvider;
+        this.offline = offline;
+        this.refreshDependencies = refreshDependencies;
     }
 
     @Override
@@ -126,7 +172,65 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     }
 
     public void resolveGraph(ConfigurationInternal configuration, ResolverResults results) {
-        List<ResolutionAwareRepository> resolutionAwareRepositories = CollectionUtils.collect(repositories, Transformers.cast(ResolutionAwareRepository.class));
+        // Create the resolvers once, as both the inputs hash and the resolution use them
+        List<ConfiguredModuleComponentRepository> resolvers = new ArrayList<ConfiguredModuleComponentRepository>();
+        List<ResolutionAwareRepository> resolutionAwareRepositories = new ArrayList<ResolutionAwareRepository>();
+        for (ResolutionAwareRepository repository : CollectionUtils.collect(repositories, Transformers.cast(ResolutionAwareRepository.class))) {
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            resolvers.add(resolver);
+            resolutionAwareRepositories.add(new CreatedResolverRepository(resolver));
+        }
+        HashCode inputsHash = inputsHasher.hash(configuration, resolvers);
+        boolean artifactsQueried = false;
+        if (inputsHash != null) {
+            CachedResolvedGraph cachedGraph = resolvedGraphCache.get(inputsHash);
+            if (cachedGraph != null) {
+                artifactsQueried = cachedGraph.isArtifactsQueried();
+                if (!refreshDependencies && isUpToDate(configuration, cachedGraph)) {
+                    if (artifactsQueried) {
+                        // The artifacts will be queried again, which needs a full resolution, so there is nothing to gain from the cached graph
+                        resolveGraph(configuration, resolutionAwareRepositories, null, false, results);
+                    } else {
+                        resolveGraphFromCache(configuration, resolutionAwareRepositories, inputsHash, cachedGraph, results);
+                    }
+                    return;
+                }
+            }
+        }
+        resolveGraph(configuration, resolutionAwareRepositories, inputsHash, artifactsQueried, results);
+    }
+
+    private boolean isUpToDate(ConfigurationInternal configuration, CachedResolvedGraph cachedGraph) {
+        if (offline) {
+            return true;
+        }
+        long age = timeProvider.getCurrentTime() - cachedGraph.getCreateTimestamp();
+        return cachedGraph.isUpToDate(configuration.getResolutionStrategy().getCachePolicy(), metadataHandler.getModuleMetadataProcessor().getModuleReplacements(), moduleIdentifierFactory, age);
+    }
+
+    /**
+     * Uses the cached graph as the result for as long as nothing queries the artifacts.
+     *
+     * <p>The cache only saves the resolution of configurations whose artifacts are not queried, that is, configurations that are only used for their
+     * {@link ResolutionResult} or for their task dependencies. The artifacts cannot be cached, so the first query for them resolves the configuration
+     * again, and from then on the graph of that resolution is the result. The cached graph then records that the artifacts were queried, and later
+     * resolutions of the configuration no longer use the cached graph.</p>
+     */
+    private void resolveGraphFromCache(ConfigurationInternal configuration, List<ResolutionAwareRepository> resolutionAwareRepositories, HashCode inputsHash, CachedResolvedGraph cachedGraph, ResolverResults results) {
+        StoreSet stores = storeFactory.createStoreSet();
+        StreamingResolutionResultBuilder newModelBuilder = new StreamingResolutionResultBuilder(stores.nextBinaryStore(), stores.newModelCache(), moduleIdentifierFactory, attributeContainerSerializer);
+        newModelBuilder.replay(cachedGraph.getEncodedGraph());
+        ResolvedLocalComponentsResultGraphVisitor localComponentsVisitor = new ResolvedLocalComponentsResultGraphVisitor(buildIdentity.getCurrentBuild());
+
+        DeferredArtifactResolveState resolveState = new DeferredArtifactResolveState(configuration, resolutionAwareRepositories, inputsHash, cachedGraph);
+        results.graphResolved(new DeferredResolutionResult(resolveState, newModelBuilder.complete()), localComponentsVisitor, new DeferredVisitedArtifactSet(resolveState));
+        results.retainState(resolveState);
+    }
+
+    /**
+     * Resolves the graph, and caches it when an inputs hash is given and the graph can be cached.
+     */
+    private void resolveGraph(ConfigurationInternal configuration, List<ResolutionAwareRepository> resolutionAwareRepositories, @Nullable HashCode inputsHash, boolean artifactsQueried, ResolverResults results) {
         StoreSet stores = storeFactory.createStoreSet();
 
         BinaryStore oldModelStore = stores.nextBinaryStore();
@@ -136,6 +240,13 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         ResolvedConfigurationDependencyGraphVisitor oldModelVisitor = new ResolvedConfigurationDependencyGraphVisitor(oldModelBuilder);
 
         BinaryStore newModelStore = stores.nextBinaryStore();
+        RecordingBinaryStore recordingStore = null;
+        CachedResolvedGraphBuilder cachedGraphBuilder = null;
+        if (inputsHash != null) {
+            recordingStore = new RecordingBinaryStore(newModelStore);
+            newModelStore = recordingStore;
+            cachedGraphBuilder = new CachedResolvedGraphBuilder(versionSelectorScheme, moduleIdentifierFactory);
+        }
         Store<ResolvedComponentResult> newModelCache = stores.newModelCache();
         StreamingResolutionResultBuilder newModelBuilder = new StreamingResolutionResultBuilder(newModelStore, newModelCache, moduleIdentifierFactory, attributeContainerSerializer);
 
@@ -144,7 +255,9 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         DefaultResolvedArtifactsBuilder artifactsBuilder = new DefaultResolvedArtifactsBuilder(buildIdentity.getCurrentBuild(), buildProjectDependencies, configuration.getResolutionStrategy().getSortOrder());
         FileDependencyCollectingGraphVisitor fileDependencyVisitor = new FileDependencyCollectingGraphVisitor();
         ResolutionFailureCollector failureCollector = new ResolutionFailureCollector(componentSelectorConverter);
-        DependencyGraphVisitor graphVisitor = new CompositeDependencyGraphVisitor(newModelBuilder, localComponentsVisitor, failureCollector);
+        DependencyGraphVisitor graphVisitor = cachedGraphBuilder == null
+            ? new CompositeDependencyGraphVisitor(newModelBuilder, localComponentsVisitor, failureCollector)
+            : new CompositeDependencyGraphVisitor(newModelBuilder, localComponentsVisitor, failureCollector, cachedGraphBuilder);
         DependencyArtifactsVisitor artifactsVisitor = new CompositeDependencyArtifactsVisitor(oldModelVisitor, fileDependencyVisitor, artifactsBuilder);
 
         resolver.resolve(configuration, resolutionAwareRepositories, metadataHandler, Specs.<DependencyMetadata>satisfyAll(), graphVisitor, artifactsVisitor, attributesSchema, artifactTypeRegistry);
@@ -154,12 +267,22 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
         ResolvedGraphResults graphResults = oldModelBuilder.complete();
 
         Set<UnresolvedDependency> failures = failureCollector.complete();
-        results.graphResolved(newModelBuilder.complete(), localComponentsVisitor, new BuildDependenciesOnlyVisitedArtifactSet(failures, artifactsResults, artifactTransforms));
+        ResolutionResult resolutionResult = newModelBuilder.complete();
+        if (cachedGraphBuilder != null && cachedGraphBuilder.isCacheable() && failures.isEmpty()) {
+            CachedResolvedGraph cachedGraph = cachedGraphBuilder.complete(timeProvider.getCurrentTime(), recordingStore.getRecorded());
+            resolvedGraphCache.put(inputsHash, artifactsQueried ? cachedGraph.withArtifactsQueried() : cachedGraph);
+        }
+        results.graphResolved(resolutionResult, localComponentsVisitor, new BuildDependenciesOnlyVisitedArtifactSet(failures, artifactsResults, artifactTransforms));
 
         results.retainState(new ArtifactResolveState(graphResults, artifactsResults, fileDependencyResults, failures, oldTransientModelBuilder));
     }
 
     public void resolveArtifacts(ConfigurationInternal configuration, ResolverResults results) {
+        if (results.getArtifactResolveState() instanceof DeferredArtifactResolveState) {
+            DeferredArtifactResolveState deferredState = (DeferredArtifactResolveState) results.getArtifactResolveState();
+            results.artifactsResolved(new DeferredResolvedConfiguration(deferredState), new DeferredVisitedArtifactSet(deferredState));
+            return;
+        }
         ArtifactResolveState resolveState = (ArtifactResolveState) results.getArtifactResolveState();
         ResolvedGraphResults graphResults = resolveState.graphResults;
         VisitedArtifactsResults artifactResults = resolveState.artifactsResults;
@@ -186,4 +309,191 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
             this.transientConfigurationResultsBuilder = transientConfigurationResultsBuilder;
         }
     }
+
+    /**
+     * A repository whose resolver has already been created.
+     */
+    private static class CreatedResolverRepository implements ResolutionAwareRepository {
+        private final ConfiguredModuleComponentRepository resolver;
+
+        CreatedResolverRepository(ConfiguredModuleComponentRepository resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public ConfiguredModuleComponentRepository createResolver() {
+            return resolver;
+        }
+    }
+
+    /**
+     * Resolves the graph and the artifacts of a configuration whose graph was taken from the cache, the first time the artifacts are queried.
+     * The cached graph then records that the artifacts were queried.
+     */
+    private class DeferredArtifactResolveState {
+        private final ConfigurationInternal configuration;
+        private final List<ResolutionAwareRepository> repositories;
+        private final HashCode inputsHash;
+        private final CachedResolvedGraph cachedGraph;
+        private ResolverResults results;
+
+        DeferredArtifactResolveState(ConfigurationInternal configuration, List<ResolutionAwareRepository> repositories, HashCode inputsHash, CachedResolvedGraph cachedGraph) {
+            this.configuration = configuration;
+            this.repositories = repositories;
+            this.inputsHash = inputsHash;
+            this.cachedGraph = cachedGraph;
+        }
+
+        synchronized boolean isResolved() {
+            return results != null;
+        }
+
+        synchronized ResolverResults getResults() {
+            if (results == null) {
+                DefaultResolverResults results = new DefaultResolverResults();
+                resolveGraph(configuration, repositories, null, false, results);
+                resolveArtifacts(configuration, results);
+                resolvedGraphCache.put(inputsHash, cachedGraph.withArtifactsQueried());
+                this.results = results;
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Serves the cached graph until the artifacts are queried, and from then on the graph that the artifacts were resolved from.
+     */
+    private static class DeferredResolutionResult implements ResolutionResult {
+        private final DeferredArtifactResolveState resolveState;
+        private final ResolutionResult cachedResult;
+
+        DeferredResolutionResult(DeferredArtifactResolveState resolveState, ResolutionResult cachedResult) {
+            this.resolveState = resolveState;
+            this.cachedResult = cachedResult;
+        }
+
+        private ResolutionResult getDelegate() {
+            return resolveState.isResolved() ? resolveState.getResults().getResolutionResult() : cachedResult;
+        }
+
+        @Override
+        public ResolvedComponentResult getRoot() {
+            return getDelegate().getRoot();
+        }
+
+        @Override
+        public Set<? extends DependencyResult> getAllDependencies() {
+            return getDelegate().getAllDependencies();
+        }
+
+        @Override
+        public void allDependencies(Action<? super DependencyResult> action) {
+            getDelegate().allDependencies(action);
+        }
+
+        @Override
+        public void allDependencies(Closure closure) {
+            getDelegate().allDependencies(closure);
+        }
+
+        @Override
+        public Set<ResolvedComponentResult> getAllComponents() {
+            return getDelegate().getAllComponents();
+        }
+
+        @Override
+        public void allComponents(Action<? super ResolvedComponentResult> action) {
+            getDelegate().allComponents(action);
+        }
+
+        @Override
+        public void allComponents(Closure closure) {
+            getDelegate().allComponents(closure);
+        }
+    }
+
+    private static class DeferredVisitedArtifactSet implements VisitedArtifactSet {
+        private final DeferredArtifactResolveState resolveState;
+
+        DeferredVisitedArtifactSet(DeferredArtifactResolveState resolveState) {
+            this.resolveState = resolveState;
+        }
+
+        @Override
+        public SelectedArtifactSet select(final Spec<? super Dependency> dependencySpec, final AttributeContainerInternal requestedAttributes, final Spec<? super ComponentIdentifier> componentSpec, final boolean allowNoMatchingVariant) {
+            return new SelectedArtifactSet() {
+                @Override
+                public void collectBuildDependencies(BuildDependenciesVisitor visitor) {
+                    // A cached graph contains only external components, whose artifacts are not built by any task
+                    if (resolveState.isResolved()) {
+                        select().collectBuildDependencies(visitor);
+                    }
+                }
+
+                @Override
+                public void visitArtifacts(ArtifactVisitor visitor, boolean continueOnSelectionFailure) {
+                    select().visitArtifacts(visitor, continueOnSelectionFailure);
+                }
+
+                private SelectedArtifactSet select() {
+                    return resolveState.getResults().getVisitedArtifacts().select(dependencySpec, requestedAttributes, componentSpec, allowNoMatchingVariant);
+                }
+            };
+        }
+    }
+
+    private static class DeferredResolvedConfiguration implements ResolvedConfiguration {
+        private final DeferredArtifactResolveState resolveState;
+
+        DeferredResolvedConfiguration(DeferredArtifactResolveState resolveState) {
+            this.resolveState = resolveState;
+        }
+
+        private ResolvedConfiguration getDelegate() {
+            return resolveState.getResults().getResolvedConfiguration();
+        }
+
+        @Override
+        public boolean hasError() {
+            // A cached graph has no failures, so there is no need to resolve the artifacts to find out
+            return resolveState.isResolved() && getDelegate().hasError();
+        }
+
+        @Override
+        public void rethrowFailure() throws ResolveException {
+            if (resolveState.isResolved()) {
+                getDelegate().rethrowFailure();
+            }
+        }
+
+        @Override
+        public LenientConfiguration getLenientConfiguration() {
+            return getDelegate().getLenientConfiguration();
+        }
+
+        @Override
+        public Set<File> getFiles() throws ResolveException {
+            return getDelegate().getFiles();
+        }
+
+        @Override
+        public Set<File> getFiles(Spec<? super Dependency> dependencySpec) throws ResolveException {
+            return getDelegate().getFiles(dependencySpec);
+        }
+
+        @Override
+        public Set<ResolvedDependency> getFirstLevelModuleDependencies() throws ResolveException {
+            return getDelegate().getFirstLevelModuleDependencies();
+        }
+
+        @Override
+        public Set<ResolvedDependency> getFirstLevelModuleDependencies(Spec<? super Dependency> dependencySpec) throws ResolveException {
+            return getDelegate().getFirstLevelModuleDependencies(dependencySpec);
+        }
+
+        @Override
+        public Set<ResolvedArtifact> getResolvedArtifacts() throws ResolveException {
+            return getDelegate().getResolvedArtifacts();
+        }
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.FeaturePreviews;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.Module;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.CompatibilityRule;
+import org.gradle.api.internal.attributes.DefaultCompatibilityRuleChain;
+import org.gradle.api.internal.attributes.DefaultDisambiguationRuleChain;
+import org.gradle.api.internal.attributes.DisambiguationRule;
+import org.gradle.api.internal.changedetection.state.isolation.IsolatableFactory;
+import org.gradle.caching.internal.BuildCacheHasher;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
+import org.gradle.initialization.BuildIdentity;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calculates a hash of everything that the dependency graph of a configuration is resolved from.
+ *
+ * <p>Only configurations whose graph is fully determined by the hashed inputs have a hash. These are the configurations that declare only external
+ * module dependencies, that resolve only from remote repositories, and that are not affected by rules, as the behaviour of a rule cannot be hashed.
+ * Attribute compatibility and disambiguation rules are the exception: they are implemented by rule classes, which are hashed along with their
+ * parameters.</p>
+ */
+public class ResolutionInputsHasher {
+    private static final Comparator<Attribute<?>> ATTRIBUTE_NAME_COMPARATOR = new Comparator<Attribute<?>>() {
+        @Override
+        public int compare(Attribute<?> o1, Attribute<?> o2) {
+            return o1.getName().compareTo(o2.getName());
+        }
+    };
+
+    private final GlobalDependencyResolutionRules metadataHandler;
+    private final AttributesSchemaInternal attributesSchema;
+    private final FeaturePreviews featurePreviews;
+    private final BuildIdentity buildIdentity;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final IsolatableFactory isolatableFactory;
+
+    public ResolutionInputsHasher(GlobalDependencyResolutionRules metadataHandler, AttributesSchemaInternal attributesSchema, FeaturePreviews featurePreviews, BuildIdentity buildIdentity,
+                                  ClassLoaderHierarchyHasher classLoaderHierarchyHasher, IsolatableFactory isolatableFactory) {
+        this.metadataHandler = metadataHandler;
+        this.attributesSchema = attributesSchema;
+        this.featurePreviews = featurePreviews;
+        this.buildIdentity = buildIdentity;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.isolatableFactory = isolatableFactory;
+    }
+
+    /**
+     * Returns the hash of the inputs of the resolution of the given configuration from the given repositories, or null when the resolved graph cannot be reused.
+     */
+    @Nullable
+    public HashCode hash(ConfigurationInternal configuration, Collection<? extends ConfiguredModuleComponentRepository> repositories) {
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.resolveGraphToDetermineTaskDependencies()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+
+        DefaultBuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        hasher.putString(buildIdentity.getCurrentBuild().getName());
+        hasher.putString(configuration.getPath());
+        Module module = configuration.getModule();
+        putNullableString(hasher, module.getGroup());
+        putNullableString(hasher, module.getName());
+        putNullableString(hasher, module.getVersion());
+        putNullableString(hasher, module.getProjectPath());
+        putAttributes(hasher, configuration.getAttributes());
+
+        for (Configuration hierarchyConfiguration : configuration.getHierarchy()) {
+            hasher.putString(hierarchyConfiguration.getName());
+            hasher.putBoolean(hierarchyConfiguration.isTransitive());
+            putExcludeRules(hasher, hierarchyConfiguration.getExcludeRules());
+            for (Dependency dependency : hierarchyConfiguration.getDependencies()) {
+                if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+                    return null;
+                }
+                putDependency(hasher, (ExternalModuleDependency) dependency);
+            }
+            for (DependencyConstraint dependencyConstraint : hierarchyConfiguration.getDependencyConstraints()) {
+                putModuleVersionSelector(hasher, dependencyConstraint);
+                putVersionConstraint(hasher, dependencyConstraint.getVersionConstraint());
+                putNullableString(hasher, dependencyConstraint.getReason());
+            }
+        }
+
+        hasher.putString(resolutionStrategy.getConflictResolution().name());
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            putModuleVersionSelector(hasher, forcedModule);
+        }
+
+        for (ConfiguredModuleComponentRepository repository : repositories) {
+            // The meta-data of a local repository is not cached, so a change to it would not be noticed
+            if (repository.isLocal()) {
+                return null;
+            }
+            hasher.putString(repository.getId());
+        }
+
+        List<Attribute<?>> schemaAttributes = new ArrayList<Attribute<?>>(attributesSchema.getAttributes());
+        Collections.sort(schemaAttributes, ATTRIBUTE_NAME_COMPARATOR);
+        for (Attribute<?> attribute : schemaAttributes) {
+            hasher.putString(attribute.getName());
+            hasher.putString(attribute.getType().getName());
+            if (!putRules(hasher, attributesSchema.compatibilityRules(attribute)) || !putRules(hasher, attributesSchema.disambiguationRules(attribute))) {
+                return null;
+            }
+        }
+
+        for (FeaturePreviews.Feature feature : FeaturePreviews.Feature.values()) {
+            hasher.putBoolean(featurePreviews.isFeatureEnabled(feature));
+        }
+        return hasher.hash();
+    }
+
+    private boolean putRules(BuildCacheHasher hasher, CompatibilityRule<?> rules) {
+        if (rules instanceof DefaultCompatibilityRuleChain) {
+            return ((DefaultCompatibilityRuleChain<?>) rules).appendToHasher(hasher, classLoaderHierarchyHasher, isolatableFactory);
+        }
+        return !rules.doesSomething();
+    }
+
+    private boolean putRules(BuildCacheHasher hasher, DisambiguationRule<?> rules) {
+        if (rules instanceof DefaultDisambiguationRuleChain) {
+            return ((DefaultDisambiguationRuleChain<?>) rules).appendToHasher(hasher, classLoaderHierarchyHasher, isolatableFactory);
+        }
+        return !rules.doesSomething();
+    }
+
+    private static void putDependency(BuildCacheHasher hasher, ExternalModuleDependency dependency) {
+        putModuleVersionSelector(hasher, dependency);
+        putVersionConstraint(hasher, dependency.getVersionConstraint());
+        putNullableString(hasher, dependency.getTargetConfiguration());
+        hasher.putBoolean(dependency.isTransitive());
+        hasher.putBoolean(dependency.isForce());
+        hasher.putBoolean(dependency.isChanging());
+        putNullableString(hasher, dependency.getReason());
+        hasher.putInt(dependency.getArtifacts().size());
+        for (DependencyArtifact artifact : dependency.getArtifacts()) {
+            hasher.putString(artifact.getName());
+            putNullableString(hasher, artifact.getType());
+            putNullableString(hasher, artifact.getExtension());
+            putNullableString(hasher, artifact.getClassifier());
+            putNullableString(hasher, artifact.getUrl());
+        }
+        putExcludeRules(hasher, dependency.getExcludeRules());
+    }
+
+    private static void putModuleVersionSelector(BuildCacheHasher hasher, ModuleVersionSelector selector) {
+        putNullableString(hasher, selector.getGroup());
+        hasher.putString(selector.getName());
+        putNullableString(hasher, selector.getVersion());
+    }
+
+    private static void putVersionConstraint(BuildCacheHasher hasher, VersionConstraint versionConstraint) {
+        hasher.putString(versionConstraint.getPreferredVersion());
+        for (String rejectedVersion : versionConstraint.getRejectedVersions()) {
+            hasher.putString(rejectedVersion);
+        }
+        putNullableString(hasher, versionConstraint.getBranch());
+    }
+
+    private static void putExcludeRules(BuildCacheHasher hasher, Collection<ExcludeRule> excludeRules) {
+        hasher.putInt(excludeRules.size());
+        for (ExcludeRule excludeRule : excludeRules) {
+            putNullableString(hasher, excludeRule.getGroup());
+            putNullableString(hasher, excludeRule.getModule());
+        }
+    }
+
+    private static void putAttributes(BuildCacheHasher hasher, AttributeContainer attributes) {
+        List<Attribute<?>> keys = new ArrayList<Attribute<?>>(attributes.keySet());
+        Collections.sort(keys, ATTRIBUTE_NAME_COMPARATOR);
+        hasher.putInt(keys.size());
+        for (Attribute<?> key : keys) {
+            hasher.putString(key.getName());
+            hasher.putString(key.getType().getName());
+            hasher.putString(String.valueOf(attributes.getAttribute(key)));
+        }
+    }
+
+    private static void putNullableString(BuildCacheHasher hasher, @Nullable String value) {
+        if (value == null) {
+            hasher.putNull();
+        } else {
+            hasher.putString(value);
+        }
+    }
+}
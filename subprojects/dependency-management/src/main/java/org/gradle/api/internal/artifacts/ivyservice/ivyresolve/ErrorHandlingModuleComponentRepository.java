@@ -46,6 +46,7 @@ import java.util.Map;
  * repository for any subsequent requests.
  */
 public class ErrorHandlingModuleComponentRepository implements ModuleComponentRepository {
+    private static final ThreadLocal<Boolean> BLACKLISTING_DISABLED = new ThreadLocal<Boolean>();
 
     private final ModuleComponentRepository delegate;
     private final ErrorHandlingModuleComponentRepositoryAccess local;
@@ -57,6 +58,19 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
         remote = new ErrorHandlingModuleComponentRepositoryAccess(delegate.getRemoteAccess(), getId(), remoteRepositoryBlacklister);
     }
 
+    /**
+     * Runs the given action without blacklisting the repositories that fail while it runs. Used for speculative requests, whose failure must not fail
+     * the subsequent requests to the same repository.
+     */
+    public static void runWithoutBlacklisting(Runnable action) {
+        BLACKLISTING_DISABLED.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            BLACKLISTING_DISABLED.remove();
+        }
+    }
+
     @Override
     public String toString() {
         return delegate.toString();
@@ -118,7 +132,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.listModuleVersions(dependency, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                maybeBlacklistRepository(throwable);
                 ModuleComponentSelector selector = dependency.getSelector();
                 String message = "Failed to list versions for " + selector.getGroup() + ":" + selector.getModule() + ".";
                 result.failed(new ModuleVersionResolveException(selector, message, throwable));
@@ -135,7 +149,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                maybeBlacklistRepository(throwable);
                 result.failed(new ModuleVersionResolveException(moduleComponentIdentifier, throwable));
             }
         }
@@ -150,7 +164,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveArtifactsWithType(component, artifactType, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                maybeBlacklistRepository(throwable);
                 result.failed(new ArtifactResolveException(component.getComponentId(), throwable));
             }
         }
@@ -165,7 +179,7 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveArtifacts(component, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                maybeBlacklistRepository(throwable);
                 result.failed(new ArtifactResolveException(component.getComponentId(), throwable));
             }
         }
@@ -180,11 +194,17 @@ public class ErrorHandlingModuleComponentRepository implements ModuleComponentRe
             try {
                 delegate.resolveArtifact(artifact, moduleSource, result);
             } catch (Throwable throwable) {
-                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+                maybeBlacklistRepository(throwable);
                 result.failed(new ArtifactResolveException(artifact.getId(), throwable));
             }
         }
 
+        private void maybeBlacklistRepository(Throwable throwable) {
+            if (BLACKLISTING_DISABLED.get() == null) {
+                repositoryBlacklister.blacklistRepository(repositoryId, throwable);
+            }
+        }
+
         @Override
         public MetadataFetchingCost estimateMetadataFetchingCost(ModuleComponentIdentifier moduleComponentIdentifier) {
             return delegate.estimateMetadataFetchingCost(moduleComponentIdentifier);
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomStreamParser.Profile;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomStreamParser.Project;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.operations.ResettableStatistics;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the parsed content of the parent and imported POMs that the POMs of modules refer to, so that a POM shared by many modules, such as a BOM,
+ * is parsed only once per daemon.
+ *
+ * <p>Entries are keyed by the module the POM belongs to and the hash of the content of the POM, so an entry cannot be stale. Only the parsed content
+ * is kept: the values of a POM after its properties are resolved depend on the properties of the POM that refers to it, and on the parent POMs that
+ * are found in the repositories.</p>
+ */
+public class ParsedPomCache implements ResettableStatistics<ParsedPomCache.Statistics> {
+    /**
+     * The maximum total weight of the entries, where an entry weighs 1 plus the number of properties, dependencies and dependency management elements
+     * it declares.
+     */
+    public static final long MAX_WEIGHT = Long.getLong("org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.parsedPomCacheWeight", 250000);
+
+    private final Cache<Key, Project> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ParsedPomCache(long maxWeight) {
+        // Entries are added rarely, so use a single segment to apply the maximum weight to the cache as a whole rather than to each segment
+        cache = CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(maxWeight)
+            .weigher(new Weigher<Key, Project>() {
+                @Override
+                public int weigh(Key key, Project project) {
+                    return weight(project);
+                }
+            })
+            .removalListener(new RemovalListener<Key, Project>() {
+                @Override
+                public void onRemoval(RemovalNotification<Key, Project> notification) {
+                    if (notification.getCause() == RemovalCause.SIZE) {
+                        evictions.incrementAndGet();
+                    }
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Returns the parsed content of the given POM of the given module, parsing the POM when its content has not been parsed before.
+     *
+     * @param moduleName The display name of the module the POM belongs to.
+     * @return The parsed POM, or null when the root element of the POM is not a project.
+     */
+    @Nullable
+    public Project parse(String moduleName, final LocallyAvailableExternalResource resource) {
+        byte[] content = resource.withContent(new Transformer<byte[], InputStream>() {
+            @Override
+            public byte[] transform(InputStream inputStream) {
+                try {
+                    return IOUtils.toByteArray(inputStream);
+                } catch (IOException e) {
+                    throw new MetaDataParseException("POM", resource, e);
+                }
+            }
+        }).getResult();
+        Key key = new Key(moduleName, Hashing.sha1().hashBytes(content));
+        Project project = cache.getIfPresent(key);
+        if (project != null) {
+            hits.incrementAndGet();
+            return project;
+        }
+        misses.incrementAndGet();
+        project = PomReader.parse(resource, new ByteArrayInputStream(content));
+        if (project != null) {
+            cache.put(key, project);
+        }
+        return project;
+    }
+
+    /**
+     * Returns the statistics collected since the last call to this method, and resets them.
+     */
+    @Override
+    public Statistics getAndResetStatistics() {
+        return new Statistics(hits.getAndSet(0), misses.getAndSet(0), evictions.getAndSet(0), cache.size());
+    }
+
+    private static int weight(Project project) {
+        int weight = 1 + project.getProperties().size() + project.getDependencies().size() + project.getDependencyMgts().size();
+        for (Profile profile : project.getProfiles()) {
+            weight += profile.getProperties().size() + profile.getDependencies().size() + profile.getDependencyMgts().size();
+        }
+        return weight;
+    }
+
+    private static class Key {
+        private final String moduleName;
+        private final HashCode contentHash;
+
+        Key(String moduleName, HashCode contentHash) {
+            this.moduleName = moduleName;
+            this.contentHash = contentHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return moduleName.equals(other.moduleName) && contentHash.equals(other.contentHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return moduleName.hashCode() ^ contentHash.hashCode();
+        }
+    }
+
+    public static class Statistics implements ParsedPomCacheStatisticsBuildOperationType.Result {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long entryCount;
+
+        Statistics(long hitCount, long missCount, long evictionCount, long entryCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.entryCount = entryCount;
+        }
+
+        @Override
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        @Override
+        public long getMissCount() {
+            return missCount;
+        }
+
+        @Override
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        @Override
+        public long getEntryCount() {
+            return entryCount;
+        }
+    }
+}
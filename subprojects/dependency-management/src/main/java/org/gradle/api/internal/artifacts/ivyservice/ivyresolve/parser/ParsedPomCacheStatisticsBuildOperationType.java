@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Reports how often the parent and imported POMs read during a build were found in the {@link ParsedPomCache}.
+ *
+ * @since 4.7
+ */
+public final class ParsedPomCacheStatisticsBuildOperationType implements BuildOperationType<ParsedPomCacheStatisticsBuildOperationType.Details, ParsedPomCacheStatisticsBuildOperationType.Result> {
+
+    public interface Details {
+    }
+
+    public interface Result {
+        /**
+         * The number of parent and imported POMs that were found already parsed.
+         */
+        long getHitCount();
+
+        /**
+         * The number of parent and imported POMs that had to be parsed.
+         */
+        long getMissCount();
+
+        /**
+         * The number of parsed POMs that were discarded to keep the cache within its size.
+         */
+        long getEvictionCount();
+
+        /**
+         * The number of parsed POMs in the cache at the end of the build.
+         */
+        long getEntryCount();
+    }
+
+    private ParsedPomCacheStatisticsBuildOperationType() {
+    }
+}
@@ -0,0 +1,681 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the elements of a POM file that the meta-data of a module is built from, in a single pass over the file.
+ *
+ * <p>The content of all other elements is skipped without being kept in memory. Where an element may only occur once, the first occurrence is used
+ * and later occurrences are ignored.</p>
+ *
+ * <p>The parsed model only holds immutable collections, so that it can be cached and shared between resolutions.</p>
+ */
+public final class PomStreamParser {
+    private static final String PACKAGING = "packaging";
+    private static final String DEPENDENCY = "dependency";
+    private static final String DEPENDENCIES = "dependencies";
+    private static final String DEPENDENCY_MGT = "dependencyManagement";
+    private static final String PROJECT = "project";
+    private static final String MODEL = "model";
+    private static final String GROUP_ID = "groupId";
+    private static final String ARTIFACT_ID = "artifactId";
+    private static final String VERSION = "version";
+    private static final String PARENT = "parent";
+    private static final String SCOPE = "scope";
+    private static final String CLASSIFIER = "classifier";
+    private static final String OPTIONAL = "optional";
+    private static final String EXCLUSIONS = "exclusions";
+    private static final String EXCLUSION = "exclusion";
+    private static final String DISTRIBUTION_MGT = "distributionManagement";
+    private static final String RELOCATION = "relocation";
+    private static final String PROPERTIES = "properties";
+    private static final String TYPE = "type";
+    private static final String PROFILES = "profiles";
+    private static final String PROFILE = "profile";
+    private static final String PROFILE_ID = "id";
+    private static final String PROFILE_ACTIVATION = "activation";
+    private static final String PROFILE_ACTIVATION_ACTIVE_BY_DEFAULT = "activeByDefault";
+    private static final String PROFILE_ACTIVATION_PROPERTY = "property";
+    private static final String PROFILE_ACTIVATION_PROPERTY_NAME = "name";
+
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    private static final XMLInputFactory XML_INPUT_FACTORY;
+
+    private static final XMLResolver M2_ENTITY_RESOLVER = new XMLResolver() {
+        public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new ByteArrayInputStream(M2_ENTITIES_RESOURCE);
+            }
+            return null;
+        }
+    };
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
+
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, true);
+            XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            XML_INPUT_FACTORY.setXMLResolver(M2_ENTITY_RESOLVER);
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private PomStreamParser() {
+    }
+
+    /**
+     * Parses the given POM. The whole document is read, so that a document that is not well-formed is always rejected.
+     *
+     * @return The parsed POM, or null when the root element of the document is neither 'project' nor 'model'.
+     */
+    @Nullable
+    public static Project parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream));
+        try {
+            Project project = null;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    String rootName = getName(reader);
+                    if (PROJECT.equals(rootName) || MODEL.equals(rootName)) {
+                        project = parseProject(reader);
+                    } else {
+                        skipElement(reader);
+                    }
+                    break;
+                }
+            }
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            return project;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Project parseProject(XMLStreamReader reader) throws XMLStreamException {
+        Project project = new Project();
+        boolean seenDependencyMgt = false;
+        boolean seenDistributionMgt = false;
+        while (nextChildElement(reader)) {
+            String name = getName(reader);
+            if (GROUP_ID.equals(name) && project.groupId == null) {
+                project.groupId = readText(reader);
+            } else if (ARTIFACT_ID.equals(name) && project.artifactId == null) {
+                project.artifactId = readText(reader);
+            } else if (VERSION.equals(name) && project.version == null) {
+                project.version = readText(reader);
+            } else if (PACKAGING.equals(name) && project.packaging == null) {
+                project.packaging = readText(reader);
+            } else if (PARENT.equals(name) && project.parent == null) {
+                project.parent = parseCoordinates(reader);
+            } else if (PROPERTIES.equals(name) && project.properties == null) {
+                project.properties = parseProperties(reader);
+            } else if (DEPENDENCIES.equals(name) && project.dependencies == null) {
+                project.dependencies = parseDependencies(reader);
+            } else if (DEPENDENCY_MGT.equals(name) && !seenDependencyMgt) {
+                seenDependencyMgt = true;
+                project.dependencyMgts = parseDependencyMgt(reader);
+            } else if (DISTRIBUTION_MGT.equals(name) && !seenDistributionMgt) {
+                seenDistributionMgt = true;
+                project.relocation = parseRelocation(reader);
+            } else if (PROFILES.equals(name) && project.profiles == null) {
+                project.profiles = parseProfiles(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return project;
+    }
+
+    private static Coordinates parseCoordinates(XMLStreamReader reader) throws XMLStreamException {
+        Coordinates coordinates = new Coordinates();
+        while (nextChildElement(reader)) {
+            String name = getName(reader);
+            if (GROUP_ID.equals(name) && coordinates.groupId == null) {
+                coordinates.groupId = readText(reader);
+            } else if (ARTIFACT_ID.equals(name) && coordinates.artifactId == null) {
+                coordinates.artifactId = readText(reader);
+            } else if (VERSION.equals(name) && coordinates.version == null) {
+                coordinates.version = readText(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return coordinates;
+    }
+
+    @Nullable
+    private static Coordinates parseRelocation(XMLStreamReader reader) throws XMLStreamException {
+        Coordinates relocation = null;
+        while (nextChildElement(reader)) {
+            if (RELOCATION.equals(getName(reader)) && relocation == null) {
+                relocation = parseCoordinates(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return relocation;
+    }
+
+    private static ImmutableMap<String, String> parseProperties(XMLStreamReader reader) throws XMLStreamException {
+        // A later declaration of a property replaces an earlier one
+        Map<String, String> properties = new HashMap<String, String>();
+        while (nextChildElement(reader)) {
+            String name = getName(reader);
+            properties.put(name, readText(reader));
+        }
+        return ImmutableMap.copyOf(properties);
+    }
+
+    @Nullable
+    private static ImmutableList<Dependency> parseDependencyMgt(XMLStreamReader reader) throws XMLStreamException {
+        ImmutableList<Dependency> dependencies = null;
+        while (nextChildElement(reader)) {
+            if (DEPENDENCIES.equals(getName(reader)) && dependencies == null) {
+                dependencies = parseDependencies(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return dependencies;
+    }
+
+    private static ImmutableList<Dependency> parseDependencies(XMLStreamReader reader) throws XMLStreamException {
+        ImmutableList.Builder<Dependency> dependencies = ImmutableList.builder();
+        while (nextChildElement(reader)) {
+            if (DEPENDENCY.equals(getName(reader))) {
+                dependencies.add(parseDependency(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return dependencies.build();
+    }
+
+    private static Dependency parseDependency(XMLStreamReader reader) throws XMLStreamException {
+        Dependency dependency = new Dependency();
+        while (nextChildElement(reader)) {
+            String name = getName(reader);
+            if (GROUP_ID.equals(name) && dependency.groupId == null) {
+                dependency.groupId = readText(reader);
+            } else if (ARTIFACT_ID.equals(name) && dependency.artifactId == null) {
+                dependency.artifactId = readText(reader);
+            } else if (VERSION.equals(name) && dependency.version == null) {
+                dependency.version = readText(reader);
+            } else if (SCOPE.equals(name) && dependency.scope == null) {
+                dependency.scope = readText(reader);
+            } else if (TYPE.equals(name) && dependency.type == null) {
+                dependency.type = readText(reader);
+            } else if (CLASSIFIER.equals(name) && dependency.classifier == null) {
+                dependency.classifier = readText(reader);
+            } else if (OPTIONAL.equals(name) && dependency.optional == null) {
+                dependency.optional = readText(reader);
+            } else if (EXCLUSIONS.equals(name) && dependency.exclusions == null) {
+                dependency.exclusions = parseExclusions(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return dependency;
+    }
+
+    private static ImmutableList<Coordinates> parseExclusions(XMLStreamReader reader) throws XMLStreamException {
+        ImmutableList.Builder<Coordinates> exclusions = ImmutableList.builder();
+        while (nextChildElement(reader)) {
+            if (EXCLUSION.equals(getName(reader))) {
+                exclusions.add(parseCoordinates(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return exclusions.build();
+    }
+
+    private static ImmutableList<Profile> parseProfiles(XMLStreamReader reader) throws XMLStreamException {
+        ImmutableList.Builder<Profile> profiles = ImmutableList.builder();
+        while (nextChildElement(reader)) {
+            if (PROFILE.equals(getName(reader))) {
+                profiles.add(parseProfile(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return profiles.build();
+    }
+
+    private static Profile parseProfile(XMLStreamReader reader) throws XMLStreamException {
+        Profile profile = new Profile();
+        boolean seenActivation = false;
+        boolean seenDependencyMgt = false;
+        while (nextChildElement(reader)) {
+            String name = getName(reader);
+            if (PROFILE_ID.equals(name) && profile.id == null) {
+                profile.id = readText(reader);
+            } else if (PROFILE_ACTIVATION.equals(name) && !seenActivation) {
+                seenActivation = true;
+                parseActivation(reader, profile);
+            } else if (PROPERTIES.equals(name) && profile.properties == null) {
+                profile.properties = parseProperties(reader);
+            } else if (DEPENDENCIES.equals(name) && profile.dependencies == null) {
+                profile.dependencies = parseDependencies(reader);
+            } else if (DEPENDENCY_MGT.equals(name) && !seenDependencyMgt) {
+                seenDependencyMgt = true;
+                profile.dependencyMgts = parseDependencyMgt(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return profile;
+    }
+
+    private static void parseActivation(XMLStreamReader reader, Profile profile) throws XMLStreamException {
+        boolean seenProperty = false;
+        while (nextChildElement(reader)) {
+            String name = getName(reader);
+            if (PROFILE_ACTIVATION_ACTIVE_BY_DEFAULT.equals(name) && profile.activeByDefault == null) {
+                profile.activeByDefault = readText(reader);
+            } else if (PROFILE_ACTIVATION_PROPERTY.equals(name) && !seenProperty) {
+                seenProperty = true;
+                profile.activationPropertyName = parseActivationPropertyName(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    @Nullable
+    private static String parseActivationPropertyName(XMLStreamReader reader) throws XMLStreamException {
+        String propertyName = null;
+        while (nextChildElement(reader)) {
+            if (PROFILE_ACTIVATION_PROPERTY_NAME.equals(getName(reader)) && propertyName == null) {
+                propertyName = readText(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return propertyName;
+    }
+
+    /**
+     * Moves to the start of the next child element of the current element, or to the end of the current element when it has no more child elements.
+     *
+     * @return true when positioned at the start of a child element.
+     */
+    private static boolean nextChildElement(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads the text directly contained in the current element, and moves to the end of the element. The text of nested elements is skipped.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
+        StringBuilder builder = null;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    skipElement(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (builder != null) {
+                        return builder.toString();
+                    }
+                    return text == null ? "" : text;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (text == null) {
+                        text = reader.getText();
+                    } else {
+                        if (builder == null) {
+                            builder = new StringBuilder(text);
+                        }
+                        builder.append(reader.getText());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Moves to the end of the current element, skipping its content.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String getName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.length() == 0) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
+
+    /**
+     * The content of the root element of a POM. Not changed once parsed, so can be shared between threads.
+     */
+    public static class Project {
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private String packaging;
+        private Coordinates parent;
+        private Coordinates relocation;
+        private ImmutableMap<String, String> properties;
+        private ImmutableList<Dependency> dependencies;
+        private ImmutableList<Dependency> dependencyMgts;
+        private ImmutableList<Profile> profiles;
+
+        @Nullable
+        public String getGroupId() {
+            return groupId;
+        }
+
+        @Nullable
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        @Nullable
+        public String getVersion() {
+            return version;
+        }
+
+        @Nullable
+        public String getPackaging() {
+            return packaging;
+        }
+
+        @Nullable
+        public Coordinates getParent() {
+            return parent;
+        }
+
+        @Nullable
+        public Coordinates getRelocation() {
+            return relocation;
+        }
+
+        public ImmutableMap<String, String> getProperties() {
+            return properties == null ? ImmutableMap.<String, String>of() : properties;
+        }
+
+        public ImmutableList<Dependency> getDependencies() {
+            return dependencies == null ? ImmutableList.<Dependency>of() : dependencies;
+        }
+
+        public ImmutableList<Dependency> getDependencyMgts() {
+            return dependencyMgts == null ? ImmutableList.<Dependency>of() : dependencyMgts;
+        }
+
+        public ImmutableList<Profile> getProfiles() {
+            return profiles == null ? ImmutableList.<Profile>of() : profiles;
+        }
+    }
+
+    /**
+     * The coordinates declared by a parent, relocation or exclusion element.
+     */
+    public static class Coordinates {
+        private String groupId;
+        private String artifactId;
+        private String version;
+
+        @Nullable
+        public String getGroupId() {
+            return groupId;
+        }
+
+        @Nullable
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        @Nullable
+        public String getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * A dependency or dependency management element, with the values as declared, before properties are replaced.
+     */
+    public static class Dependency {
+        private String groupId;
+        private String artifactId;
+        private String version;
+        private String scope;
+        private String type;
+        private String classifier;
+        private String optional;
+        private ImmutableList<Coordinates> exclusions;
+
+        @Nullable
+        public String getGroupId() {
+            return groupId;
+        }
+
+        @Nullable
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        @Nullable
+        public String getVersion() {
+            return version;
+        }
+
+        @Nullable
+        public String getScope() {
+            return scope;
+        }
+
+        @Nullable
+        public String getType() {
+            return type;
+        }
+
+        @Nullable
+        public String getClassifier() {
+            return classifier;
+        }
+
+        @Nullable
+        public String getOptional() {
+            return optional;
+        }
+
+        public ImmutableList<Coordinates> getExclusions() {
+            return exclusions == null ? ImmutableList.<Coordinates>of() : exclusions;
+        }
+    }
+
+    /**
+     * A profile element.
+     */
+    public static class Profile {
+        private String id;
+        private String activeByDefault;
+        private String activationPropertyName;
+        private ImmutableMap<String, String> properties;
+        private ImmutableList<Dependency> dependencies;
+        private ImmutableList<Dependency> dependencyMgts;
+
+        @Nullable
+        public String getId() {
+            return id;
+        }
+
+        @Nullable
+        public String getActiveByDefault() {
+            return activeByDefault;
+        }
+
+        @Nullable
+        public String getActivationPropertyName() {
+            return activationPropertyName;
+        }
+
+        public ImmutableMap<String, String> getProperties() {
+            return properties == null ? ImmutableMap.<String, String>of() : properties;
+        }
+
+        public ImmutableList<Dependency> getDependencies() {
+            return dependencies == null ? ImmutableList.<Dependency>of() : dependencies;
+        }
+
+        public ImmutableList<Dependency> getDependencyMgts() {
+            return dependencyMgts == null ? ImmutableList.<Dependency>of() : dependencyMgts;
+        }
+    }
+
+    public static final class AddDTDFilterInputStream extends FilterInputStream {
+        private static final int MARK = 10000;
+        private static final String DOCTYPE = "<!DOCTYPE project SYSTEM \"m2-entities.ent\">\n";
+
+        private int count;
+        private byte[] prefix = DOCTYPE.getBytes();
+
+        public AddDTDFilterInputStream(InputStream in) throws IOException {
+            super(new BufferedInputStream(in));
+
+            this.in.mark(MARK);
+
+            // TODO: we should really find a better solution for this...
+            // maybe we could use a FilterReader instead of a FilterInputStream?
+            int byte1 = this.in.read();
+            int byte2 = this.in.read();
+            int byte3 = this.in.read();
+
+            if (byte1 == 239 && byte2 == 187 && byte3 == 191) {
+                // skip the UTF-8 BOM
+                this.in.mark(MARK);
+            } else {
+                this.in.reset();
+            }
+
+            int bytesToSkip = 0;
+            LineNumberReader reader = new LineNumberReader(new InputStreamReader(this.in, "UTF-8"), 100);
+            String firstLine = reader.readLine();
+            if (firstLine != null) {
+                String trimmed = firstLine.trim();
+                if (trimmed.startsWith("<?xml ")) {
+                    int endIndex = trimmed.indexOf("?>");
+                    String xmlDecl = trimmed.substring(0, endIndex + 2);
+                    prefix = (xmlDecl + "\n" + DOCTYPE).getBytes();
+                    bytesToSkip = xmlDecl.getBytes().length;
+                }
+            }
+
+            this.in.reset();
+            for (int i = 0; i < bytesToSkip; i++) {
+                this.in.read();
+            }
+        }
+
+        public int read() throws IOException {
+            if (count < prefix.length) {
+                return prefix[count++];
+            }
+
+            return super.read();
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (b == null) {
+                throw new NullPointerException();
+            } else if ((off < 0) || (off > b.length) || (len < 0)
+                    || ((off + len) > b.length) || ((off + len) < 0)) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+
+            int nbrBytesCopied = 0;
+
+            if (count < prefix.length) {
+                int nbrBytesFromPrefix = Math.min(prefix.length - count, len);
+                System.arraycopy(prefix, count, b, off, nbrBytesFromPrefix);
+                nbrBytesCopied = nbrBytesFromPrefix;
+            }
+
+            if (nbrBytesCopied < len) {
+                nbrBytesCopied += in.read(b, off + nbrBytesCopied, len - nbrBytesCopied);
+            }
+
+            count += nbrBytesCopied;
+            return nbrBytesCopied;
+        }
+    }
+}
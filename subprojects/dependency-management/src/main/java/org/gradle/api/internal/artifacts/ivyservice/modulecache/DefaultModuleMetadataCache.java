@@ -18,18 +18,18 @@ package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 import com.google.common.base.Objects;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
-import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
 import org.gradle.api.internal.artifacts.repositories.metadata.IvyMutableModuleMetadataFactory;
 import org.gradle.api.internal.artifacts.repositories.metadata.MavenMutableModuleMetadataFactory;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters.StorageFormat;
 import org.gradle.internal.Factory;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
-import org.gradle.internal.resource.local.DefaultPathKeyFileStore;
 import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.util.BuildCommencedTimeProvider;
@@ -42,13 +42,14 @@ public class DefaultModuleMetadataCache extends InMemoryModuleMetadataCache {
 
     public DefaultModuleMetadataCache(BuildCommencedTimeProvider timeProvider,
                                       CacheLockingManager cacheLockingManager,
-                                      ArtifactCacheMetadata artifactCacheMetadata,
                                       ImmutableModuleIdentifierFactory moduleIdentifierFactory,
                                       AttributeContainerSerializer attributeContainerSerializer,
                                       MavenMutableModuleMetadataFactory mavenMetadataFactory,
                                       IvyMutableModuleMetadataFactory ivyMetadataFactory) {
         super(timeProvider);
-        moduleMetadataStore = new ModuleMetadataStore(new DefaultPathKeyFileStore(artifactCacheMetadata.getMetaDataStoreDirectory()), new ModuleMetadataSerializer(attributeContainerSerializer, mavenMetadataFactory, ivyMetadataFactory), moduleIdentifierFactory);
+        // Descriptors are written once and read by many builds, so keep them in a hash indexed cache that is read through a mapping of the cache file
+        PersistentIndexedCache<ModuleComponentAtRepositoryKey, byte[]> descriptors = cacheLockingManager.createCache("module-descriptors", new RevisionKeySerializer(), BaseSerializerFactory.BYTE_ARRAY_SERIALIZER, StorageFormat.HASH_INDEX);
+        moduleMetadataStore = new ModuleMetadataStore(descriptors, new ModuleMetadataSerializer(attributeContainerSerializer, mavenMetadataFactory, ivyMetadataFactory), moduleIdentifierFactory);
         this.cacheLockingManager = cacheLockingManager;
     }
 
@@ -94,7 +95,7 @@ public class DefaultModuleMetadataCache extends InMemoryModuleMetadataCache {
                 }
                 MutableModuleComponentResolveMetadata metadata = moduleMetadataStore.getModuleDescriptor(key);
                 if (metadata == null) {
-                    // Descriptor file has been deleted - ignore the entry
+                    // Descriptor has been removed from the store - ignore the entry
                     cache.remove(key);
                     return null;
                 }
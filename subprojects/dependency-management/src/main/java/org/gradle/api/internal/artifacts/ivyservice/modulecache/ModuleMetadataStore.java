@@ -15,72 +15,64 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
-import org.gradle.api.Action;
-import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
-import org.gradle.internal.resource.local.LocallyAvailableResource;
-import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 
+/**
+ * Stores the serialized meta-data of each module in a cache, rather than in a file per module, so that reading the meta-data of a module
+ * does not open a file.
+ */
 public class ModuleMetadataStore {
 
-    private final PathKeyFileStore metaDataStore;
+    private final PersistentIndexedCache<ModuleComponentAtRepositoryKey, byte[]> descriptors;
     private final ModuleMetadataSerializer moduleMetadataSerializer;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
 
-    public ModuleMetadataStore(PathKeyFileStore metaDataStore, ModuleMetadataSerializer moduleMetadataSerializer, ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
-        this.metaDataStore = metaDataStore;
+    public ModuleMetadataStore(PersistentIndexedCache<ModuleComponentAtRepositoryKey, byte[]> descriptors, ModuleMetadataSerializer moduleMetadataSerializer, ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
+        this.descriptors = descriptors;
         this.moduleMetadataSerializer = moduleMetadataSerializer;
         this.moduleIdentifierFactory = moduleIdentifierFactory;
     }
 
+    @Nullable
     public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponentAtRepositoryKey component) {
-        String filePath = getFilePath(component);
-        final LocallyAvailableResource resource = metaDataStore.get(filePath);
-        if (resource != null) {
+        byte[] descriptor = descriptors.get(component);
+        if (descriptor != null) {
             try {
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(resource.getFile()));
+                KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(descriptor));
                 try {
                     return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory);
                 } finally {
                     decoder.close();
                 }
             } catch (Exception e) {
-                throw new RuntimeException("Could not load module metadata from " + resource.getDisplayName(), e);
+                throw new RuntimeException("Could not load module metadata for " + component.getComponentId().getDisplayName() + " from repository " + component.getRepositoryId(), e);
             }
         }
         return null;
     }
 
-    public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryKey component, final ModuleComponentResolveMetadata metadata) {
-        String filePath = getFilePath(component);
-        return metaDataStore.add(filePath, new Action<File>() {
-            public void execute(File moduleDescriptorFile) {
-                try {
-                    KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile));
-                    try {
-                        moduleMetadataSerializer.write(encoder, metadata);
-                    } finally {
-                        encoder.close();
-                    }
-                } catch (Exception e) {
-                    throw UncheckedException.throwAsUncheckedException(e);
-                }
+    public void putModuleDescriptor(ModuleComponentAtRepositoryKey component, ModuleComponentResolveMetadata metadata) {
+        ByteArrayOutputStream descriptor = new ByteArrayOutputStream();
+        try {
+            KryoBackedEncoder encoder = new KryoBackedEncoder(descriptor);
+            try {
+                moduleMetadataSerializer.write(encoder, metadata);
+            } finally {
+                encoder.close();
             }
-        });
-    }
-
-    private String getFilePath(ModuleComponentAtRepositoryKey componentId) {
-        ModuleComponentIdentifier moduleComponentIdentifier = componentId.getComponentId();
-        return moduleComponentIdentifier.getGroup() + "/" + moduleComponentIdentifier.getModule() + "/" + moduleComponentIdentifier.getVersion() + "/" + componentId.getRepositoryId() + "/descriptor.bin";
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        descriptors.put(component, descriptor.toByteArray());
     }
-
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.concurrent.Future;
+
+/**
+ * The executor that meta-data is prefetched on. It is shared by all resolutions of a build session, so that the number of meta-data files fetched
+ * concurrently is bounded across all resolutions rather than per resolution.
+ */
+public class MetadataPrefetchExecutor implements Stoppable {
+    /**
+     * The maximum number of meta-data files to fetch concurrently. Prefetching is disabled when set to 0.
+     */
+    public static final int MAX_CONCURRENCY = Integer.getInteger("org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.metadataPrefetchConcurrency", 8);
+
+    private final ExecutorFactory executorFactory;
+    private final int maxConcurrency;
+    private ManagedExecutor executor;
+
+    public MetadataPrefetchExecutor(ExecutorFactory executorFactory) {
+        this(executorFactory, MAX_CONCURRENCY);
+    }
+
+    public MetadataPrefetchExecutor(ExecutorFactory executorFactory, int maxConcurrency) {
+        this.executorFactory = executorFactory;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public boolean isEnabled() {
+        return maxConcurrency > 0;
+    }
+
+    public synchronized Future<?> submit(Runnable prefetch) {
+        if (executor == null) {
+            executor = executorFactory.create("Dependency meta-data prefetch", maxConcurrency);
+        }
+        return executor.submit(prefetch);
+    }
+
+    /**
+     * Waits for the running prefetches to complete.
+     */
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ErrorHandlingModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fetches the meta-data of the components that dependencies are likely to resolve to, as soon as the dependencies are discovered, so that meta-data is
+ * downloaded concurrently across the whole graph rather than for the edges of a single node at a time.
+ *
+ * <p>Only dependencies on a fixed version are prefetched, after excludes and dependency substitution have been applied to them. The fetched meta-data is
+ * discarded: fetching it only populates the caches of the repositories, so that the graph traversal later finds the meta-data in the cache. Selection
+ * and conflict resolution are not affected, and remain serial. A failed prefetch never blacklists a repository.</p>
+ */
+class MetadataPrefetcher implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataPrefetcher.class);
+
+    private final MetadataPrefetchExecutor executor;
+    private final ComponentMetaDataResolver metaDataResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final Set<ModuleComponentIdentifier> requested = Sets.newHashSet();
+    private final List<Future<?>> submitted = Lists.newArrayList();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    MetadataPrefetcher(MetadataPrefetchExecutor executor, ComponentMetaDataResolver metaDataResolver, VersionSelectorScheme versionSelectorScheme, BuildOperationExecutor buildOperationExecutor) {
+        this.executor = executor;
+        this.metaDataResolver = metaDataResolver;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    boolean isEnabled() {
+        return executor.isEnabled();
+    }
+
+    /**
+     * Starts fetching the meta-data for the given dependencies, if not already cached. Excludes and dependency substitution must already have been applied
+     * to the dependencies. Must be called from the thread that traverses the graph.
+     */
+    void prefetch(Iterable<? extends DependencyMetadata> dependencies) {
+        if (!executor.isEnabled()) {
+            return;
+        }
+        for (DependencyMetadata dependency : dependencies) {
+            if (dependency.isPending()) {
+                continue;
+            }
+            ModuleComponentIdentifier componentId = toFixedVersionComponentId(dependency.getSelector());
+            if (componentId == null || !requested.add(componentId) || metaDataResolver.isFetchingMetadataCheap(componentId)) {
+                continue;
+            }
+            submit(componentId, DefaultComponentOverrideMetadata.forDependency(dependency));
+        }
+    }
+
+    @Nullable
+    private ModuleComponentIdentifier toFixedVersionComponentId(ComponentSelector selector) {
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+        String version = versionConstraint.getPreferredVersion();
+        if (version == null || version.isEmpty() || versionConstraint.getBranch() != null || versionSelectorScheme.parseSelector(version).isDynamic()) {
+            return null;
+        }
+        return DefaultModuleComponentIdentifier.newId(moduleSelector.getGroup(), moduleSelector.getModule(), version);
+    }
+
+    private void submit(ModuleComponentIdentifier componentId, ComponentOverrideMetadata overrideMetadata) {
+        final PrefetchMetadataOperation operation = new PrefetchMetadataOperation(componentId, overrideMetadata);
+        submitted.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!stopped.get()) {
+                    ErrorHandlingModuleComponentRepository.runWithoutBlacklisting(new Runnable() {
+                        @Override
+                        public void run() {
+                            buildOperationExecutor.run(operation);
+                        }
+                    });
+                }
+            }
+        }));
+    }
+
+    /**
+     * Cancels the prefetches that have not started yet, without waiting for the running ones. A running prefetch only populates the caches,
+     * so it may complete after the resolution.
+     */
+    @Override
+    public void stop() {
+        stopped.set(true);
+        for (Future<?> prefetch : submitted) {
+            prefetch.cancel(false);
+        }
+        submitted.clear();
+    }
+
+    private class PrefetchMetadataOperation implements RunnableBuildOperation {
+        private final ModuleComponentIdentifier componentId;
+        private final ComponentOverrideMetadata overrideMetadata;
+
+        PrefetchMetadataOperation(ModuleComponentIdentifier componentId, ComponentOverrideMetadata overrideMetadata) {
+            this.componentId = componentId;
+            this.overrideMetadata = overrideMetadata;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            try {
+                metaDataResolver.resolve(componentId, overrideMetadata, new DefaultBuildableComponentResolveResult());
+            } catch (Exception e) {
+                // The failure is reported when the graph traversal resolves the component
+                LOGGER.debug("Could not prefetch meta-data for {}.", componentId, e);
+            }
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            // Not a child of the resolution, which a running prefetch may outlive
+            return BuildOperationDescriptor.displayName("Prefetch meta-data for " + componentId.getDisplayName());
+        }
+    }
+}
@@ -190,6 +190,31 @@ class NodeState implements DependencyGraphNode {
         }
     }
 
+    /**
+     * Collects the dependencies that the outgoing edges of this node would currently be created for, with excludes and dependency substitution applied.
+     * Does not change the state of this node.
+     */
+    public void collectOutgoingDependencies(Collection<DependencyMetadata> target) {
+        if (!component.isSelected()) {
+            return;
+        }
+        List<EdgeState> transitiveIncoming = findTransitiveIncomingEdges(!incomingEdges.isEmpty());
+        if (transitiveIncoming.isEmpty() && !isRoot()) {
+            return;
+        }
+        ModuleExclusion resolutionFilter = getModuleResolutionFilter(transitiveIncoming);
+        for (DependencyMetadata dependency : metaData.getDependencies()) {
+            DependencyState dependencyState = new DependencyState(dependency, resolveState.getComponentSelectorConverter());
+            if (isExcluded(resolutionFilter, dependencyState)) {
+                continue;
+            }
+            dependencyState = maybeSubstitute(dependencyState);
+            if (dependencyState.failure == null) {
+                target.add(dependencyState.getDependency());
+            }
+        }
+    }
+
     // TODO:DAZ This should be done as a decorator on ConfigurationMetadata.getDependencies() ???
     private DependencyState maybeSubstitute(DependencyState dependencyState) {
         DependencySubstitutionApplicator.SubstitutionResult substitutionResult = resolveState.getDependencySubstitutionApplicator().apply(dependencyState.getDependency());
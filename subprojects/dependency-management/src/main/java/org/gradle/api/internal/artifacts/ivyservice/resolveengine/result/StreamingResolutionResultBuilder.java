@@ -77,6 +77,17 @@ public class StreamingResolutionResultBuilder implements DependencyGraphVisitor
         return new DefaultResolutionResult(rootSource);
     }
 
+    /**
+     * Writes a graph that was previously written by another builder, instead of visiting the graph.
+     */
+    public void replay(final byte[] encodedGraph) {
+        store.write(new BinaryStore.WriteAction() {
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeBytes(encodedGraph);
+            }
+        });
+    }
+
     @Override
     public void start(final DependencyGraphNode root) {
         componentResultSerializer.reset();
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.DefaultResolvedModuleVersion;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A dependency graph resolved by an earlier build, in the binary form written by {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder},
+ * together with the modules whose cached meta-data the graph was resolved from.
+ *
+ * <p>The age of the entry is measured from the time the graph was resolved, not from the time the meta-data of its modules was cached.</p>
+ *
+ * <p>The entry also records whether the artifacts of the configuration were queried after the graph was taken from the cache. The artifacts cannot
+ * be cached, so such a configuration has to be resolved anyway, and there is no point in taking its graph from the cache again.</p>
+ */
+public class CachedResolvedGraph {
+    private final long createTimestamp;
+    private final byte[] encodedGraph;
+    private final List<ModuleComponentIdentifier> modules;
+    private final Set<ModuleComponentIdentifier> changingModules;
+    private final Set<ModuleIdentifier> dynamicModules;
+    private final boolean artifactsQueried;
+
+    public CachedResolvedGraph(long createTimestamp, byte[] encodedGraph, List<ModuleComponentIdentifier> modules, Set<ModuleComponentIdentifier> changingModules, Set<ModuleIdentifier> dynamicModules) {
+        this(createTimestamp, encodedGraph, modules, changingModules, dynamicModules, false);
+    }
+
+    public CachedResolvedGraph(long createTimestamp, byte[] encodedGraph, List<ModuleComponentIdentifier> modules, Set<ModuleComponentIdentifier> changingModules, Set<ModuleIdentifier> dynamicModules, boolean artifactsQueried) {
+        this.createTimestamp = createTimestamp;
+        this.encodedGraph = encodedGraph;
+        this.modules = modules;
+        this.changingModules = changingModules;
+        this.dynamicModules = dynamicModules;
+        this.artifactsQueried = artifactsQueried;
+    }
+
+    public long getCreateTimestamp() {
+        return createTimestamp;
+    }
+
+    public byte[] getEncodedGraph() {
+        return encodedGraph;
+    }
+
+    /**
+     * All module components in the graph.
+     */
+    public List<ModuleComponentIdentifier> getModules() {
+        return modules;
+    }
+
+    /**
+     * The module components in the graph that are changing.
+     */
+    public Set<ModuleComponentIdentifier> getChangingModules() {
+        return changingModules;
+    }
+
+    /**
+     * The modules that were selected using a dynamic version.
+     */
+    public Set<ModuleIdentifier> getDynamicModules() {
+        return dynamicModules;
+    }
+
+    /**
+     * Whether the artifacts of the configuration have been queried since its graph was first taken from the cache.
+     */
+    public boolean isArtifactsQueried() {
+        return artifactsQueried;
+    }
+
+    /**
+     * Returns a copy of this graph that records that the artifacts of the configuration have been queried.
+     */
+    public CachedResolvedGraph withArtifactsQueried() {
+        return new CachedResolvedGraph(createTimestamp, encodedGraph, modules, changingModules, dynamicModules, true);
+    }
+
+    /**
+     * Returns true when the given cache policy would still use the cached version listings and meta-data the graph was resolved from, and none of the modules are involved in module replacements.
+     */
+    public boolean isUpToDate(CachePolicy cachePolicy, ModuleReplacementsData moduleReplacements, ImmutableModuleIdentifierFactory moduleIdentifierFactory, long ageMillis) {
+        for (ModuleIdentifier dynamicModule : dynamicModules) {
+            Set<ModuleVersionIdentifier> selectedVersions = new HashSet<ModuleVersionIdentifier>();
+            for (ModuleComponentIdentifier module : modules) {
+                if (module.getGroup().equals(dynamicModule.getGroup()) && module.getModule().equals(dynamicModule.getName())) {
+                    selectedVersions.add(moduleIdentifierFactory.moduleWithVersion(dynamicModule, module.getVersion()));
+                }
+            }
+            if (cachePolicy.mustRefreshVersionList(dynamicModule, Collections.unmodifiableSet(selectedVersions), ageMillis)) {
+                return false;
+            }
+        }
+        for (ModuleComponentIdentifier module : modules) {
+            if (moduleReplacements.participatesInReplacements(moduleIdentifierFactory.module(module.getGroup(), module.getModule()))) {
+                return false;
+            }
+            DefaultResolvedModuleVersion resolvedModuleVersion = new DefaultResolvedModuleVersion(moduleIdentifierFactory.moduleWithVersion(module.getGroup(), module.getModule(), module.getVersion()));
+            if (changingModules.contains(module)) {
+                if (cachePolicy.mustRefreshChangingModule(module, resolvedModuleVersion, ageMillis)) {
+                    return false;
+                }
+            } else if (cachePolicy.mustRefreshModule(module, resolvedModuleVersion, ageMillis)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the modules of a dependency graph that decide when a {@link CachedResolvedGraph} of the graph is out-of-date.
+ *
+ * <p>Only graphs that resolved without failures and that contain no local components other than the root can be cached, as the content of other
+ * local components is not part of the inputs the graph is cached by.</p>
+ */
+public class CachedResolvedGraphBuilder implements DependencyGraphVisitor {
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private final Set<ComponentIdentifier> visitedComponents = new HashSet<ComponentIdentifier>();
+    private final List<ModuleComponentIdentifier> modules = new ArrayList<ModuleComponentIdentifier>();
+    private final Set<ModuleComponentIdentifier> changingModules = new LinkedHashSet<ModuleComponentIdentifier>();
+    private final Set<ModuleIdentifier> dynamicModules = new LinkedHashSet<ModuleIdentifier>();
+    private ComponentIdentifier rootId;
+    private boolean cacheable = true;
+
+    public CachedResolvedGraphBuilder(VersionSelectorScheme versionSelectorScheme, ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleIdentifierFactory = moduleIdentifierFactory;
+    }
+
+    @Override
+    public void start(DependencyGraphNode root) {
+        rootId = root.getOwner().getComponentId();
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode node) {
+        DependencyGraphComponent component = node.getOwner();
+        ComponentIdentifier componentId = component.getComponentId();
+        if (componentId.equals(rootId)) {
+            return;
+        }
+        if (!(componentId instanceof ModuleComponentIdentifier)) {
+            cacheable = false;
+            return;
+        }
+        ModuleComponentIdentifier moduleComponentId = (ModuleComponentIdentifier) componentId;
+        if (visitedComponents.add(moduleComponentId)) {
+            modules.add(moduleComponentId);
+        }
+        if (component.getMetadata().isChanging()) {
+            changingModules.add(moduleComponentId);
+        }
+        for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+            Dependency dependency = edge.getOriginalDependency();
+            if (dependency instanceof ExternalModuleDependency && ((ExternalModuleDependency) dependency).isChanging()) {
+                changingModules.add(moduleComponentId);
+            }
+        }
+    }
+
+    @Override
+    public void visitSelector(DependencyGraphSelector selector) {
+        ComponentSelector requested = selector.getRequested();
+        if (requested instanceof ModuleComponentSelector) {
+            ModuleComponentSelector moduleSelector = (ModuleComponentSelector) requested;
+            VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+            if (versionConstraint.getBranch() != null || versionSelectorScheme.parseSelector(versionConstraint.getPreferredVersion()).isDynamic()) {
+                dynamicModules.add(moduleIdentifierFactory.module(moduleSelector.getGroup(), moduleSelector.getModule()));
+            }
+        }
+    }
+
+    @Override
+    public void visitEdges(DependencyGraphNode node) {
+        for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+            if (edge.getFailure() != null) {
+                cacheable = false;
+            }
+        }
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public CachedResolvedGraph complete(long createTimestamp, byte[] encodedGraph) {
+        return new CachedResolvedGraph(createTimestamp, encodedGraph, modules, changingModules, dynamicModules);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.AbstractCacheCleanup;
+import org.gradle.cache.internal.CleanupActionFactory;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Keeps resolved graphs in a cache that is specific to the Gradle version, as the binary form of the graph can change between versions.
+ * Recently used graphs are also kept in memory for the lifetime of the daemon.
+ *
+ * <p>The graphs are cleaned up when they have not been written to for 7 days, or when they take more than 100 MB on disk.</p>
+ */
+public class DefaultResolvedGraphCache implements ResolvedGraphCache, Stoppable {
+    private static final int MAX_GRAPHS_IN_MEMORY = 500;
+    private static final long MAX_UNUSED_DAYS = 7;
+    private static final long MAX_SIZE_IN_MB = 100;
+
+    private final PersistentCache cache;
+    private final PersistentIndexedCache<HashCode, CachedResolvedGraph> indexedCache;
+
+    public DefaultResolvedGraphCache(CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory, ImmutableModuleIdentifierFactory moduleIdentifierFactory, CleanupActionFactory cleanupActionFactory) {
+        cache = cacheRepository
+            .cache("resolvedGraphs")
+            .withCleanup(cleanupActionFactory.create(new ResolvedGraphCacheCleanup(MAX_UNUSED_DAYS, MAX_SIZE_IN_MB * 1024 * 1024)))
+            .withDisplayName("resolved dependency graphs cache")
+            .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
+            .open();
+        PersistentIndexedCacheParameters<HashCode, CachedResolvedGraph> cacheParameters = new PersistentIndexedCacheParameters<HashCode, CachedResolvedGraph>("resolvedGraphs", new HashCodeSerializer(), new CachedResolvedGraphSerializer(moduleIdentifierFactory))
+            .cacheDecorator(cacheDecoratorFactory.decorator(MAX_GRAPHS_IN_MEMORY, false));
+        indexedCache = cache.createCache(cacheParameters);
+    }
+
+    @Override
+    public void stop() {
+        cache.close();
+    }
+
+    @Nullable
+    @Override
+    public CachedResolvedGraph get(HashCode inputsHash) {
+        return indexedCache.get(inputsHash);
+    }
+
+    @Override
+    public void put(HashCode inputsHash, CachedResolvedGraph graph) {
+        indexedCache.put(inputsHash, graph);
+    }
+
+    @Override
+    public void remove(HashCode inputsHash) {
+        indexedCache.remove(inputsHash);
+    }
+
+    /**
+     * Deletes all graphs when the files of the cache have not been written to for a given number of days, or when they have grown larger than a given size.
+     * The graphs are kept in a single index that cannot drop individual entries by age, so the whole index is deleted. Graphs that are still used are
+     * cached again the next time they are resolved.
+     */
+    private static class ResolvedGraphCacheCleanup extends AbstractCacheCleanup {
+        private final long minimumTimestamp;
+        private final long maximumSize;
+
+        ResolvedGraphCacheCleanup(long maxUnusedDays, long maximumSize) {
+            this.minimumTimestamp = Math.max(0, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxUnusedDays));
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected List<File> findFilesToDelete(PersistentCache persistentCache, File[] filesEligibleForCleanup) {
+            long lastModified = 0;
+            long size = 0;
+            for (File file : filesEligibleForCleanup) {
+                lastModified = Math.max(lastModified, file.lastModified());
+                size += file.length();
+            }
+            if (lastModified < minimumTimestamp || size > maximumSize) {
+                return Arrays.asList(filesEligibleForCleanup);
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    private static class CachedResolvedGraphSerializer extends AbstractSerializer<CachedResolvedGraph> {
+        private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+
+        private CachedResolvedGraphSerializer(ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
+            this.moduleIdentifierFactory = moduleIdentifierFactory;
+        }
+
+        @Override
+        public void write(Encoder encoder, CachedResolvedGraph value) throws Exception {
+            encoder.writeLong(value.getCreateTimestamp());
+            encoder.writeBinary(value.getEncodedGraph());
+            encoder.writeSmallInt(value.getModules().size());
+            for (ModuleComponentIdentifier module : value.getModules()) {
+                encoder.writeString(module.getGroup());
+                encoder.writeString(module.getModule());
+                encoder.writeString(module.getVersion());
+                encoder.writeBoolean(value.getChangingModules().contains(module));
+            }
+            encoder.writeSmallInt(value.getDynamicModules().size());
+            for (ModuleIdentifier module : value.getDynamicModules()) {
+                encoder.writeString(module.getGroup());
+                encoder.writeString(module.getName());
+            }
+            encoder.writeBoolean(value.isArtifactsQueried());
+        }
+
+        @Override
+        public CachedResolvedGraph read(Decoder decoder) throws Exception {
+            long createTimestamp = decoder.readLong();
+            byte[] encodedGraph = decoder.readBinary();
+            int moduleCount = decoder.readSmallInt();
+            List<ModuleComponentIdentifier> modules = new ArrayList<ModuleComponentIdentifier>(moduleCount);
+            Set<ModuleComponentIdentifier> changingModules = new LinkedHashSet<ModuleComponentIdentifier>();
+            for (int i = 0; i < moduleCount; i++) {
+                ModuleComponentIdentifier module = new DefaultModuleComponentIdentifier(decoder.readString(), decoder.readString(), decoder.readString());
+                modules.add(module);
+                if (decoder.readBoolean()) {
+                    changingModules.add(module);
+                }
+            }
+            int dynamicModuleCount = decoder.readSmallInt();
+            Set<ModuleIdentifier> dynamicModules = new LinkedHashSet<ModuleIdentifier>();
+            for (int i = 0; i < dynamicModuleCount; i++) {
+                dynamicModules.add(moduleIdentifierFactory.module(decoder.readString(), decoder.readString()));
+            }
+            boolean artifactsQueried = decoder.readBoolean();
+            return new CachedResolvedGraph(createTimestamp, encodedGraph, modules, changingModules, dynamicModules, artifactsQueried);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.cache.internal.BinaryStore;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * A {@link BinaryStore} that buffers the written data in memory, so that it can be kept once it has been written to the target store.
+ * The data is recorded in the same format as {@link DefaultBinaryStore} uses.
+ */
+public class RecordingBinaryStore implements BinaryStore {
+    private final BinaryStore delegate;
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private final KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+    private byte[] recorded;
+
+    public RecordingBinaryStore(BinaryStore delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(WriteAction write) {
+        try {
+            write.write(encoder);
+        } catch (Exception e) {
+            throw new RuntimeException("Problems writing to " + delegate, e);
+        }
+    }
+
+    @Override
+    public BinaryData done() {
+        encoder.flush();
+        recorded = outputStream.toByteArray();
+        delegate.write(new WriteAction() {
+            @Override
+            public void write(Encoder encoder) throws IOException {
+                encoder.writeBytes(recorded);
+            }
+        });
+        return delegate.done();
+    }
+
+    /**
+     * Returns the data written to this store. Available once {@link #done()} has been called.
+     */
+    public byte[] getRecorded() {
+        if (recorded == null) {
+            throw new IllegalStateException("Data has not been written to the target store yet.");
+        }
+        return recorded;
+    }
+}
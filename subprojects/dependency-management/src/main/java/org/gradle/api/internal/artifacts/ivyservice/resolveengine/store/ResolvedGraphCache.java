@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps resolved dependency graphs across builds, keyed by a hash of the inputs of the resolution.
+ */
+public interface ResolvedGraphCache {
+    /**
+     * Returns the graph resolved for the given inputs, if any. The caller is responsible for checking whether the graph is still up-to-date.
+     */
+    @Nullable
+    CachedResolvedGraph get(HashCode inputsHash);
+
+    void put(HashCode inputsHash, CachedResolvedGraph graph);
+
+    void remove(HashCode inputsHash);
+}
@@ -19,6 +19,10 @@ package org.gradle.api.internal.attributes;
 import org.gradle.api.Action;
 import org.gradle.api.attributes.CompatibilityCheckDetails;
 import org.gradle.api.attributes.MultipleCandidatesDetails;
+import org.gradle.api.internal.changedetection.state.isolation.IsolatableFactory;
+import org.gradle.caching.internal.BuildCacheHasher;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.HashCode;
 
 import java.util.Comparator;
 
@@ -30,4 +34,22 @@ public abstract class AttributeMatchingRules {
     public static <T> Action<? super MultipleCandidatesDetails<T>> orderedDisambiguation(Comparator<? super T> comparator, boolean pickFirst) {
         return new DefaultOrderedDisambiguationRule<T>(comparator, pickFirst);
     }
+
+    /**
+     * Appends the implementation and the parameters of a rule class to the given hasher. Returns false when the rule cannot be hashed.
+     */
+    static boolean appendRuleToHasher(BuildCacheHasher hasher, Class<?> rule, Object[] params, ClassLoaderHierarchyHasher classLoaderHierarchyHasher, IsolatableFactory isolatableFactory) {
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(rule.getClassLoader());
+        if (classLoaderHash == null) {
+            return false;
+        }
+        hasher.putString(rule.getName());
+        hasher.putHash(classLoaderHash);
+        try {
+            isolatableFactory.isolate(params).appendToHasher(hasher);
+        } catch (Exception e) {
+            return false;
+        }
+        return true;
+    }
 }
@@ -22,6 +22,10 @@ import org.gradle.api.attributes.AttributeCompatibilityRule;
 import org.gradle.api.attributes.CompatibilityCheckDetails;
 import org.gradle.api.attributes.CompatibilityRuleChain;
 import org.gradle.api.internal.DefaultActionConfiguration;
+import org.gradle.api.internal.changedetection.state.isolation.IsolatableFactory;
+import org.gradle.caching.internal.BuildCacheHasher;
+import org.gradle.internal.Cast;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.model.internal.type.ModelType;
 
@@ -76,6 +80,23 @@ public class DefaultCompatibilityRuleChain<T> implements CompatibilityRuleChain<
         return !rules.isEmpty();
     }
 
+    /**
+     * Appends the rules of this chain to the given hasher. Returns false when a rule cannot be hashed, as is the case for a rule that uses a comparator.
+     */
+    public boolean appendToHasher(BuildCacheHasher hasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher, IsolatableFactory isolatableFactory) {
+        hasher.putInt(rules.size());
+        for (Action<? super CompatibilityCheckDetails<T>> rule : rules) {
+            if (!(rule instanceof InstantiatingAction)) {
+                return false;
+            }
+            InstantiatingAction<T> instantiatingAction = Cast.uncheckedCast(rule);
+            if (!AttributeMatchingRules.appendRuleToHasher(hasher, instantiatingAction.rule, instantiatingAction.params, classLoaderHierarchyHasher, isolatableFactory)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static class InstantiatingAction<T> implements Action<CompatibilityCheckDetails<T>> {
         private final Class<? extends AttributeCompatibilityRule<T>> rule;
         private final Object[] params;
@@ -25,6 +25,10 @@ import org.gradle.api.attributes.AttributeDisambiguationRule;
 import org.gradle.api.attributes.DisambiguationRuleChain;
 import org.gradle.api.attributes.MultipleCandidatesDetails;
 import org.gradle.api.internal.DefaultActionConfiguration;
+import org.gradle.api.internal.changedetection.state.isolation.IsolatableFactory;
+import org.gradle.caching.internal.BuildCacheHasher;
+import org.gradle.internal.Cast;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.model.internal.type.ModelType;
 
@@ -80,6 +84,23 @@ public class DefaultDisambiguationRuleChain<T> implements DisambiguationRuleChai
         return !rules.isEmpty();
     }
 
+    /**
+     * Appends the rules of this chain to the given hasher. Returns false when a rule cannot be hashed, as is the case for a rule that uses a comparator.
+     */
+    public boolean appendToHasher(BuildCacheHasher hasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher, IsolatableFactory isolatableFactory) {
+        hasher.putInt(rules.size());
+        for (Action<? super MultipleCandidatesDetails<T>> rule : rules) {
+            if (!(rule instanceof InstantiatingAction)) {
+                return false;
+            }
+            InstantiatingAction<T> instantiatingAction = Cast.uncheckedCast(rule);
+            if (!AttributeMatchingRules.appendRuleToHasher(hasher, instantiatingAction.rule, instantiatingAction.params, classLoaderHierarchyHasher, isolatableFactory)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static class InstantiatingAction<T> implements Action<MultipleCandidatesDetails<T>> {
         private final Class<? extends AttributeDisambiguationRule<T>> rule;
         private final Object[] params;
@@ -38,17 +38,4 @@ class DefaultArtifactCacheMetadataTest extends Specification {
         then:
         fileStore == new File(testCacheDir, CacheLayout.FILE_STORE.key)
     }
-
-    def "calculates metadata store directory"() {
-        given:
-        TestFile testCacheDir = temporaryFolder.file("test/cache")
-        scopeMapping.getBaseDirectory(null, CacheLayout.ROOT.key, VersionStrategy.SharedCache) >> testCacheDir
-
-        when:
-        def metaData = new DefaultArtifactCacheMetadata(scopeMapping)
-        File metadataStore = metaData.getMetaDataStoreDirectory()
-
-        then:
-        metadataStore == new File(testCacheDir, CacheLayout.META_DATA.key + '/descriptors')
-    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolutionStrategy
+import org.gradle.api.artifacts.component.BuildIdentifier
+import org.gradle.api.artifacts.dsl.RepositoryHandler
+import org.gradle.api.internal.artifacts.ArtifactDependencyResolver
+import org.gradle.api.internal.artifacts.ComponentSelectorConverter
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.DefaultResolverResults
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.CachedResolvedGraph
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import org.gradle.api.internal.artifacts.transform.ArtifactTransforms
+import org.gradle.api.internal.artifacts.type.ArtifactTypeRegistry
+import org.gradle.api.internal.attributes.AttributesSchemaInternal
+import org.gradle.api.internal.file.TmpDirTemporaryFileProvider
+import org.gradle.api.internal.model.NamedObjectInstantiator
+import org.gradle.initialization.BuildIdentity
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.util.BuildCommencedTimeProvider
+import org.gradle.util.TestUtil
+import spock.lang.Specification
+
+class DefaultConfigurationResolverTest extends Specification {
+    def resolver = Mock(ArtifactDependencyResolver)
+    def repository = Mock(ResolutionAwareRepository)
+    def componentRepository = Stub(ConfiguredModuleComponentRepository)
+    def repositories = Stub(RepositoryHandler) {
+        iterator() >> { [repository].iterator() }
+    }
+    def inputsHasher = Mock(ResolutionInputsHasher)
+    def resolvedGraphCache = Mock(ResolvedGraphCache)
+    def storeFactory = new ResolutionResultsStoreFactory(new TmpDirTemporaryFileProvider())
+    def moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory()
+    def buildIdentity = Stub(BuildIdentity) {
+        getCurrentBuild() >> Stub(BuildIdentifier)
+    }
+    def timeProvider = Stub(BuildCommencedTimeProvider) {
+        getCurrentTime() >> 1000
+    }
+    def configuration = Stub(ConfigurationInternal) {
+        getResolutionStrategy() >> Stub(ResolutionStrategyInternal) {
+            getSortOrder() >> ResolutionStrategy.SortOrder.DEFAULT
+            getCachePolicy() >> Stub(CachePolicy)
+        }
+    }
+    def inputsHash = HashCode.fromInt(123)
+
+    def configurationResolver = new DefaultConfigurationResolver(resolver, repositories, GlobalDependencyResolutionRules.NO_OP, storeFactory, false,
+        Stub(AttributesSchemaInternal), Stub(ArtifactTransforms), moduleIdentifierFactory, new TestBuildOperationExecutor(), Stub(ArtifactTypeRegistry),
+        Stub(ComponentSelectorConverter), new AttributeContainerSerializer(TestUtil.attributesFactory(), NamedObjectInstantiator.INSTANCE), buildIdentity,
+        inputsHasher, resolvedGraphCache, new DefaultVersionSelectorScheme(new DefaultVersionComparator()), timeProvider, false, false)
+
+    def cleanup() {
+        storeFactory.close()
+    }
+
+    def "caches the resolved graph and serves it from the cache without resolving again"() {
+        def cachedGraph = null
+
+        when:
+        def results = new DefaultResolverResults()
+        configurationResolver.resolveGraph(configuration, results)
+
+        then:
+        1 * repository.createResolver() >> componentRepository
+        1 * inputsHasher.hash(configuration, [componentRepository]) >> inputsHash
+        1 * resolvedGraphCache.get(inputsHash) >> null
+        1 * resolver.resolve(configuration, _, _, _, _, _, _, _) >> { args -> visitGraph(args[4], "1.0") }
+        1 * resolvedGraphCache.put(inputsHash, _) >> { HashCode hash, CachedResolvedGraph graph -> cachedGraph = graph }
+        results.resolutionResult.root.moduleVersion.version == "1.0"
+
+        when:
+        results = new DefaultResolverResults()
+        configurationResolver.resolveGraph(configuration, results)
+        configurationResolver.resolveArtifacts(configuration, results)
+
+        then:
+        1 * repository.createResolver() >> componentRepository
+        1 * inputsHasher.hash(configuration, [componentRepository]) >> inputsHash
+        1 * resolvedGraphCache.get(inputsHash) >> cachedGraph
+        0 * resolver._
+        results.resolutionResult.root.moduleVersion.version == "1.0"
+        !results.resolvedConfiguration.hasError()
+    }
+
+    def "resolves again when the artifacts of a cached graph are queried and records that they were queried"() {
+        def cachedGraph = null
+        def results = new DefaultResolverResults()
+
+        given:
+        inputsHasher.hash(configuration, _) >> inputsHash
+        repository.createResolver() >> componentRepository
+        resolver.resolve(configuration, _, _, _, _, _, _, _) >> { args -> visitGraph(args[4], "1.0") }
+        resolvedGraphCache.put(inputsHash, _) >> { HashCode hash, CachedResolvedGraph graph -> cachedGraph = graph }
+        configurationResolver.resolveGraph(configuration, new DefaultResolverResults())
+
+        when:
+        configurationResolver.resolveGraph(configuration, results)
+        configurationResolver.resolveArtifacts(configuration, results)
+
+        then:
+        1 * resolvedGraphCache.get(inputsHash) >> cachedGraph
+        0 * resolver._
+        results.resolutionResult.root.moduleVersion.version == "1.0"
+
+        when:
+        results.resolvedConfiguration.lenientConfiguration
+
+        then:
+        1 * resolver.resolve(configuration, _, _, _, _, _, _, _) >> { args -> visitGraph(args[4], "2.0") }
+        1 * resolvedGraphCache.put(inputsHash, { it.artifactsQueried })
+        0 * resolvedGraphCache.remove(_)
+        results.resolutionResult.root.moduleVersion.version == "2.0"
+    }
+
+    def "does not serve a cached graph whose artifacts were queried"() {
+        def cachedGraph = null
+        def results = new DefaultResolverResults()
+
+        given:
+        inputsHasher.hash(configuration, _) >> inputsHash
+        repository.createResolver() >> componentRepository
+        resolver.resolve(configuration, _, _, _, _, _, _, _) >> { args -> visitGraph(args[4], "1.0") }
+        resolvedGraphCache.put(inputsHash, _) >> { HashCode hash, CachedResolvedGraph graph -> cachedGraph = graph }
+        configurationResolver.resolveGraph(configuration, new DefaultResolverResults())
+
+        when:
+        configurationResolver.resolveGraph(configuration, results)
+        configurationResolver.resolveArtifacts(configuration, results)
+
+        then:
+        1 * resolvedGraphCache.get(inputsHash) >> cachedGraph.withArtifactsQueried()
+        1 * resolver.resolve(configuration, _, _, _, _, _, _, _) >> { args -> visitGraph(args[4], "2.0") }
+        0 * resolvedGraphCache.put(_, _)
+        results.resolutionResult.root.moduleVersion.version == "2.0"
+        !results.resolvedConfiguration.hasError()
+    }
+
+    def "does not use the cache when the resolution inputs cannot be hashed"() {
+        def results = new DefaultResolverResults()
+
+        when:
+        configurationResolver.resolveGraph(configuration, results)
+
+        then:
+        1 * repository.createResolver() >> componentRepository
+        1 * inputsHasher.hash(configuration, [componentRepository]) >> null
+        1 * resolver.resolve(configuration, _, _, _, _, _, _, _) >> { args -> visitGraph(args[4], "1.0") }
+        0 * resolvedGraphCache._
+        results.resolutionResult.root.moduleVersion.version == "1.0"
+    }
+
+    private void visitGraph(DependencyGraphVisitor visitor, String version) {
+        def component = Stub(DependencyGraphComponent) {
+            getResultId() >> 1L
+            getModuleVersion() >> DefaultModuleVersionIdentifier.newId("org", "root", version)
+            getComponentId() >> DefaultModuleComponentIdentifier.newId("org", "root", version)
+            getSelectionReason() >> VersionSelectionReasons.root()
+        }
+        def root = Stub(DependencyGraphNode) {
+            getOwner() >> component
+        }
+        visitor.start(root)
+        visitor.visitNode(root)
+        visitor.visitEdges(root)
+        visitor.finish(root)
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.component.BuildIdentifier
+import org.gradle.api.attributes.Attribute
+import org.gradle.api.attributes.AttributeCompatibilityRule
+import org.gradle.api.attributes.AttributeDisambiguationRule
+import org.gradle.api.attributes.CompatibilityCheckDetails
+import org.gradle.api.attributes.MultipleCandidatesDetails
+import org.gradle.api.internal.FeaturePreviews
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.Module
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ConflictResolution
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository
+import org.gradle.api.internal.attributes.ComponentAttributeMatcher
+import org.gradle.api.internal.attributes.DefaultAttributesSchema
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.api.internal.changedetection.state.ArrayValueSnapshot
+import org.gradle.api.internal.changedetection.state.StringValueSnapshot
+import org.gradle.api.internal.changedetection.state.ValueSnapshot
+import org.gradle.api.internal.changedetection.state.isolation.IsolatableFactory
+import org.gradle.initialization.BuildIdentity
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.util.TestUtil
+import spock.lang.Specification
+
+import javax.inject.Inject
+
+class ResolutionInputsHasherTest extends Specification {
+    def attribute = Attribute.of("usage", String)
+    def schema = new DefaultAttributesSchema(new ComponentAttributeMatcher(), TestUtil.instantiatorFactory())
+    def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher) {
+        getClassLoaderHash(_) >> HashCode.fromInt(123)
+    }
+    def isolatableFactory = Stub(IsolatableFactory) {
+        isolate(_) >> { args -> new ArrayValueSnapshot(args[0].collect { new StringValueSnapshot(it.toString()) } as ValueSnapshot[]) }
+    }
+    def buildIdentity = Stub(BuildIdentity) {
+        getCurrentBuild() >> Stub(BuildIdentifier) {
+            getName() >> "build"
+        }
+    }
+    def hasher = new ResolutionInputsHasher(GlobalDependencyResolutionRules.NO_OP, schema, new FeaturePreviews(), buildIdentity, classLoaderHierarchyHasher, isolatableFactory)
+    def configuration = Stub(ConfigurationInternal) {
+        getPath() >> ":compileClasspath"
+        getModule() >> Stub(Module)
+        getAttributes() >> ImmutableAttributes.EMPTY
+        getHierarchy() >> ([] as Set)
+        getResolutionStrategy() >> Stub(ResolutionStrategyInternal) {
+            getConflictResolution() >> ConflictResolution.latest
+            getForcedModules() >> ([] as Set)
+        }
+    }
+
+    def "calculates the same hash for the same inputs"() {
+        given:
+        schema.attribute(attribute).compatibilityRules.add(CompatibleRule)
+
+        expect:
+        def hash = hasher.hash(configuration, [repository("repo")])
+        hash != null
+        hasher.hash(configuration, [repository("repo")]) == hash
+        hasher.hash(configuration, [repository("other")]) != hash
+    }
+
+    def "has no hash when resolving from a local repository"() {
+        expect:
+        hasher.hash(configuration, [repository("repo"), repository("local", true)]) == null
+    }
+
+    def "hash changes when a compatibility rule is added or its parameters change"() {
+        given:
+        schema.attribute(attribute)
+        def withoutRule = hasher.hash(configuration, [repository("repo")])
+
+        when:
+        schema.attribute(attribute).compatibilityRules.add(ParameterizedCompatibleRule) { it.params("a") }
+        def withRule = hasher.hash(configuration, [repository("repo")])
+
+        then:
+        withRule != null
+        withRule != withoutRule
+
+        when:
+        def otherSchema = new DefaultAttributesSchema(new ComponentAttributeMatcher(), TestUtil.instantiatorFactory())
+        otherSchema.attribute(attribute).compatibilityRules.add(ParameterizedCompatibleRule) { it.params("b") }
+        def otherHasher = new ResolutionInputsHasher(GlobalDependencyResolutionRules.NO_OP, otherSchema, new FeaturePreviews(), buildIdentity, classLoaderHierarchyHasher, isolatableFactory)
+
+        then:
+        otherHasher.hash(configuration, [repository("repo")]) != withRule
+    }
+
+    def "hash changes when a disambiguation rule is added"() {
+        given:
+        schema.attribute(attribute)
+        def withoutRule = hasher.hash(configuration, [repository("repo")])
+
+        when:
+        schema.attribute(attribute).disambiguationRules.add(PreferRule)
+
+        then:
+        def withRule = hasher.hash(configuration, [repository("repo")])
+        withRule != null
+        withRule != withoutRule
+    }
+
+    def "has no hash when an attribute uses ordered compatibility"() {
+        given:
+        schema.attribute(attribute).compatibilityRules.ordered(String.CASE_INSENSITIVE_ORDER)
+
+        expect:
+        hasher.hash(configuration, [repository("repo")]) == null
+    }
+
+    def "has no hash when an attribute uses ordered disambiguation"() {
+        given:
+        schema.attribute(attribute).disambiguationRules.pickFirst(String.CASE_INSENSITIVE_ORDER)
+
+        expect:
+        hasher.hash(configuration, [repository("repo")]) == null
+    }
+
+    def "has no hash when the class loader of a rule cannot be hashed"() {
+        given:
+        def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher) {
+            getClassLoaderHash(_) >> null
+        }
+        def hasher = new ResolutionInputsHasher(GlobalDependencyResolutionRules.NO_OP, schema, new FeaturePreviews(), buildIdentity, classLoaderHierarchyHasher, isolatableFactory)
+        schema.attribute(attribute).compatibilityRules.add(CompatibleRule)
+
+        expect:
+        hasher.hash(configuration, [repository("repo")]) == null
+    }
+
+    private ConfiguredModuleComponentRepository repository(String id, boolean local = false) {
+        return Stub(ConfiguredModuleComponentRepository) {
+            getId() >> id
+            isLocal() >> local
+        }
+    }
+
+    static class CompatibleRule implements AttributeCompatibilityRule<String> {
+        @Override
+        void execute(CompatibilityCheckDetails<String> details) {
+            details.compatible()
+        }
+    }
+
+    static class ParameterizedCompatibleRule implements AttributeCompatibilityRule<String> {
+        final String value
+
+        @Inject
+        ParameterizedCompatibleRule(String value) {
+            this.value = value
+        }
+
+        @Override
+        void execute(CompatibilityCheckDetails<String> details) {
+            if (details.producerValue == value) {
+                details.compatible()
+            }
+        }
+    }
+
+    static class PreferRule implements AttributeDisambiguationRule<String> {
+        @Override
+        void execute(MultipleCandidatesDetails<String> details) {
+            details.closestMatch(details.candidateValues.first())
+        }
+    }
+}
@@ -105,6 +105,32 @@ class ErrorHandlingModuleComponentRepositoryTest extends Specification {
         0 * delegate._
     }
 
+    def "does not blacklist repo when resolution fails while blacklisting is disabled"() {
+        given:
+        def moduleComponentIdentifier = new DefaultModuleComponentIdentifier('a', 'b', '1.0')
+        def requestMetaData = Mock(ComponentOverrideMetadata)
+        def result = Mock(BuildableModuleComponentMetaDataResolveResult)
+
+        when:
+        ErrorHandlingModuleComponentRepository.runWithoutBlacklisting {
+            access.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result)
+        }
+
+        then:
+        1 * repositoryBlacklister.isBlacklisted(REPOSITORY_ID) >> false
+        1 * delegate.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result) >> { throw someException }
+        1 * result.failed(_ as ModuleVersionResolveException)
+        0 * repositoryBlacklister._
+
+        when:
+        access.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result)
+
+        then:
+        1 * repositoryBlacklister.isBlacklisted(REPOSITORY_ID) >> false
+        1 * delegate.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result) >> { throw someException }
+        1 * repositoryBlacklister.blacklistRepository(REPOSITORY_ID, someException)
+    }
+
     def "can resolve artifacts with type"() {
         given:
         def component = Mock(ComponentResolveMetadata)
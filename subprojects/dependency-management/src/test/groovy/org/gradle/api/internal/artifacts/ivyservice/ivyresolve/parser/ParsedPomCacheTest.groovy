@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.resource.local.LocalFileStandInExternalResource
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ParsedPomCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final cache = new ParsedPomCache(100)
+
+    def "reuses parsed POM with the same content"() {
+        def resource = resource('parent.pom', pom('parent', 2))
+
+        when:
+        def first = cache.parse('group:parent:1.0', resource)
+        def second = cache.parse('group:parent:1.0', resource)
+
+        then:
+        first.artifactId == 'parent'
+        first.dependencyMgts.size() == 2
+        second.is(first)
+
+        and:
+        def statistics = cache.getAndResetStatistics()
+        statistics.hitCount == 1
+        statistics.missCount == 1
+        statistics.entryCount == 1
+    }
+
+    def "parses POM again when its content has changed"() {
+        def pomFile = tmpDir.file('parent.pom')
+        pomFile.text = pom('parent', 1)
+        def first = cache.parse('group:parent:1.0', resource(pomFile))
+
+        when:
+        pomFile.text = pom('parent', 3)
+        def second = cache.parse('group:parent:1.0', resource(pomFile))
+
+        then:
+        !second.is(first)
+        second.dependencyMgts.size() == 3
+        cache.getAndResetStatistics().missCount == 2
+    }
+
+    def "does not share parsed POM between modules"() {
+        def resource = resource('parent.pom', pom('parent', 1))
+
+        when:
+        def first = cache.parse('group:parent:1.0', resource)
+        def second = cache.parse('group:parent:2.0', resource)
+
+        then:
+        !second.is(first)
+        cache.getAndResetStatistics().missCount == 2
+    }
+
+    def "does not cache POM whose root is not a project"() {
+        def resource = resource('parent.pom', '<other/>')
+
+        expect:
+        cache.parse('group:parent:1.0', resource) == null
+        cache.parse('group:parent:1.0', resource) == null
+
+        and:
+        def statistics = cache.getAndResetStatistics()
+        statistics.missCount == 2
+        statistics.entryCount == 0
+    }
+
+    def "evicts parsed POMs to stay within maximum weight"() {
+        when:
+        cache.parse('group:bom1:1.0', resource('bom1.pom', pom('bom1', 60)))
+        cache.parse('group:bom2:1.0', resource('bom2.pom', pom('bom2', 60)))
+
+        then:
+        def statistics = cache.getAndResetStatistics()
+        statistics.evictionCount == 1
+        statistics.entryCount == 1
+    }
+
+    def "resets statistics"() {
+        given:
+        cache.parse('group:parent:1.0', resource('parent.pom', pom('parent', 1)))
+        cache.getAndResetStatistics()
+
+        expect:
+        def statistics = cache.getAndResetStatistics()
+        statistics.hitCount == 0
+        statistics.missCount == 0
+        statistics.entryCount == 1
+    }
+
+    private LocallyAvailableExternalResource resource(String name, String content) {
+        TestFile file = tmpDir.file(name)
+        file.text = content
+        return resource(file)
+    }
+
+    private static LocallyAvailableExternalResource resource(TestFile file) {
+        return new LocalFileStandInExternalResource(file, TestFiles.fileSystem())
+    }
+
+    private static String pom(String artifactId, int managedDependencies) {
+        def dependencies = (1..managedDependencies).collect {
+            "<dependency><groupId>group</groupId><artifactId>managed-$it</artifactId><version>1.0</version></dependency>"
+        }.join('\n')
+        return """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group</groupId>
+    <artifactId>$artifactId</artifactId>
+    <version>1.0</version>
+    <packaging>pom</packaging>
+    <dependencyManagement>
+        <dependencies>
+            $dependencies
+        </dependencies>
+    </dependencyManagement>
+</project>
+"""
+    }
+}
@@ -850,4 +850,125 @@ class PomReaderTest extends AbstractPomReaderTest {
         pomReader.artifactId == pomReader.parentArtifactId
         pomReader.version == pomReader.parentVersion
     }
+
+    def "uses first occurrence of elements that may only be declared once"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <groupId>group-ignored</groupId>
+    <artifactId>artifact-one</artifactId>
+    <artifactId>artifact-ignored</artifactId>
+    <version>version-one</version>
+    <version>version-ignored</version>
+    <packaging>war</packaging>
+    <packaging>ear</packaging>
+
+    <parent>
+        <groupId>group-two</groupId>
+        <groupId>group-ignored</groupId>
+        <artifactId>artifact-two</artifactId>
+        <version>version-two</version>
+    </parent>
+    <parent>
+        <groupId>group-ignored</groupId>
+        <artifactId>artifact-ignored</artifactId>
+        <version>version-ignored</version>
+    </parent>
+
+    <properties>
+        <some.prop>first</some.prop>
+    </properties>
+    <properties>
+        <some.prop>ignored</some.prop>
+        <other.prop>ignored</other.prop>
+    </properties>
+
+    <dependencies>
+        <dependency>
+            <groupId>group-three</groupId>
+            <artifactId>artifact-three</artifactId>
+            <version>version-three</version>
+            <version>version-ignored</version>
+        </dependency>
+    </dependencies>
+    <dependencies>
+        <dependency>
+            <groupId>group-ignored</groupId>
+            <artifactId>artifact-ignored</artifactId>
+            <version>version-ignored</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+        MavenDependencyKey key = new MavenDependencyKey('group-three', 'artifact-three', 'jar', null)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact-one'
+        pomReader.version == 'version-one'
+        pomReader.packaging == 'war'
+        pomReader.parentGroupId == 'group-two'
+        pomReader.parentArtifactId == 'artifact-two'
+        pomReader.parentVersion == 'version-two'
+        pomReader.properties['some.prop'] == 'first'
+        !pomReader.properties.containsKey('other.prop')
+        pomReader.getDependencies().size() == 1
+        assertResolvedPomDependency(key, 'version-three')
+    }
+
+    def "reads only text directly contained in an element"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-<nested>ignored</nested>one</groupId>
+    <artifactId><![CDATA[artifact-]]>one</artifactId>
+    <version>version-<!-- comment -->one</version>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact-one'
+        pomReader.version == 'version-one'
+    }
+
+    def "accepts model as root tag"() {
+        when:
+        pomFile << """
+<model>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</model>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.artifactId == 'artifact-one'
+        pomReader.version == 'version-one'
+    }
+
+    def "rejects POM with other root tag"() {
+        when:
+        pomFile << """
+<someothertag>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</someothertag>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource, moduleIdentifierFactory)
+
+        then:
+        Throwable t = thrown(SAXParseException)
+        t.message == 'project must be the root tag'
+    }
 }
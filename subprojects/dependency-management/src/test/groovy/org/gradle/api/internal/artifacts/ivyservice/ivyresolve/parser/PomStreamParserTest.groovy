@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.w3c.dom.Element
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.getAllChilds
+import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.getFirstChildElement
+import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.getFirstChildText
+import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.getTextContent
+
+/**
+ * Compares the values read by {@link PomStreamParser} with the values the DOM based {@link PomReader} read from the same published POM files.
+ */
+class PomStreamParserTest extends Specification {
+
+    @Unroll
+    def "reads the same values as the DOM parser from #pom"() {
+        when:
+        def streamed = projectFromStream(PomStreamParser.parse(openPom(pom), pom))
+        def fromDom = projectFromDom(PomDomParser.parse(openPom(pom), pom))
+
+        then:
+        streamed == fromDom
+
+        where:
+        pom                                              | _
+        // A root parent POM with a release profile
+        "apache-18.pom"                                  | _
+        // A parent POM with many profiles activated by properties, files and JDK versions
+        "commons-parent-42.pom"                          | _
+        // A module that inherits from a parent and declares profiles with dependencies
+        "commons-lang3-3.7.pom"                          | _
+        // A BOM with a large dependencyManagement section
+        "jackson-bom-2.9.5.pom"                          | _
+        // A BOM that imports other BOMs
+        "spring-cloud-dependencies-Finchley.RELEASE.pom" | _
+        // A POM that uses one of Maven's HTML entities
+        "plexus-1.0.4.pom"                               | _
+        // A parent POM with a profile that declares dependencies
+        "log4j-2.11.0.pom"                               | _
+    }
+
+    def "reads the parent, properties, dependencies and profiles of a published POM"() {
+        when:
+        def streamed = projectFromStream(PomStreamParser.parse(openPom("commons-lang3-3.7.pom"), "commons-lang3-3.7.pom"))
+
+        then:
+        streamed.parent == [groupId: "org.apache.commons", artifactId: "commons-parent", version: "42"]
+        streamed.properties["commons.componentid"] == "lang3"
+        streamed.dependencies*.artifactId.contains("junit")
+        streamed.profiles*.id.containsAll(["setup-checkout", "java9", "benchmark"])
+    }
+
+    private static InputStream openPom(String pom) {
+        PomStreamParserTest.getResourceAsStream("PomStreamParserTest/${pom}")
+    }
+
+    private static Map<String, Object> projectFromStream(PomStreamParser.Project project) {
+        [
+            groupId       : project.groupId,
+            artifactId    : project.artifactId,
+            version       : project.version,
+            packaging     : project.packaging,
+            parent        : coordinatesFromStream(project.parent),
+            relocation    : coordinatesFromStream(project.relocation),
+            properties    : new HashMap(project.properties),
+            dependencies  : project.dependencies.collect { dependencyFromStream(it) },
+            dependencyMgts: project.dependencyMgts.collect { dependencyFromStream(it) },
+            profiles      : project.profiles.collect { profileFromStream(it) }
+        ]
+    }
+
+    private static Map<String, Object> coordinatesFromStream(PomStreamParser.Coordinates coordinates) {
+        if (coordinates == null) {
+            return null
+        }
+        [groupId: coordinates.groupId, artifactId: coordinates.artifactId, version: coordinates.version]
+    }
+
+    private static Map<String, Object> dependencyFromStream(PomStreamParser.Dependency dependency) {
+        [
+            groupId   : dependency.groupId,
+            artifactId: dependency.artifactId,
+            version   : dependency.version,
+            scope     : dependency.scope,
+            type      : dependency.type,
+            classifier: dependency.classifier,
+            optional  : dependency.optional,
+            exclusions: dependency.exclusions.collect { coordinatesFromStream(it) }
+        ]
+    }
+
+    private static Map<String, Object> profileFromStream(PomStreamParser.Profile profile) {
+        [
+            id                    : profile.id,
+            activeByDefault       : profile.activeByDefault,
+            activationPropertyName: profile.activationPropertyName,
+            properties            : new HashMap(profile.properties),
+            dependencies          : profile.dependencies.collect { dependencyFromStream(it) },
+            dependencyMgts        : profile.dependencyMgts.collect { dependencyFromStream(it) }
+        ]
+    }
+
+    private static Map<String, Object> projectFromDom(Element project) {
+        def distributionMgt = getFirstChildElement(project, "distributionManagement")
+        [
+            groupId       : getFirstChildText(project, "groupId"),
+            artifactId    : getFirstChildText(project, "artifactId"),
+            version       : getFirstChildText(project, "version"),
+            packaging     : getFirstChildText(project, "packaging"),
+            parent        : coordinatesFromDom(getFirstChildElement(project, "parent")),
+            relocation    : coordinatesFromDom(getFirstChildElement(distributionMgt, "relocation")),
+            properties    : propertiesFromDom(project),
+            dependencies  : dependenciesFromDom(getFirstChildElement(project, "dependencies")),
+            dependencyMgts: dependenciesFromDom(getFirstChildElement(getFirstChildElement(project, "dependencyManagement"), "dependencies")),
+            profiles      : childrenFromDom(getFirstChildElement(project, "profiles"), "profile").collect { profileFromDom(it) }
+        ]
+    }
+
+    private static Map<String, Object> coordinatesFromDom(Element element) {
+        if (element == null) {
+            return null
+        }
+        [groupId: getFirstChildText(element, "groupId"), artifactId: getFirstChildText(element, "artifactId"), version: getFirstChildText(element, "version")]
+    }
+
+    private static Map<String, String> propertiesFromDom(Element element) {
+        def properties = [:]
+        for (Element property : getAllChilds(getFirstChildElement(element, "properties"))) {
+            properties.put(property.nodeName, getTextContent(property))
+        }
+        properties
+    }
+
+    private static List<Map<String, Object>> dependenciesFromDom(Element dependencies) {
+        childrenFromDom(dependencies, "dependency").collect { Element dependency ->
+            [
+                groupId   : getFirstChildText(dependency, "groupId"),
+                artifactId: getFirstChildText(dependency, "artifactId"),
+                version   : getFirstChildText(dependency, "version"),
+                scope     : getFirstChildText(dependency, "scope"),
+                type      : getFirstChildText(dependency, "type"),
+                classifier: getFirstChildText(dependency, "classifier"),
+                optional  : getFirstChildText(dependency, "optional"),
+                exclusions: childrenFromDom(getFirstChildElement(dependency, "exclusions"), "exclusion").collect { coordinatesFromDom(it) }
+            ]
+        }
+    }
+
+    private static Map<String, Object> profileFromDom(Element profile) {
+        def activation = getFirstChildElement(profile, "activation")
+        [
+            id                    : getFirstChildText(profile, "id"),
+            activeByDefault       : getFirstChildText(activation, "activeByDefault"),
+            activationPropertyName: getFirstChildText(getFirstChildElement(activation, "property"), "name"),
+            properties            : propertiesFromDom(profile),
+            dependencies          : dependenciesFromDom(getFirstChildElement(profile, "dependencies")),
+            dependencyMgts        : dependenciesFromDom(getFirstChildElement(getFirstChildElement(profile, "dependencyManagement"), "dependencies"))
+        ]
+    }
+
+    private static List<Element> childrenFromDom(Element parent, String name) {
+        getAllChilds(parent).findAll { it.nodeName == name }
+    }
+}
@@ -20,53 +20,57 @@ import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory
 import org.gradle.api.internal.artifacts.repositories.metadata.MavenMutableModuleMetadataFactory
+import org.gradle.cache.PersistentIndexedCache
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
-import org.gradle.internal.resource.local.LocallyAvailableResource
-import org.gradle.internal.resource.local.PathKeyFileStore
-import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
 import org.gradle.util.TestUtil
-import org.junit.Rule
 import spock.lang.Specification
 
 class ModuleMetadataStoreTest extends Specification {
 
-    @Rule TestNameTestDirectoryProvider temporaryFolder
-    PathKeyFileStore pathKeyFileStore = Mock()
+    PersistentIndexedCache<ModuleComponentAtRepositoryKey, byte[]> descriptors = Mock()
     String repository = "repositoryId"
-    LocallyAvailableResource fileStoreEntry = Mock()
     ImmutableModuleIdentifierFactory moduleIdentifierFactory = Mock(ImmutableModuleIdentifierFactory) {
         module(_,_) >> { args -> DefaultModuleIdentifier.newId(*args)}
     }
     ModuleComponentIdentifier moduleComponentIdentifier = DefaultModuleComponentIdentifier.newId("org.test", "testArtifact", "1.0")
+    ModuleComponentAtRepositoryKey key = new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier)
     ModuleMetadataSerializer serializer = Mock()
-    ModuleMetadataStore store = new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory)
+    ModuleMetadataStore store = new ModuleMetadataStore(descriptors, serializer, moduleIdentifierFactory)
     private final mavenMetadataFactory = new MavenMutableModuleMetadataFactory(moduleIdentifierFactory, TestUtil.attributesFactory(), TestUtil.objectInstantiator(), TestUtil.featurePreviews())
 
-    def "getModuleDescriptorFile returns null for not cached descriptors"() {
+    def "getModuleDescriptor returns null for not cached descriptors"() {
         when:
-        pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
-        then:
-        null == store.getModuleDescriptor(new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier))
-    }
+        def descriptor = store.getModuleDescriptor(key)
 
-    def "getModuleDescriptorFile uses PathKeyFileStore to get file"() {
-        when:
-        store.getModuleDescriptor(new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier));
         then:
-        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
+        1 * descriptors.get(key) >> null
+        0 * serializer._
+        descriptor == null
     }
 
-    def "putModuleDescriptor uses PathKeyFileStore to write file"() {
+    def "putModuleDescriptor stores serialized descriptor in cache"() {
         setup:
-        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
         def descriptor = mavenMetadataFactory.create(moduleComponentIdentifier).asImmutable()
+        byte[] stored = null
+
+        when:
+        store.putModuleDescriptor(key, descriptor)
+
+        then:
+        1 * serializer.write(_, descriptor) >> { Encoder encoder, metadata -> encoder.writeString("descriptor") }
+        1 * descriptors.put(key, _) >> { k, byte[] value -> stored = value }
 
         when:
-        store.putModuleDescriptor(new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier), descriptor)
+        def result = store.getModuleDescriptor(key)
+
         then:
-        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
-            action.execute(descriptorFile); fileStoreEntry
-        };
-        1 * serializer.write(_, descriptor)
+        1 * descriptors.get(key) >> stored
+        1 * serializer.read(_, moduleIdentifierFactory) >> { Decoder decoder, factory ->
+            assert decoder.readString() == "descriptor"
+            mavenMetadataFactory.create(moduleComponentIdentifier)
+        }
+        result.componentId == moduleComponentIdentifier
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.artifacts.component.ComponentSelector
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+import static org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier.newId
+import static org.gradle.internal.component.external.model.DefaultModuleComponentSelector.newSelector
+
+class MetadataPrefetcherTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def prefetchExecutor = new MetadataPrefetchExecutor(executorFactory, 1)
+    def metaDataResolver = Mock(ComponentMetaDataResolver)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator())
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "fetches meta-data of dependencies on a fixed version"() {
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0")), dependency(newSelector("org", "bar", "1.+")), dependency(newSelector("org", "baz", "latest.release"))])
+        prefetchExecutor.stop()
+        prefetcher.stop()
+
+        then:
+        1 * metaDataResolver.isFetchingMetadataCheap(newId("org", "foo", "1.0")) >> false
+        1 * metaDataResolver.resolve(newId("org", "foo", "1.0"), _, _)
+        0 * metaDataResolver._
+        buildOperationExecutor.operations*.displayName == ["Prefetch meta-data for org:foo:1.0"]
+    }
+
+    def "fetches meta-data of each component once"() {
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0"))])
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0"))])
+        prefetchExecutor.stop()
+        prefetcher.stop()
+
+        then:
+        1 * metaDataResolver.isFetchingMetadataCheap(newId("org", "foo", "1.0")) >> false
+        1 * metaDataResolver.resolve(newId("org", "foo", "1.0"), _, _)
+        0 * metaDataResolver._
+    }
+
+    def "does not fetch meta-data that is cheap to fetch or that is not for a module"() {
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0")), dependency(Stub(ComponentSelector))])
+        prefetchExecutor.stop()
+        prefetcher.stop()
+
+        then:
+        1 * metaDataResolver.isFetchingMetadataCheap(newId("org", "foo", "1.0")) >> true
+        0 * metaDataResolver._
+    }
+
+    def "does not fetch meta-data when disabled"() {
+        def prefetcher = new MetadataPrefetcher(new MetadataPrefetchExecutor(executorFactory, 0), metaDataResolver, versionSelectorScheme, buildOperationExecutor)
+
+        when:
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0"))])
+        prefetchExecutor.stop()
+        prefetcher.stop()
+
+        then:
+        0 * metaDataResolver._
+    }
+
+    def "discards the prefetches that have not started on stop, without waiting for the running ones"() {
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0")), dependency(newSelector("org", "bar", "1.0"))])
+        started.await()
+        prefetcher.stop()
+        release.countDown()
+        prefetchExecutor.stop()
+
+        then:
+        2 * metaDataResolver.isFetchingMetadataCheap(_) >> false
+        1 * metaDataResolver.resolve(newId("org", "foo", "1.0"), _, _) >> {
+            started.countDown()
+            release.await()
+        }
+        0 * metaDataResolver._
+    }
+
+    def "ignores failure to fetch meta-data"() {
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([dependency(newSelector("org", "foo", "1.0"))])
+        prefetchExecutor.stop()
+        prefetcher.stop()
+
+        then:
+        1 * metaDataResolver.isFetchingMetadataCheap(_) >> false
+        1 * metaDataResolver.resolve(_, _, _) >> { throw new RuntimeException("broken") }
+        noExceptionThrown()
+    }
+
+    private MetadataPrefetcher prefetcher() {
+        return new MetadataPrefetcher(prefetchExecutor, metaDataResolver, versionSelectorScheme, buildOperationExecutor)
+    }
+
+    private DependencyMetadata dependency(ComponentSelector selector) {
+        return Stub(DependencyMetadata) {
+            getSelector() >> selector
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store
+
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import spock.lang.Specification
+
+class CachedResolvedGraphTest extends Specification {
+    def moduleIdentifierFactory = new DefaultImmutableModuleIdentifierFactory()
+    def cachePolicy = Mock(CachePolicy)
+    def foo = DefaultModuleComponentIdentifier.newId("org", "foo", "1.0")
+    def bar = DefaultModuleComponentIdentifier.newId("org", "bar", "1.2")
+
+    def "is up-to-date when no module must be refreshed"() {
+        def graph = new CachedResolvedGraph(0, new byte[0], [foo, bar], [bar] as Set, [moduleIdentifierFactory.module("org", "bar")] as Set)
+
+        when:
+        def upToDate = graph.isUpToDate(cachePolicy, ModuleReplacementsData.NO_OP, moduleIdentifierFactory, 100)
+
+        then:
+        upToDate
+        1 * cachePolicy.mustRefreshVersionList(moduleIdentifierFactory.module("org", "bar"), [DefaultModuleVersionIdentifier.newId("org", "bar", "1.2")] as Set, 100) >> false
+        1 * cachePolicy.mustRefreshModule(foo, { it.id.name == "foo" }, 100) >> false
+        1 * cachePolicy.mustRefreshChangingModule(bar, { it.id.name == "bar" }, 100) >> false
+        0 * cachePolicy._
+    }
+
+    def "is out-of-date when the version list of a dynamic module must be refreshed"() {
+        def graph = new CachedResolvedGraph(0, new byte[0], [foo, bar], [] as Set, [moduleIdentifierFactory.module("org", "bar")] as Set)
+
+        when:
+        def upToDate = graph.isUpToDate(cachePolicy, ModuleReplacementsData.NO_OP, moduleIdentifierFactory, 100)
+
+        then:
+        !upToDate
+        1 * cachePolicy.mustRefreshVersionList(_, _, 100) >> true
+        0 * cachePolicy._
+    }
+
+    def "is out-of-date when a changing module must be refreshed"() {
+        def graph = new CachedResolvedGraph(0, new byte[0], [foo, bar], [bar] as Set, [] as Set)
+
+        when:
+        def upToDate = graph.isUpToDate(cachePolicy, ModuleReplacementsData.NO_OP, moduleIdentifierFactory, 100)
+
+        then:
+        !upToDate
+        1 * cachePolicy.mustRefreshModule(foo, _, 100) >> false
+        1 * cachePolicy.mustRefreshChangingModule(bar, _, 100) >> true
+    }
+
+    def "is out-of-date when a module participates in replacements"() {
+        def graph = new CachedResolvedGraph(0, new byte[0], [foo], [] as Set, [] as Set)
+        def replacements = Stub(ModuleReplacementsData) {
+            participatesInReplacements(moduleIdentifierFactory.module("org", "foo")) >> true
+        }
+
+        expect:
+        !graph.isUpToDate(cachePolicy, replacements, moduleIdentifierFactory, 100)
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store
+
+import org.gradle.cache.internal.BinaryStore
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class RecordingBinaryStoreTest extends Specification {
+
+    @Rule TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
+
+    def "writes data to target store"() {
+        def target = new DefaultBinaryStore(temp.file("foo.bin"))
+        def store = new RecordingBinaryStore(target)
+
+        when:
+        store.write({ it.writeSmallLong(10) } as BinaryStore.WriteAction)
+        store.write({ it.writeString("x") } as BinaryStore.WriteAction)
+        def data = store.done()
+
+        then:
+        data.read({ it.readSmallLong() } as BinaryStore.ReadAction) == 10
+        data.read({ it.readString() } as BinaryStore.ReadAction) == "x"
+        data.close()
+
+        cleanup:
+        target.close()
+    }
+
+    def "recorded data can be written to another store"() {
+        def target = new DefaultBinaryStore(temp.file("foo.bin"))
+        def store = new RecordingBinaryStore(target)
+        def other = new DefaultBinaryStore(temp.file("other.bin"))
+
+        given:
+        store.write({ it.writeSmallLong(10) } as BinaryStore.WriteAction)
+        store.write({ it.writeString("x") } as BinaryStore.WriteAction)
+        store.done()
+
+        when:
+        other.write({ it.writeBytes(store.recorded) } as BinaryStore.WriteAction)
+        def data = other.done()
+
+        then:
+        data.read({ it.readSmallLong() } as BinaryStore.ReadAction) == 10
+        data.read({ it.readString() } as BinaryStore.ReadAction) == "x"
+        data.close()
+
+        cleanup:
+        target.close()
+        other.close()
+    }
+
+    def "recorded data is not available before data is written to target store"() {
+        def store = new RecordingBinaryStore(Stub(BinaryStore))
+
+        when:
+        store.write({ it.writeString("x") } as BinaryStore.WriteAction)
+        store.recorded
+
+        then:
+        thrown(IllegalStateException)
+    }
+}
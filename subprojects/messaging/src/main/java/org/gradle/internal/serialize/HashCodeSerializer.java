@@ -21,9 +21,17 @@ import org.gradle.internal.hash.HashCode;
 import java.io.IOException;
 
 public class HashCodeSerializer extends AbstractSerializer<HashCode> {
+    private static final int BYTES_128_BIT = 16;
+
     @Override
     public HashCode read(Decoder decoder) throws IOException {
         byte hashSize = decoder.readByte();
+        if (hashSize == BYTES_128_BIT) {
+            // Encoders write longs as 8 bytes in big-endian order, so this is the same format as writing the bytes
+            long mostSignificantBits = decoder.readLong();
+            long leastSignificantBits = decoder.readLong();
+            return HashCode.fromLongs(mostSignificantBits, leastSignificantBits);
+        }
         byte[] hash = new byte[hashSize];
         decoder.readBytes(hash);
         return HashCode.fromBytes(hash);
@@ -31,6 +39,12 @@ public class HashCodeSerializer extends AbstractSerializer<HashCode> {
 
     @Override
     public void write(Encoder encoder, HashCode value) throws IOException {
+        if (value.length() == BYTES_128_BIT) {
+            encoder.writeByte((byte) BYTES_128_BIT);
+            encoder.writeLong(value.getMostSignificantBits());
+            encoder.writeLong(value.getLeastSignificantBits());
+            return;
+        }
         byte[] hash = value.toByteArray();
         encoder.writeByte((byte) hash.length);
         encoder.writeBytes(hash);
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize
+
+import org.gradle.internal.hash.HashCode
+import spock.lang.Unroll
+
+@Unroll
+class HashCodeSerializerTest extends SerializerSpec {
+    def serializer = new HashCodeSerializer()
+
+    def "serializes #length byte hash code as its length followed by its bytes"() {
+        def hash = HashCode.fromString("0123456789abcdef" * 4 + "fedcba98").toByteArray()
+        def bytes = Arrays.copyOf(hash, length)
+        def hashCode = HashCode.fromBytes(bytes)
+
+        when:
+        def serialized = toBytes(hashCode, serializer)
+
+        then:
+        serialized[0] == (byte) length
+        Arrays.copyOfRange(serialized, 1, serialized.length) == bytes
+        fromBytes(serialized, serializer) == hashCode
+
+        where:
+        length << [4, 15, 16, 17, 20, 36]
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.FileBackedIndexedCache;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.hashindex.AppendOnlyPersistentIndexedCache;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the B-tree and the hash indexed cache for a cache from a hash to a hash, such as the resource hashes cache.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class FileBackedIndexedCacheBenchmark {
+    private static final int ENTRY_COUNT = 50000;
+    private static final HashCodeSerializer SERIALIZER = new HashCodeSerializer();
+
+    @Param({"btree", "hashIndex"})
+    String format;
+
+    File cacheDir;
+    HashCode[] keys;
+    FileBackedIndexedCache<HashCode, HashCode> cache;
+    Random random;
+    int nextKey;
+
+    @Setup(Level.Iteration)
+    public void createCache() throws IOException {
+        cacheDir = File.createTempFile("cache", "");
+        cacheDir.delete();
+        random = new Random(1);
+        keys = new HashCode[ENTRY_COUNT * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = HashCode.fromLongs(random.nextLong(), random.nextLong());
+        }
+        cache = openCache();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put(keys[i], keys[keys.length - 1 - i]);
+        }
+        cache.close();
+        cache = openCache();
+        nextKey = ENTRY_COUNT;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeCache() {
+        cache.close();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    private FileBackedIndexedCache<HashCode, HashCode> openCache() {
+        if (format.equals("hashIndex")) {
+            return new AppendOnlyPersistentIndexedCache<HashCode, HashCode>(new File(cacheDir, "cache.log"), new File(cacheDir, "cache.idx"), SERIALIZER, SERIALIZER);
+        }
+        return new BTreePersistentIndexedCache<HashCode, HashCode>(new File(cacheDir, "cache.bin"), SERIALIZER, SERIALIZER);
+    }
+
+    @Benchmark
+    public HashCode randomReads() {
+        return cache.get(keys[random.nextInt(ENTRY_COUNT)]);
+    }
+
+    @Benchmark
+    public HashCode missingReads() {
+        return cache.get(keys[ENTRY_COUNT + random.nextInt(ENTRY_COUNT)]);
+    }
+
+    @Benchmark
+    public void writes() {
+        int key = nextKey++ % keys.length;
+        cache.put(keys[key], keys[keys.length - 1 - key]);
+    }
+
+    @Benchmark
+    public HashCode mixedReadsAndWrites() {
+        int key = random.nextInt(keys.length);
+        if (key % 5 == 0) {
+            cache.put(keys[key], keys[keys.length - 1 - key]);
+            return null;
+        }
+        return cache.get(keys[key]);
+    }
+
+    @Benchmark
+    public HashCode reopenAndRead() {
+        cache.close();
+        cache = openCache();
+        return cache.get(keys[random.nextInt(ENTRY_COUNT)]);
+    }
+
+    /**
+     * Closes and reopens the cache around a write, as happens when the cache lock is released and acquired again.
+     */
+    @Benchmark
+    public void lockCycleWithWrite() {
+        cache.close();
+        if (cache instanceof AppendOnlyPersistentIndexedCache) {
+            ((AppendOnlyPersistentIndexedCache<HashCode, HashCode>) cache).reopen();
+        } else {
+            cache = openCache();
+        }
+        int key = nextKey++ % keys.length;
+        cache.put(keys[key], keys[keys.length - 1 - key]);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.BYTE_ARRAY_SERIALIZER;
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BlockStoreBenchmark {
+    private static final int ENTRY_COUNT = 20000;
+
+    @Param({"file", "mapped"})
+    String store;
+
+    @Param({"128", "4096"})
+    int valueSize;
+
+    File cacheFile;
+    BTreePersistentIndexedCache<String, byte[]> cache;
+    byte[] value;
+    Random random;
+    int nextKey;
+
+    @Setup(Level.Iteration)
+    public void createCache() throws IOException {
+        cacheFile = File.createTempFile("cache", ".bin");
+        cacheFile.delete();
+        cache = new BTreePersistentIndexedCache<String, byte[]>(cacheFile, STRING_SERIALIZER, BYTE_ARRAY_SERIALIZER, (short) 512, 100, createStore(cacheFile));
+        value = new byte[valueSize];
+        random = new Random(1);
+        random.nextBytes(value);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put(key(i), value);
+        }
+        nextKey = ENTRY_COUNT;
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeCache() {
+        cache.close();
+        cacheFile.delete();
+    }
+
+    private BlockStore createStore(File file) {
+        if (store.equals("mapped")) {
+            return new MappedFileBlockStore(file);
+        }
+        return new FileBackedBlockStore(file);
+    }
+
+    private static String key(int i) {
+        return "key-" + i;
+    }
+
+    @Benchmark
+    public byte[] randomReads() {
+        return cache.get(key(random.nextInt(ENTRY_COUNT)));
+    }
+
+    @Benchmark
+    public void sequentialWrites() {
+        cache.put(key(nextKey++), value);
+    }
+
+    @Benchmark
+    public byte[] mixedReadsAndWrites() {
+        int i = random.nextInt(ENTRY_COUNT);
+        if (i % 5 == 0) {
+            cache.put(key(i), value);
+            return value;
+        }
+        return cache.get(key(i));
+    }
+}
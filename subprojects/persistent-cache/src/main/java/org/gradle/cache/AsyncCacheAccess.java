@@ -26,6 +26,14 @@ public interface AsyncCacheAccess {
      */
     void enqueue(Runnable task);
 
+    /**
+     * Submits the given update of the entry with the given key for execution without waiting for the result, and runs the given completion action once the update has completed.
+     *
+     * Has the same ordering guarantees as {@link #enqueue(Runnable)}, except that an implementation may skip an update that has not started yet when a later update of the same key
+     * is submitted before any action is submitted to {@link #read(Factory)}. The completion action of a skipped update runs once the update that replaced it has completed.
+     */
+    void enqueueUpdate(Object key, Runnable update, Runnable completion);
+
     /**
      * Runs the given action, blocking until the result is available.
      *
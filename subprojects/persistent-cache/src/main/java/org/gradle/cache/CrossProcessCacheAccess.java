@@ -18,6 +18,8 @@ package org.gradle.cache;
 
 import org.gradle.internal.Factory;
 
+import javax.annotation.Nullable;
+
 public interface CrossProcessCacheAccess {
     /**
      * Runs the given action while this process is holding an exclusive file lock on the cache. Multiple threads may run concurrently.
@@ -29,4 +31,13 @@ public interface CrossProcessCacheAccess {
      * The lock may be released by any thread.
      */
     Runnable acquireFileLock();
+
+    /**
+     * Runs the given action without acquiring the file lock, provided that the cache has not been changed by another process since this process last held the file lock.
+     * The action must only use state that this process read from the cache while holding the file lock. Multiple threads may run concurrently.
+     *
+     * @return The result of the action, or null when the action returns null or the result may be out of date. The caller should then use {@link #withFileLock(Factory)} instead.
+     */
+    @Nullable
+    <T> T tryWithoutFileLock(Factory<T> factory);
 }
@@ -56,6 +56,28 @@ public interface FileLockManager {
      */
     FileLock lock(File target, LockOptions options, String targetDisplayName, String operationDisplayName, @Nullable Runnable whenContended) throws LockTimeoutException;
 
+    /**
+     * Opens the state of the given target file for reading without acquiring a lock. The state can be compared with the state of a lock previously held on the target file,
+     * to find out whether another process has changed the target file since.
+     *
+     * @param target The locked file.
+     * @param options The options used to lock the file.
+     * @return The reader, or null when the state cannot be read without acquiring the lock.
+     */
+    @Nullable
+    StateReader openStateReader(File target, LockOptions options);
+
+    /**
+     * Reads the state of a target file without acquiring a lock. The state is mapped into memory, so reading it involves no file system access.
+     * The reader does not notice when the lock file is deleted and created again.
+     */
+    interface StateReader {
+        /**
+         * Reads the current state.
+         */
+        FileLock.State readState();
+    }
+
     enum LockMode {
         /**
          * No synchronisation is done.
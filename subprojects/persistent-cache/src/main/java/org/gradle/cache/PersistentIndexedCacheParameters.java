@@ -26,6 +26,22 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private StorageFormat storageFormat = StorageFormat.BTREE;
+
+    /**
+     * The on-disk format used to store the entries of the cache.
+     */
+    public enum StorageFormat {
+        /**
+         * A B-tree of index blocks that updates values in place. Suitable for caches whose values are updated frequently.
+         */
+        BTREE,
+        /**
+         * A hash index over an append-only log of values, compacted when the cache is closed. Suitable for caches
+         * whose small values are written once and read many times.
+         */
+        HASH_INDEX
+    }
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +83,14 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+
+    public PersistentIndexedCacheParameters<K, V> storageFormat(StorageFormat storageFormat) {
+        assert storageFormat != null;
+        this.storageFormat = storageFormat;
+        return this;
+    }
 }
@@ -54,32 +54,30 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
         throw new UnsupportedOperationException();
     }
 
+    @Nullable
+    @Override
+    public V getIfPresent(K key) {
+        return null;
+    }
+
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
+        asyncCacheAccess.enqueueUpdate(key, new Runnable() {
             @Override
             public void run() {
-                try {
-                    persistentCache.put(key, value);
-                } finally {
-                    completion.run();
-                }
+                persistentCache.put(key, value);
             }
-        });
+        }, completion);
     }
 
     @Override
     public void removeLater(final K key, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
+        asyncCacheAccess.enqueueUpdate(key, new Runnable() {
             @Override
             public void run() {
-                try {
-                    persistentCache.remove(key);
-                } finally {
-                    completion.run();
-                }
+                persistentCache.remove(key);
             }
-        });
+        }, completion);
     }
 
     @Override
@@ -13,7 +13,6 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.gradle.cache.internal;
 
 import org.gradle.cache.AsyncCacheAccess;
@@ -25,22 +24,42 @@ import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
 
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Runs the asynchronous operations on the caches of a {@link CacheAccess} in a single thread, batching the operations under the cache lock.
+ *
+ * <p>Each cache gets its own queue of operations, its lane, so that a cache with a long backlog does not block the threads that update other caches.
+ * The worker takes operations from the lanes in turn. Updates of an entry that is still waiting in its lane replace the waiting update.</p>
+ */
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
-    private final BlockingQueue<Runnable> workQueue;
     private final String displayName;
     private final CacheAccess cacheAccess;
+    private final CacheAccessWorkerStatistics statistics;
     private final long batchWindowMillis;
     private final long maximumLockingTimeMillis;
+    private final int laneCapacity;
+    private final Lock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<String, WriteLane> lanesByName = new HashMap<String, WriteLane>();
+    private final List<WriteLane> lanes = new ArrayList<WriteLane>();
+    private final Deque<ControlCommand> controlCommands = new ArrayDeque<ControlCommand>();
+    private final WriteLane defaultLane;
+    private int nextLane;
     private boolean closed;
     private boolean workerCompleted;
     private boolean stopSeen;
@@ -48,53 +67,61 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
+        this(displayName, cacheAccess, new CacheAccessWorkerStatistics());
+    }
+
+    CacheAccessWorker(String displayName, CacheAccess cacheAccess, CacheAccessWorkerStatistics statistics) {
         this.displayName = displayName;
         this.cacheAccess = cacheAccess;
+        this.statistics = statistics;
         this.batchWindowMillis = 200;
         this.maximumLockingTimeMillis = 5000;
         HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
-        int queueCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
-        workQueue = new ArrayBlockingQueue<Runnable>(queueCapacity, true);
+        this.laneCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
+        this.defaultLane = getOrCreateLane(displayName);
     }
 
-    @Override
-    public void enqueue(Runnable task) {
-        addToQueue(task);
+    /**
+     * Returns the lane for the cache with the given name. Operations submitted to the lane run in submission order relative to each other, but not relative to operations of other lanes.
+     */
+    AsyncCacheAccess lane(String cacheName) {
+        return getOrCreateLane(cacheName);
     }
 
-    private void addToQueue(Runnable task) {
-        if (closed) {
-            throw new IllegalStateException("The worker has already been closed. Cannot add more work to queue.");
-        }
+    private WriteLane getOrCreateLane(String cacheName) {
+        lock.lock();
         try {
-            workQueue.put(task);
-        } catch (InterruptedException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
+            WriteLane lane = lanesByName.get(cacheName);
+            if (lane == null) {
+                lane = new WriteLane(cacheName);
+                lanesByName.put(cacheName, lane);
+                lanes.add(lane);
+            }
+            return lane;
+        } finally {
+            lock.unlock();
         }
     }
 
+    @Override
+    public void enqueue(Runnable task) {
+        defaultLane.enqueue(task);
+    }
+
+    @Override
+    public void enqueueUpdate(Object key, Runnable update, Runnable completion) {
+        defaultLane.enqueueUpdate(key, update, completion);
+    }
+
     public <T> T read(final Factory<T> task) {
-        FutureTask<T> futureTask = new FutureTask<T>(new Callable<T>() {
-            @Override
-            public T call() throws Exception {
-                return task.create();
-            }
-        });
-        addToQueue(futureTask);
-        try {
-            return futureTask.get();
-        } catch (ExecutionException e) {
-            throw UncheckedException.throwAsUncheckedException(e.getCause());
-        } catch (InterruptedException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
-        }
+        return defaultLane.read(task);
     }
 
     @Override
     public synchronized void flush() {
         if (!workerCompleted && !closed) {
             FlushOperationsCommand flushOperationsCommand = new FlushOperationsCommand();
-            addToQueue(flushOperationsCommand);
+            addControlCommand(flushOperationsCommand);
             flushOperationsCommand.await();
         }
         rethrowFailure();
@@ -104,12 +131,45 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         failureHandler.onStop();
     }
 
-    private static class FlushOperationsCommand implements Runnable {
-        private CountDownLatch latch = new CountDownLatch(1);
+    private void addControlCommand(ControlCommand command) {
+        lock.lock();
+        try {
+            command.captureTargets();
+            controlCommands.add(command);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A command for the worker thread, which is executed once all operations submitted before the command have completed.
+     */
+    private abstract class ControlCommand implements Runnable {
+        private final Map<WriteLane, Long> targets = new HashMap<WriteLane, Long>();
+
+        void captureTargets() {
+            for (WriteLane lane : lanes) {
+                targets.put(lane, lane.submitted);
+            }
+        }
+
+        boolean isReady() {
+            for (Map.Entry<WriteLane, Long> entry : targets.entrySet()) {
+                if (entry.getKey().completed < entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
         @Override
         public void run() {
         }
+    }
+
+    private class FlushOperationsCommand extends ControlCommand {
+        private CountDownLatch latch = new CountDownLatch(1);
 
         public void await() {
             try {
@@ -151,21 +211,75 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
             failureHandler.onFailure("Failed to execute cache operations on " + displayName, t);
         } finally {
             // Notify any waiting flush threads that the worker is done, possibly with a failure
-            List<Runnable> runnables = new ArrayList<Runnable>();
-            workQueue.drainTo(runnables);
-            for (Runnable runnable : runnables) {
-                if (runnable instanceof FlushOperationsCommand) {
-                    FlushOperationsCommand flushOperationsCommand = (FlushOperationsCommand) runnable;
-                    flushOperationsCommand.completed();
+            lock.lock();
+            try {
+                for (ControlCommand command : controlCommands) {
+                    if (command instanceof FlushOperationsCommand) {
+                        ((FlushOperationsCommand) command).completed();
+                    }
+                }
+                controlCommands.clear();
+                for (WriteLane lane : lanes) {
+                    lane.discardPending();
                 }
+                workerCompleted = true;
+            } finally {
+                lock.unlock();
             }
-            workerCompleted = true;
             doneSignal.countDown();
         }
     }
 
     private Runnable takeFromQueue() throws InterruptedException {
-        return workQueue.take();
+        lock.lock();
+        try {
+            Runnable next;
+            while ((next = nextOperation()) == null) {
+                workAvailable.await();
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    private Runnable pollFromQueue(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            Runnable next;
+            while ((next = nextOperation()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = workAvailable.awaitNanos(nanos);
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the next control command that is ready, or otherwise the next operation from the lanes in turn. Must be called while holding the lock.
+     */
+    @Nullable
+    private Runnable nextOperation() {
+        ControlCommand command = controlCommands.peek();
+        if (command != null && command.isReady()) {
+            return controlCommands.poll();
+        }
+        int laneCount = lanes.size();
+        for (int i = 0; i < laneCount; i++) {
+            WriteLane lane = lanes.get((nextLane + i) % laneCount);
+            PendingOperation operation = lane.poll();
+            if (operation != null) {
+                nextLane = (nextLane + i + 1) % laneCount;
+                return operation;
+            }
+        }
+        return null;
     }
 
     private void flushOperations(final Runnable updateOperation) {
@@ -180,7 +294,7 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                     }
                     Runnable otherOperation;
                     try {
-                        while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
+                        while ((otherOperation = pollFromQueue(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
                             failureHandler.onExecute(otherOperation);
                             final Class<? extends Runnable> runnableClass = otherOperation.getClass();
                             if (runnableClass == FlushOperationsCommand.class) {
@@ -210,24 +324,191 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     public synchronized void stop() {
         if (!closed && !workerCompleted) {
             closed = true;
+            addControlCommand(new ShutdownOperationsCommand());
             try {
-                workQueue.put(new ShutdownOperationsCommand());
+                doneSignal.await();
             } catch (InterruptedException e) {
                 // ignore
             }
+        }
+        rethrowFailure();
+    }
+
+    private class ShutdownOperationsCommand extends ControlCommand {
+    }
+
+    /**
+     * The queue of operations of a single cache.
+     */
+    private class WriteLane implements AsyncCacheAccess {
+        private final String cacheName;
+        private final Deque<PendingOperation> queue = new ArrayDeque<PendingOperation>();
+        // The updates that can still be replaced by a later update of the same key
+        private final Map<Object, PendingOperation> replaceableUpdates = new HashMap<Object, PendingOperation>();
+        private final Condition notFull = lock.newCondition();
+        private long submitted;
+        private long completed;
+
+        WriteLane(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        @Override
+        public String toString() {
+            return cacheName;
+        }
+
+        @Override
+        public void enqueue(Runnable task) {
+            add(null, task, null);
+        }
+
+        @Override
+        public void enqueueUpdate(Object key, Runnable update, Runnable completion) {
+            add(key, update, completion);
+        }
+
+        @Override
+        public <T> T read(final Factory<T> task) {
+            FutureTask<T> futureTask = new FutureTask<T>(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return task.create();
+                }
+            });
+            add(null, futureTask, null);
+            try {
+                return futureTask.get();
+            } catch (ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            CacheAccessWorker.this.flush();
+        }
+
+        private void add(@Nullable Object key, Runnable action, @Nullable Runnable completion) {
+            lock.lock();
             try {
-                doneSignal.await();
+                if (closed) {
+                    throw new IllegalStateException("The worker has already been closed. Cannot add more work to queue.");
+                }
+                submitted++;
+                if (key == null) {
+                    // Later updates must not move in front of this operation
+                    replaceableUpdates.clear();
+                } else if (replace(key, action, completion)) {
+                    return;
+                }
+                if (queue.size() >= laneCapacity) {
+                    long start = System.nanoTime();
+                    while (queue.size() >= laneCapacity) {
+                        notFull.await();
+                    }
+                    statistics.producerBlocked(System.nanoTime() - start);
+                    if (key != null && replace(key, action, completion)) {
+                        return;
+                    }
+                }
+                PendingOperation operation = new PendingOperation(this, key, action, completion);
+                queue.add(operation);
+                if (key != null) {
+                    replaceableUpdates.put(key, operation);
+                }
+                statistics.operationEnqueued(queue.size());
+                workAvailable.signal();
             } catch (InterruptedException e) {
-                // ignore
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                lock.unlock();
             }
         }
-        rethrowFailure();
+
+        private boolean replace(Object key, Runnable update, @Nullable Runnable completion) {
+            PendingOperation pending = replaceableUpdates.get(key);
+            if (pending == null) {
+                return false;
+            }
+            pending.replaceUpdate(update, completion);
+            statistics.updateCoalesced();
+            return true;
+        }
+
+        @Nullable
+        PendingOperation poll() {
+            PendingOperation operation = queue.poll();
+            if (operation != null) {
+                if (operation.key != null && replaceableUpdates.get(operation.key) == operation) {
+                    replaceableUpdates.remove(operation.key);
+                }
+                notFull.signal();
+            }
+            return operation;
+        }
+
+        void operationCompleted(PendingOperation operation) {
+            lock.lock();
+            try {
+                completed += operation.count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void discardPending() {
+            queue.clear();
+            replaceableUpdates.clear();
+            notFull.signalAll();
+        }
     }
 
-    private static class ShutdownOperationsCommand implements Runnable {
+    private static class PendingOperation implements Runnable {
+        private final WriteLane lane;
+        private final Object key;
+        private Runnable action;
+        private List<Runnable> completions;
+        private int count = 1;
+
+        PendingOperation(WriteLane lane, @Nullable Object key, Runnable action, @Nullable Runnable completion) {
+            this.lane = lane;
+            this.key = key;
+            this.action = action;
+            if (completion != null) {
+                completions = new ArrayList<Runnable>(1);
+                completions.add(completion);
+            }
+        }
+
+        void replaceUpdate(Runnable update, @Nullable Runnable completion) {
+            action = update;
+            count++;
+            if (completion != null) {
+                if (completions == null) {
+                    completions = new ArrayList<Runnable>(2);
+                }
+                completions.add(completion);
+            }
+        }
+
         @Override
         public void run() {
-            // do nothing
+            try {
+                action.run();
+            } finally {
+                try {
+                    if (completions != null) {
+                        for (Runnable completion : completions) {
+                            completion.run();
+                        }
+                    }
+                } finally {
+                    lane.operationCompleted(this);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.internal.operations.ResettableStatistics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects statistics from the {@link CacheAccessWorker}s of all caches.
+ */
+public class CacheAccessWorkerStatistics implements ResettableStatistics<CacheAccessWorkerStatistics.Statistics> {
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong producerBlocked = new AtomicLong();
+    private final AtomicLong producerBlockedNanos = new AtomicLong();
+
+    void operationEnqueued(int queueDepth) {
+        enqueued.incrementAndGet();
+        int max = maxQueueDepth.get();
+        while (queueDepth > max && !maxQueueDepth.compareAndSet(max, queueDepth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    void updateCoalesced() {
+        enqueued.incrementAndGet();
+        coalesced.incrementAndGet();
+    }
+
+    void producerBlocked(long nanos) {
+        producerBlocked.incrementAndGet();
+        producerBlockedNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public Statistics getAndResetStatistics() {
+        return new Statistics(enqueued.getAndSet(0), coalesced.getAndSet(0), maxQueueDepth.getAndSet(0), producerBlocked.getAndSet(0), TimeUnit.NANOSECONDS.toMillis(producerBlockedNanos.getAndSet(0)));
+    }
+
+    public static class Statistics implements CacheAccessWorkerStatisticsBuildOperationType.Result {
+        private final long enqueuedOperationCount;
+        private final long coalescedUpdateCount;
+        private final int maxQueueDepth;
+        private final long producerBlockedCount;
+        private final long producerBlockedTimeMillis;
+
+        Statistics(long enqueuedOperationCount, long coalescedUpdateCount, int maxQueueDepth, long producerBlockedCount, long producerBlockedTimeMillis) {
+            this.enqueuedOperationCount = enqueuedOperationCount;
+            this.coalescedUpdateCount = coalescedUpdateCount;
+            this.maxQueueDepth = maxQueueDepth;
+            this.producerBlockedCount = producerBlockedCount;
+            this.producerBlockedTimeMillis = producerBlockedTimeMillis;
+        }
+
+        @Override
+        public long getEnqueuedOperationCount() {
+            return enqueuedOperationCount;
+        }
+
+        @Override
+        public long getCoalescedUpdateCount() {
+            return coalescedUpdateCount;
+        }
+
+        @Override
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        @Override
+        public long getProducerBlockedCount() {
+            return producerBlockedCount;
+        }
+
+        @Override
+        public long getProducerBlockedTimeMillis() {
+            return producerBlockedTimeMillis;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Reports how the asynchronous cache operations queued during a build were processed.
+ *
+ * @since 4.7
+ */
+public final class CacheAccessWorkerStatisticsBuildOperationType implements BuildOperationType<CacheAccessWorkerStatisticsBuildOperationType.Details, CacheAccessWorkerStatisticsBuildOperationType.Result> {
+
+    public interface Details {
+    }
+
+    public interface Result {
+        /**
+         * The number of operations submitted to the queues of the caches.
+         */
+        long getEnqueuedOperationCount();
+
+        /**
+         * The number of updates that replaced a pending update of the same entry instead of being queued.
+         */
+        long getCoalescedUpdateCount();
+
+        /**
+         * The largest number of operations waiting in the queue of a single cache.
+         */
+        int getMaxQueueDepth();
+
+        /**
+         * The number of times a thread had to wait because the queue of a cache was full.
+         */
+        long getProducerBlockedCount();
+
+        /**
+         * The total time threads spent waiting because the queue of a cache was full.
+         */
+        long getProducerBlockedTimeMillis();
+    }
+
+    private CacheAccessWorkerStatisticsBuildOperationType() {
+    }
+}
@@ -44,6 +44,15 @@ public class CrossProcessSynchronizingCache<K, V> implements MultiProcessSafePer
     @Nullable
     @Override
     public V get(final K key) {
+        V value = cacheAccess.tryWithoutFileLock(new Factory<V>() {
+            @Override
+            public V create() {
+                return target.getIfPresent(key);
+            }
+        });
+        if (value != null) {
+            return value;
+        }
         return cacheAccess.withFileLock(new Factory<V>() {
             @Override
             public V create() {
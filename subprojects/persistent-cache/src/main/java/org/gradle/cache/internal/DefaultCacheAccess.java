@@ -19,17 +19,20 @@ import com.google.common.base.Objects;
 import net.jcip.annotations.ThreadSafe;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
-import org.gradle.cache.AsyncCacheAccess;
 import org.gradle.cache.CacheDecorator;
 import org.gradle.cache.FileAccess;
+import org.gradle.cache.FileBackedIndexedCache;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.LockTimeoutException;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.PersistentIndexedCacheParameters.StorageFormat;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStore;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.hashindex.AppendOnlyPersistentIndexedCache;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
@@ -68,6 +71,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private final File baseDir;
     private final CacheCleanupAction cleanupAction;
     private final ExecutorFactory executorFactory;
+    private final CacheAccessWorkerStatistics cacheAccessWorkerStatistics;
     private final FileAccess fileAccess = new UnitOfWorkFileAccess();
     private final Map<String, IndexedCacheEntry<?, ?>> caches = new HashMap<String, IndexedCacheEntry<?, ?>>();
     private final AbstractCrossProcessCacheAccess crossProcessCacheAccess;
@@ -86,10 +90,15 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private int cacheClosedCount;
 
     public DefaultCacheAccess(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupAction cleanupAction, ExecutorFactory executorFactory) {
+        this(cacheDisplayName, lockTarget, lockOptions, baseDir, lockManager, initializationAction, cleanupAction, executorFactory, new CacheAccessWorkerStatistics());
+    }
+
+    public DefaultCacheAccess(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupAction cleanupAction, ExecutorFactory executorFactory, CacheAccessWorkerStatistics cacheAccessWorkerStatistics) {
         this.cacheDisplayName = cacheDisplayName;
         this.baseDir = baseDir;
         this.cleanupAction = cleanupAction;
         this.executorFactory = executorFactory;
+        this.cacheAccessWorkerStatistics = cacheAccessWorkerStatistics;
         this.operations = new CacheAccessOperationsStack();
 
         Action<FileLock> onFileLockAcquireAction = new Action<FileLock>() {
@@ -120,9 +129,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
-    private synchronized AsyncCacheAccess getCacheAccessWorker() {
+    private synchronized CacheAccessWorker getCacheAccessWorker() {
         if (cacheAccessWorker == null) {
-            cacheAccessWorker = new CacheAccessWorker(cacheDisplayName, this);
+            cacheAccessWorker = new CacheAccessWorker(cacheDisplayName, this, cacheAccessWorkerStatistics);
             cacheUpdateExecutor = executorFactory.create("Cache worker for " + cacheDisplayName);
             cacheUpdateExecutor.execute(cacheAccessWorker);
         }
@@ -282,18 +291,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
         IndexedCacheEntry<K, V> entry = Cast.uncheckedCast(caches.get(parameters.getCacheName()));
         try {
             if (entry == null) {
-                final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                final File cacheFile = new File(baseDir, parameters.getCacheName() + (parameters.getStorageFormat() == StorageFormat.HASH_INDEX ? ".log" : ".bin"));
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-                    public BTreePersistentIndexedCache<K, V> create() {
-                        return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
-                    }
-                };
+                Factory<FileBackedIndexedCache<K, V>> indexedCacheFactory = createIndexedCacheFactory(cacheFile, parameters);
 
                 MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
                 CacheDecorator decorator = parameters.getCacheDecorator();
                 if (decorator != null) {
-                    indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
+                    indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker().lane(parameters.getCacheName()));
                     if (fileLock == null) {
                         useCache(NO_OP);
                     }
@@ -312,8 +317,33 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    /**
+     * Creates the factory for the backing cache, which is called to open the backing cache again every time the file lock is acquired.
+     */
+    <K, V> Factory<FileBackedIndexedCache<K, V>> createIndexedCacheFactory(final File cacheFile, final PersistentIndexedCacheParameters<K, V> parameters) {
+        if (parameters.getStorageFormat() == StorageFormat.HASH_INDEX) {
+            final File indexFile = new File(baseDir, parameters.getCacheName() + ".idx");
+            // Reopen the same cache for each lock, so that it does not load its whole index every time
+            return new Factory<FileBackedIndexedCache<K, V>>() {
+                private AppendOnlyPersistentIndexedCache<K, V> cache;
+
+                public FileBackedIndexedCache<K, V> create() {
+                    if (cache == null) {
+                        cache = new AppendOnlyPersistentIndexedCache<K, V>(cacheFile, indexFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                    } else {
+                        cache.reopen();
+                    }
+                    return cache;
+                }
+            };
+        }
+        // Share the block store between the caches opened for each lock, so that it can keep its state while the cache is closed
+        final BlockStore blockStore = BTreePersistentIndexedCache.createBlockStore(cacheFile);
+        return new Factory<FileBackedIndexedCache<K, V>>() {
+            public FileBackedIndexedCache<K, V> create() {
+                return new BTreePersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer(), blockStore);
+            }
+        };
     }
 
     /**
@@ -444,6 +474,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleStorageFormat(faultMessages, parameters.getStorageFormat());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -486,6 +517,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleStorageFormat(Collection<String> faultMessages, StorageFormat storageFormat) {
+            if (storageFormat != parameters.getStorageFormat()) {
+                faultMessages.add(
+                    String.format(" * Requested storage format (%s) doesn't match current storage format (%s)",
+                        storageFormat, parameters.getStorageFormat()));
+            }
+        }
     }
 
     private static class InvalidCacheReuseException extends GradleException {
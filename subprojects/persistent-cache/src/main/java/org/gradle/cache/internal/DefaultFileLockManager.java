@@ -43,6 +43,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -104,6 +106,33 @@ public class DefaultFileLockManager implements FileLockManager {
         }
     }
 
+    public StateReader openStateReader(File target, LockOptions options) {
+        File lockFile = determineLockTargetFile(target);
+        final LockStateAccess lockStateAccess = new LockStateAccess(stateProtocol(options));
+        try {
+            RandomAccessFile lockFileAccess = new RandomAccessFile(lockFile, "r");
+            try {
+                final ByteBuffer stateRegion = lockStateAccess.mapState(lockFileAccess);
+                return new StateReader() {
+                    @Override
+                    public FileLock.State readState() {
+                        return lockStateAccess.readState(stateRegion);
+                    }
+                };
+            } finally {
+                lockFileAccess.close();
+            }
+        } catch (IOException e) {
+            // Missing lock file, or a lock file without state
+            LOGGER.debug("Could not map the state of lock file {}", lockFile, e);
+            return null;
+        }
+    }
+
+    private static LockStateSerializer stateProtocol(LockOptions options) {
+        return options.isUseCrossVersionImplementation() ? new Version1LockStateSerializer() : new DefaultLockStateSerializer();
+    }
+
     static File determineLockTargetFile(File target) {
         if (target.isDirectory()) {
             return new File(target, target.getName() + ".lock");
@@ -145,8 +174,7 @@ public class DefaultFileLockManager implements FileLockManager {
                 throw e;
             }
 
-            LockStateSerializer stateProtocol = options.isUseCrossVersionImplementation() ? new Version1LockStateSerializer() : new DefaultLockStateSerializer();
-            lockFileAccess = new LockFileAccess(lockFile, new LockStateAccess(stateProtocol));
+            lockFileAccess = new LockFileAccess(lockFile, new LockStateAccess(stateProtocol(options)));
             try {
                 if (whenContended != null) {
                     fileLockContentionHandler.start(lockId, whenContended);
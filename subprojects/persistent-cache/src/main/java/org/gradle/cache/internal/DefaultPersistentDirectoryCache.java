@@ -47,7 +47,11 @@ public class DefaultPersistentDirectoryCache extends DefaultPersistentDirectoryS
     private boolean didRebuild;
 
     public DefaultPersistentDirectoryCache(File dir, String displayName, CacheValidator validator, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, Action<? super PersistentCache> initAction, CleanupAction cleanupAction, FileLockManager lockManager, ExecutorFactory executorFactory) {
-        super(dir, displayName, lockTarget, lockOptions, lockManager, executorFactory);
+        this(dir, displayName, validator, properties, lockTarget, lockOptions, initAction, cleanupAction, lockManager, executorFactory, new CacheAccessWorkerStatistics());
+    }
+
+    public DefaultPersistentDirectoryCache(File dir, String displayName, CacheValidator validator, Map<String, ?> properties, CacheBuilder.LockTarget lockTarget, LockOptions lockOptions, Action<? super PersistentCache> initAction, CleanupAction cleanupAction, FileLockManager lockManager, ExecutorFactory executorFactory, CacheAccessWorkerStatistics cacheAccessWorkerStatistics) {
+        super(dir, displayName, lockTarget, lockOptions, lockManager, executorFactory, cacheAccessWorkerStatistics);
         this.validator = validator;
         this.initAction = initAction;
         this.cleanupAction = cleanupAction;
@@ -131,6 +131,11 @@ public class FixedSharedModeCrossProcessCacheAccess extends AbstractCrossProcess
         throw failure();
     }
 
+    @Override
+    public <T> T tryWithoutFileLock(Factory<T> factory) {
+        return null;
+    }
+
     protected UnsupportedOperationException failure() {
         return new UnsupportedOperationException("Cannot escalate a shared lock to an exclusive lock. This is not yet supported.");
     }
@@ -25,6 +25,7 @@ import org.gradle.internal.UncheckedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.concurrent.locks.Lock;
 
@@ -43,6 +44,10 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
     private FileLock fileLock;
     private CacheInitializationAction initAction;
     private boolean contended;
+    // The cache state that reads without the file lock can rely on. Replaced whenever the file lock is acquired or released, and null while this happens
+    private volatile OptimisticReadState optimisticReadState;
+    // Reads the state of the lock file without the lock. Kept across lock cycles, so that the lock file is not mapped again each time the lock is released
+    private FileLockManager.StateReader stateReader;
 
     /**
      * Actions are notified when lock is opened or closed. Actions are called while holding state lock, so that no other threads are working with cache while these are running.
@@ -77,6 +82,8 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
                 throw new IllegalStateException(String.format("Cannot close cache access for %s as it is currently in use for %s operations.", cacheDisplayName, lockCount));
             }
             releaseLockIfHeld();
+            optimisticReadState = null;
+            stateReader = null;
         } finally {
             stateLock.unlock();
         }
@@ -102,6 +109,7 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("Acquiring file lock for {}", cacheDisplayName);
                 }
+                optimisticReadState = null;
                 fileLock = lockManager.lock(lockTarget, lockOptions, cacheDisplayName, "", whenContended);
                 try {
                     if (initAction.requiresInitialization(fileLock)) {
@@ -118,6 +126,7 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
                     fileLock = null;
                     throw UncheckedException.throwAsUncheckedException(e);
                 }
+                optimisticReadState = new OptimisticReadState(null, null);
             }
             lockCount++;
         } finally {
@@ -147,13 +156,37 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Releasing file lock for {}", cacheDisplayName);
         }
+        optimisticReadState = null;
+        FileLock.State stateAtRelease;
         try {
             onClose.execute(fileLock);
+            stateAtRelease = fileLock.getState();
         } finally {
             fileLock.close();
             fileLock = null;
             contended = false;
         }
+        if (stateAtRelease.canDetectChanges()) {
+            FileLockManager.StateReader stateReader = getStateReader(stateAtRelease);
+            if (stateReader != null) {
+                optimisticReadState = new OptimisticReadState(stateAtRelease, stateReader);
+            }
+        }
+    }
+
+    /**
+     * Returns a reader for the state of the lock file, which has just been released with the given state. A reader opened earlier is only reused
+     * when it reads that state, as it would not notice that the lock file has been deleted and created again.
+     */
+    @Nullable
+    private FileLockManager.StateReader getStateReader(FileLock.State stateAtRelease) {
+        if (stateReader != null && stateReader.readState().hasBeenUpdatedSince(stateAtRelease)) {
+            stateReader = null;
+        }
+        if (stateReader == null) {
+            stateReader = lockManager.openStateReader(lockTarget, lockOptions);
+        }
+        return stateReader;
     }
 
     @Override
@@ -162,6 +195,23 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
         return unlocker;
     }
 
+    @Override
+    public <T> T tryWithoutFileLock(Factory<T> factory) {
+        OptimisticReadState readState = optimisticReadState;
+        if (readState == null) {
+            return null;
+        }
+        T result = factory.create();
+        if (result == null || optimisticReadState != readState) {
+            // The file lock was acquired or released while running the action
+            return null;
+        }
+        if (readState.stateAtRelease != null && !readState.isUnchanged()) {
+            return null;
+        }
+        return result;
+    }
+
     private class ContendedAction implements Runnable {
         @Override
         public void run() {
@@ -181,6 +231,28 @@ class LockOnDemandCrossProcessCacheAccess extends AbstractCrossProcessCacheAcces
         }
     }
 
+    /**
+     * The state of the cache at the point where this process last acquired or released the file lock.
+     */
+    private static class OptimisticReadState {
+        // Both null while this process holds the file lock
+        @Nullable
+        private final FileLock.State stateAtRelease;
+        @Nullable
+        private final FileLockManager.StateReader stateReader;
+
+        OptimisticReadState(@Nullable FileLock.State stateAtRelease, @Nullable FileLockManager.StateReader stateReader) {
+            this.stateAtRelease = stateAtRelease;
+            this.stateReader = stateReader;
+        }
+
+        boolean isUnchanged() {
+            FileLock.State currentState = stateReader.readState();
+            // A dirty state is read as the initial state, so this also rejects a cache that is being updated by another process
+            return !currentState.isInInitialState() && !currentState.hasBeenUpdatedSince(stateAtRelease);
+        }
+    }
+
     private class UnlockAction implements Runnable {
         @Override
         public void run() {
@@ -30,6 +30,14 @@ public interface MultiProcessSafeAsyncPersistentIndexedCache<K, V> extends UnitO
     @Nullable
     V get(K key);
 
+    /**
+     * Fetches the given entry if it is available without reading the backing cache, for example from an in-memory copy. Does not block.
+     *
+     * @return The entry, or null when the entry is not available in this way.
+     */
+    @Nullable
+    V getIfPresent(K key);
+
     /**
      * Fetches the given entry, producing if necessary, blocking until the result is available. This method may or may not block until any updates have completed and will invoke the given completion action when the operation is complete.
      */
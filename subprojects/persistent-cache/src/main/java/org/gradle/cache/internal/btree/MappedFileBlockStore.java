@@ -0,0 +1,384 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that reads its file through read-only memory mapped regions, instead of seeking and then reading the file for every block.
+ * Blocks are written to the file in the same way as {@link FileBackedBlockStore}, and the file uses the same format.
+ *
+ * <p>Regions are mapped on first read and never extend beyond the end of the file, so mapping never grows the file. The mapped regions are kept when
+ * the store is closed, as the store is closed and reopened every time the cache lock is released and acquired again. On open, they are reused when the
+ * file is still the same file and has not become shorter than the mapped part. Otherwise they are dropped, and released when they are garbage collected.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    static final int DEFAULT_REGION_SIZE = 4 * 1024 * 1024;
+
+    private final File cacheFile;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private final RegionInputStream input = new RegionInputStream();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private ByteOutput output;
+    private long nextBlock;
+    private Factory factory;
+    private long currentFileSize;
+    private long mappedSize;
+    // Identify the file the regions map, to decide whether they can be reused when the store is opened again
+    private Object mappedFileKey;
+    private long lengthAtClose;
+    private long lastModifiedAtClose;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            output = new ByteOutput(file);
+            currentFileSize = file.length();
+            nextBlock = currentFileSize;
+            if (!canReuseRegions()) {
+                dropRegions();
+            }
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        try {
+            // The mapped regions remain valid after the file is closed
+            file.close();
+            lengthAtClose = cacheFile.length();
+            lastModifiedAtClose = cacheFile.lastModified();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        try {
+            dropRegions();
+            file.setLength(0);
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * The regions can be reused when they map the same file, and the file has not been truncated since they were mapped. Changes made by other
+     * processes to a file that is still the same file are visible through the mapping. The file key is not available on all platforms, so
+     * otherwise the regions are only reused when the file has not changed at all since the store was closed.
+     */
+    private boolean canReuseRegions() throws IOException {
+        if (regions.isEmpty()) {
+            mappedFileKey = fileKey();
+            return true;
+        }
+        if (currentFileSize < mappedSize) {
+            return false;
+        }
+        Object fileKey = fileKey();
+        if (fileKey != null) {
+            return fileKey.equals(mappedFileKey);
+        }
+        return currentFileSize == lengthAtClose && cacheFile.lastModified() == lastModifiedAtClose;
+    }
+
+    private Object fileKey() throws IOException {
+        return Files.readAttributes(cacheFile.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private void dropRegions() throws IOException {
+        // The dropped regions are released when they are garbage collected, they must not be used after this point
+        regions.clear();
+        mappedSize = 0;
+        mappedFileKey = fileKey();
+    }
+
+    /**
+     * Maps regions until the given number of bytes from the start of the file are mapped. Regions are only mapped up to the end of the file,
+     * and the last region is mapped again when the file has grown since it was mapped.
+     */
+    private void mapUpTo(long size) throws IOException {
+        assert size <= currentFileSize;
+        while (mappedSize < size) {
+            int index = (int) (mappedSize / regionSize);
+            long regionStart = (long) index * regionSize;
+            long regionLength = Math.min(regionSize, currentFileSize - regionStart);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionLength);
+            if (index < regions.size()) {
+                regions.set(index, region);
+            } else {
+                regions.add(region);
+            }
+            mappedSize = regionStart + regionLength;
+        }
+    }
+
+    private MappedByteBuffer regionAt(long pos) {
+        return regions.get((int) (pos / regionSize));
+    }
+
+    private final class RegionInputStream extends InputStream {
+        private long position;
+        private long count;
+
+        DataInputStream start(long offset) {
+            position = offset;
+            count = 0;
+            return new DataInputStream(this);
+        }
+
+        long getBytesRead() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= currentFileSize) {
+                return -1;
+            }
+            mapUpTo(position + 1);
+            int value = regionAt(position).get((int) (position % regionSize)) & 0xFF;
+            position++;
+            count++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= currentFileSize) {
+                return -1;
+            }
+            int offsetInRegion = (int) (position % regionSize);
+            int n = (int) Math.min(Math.min(len, regionSize - offsetInRegion), currentFileSize - position);
+            mapUpTo(position + n);
+            MappedByteBuffer region = regionAt(position);
+            region.position(offsetInRegion);
+            region.get(bytes, off, n);
+            position += n;
+            count += n;
+            return n;
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            DataOutputStream outputStream = output.start(pos);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = output.getBytesWritten();
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            output.done();
+
+            // Pad
+            if (currentFileSize < finalSize) {
+                file.setLength(finalSize);
+                currentFileSize = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            DataInputStream inputStream = input.start(pos);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = input.getBytesRead();
+            long count = inputStream.readInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.gradle.cache.internal.filelock;
 
+import org.gradle.internal.UncheckedException;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -22,6 +24,8 @@ import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 
@@ -60,20 +64,50 @@ public class LockStateAccess {
     }
 
     public LockState readState(RandomAccessFile lockFileAccess) throws IOException {
-        try {
-            byte[] buffer = new byte[stateRegionSize];
-            lockFileAccess.seek(REGION_START);
+        byte[] buffer = new byte[stateRegionSize];
+        lockFileAccess.seek(REGION_START);
 
-            int readPos = 0;
-            while (readPos < buffer.length) {
-                int nread = lockFileAccess.read(buffer, readPos, buffer.length - readPos);
-                if (nread < 0) {
-                    break;
-                }
-                readPos += nread;
+        int readPos = 0;
+        while (readPos < buffer.length) {
+            int nread = lockFileAccess.read(buffer, readPos, buffer.length - readPos);
+            if (nread < 0) {
+                break;
             }
+            readPos += nread;
+        }
+        return readState(buffer, readPos);
+    }
+
+    /**
+     * Maps the state region of the given lock file, to read the state with {@link #readState(ByteBuffer)}. The mapping stays valid after the file is closed.
+     *
+     * @throws IOException when the file does not hold a state.
+     */
+    public ByteBuffer mapState(RandomAccessFile lockFileAccess) throws IOException {
+        if (lockFileAccess.length() < stateRegionSize) {
+            throw new EOFException("Lock file does not hold a state.");
+        }
+        return lockFileAccess.getChannel().map(FileChannel.MapMode.READ_ONLY, REGION_START, stateRegionSize);
+    }
 
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(buffer, 0, readPos);
+    /**
+     * Reads the state from a region mapped by {@link #mapState(RandomAccessFile)}. Can be called concurrently.
+     */
+    public LockState readState(ByteBuffer stateRegion) {
+        byte[] buffer = new byte[stateRegionSize];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = stateRegion.get(i);
+        }
+        try {
+            return readState(buffer, buffer.length);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private LockState readState(byte[] buffer, int length) throws IOException {
+        try {
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(buffer, 0, length);
             DataInputStream dataInput = new DataInputStream(inputStream);
 
             byte protocolVersion = dataInput.readByte();
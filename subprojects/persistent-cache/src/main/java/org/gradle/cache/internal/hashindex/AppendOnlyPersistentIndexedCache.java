@@ -0,0 +1,832 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.hashindex;
+
+import com.google.common.io.ByteStreams;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.FileBackedIndexedCache;
+import org.gradle.cache.internal.btree.KeyHasher;
+import org.gradle.internal.io.RandomAccessFileInputStream;
+import org.gradle.internal.os.OperatingSystem;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A {@link FileBackedIndexedCache} for caches that are mostly written once and read many times, such as caches from a hash to a small value.
+ *
+ * <p>Values are appended to a log file and never updated in place. An open addressing hash index maps the hash of each key to the location
+ * of its latest value in the log. The index is held in memory. When the cache is closed, the changes made to the index since it was last
+ * written are appended to an index file as a batch. Values that have been replaced or removed stay in the log until the cache is closed with
+ * more garbage than live values in the log, at which point the live values are copied to a new log and the index file is rewritten.
+ * The index file is also rewritten when its batches take more than twice the space of the index.</p>
+ *
+ * <p>The cache is closed every time the cache lock is released. Use {@link #reopen()} to open it again: the index held in memory is then
+ * brought up to date by applying the batches that other processes have appended to the index file since, and the log records that follow
+ * them. The whole index is only loaded again when the log or the index file has been replaced.</p>
+ *
+ * <p>When the index file is missing or does not match the log, for example after a crash, the index is rebuilt by scanning the log.</p>
+ *
+ * <p>Except on Windows, values that have been written to the log are read through read-only mappings of the log, so that reading a value
+ * does not seek and read the log file. The log is mapped in fixed size regions. A region is mapped when a value in it is first read, once the
+ * log has been written past the end of the region, and stays mapped until the log is replaced. Values in the last, partly written region,
+ * and values that span two regions, are read from the log file.</p>
+ */
+public class AppendOnlyPersistentIndexedCache<K, V> implements FileBackedIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppendOnlyPersistentIndexedCache.class);
+
+    private static final int LOG_MAGIC = 0x47414c47;
+    private static final int INDEX_MAGIC = 0x47414958;
+    private static final int VERSION = 1;
+    private static final int INDEX_VERSION = 2;
+    // magic, version, log id
+    private static final int LOG_HEADER_SIZE = 4 + 4 + 8;
+    // key hash, value length
+    private static final int RECORD_HEADER_SIZE = 8 + 4;
+    // magic, version, log id, index file id
+    private static final int INDEX_HEADER_SIZE = 4 + 4 + 8 + 8;
+    // log length before the batch, log length after the batch, garbage, entry count
+    private static final int BATCH_HEADER_SIZE = 8 + 8 + 8 + 4;
+    // key hash, record offset, value length
+    private static final int INDEX_ENTRY_SIZE = 8 + 8 + 4;
+    private static final int REMOVED = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    static final int DEFAULT_MAPPED_REGION_SIZE = 1024 * 1024;
+
+    private final File logFile;
+    private final File indexFile;
+    private final KeyHasher<K> keyHasher;
+    private final Serializer<V> serializer;
+    private final AppendBuffer pending = new AppendBuffer();
+    private final AppendBuffer indexChanges = new AppendBuffer();
+    private final Random random = new Random();
+    private final int mappedRegionSize;
+    private final List<MappedByteBuffer> mappedRegions = new ArrayList<MappedByteBuffer>();
+
+    private RandomAccessFile log;
+    private long logId;
+    private long flushedLength;
+    private long garbage;
+    // Whether the index held in memory matches the files as they were when the cache was closed
+    private boolean loaded;
+    private long indexId;
+    // The length of the log covered by the index file, and the length of the batches of the index file that have been applied
+    private long indexedLength;
+    private long indexFileLength;
+    private int indexChangeCount;
+
+    // The open addressing index, an empty slot has offset 0
+    private long[] hashes;
+    private long[] offsets;
+    private int[] lengths;
+    private int mask;
+    private int size;
+
+    public AppendOnlyPersistentIndexedCache(File logFile, File indexFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        // A mapped file cannot be replaced or truncated on Windows while the mapping is in use
+        this(logFile, indexFile, keySerializer, valueSerializer, OperatingSystem.current().isWindows() ? 0 : DEFAULT_MAPPED_REGION_SIZE);
+    }
+
+    /**
+     * @param mappedRegionSize The size of the regions in which the log is mapped, or 0 to never map the log.
+     */
+    AppendOnlyPersistentIndexedCache(File logFile, File indexFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, int mappedRegionSize) {
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+        this.keyHasher = new KeyHasher<K>(keySerializer);
+        this.serializer = valueSerializer;
+        this.mappedRegionSize = mappedRegionSize;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException("Could not open " + this + ".", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + logFile.getName() + " (" + logFile + ")";
+    }
+
+    /**
+     * Opens the cache again after it has been closed, reusing the index held in memory.
+     */
+    public void reopen() {
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException("Could not open " + this + ".", e);
+        }
+    }
+
+    private void open() throws Exception {
+        LOGGER.debug("Opening {}", this);
+        logFile.getParentFile().mkdirs();
+        log = new RandomAccessFile(logFile, "rw");
+        boolean reuseIndex = loaded;
+        loaded = false;
+        try {
+            if (!reuseIndex || !update()) {
+                doOpen();
+            }
+        } catch (CorruptedCacheException e) {
+            rebuild();
+        }
+        loaded = true;
+    }
+
+    private void doOpen() throws IOException {
+        clearIndex();
+        mappedRegions.clear();
+        long length = log.length();
+        if (length == 0) {
+            initLog();
+            return;
+        }
+        logId = readLogId(length);
+        flushedLength = length;
+
+        if (!readIndex(INDEX_HEADER_SIZE) || indexedLength > length) {
+            LOGGER.debug("Rebuilding index for {}", this);
+            clearIndex();
+            indexFileLength = -1;
+            replay(LOG_HEADER_SIZE);
+        } else if (indexedLength < length) {
+            replay(indexedLength);
+        }
+    }
+
+    /**
+     * Brings the index held in memory up to date with the changes made by other processes since the cache was closed. Returns false when
+     * the log or the index file has been replaced, and the index must be loaded again.
+     */
+    private boolean update() throws IOException {
+        long length = log.length();
+        if (length < flushedLength || readLogId(length) != logId) {
+            return false;
+        }
+        if (indexFileLength >= 0 && !readIndex(indexFileLength)) {
+            return false;
+        }
+        if (indexedLength > length) {
+            return false;
+        }
+        if (indexedLength < length) {
+            replay(indexedLength);
+        } else {
+            flushedLength = length;
+        }
+        return true;
+    }
+
+    private long readLogId(long length) throws IOException {
+        if (length < LOG_HEADER_SIZE) {
+            throw new CorruptedCacheException("Log header is truncated.");
+        }
+        byte[] header = new byte[LOG_HEADER_SIZE];
+        log.seek(0);
+        log.readFully(header);
+        if (getInt(header, 0) != LOG_MAGIC || getInt(header, 4) != VERSION) {
+            throw new CorruptedCacheException("Unexpected log header.");
+        }
+        return getLong(header, 8);
+    }
+
+    private void initLog() throws IOException {
+        mappedRegions.clear();
+        logId = random.nextLong();
+        log.setLength(0);
+        log.seek(0);
+        log.writeInt(LOG_MAGIC);
+        log.writeInt(VERSION);
+        log.writeLong(logId);
+        flushedLength = LOG_HEADER_SIZE;
+        garbage = 0;
+        indexedLength = LOG_HEADER_SIZE;
+        indexFileLength = -1;
+    }
+
+    private void rebuild() throws IOException {
+        LOGGER.warn("{} is corrupt. Discarding.", this);
+        pending.reset();
+        clearIndex();
+        initLog();
+    }
+
+    /**
+     * Applies the batches of the index file from the given position to the index held in memory. Ignores a partially written batch at the end
+     * of the index file. Returns false when the index file does not match the log or the index held in memory.
+     */
+    private boolean readIndex(long from) throws IOException {
+        long indexLength = indexFile.length();
+        if (!indexFile.isFile() || indexLength < from) {
+            return false;
+        }
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION || input.readLong() != logId) {
+                return false;
+            }
+            long id = input.readLong();
+            if (from == INDEX_HEADER_SIZE) {
+                indexId = id;
+            } else if (id != indexId) {
+                return false;
+            }
+            ByteStreams.skipFully(input, from - INDEX_HEADER_SIZE);
+
+            long pos = from;
+            while (pos + BATCH_HEADER_SIZE <= indexLength) {
+                long fromLength = input.readLong();
+                long toLength = input.readLong();
+                long batchGarbage = input.readLong();
+                int entryCount = input.readInt();
+                long end = pos + BATCH_HEADER_SIZE + (long) entryCount * INDEX_ENTRY_SIZE;
+                if (entryCount < 0 || end > indexLength) {
+                    break;
+                }
+                if (fromLength != indexedLength || toLength < fromLength) {
+                    return false;
+                }
+                for (int i = 0; i < entryCount; i++) {
+                    long hash = input.readLong();
+                    long offset = input.readLong();
+                    int length = input.readInt();
+                    if (length == REMOVED) {
+                        unindex(hash);
+                    } else if (offset < fromLength || length < 0 || offset + RECORD_HEADER_SIZE + length > toLength) {
+                        return false;
+                    } else {
+                        index(hash, offset, length);
+                    }
+                }
+                garbage = batchGarbage;
+                indexedLength = toLength;
+                pos = end;
+            }
+            indexFileLength = pos;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Adds the records of the log from the given offset to the index. Drops a partially written record at the end of the log.
+     */
+    private void replay(long from) throws IOException {
+        long logLength = log.length();
+        long pos = from;
+        log.seek(from);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new RandomAccessFileInputStream(log)));
+        while (pos + RECORD_HEADER_SIZE <= logLength) {
+            long hash = input.readLong();
+            int length = input.readInt();
+            if (length == REMOVED) {
+                unindex(hash);
+                garbage += RECORD_HEADER_SIZE;
+                addIndexChange(hash, 0, REMOVED);
+            } else if (length < 0 || pos + RECORD_HEADER_SIZE + length > logLength) {
+                break;
+            } else {
+                input.skipBytes(length);
+                index(hash, pos, length);
+                addIndexChange(hash, pos, length);
+            }
+            pos += RECORD_HEADER_SIZE + Math.max(length, 0);
+        }
+        if (pos < logLength) {
+            LOGGER.debug("Discarding partially written entry at the end of {}", this);
+            log.setLength(pos);
+        }
+        flushedLength = pos;
+    }
+
+    public V get(K key) {
+        try {
+            long hash = keyHasher.getHashCode(key);
+            int slot = find(hash);
+            if (slot < 0) {
+                return null;
+            }
+            long offset = offsets[slot];
+            int length = lengths[slot];
+            ByteBuffer mappedRecord = mapRecord(offset, length);
+            if (mappedRecord != null) {
+                if (mappedRecord.getLong(mappedRecord.position()) != hash || mappedRecord.getInt(mappedRecord.position() + 8) != length) {
+                    rebuild();
+                    return null;
+                }
+                mappedRecord.position(mappedRecord.position() + RECORD_HEADER_SIZE);
+                return serializer.read(new KryoBackedDecoder(new ByteBufferInputStream(mappedRecord)));
+            }
+            byte[] record = readRecord(offset, length);
+            if (getLong(record, 0) != hash || getInt(record, 8) != length) {
+                rebuild();
+                return null;
+            }
+            return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(record, RECORD_HEADER_SIZE, length)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            long hash = keyHasher.getHashCode(key);
+            int start = pending.size();
+            append(hash, value);
+            long offset = flushedLength + start;
+            int length = pending.size() - start - RECORD_HEADER_SIZE;
+            index(hash, offset, length);
+            addIndexChange(hash, offset, length);
+            if (pending.size() >= WRITE_BUFFER_SIZE) {
+                flushPending();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    private void append(long hash, V value) throws Exception {
+        int start = pending.size();
+        pending.writeLong(hash);
+        pending.writeInt(0);
+        try {
+            KryoBackedEncoder encoder = new KryoBackedEncoder(pending, 512);
+            serializer.write(encoder, value);
+            encoder.flush();
+        } catch (Exception e) {
+            pending.truncate(start);
+            throw e;
+        }
+        pending.setInt(start + 8, pending.size() - start - RECORD_HEADER_SIZE);
+    }
+
+    public void remove(K key) {
+        try {
+            long hash = keyHasher.getHashCode(key);
+            if (!unindex(hash)) {
+                return;
+            }
+            pending.writeLong(hash);
+            pending.writeInt(REMOVED);
+            garbage += RECORD_HEADER_SIZE;
+            addIndexChange(hash, 0, REMOVED);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        boolean written = false;
+        try {
+            try {
+                flushPending();
+                if (garbage > (flushedLength - LOG_HEADER_SIZE) / 2) {
+                    compact();
+                }
+                if (indexFileLength < 0) {
+                    writeIndex();
+                } else if (indexedLength != flushedLength) {
+                    long fullIndexLength = INDEX_HEADER_SIZE + BATCH_HEADER_SIZE + (long) size * INDEX_ENTRY_SIZE;
+                    if (indexFileLength + BATCH_HEADER_SIZE + indexChanges.size() > 2 * fullIndexLength) {
+                        writeIndex();
+                    } else {
+                        appendIndex();
+                    }
+                }
+                written = true;
+            } finally {
+                // Keep the index and the mapped regions for reopen, unless they may not match the files
+                loaded = written;
+                if (!written) {
+                    mappedRegions.clear();
+                }
+                log.close();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushPending() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        log.seek(flushedLength);
+        pending.writeTo(log);
+        flushedLength += pending.size();
+        pending.reset();
+    }
+
+    /**
+     * Returns a view of the mapped region of the log positioned at the given record, or null when the record cannot be read through a mapped region.
+     */
+    private ByteBuffer mapRecord(long offset, int length) throws IOException {
+        if (mappedRegionSize == 0) {
+            return null;
+        }
+        long regionIndex = offset / mappedRegionSize;
+        long regionStart = regionIndex * mappedRegionSize;
+        long regionEnd = regionStart + mappedRegionSize;
+        long end = offset + RECORD_HEADER_SIZE + length;
+        if (end > regionEnd || regionEnd > flushedLength || regionIndex > Integer.MAX_VALUE) {
+            return null;
+        }
+        int region = (int) regionIndex;
+        while (mappedRegions.size() <= region) {
+            mappedRegions.add(null);
+        }
+        MappedByteBuffer mappedRegion = mappedRegions.get(region);
+        if (mappedRegion == null) {
+            mappedRegion = log.getChannel().map(FileChannel.MapMode.READ_ONLY, regionStart, mappedRegionSize);
+            mappedRegions.set(region, mappedRegion);
+        }
+        ByteBuffer record = mappedRegion.duplicate();
+        record.limit((int) (end - regionStart));
+        record.position((int) (offset - regionStart));
+        return record;
+    }
+
+    private byte[] readRecord(long offset, int length) throws IOException {
+        byte[] record = new byte[RECORD_HEADER_SIZE + length];
+        if (offset >= flushedLength) {
+            pending.copyTo((int) (offset - flushedLength), record);
+        } else {
+            log.seek(offset);
+            log.readFully(record);
+        }
+        return record;
+    }
+
+    /**
+     * Copies the live records to a new log, in log order.
+     */
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {}", this);
+        Integer[] slots = new Integer[size];
+        int count = 0;
+        for (int slot = 0; slot < offsets.length; slot++) {
+            if (offsets[slot] != 0) {
+                slots[count++] = slot;
+            }
+        }
+        Arrays.sort(slots, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                long offset1 = offsets[o1];
+                long offset2 = offsets[o2];
+                return offset1 < offset2 ? -1 : offset1 == offset2 ? 0 : 1;
+            }
+        });
+
+        long newLogId = random.nextLong();
+        File compactedFile = new File(logFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)));
+        try {
+            output.writeInt(LOG_MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(newLogId);
+            log.seek(LOG_HEADER_SIZE);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new RandomAccessFileInputStream(log)));
+            long readPos = LOG_HEADER_SIZE;
+            long writePos = LOG_HEADER_SIZE;
+            byte[] record = new byte[256];
+            for (Integer slot : slots) {
+                int recordSize = RECORD_HEADER_SIZE + lengths[slot];
+                if (record.length < recordSize) {
+                    record = new byte[recordSize];
+                }
+                input.skipBytes((int) (offsets[slot] - readPos));
+                input.readFully(record, 0, recordSize);
+                output.write(record, 0, recordSize);
+                readPos = offsets[slot] + recordSize;
+                offsets[slot] = writePos;
+                writePos += recordSize;
+            }
+            flushedLength = writePos;
+        } finally {
+            output.close();
+        }
+        mappedRegions.clear();
+        log.close();
+        Files.move(compactedFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log = new RandomAccessFile(logFile, "rw");
+        logId = newLogId;
+        garbage = 0;
+        // The offsets in the index file no longer match the log
+        indexFileLength = -1;
+    }
+
+    /**
+     * Replaces the index file with a single batch that holds the whole index.
+     */
+    private void writeIndex() throws IOException {
+        long newIndexId = random.nextLong();
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeLong(logId);
+            output.writeLong(newIndexId);
+            output.writeLong(LOG_HEADER_SIZE);
+            output.writeLong(flushedLength);
+            output.writeLong(garbage);
+            output.writeInt(size);
+            for (int slot = 0; slot < offsets.length; slot++) {
+                if (offsets[slot] != 0) {
+                    output.writeLong(hashes[slot]);
+                    output.writeLong(offsets[slot]);
+                    output.writeInt(lengths[slot]);
+                }
+            }
+        } finally {
+            output.close();
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        indexId = newIndexId;
+        indexedLength = flushedLength;
+        indexFileLength = INDEX_HEADER_SIZE + BATCH_HEADER_SIZE + (long) size * INDEX_ENTRY_SIZE;
+        clearIndexChanges();
+    }
+
+    /**
+     * Appends the changes made to the index since the index file was last written, as a batch that covers the log from the end of the previous batch.
+     */
+    private void appendIndex() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        try {
+            long length = file.length();
+            if (length < indexFileLength) {
+                file.close();
+                writeIndex();
+                return;
+            }
+            if (length > indexFileLength) {
+                // Discard a partially written batch
+                file.setLength(indexFileLength);
+            }
+            AppendBuffer batch = new AppendBuffer();
+            batch.writeLong(indexedLength);
+            batch.writeLong(flushedLength);
+            batch.writeLong(garbage);
+            batch.writeInt(indexChangeCount);
+            indexChanges.writeTo((OutputStream) batch);
+            file.seek(indexFileLength);
+            batch.writeTo(file);
+            indexFileLength += batch.size();
+        } finally {
+            file.close();
+        }
+        indexedLength = flushedLength;
+        clearIndexChanges();
+    }
+
+    private void addIndexChange(long hash, long offset, int length) {
+        indexChanges.writeLong(hash);
+        indexChanges.writeLong(offset);
+        indexChanges.writeInt(length);
+        indexChangeCount++;
+    }
+
+    private void clearIndexChanges() {
+        indexChanges.reset();
+        indexChangeCount = 0;
+    }
+
+    private void clearIndex() {
+        hashes = new long[INITIAL_CAPACITY];
+        offsets = new long[INITIAL_CAPACITY];
+        lengths = new int[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+        size = 0;
+        garbage = 0;
+        indexedLength = LOG_HEADER_SIZE;
+        clearIndexChanges();
+    }
+
+    /**
+     * Returns the slot holding the given hash, or {@code -(insertion slot + 1)} when the hash is not in the index.
+     */
+    private int find(long hash) {
+        int slot = slotFor(hash);
+        while (offsets[slot] != 0) {
+            if (hashes[slot] == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(slot + 1);
+    }
+
+    private int slotFor(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void index(long hash, long offset, int length) {
+        int slot = find(hash);
+        if (slot >= 0) {
+            garbage += RECORD_HEADER_SIZE + lengths[slot];
+        } else {
+            if (size >= offsets.length / 2) {
+                growTo(size + 1);
+                slot = find(hash);
+            }
+            slot = -(slot + 1);
+            size++;
+        }
+        hashes[slot] = hash;
+        offsets[slot] = offset;
+        lengths[slot] = length;
+    }
+
+    private boolean unindex(long hash) {
+        int slot = find(hash);
+        if (slot < 0) {
+            return false;
+        }
+        garbage += RECORD_HEADER_SIZE + lengths[slot];
+        size--;
+
+        // Shift back the entries that follow the removed entry, so that lookups do not stop at the hole
+        int hole = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (offsets[slot] == 0) {
+                break;
+            }
+            int home = slotFor(hashes[slot]);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                hashes[hole] = hashes[slot];
+                offsets[hole] = offsets[slot];
+                lengths[hole] = lengths[slot];
+                hole = slot;
+            }
+        }
+        offsets[hole] = 0;
+        return true;
+    }
+
+    /**
+     * Grows the index so that it is at most half full when holding the given number of entries.
+     */
+    private void growTo(int entryCount) {
+        int capacity = offsets.length;
+        while (entryCount >= capacity / 2) {
+            capacity *= 2;
+        }
+        if (capacity == offsets.length) {
+            return;
+        }
+        long[] oldHashes = hashes;
+        long[] oldOffsets = offsets;
+        int[] oldLengths = lengths;
+        hashes = new long[capacity];
+        offsets = new long[capacity];
+        lengths = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (oldOffsets[i] != 0) {
+                int slot = -(find(oldHashes[i]) + 1);
+                hashes[slot] = oldHashes[i];
+                offsets[slot] = oldOffsets[i];
+                lengths[slot] = oldLengths[i];
+            }
+        }
+    }
+
+    private static long getLong(byte[] bytes, int pos) {
+        return ((long) getInt(bytes, pos) << 32) | (getInt(bytes, pos + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int getInt(byte[] bytes, int pos) {
+        return (bytes[pos] & 0xFF) << 24 | (bytes[pos + 1] & 0xFF) << 16 | (bytes[pos + 2] & 0xFF) << 8 | bytes[pos + 3] & 0xFF;
+    }
+
+    /**
+     * Holds records that have not been written to the log yet.
+     */
+    private static class AppendBuffer extends ByteArrayOutputStream {
+        AppendBuffer() {
+            super(4096);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void setInt(int pos, int value) {
+            buf[pos] = (byte) (value >>> 24);
+            buf[pos + 1] = (byte) (value >>> 16);
+            buf[pos + 2] = (byte) (value >>> 8);
+            buf[pos + 3] = (byte) value;
+        }
+
+        void truncate(int size) {
+            count = size;
+        }
+
+        void copyTo(int pos, byte[] target) {
+            System.arraycopy(buf, pos, target, 0, target.length);
+        }
+
+        void writeTo(RandomAccessFile file) throws IOException {
+            file.write(buf, 0, count);
+        }
+    }
+
+    /**
+     * Reads a value from the mapped log.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static class CorruptedCacheException extends RuntimeException {
+        CorruptedCacheException(String message) {
+            super(message);
+        }
+    }
+}
@@ -22,12 +22,13 @@ import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 class CacheAccessWorkerTest extends ConcurrentSpec {
     CacheAccess cacheAccess
     CacheAccessWorker cacheAccessWorker
+    CacheAccessWorkerStatistics statistics = new CacheAccessWorkerStatistics()
 
     def setup() {
         cacheAccess = Stub(CacheAccess) {
             useCache(_) >> { Runnable action -> action.run() }
         }
-        cacheAccessWorker = new CacheAccessWorker("<cache>", cacheAccess)
+        cacheAccessWorker = new CacheAccessWorker("<cache>", cacheAccess, statistics)
     }
 
     def "read runs after queued writes are processed"() {
@@ -198,4 +199,90 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         def e = thrown(RuntimeException)
         e == failure
     }
+
+    def "replaces pending update of the same key and runs all completions"() {
+        given:
+        def updates = []
+        def completions = []
+        cacheAccessWorker.enqueueUpdate("a", { updates << "a1" }, { completions << "a1" })
+        cacheAccessWorker.enqueueUpdate("b", { updates << "b1" }, { completions << "b1" })
+        cacheAccessWorker.enqueueUpdate("a", { updates << "a2" }, { completions << "a2" })
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        updates == ["a2", "b1"]
+        completions == ["a1", "a2", "b1"]
+
+        and:
+        def result = statistics.getAndResetStatistics()
+        result.enqueuedOperationCount == 3
+        result.coalescedUpdateCount == 1
+        result.maxQueueDepth == 2
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "does not replace pending update that is followed by another operation"() {
+        given:
+        def updates = []
+        cacheAccessWorker.enqueueUpdate("a", { updates << "a1" }, {})
+        cacheAccessWorker.enqueue { updates << "other" }
+        cacheAccessWorker.enqueueUpdate("a", { updates << "a2" }, {})
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        updates == ["a1", "other", "a2"]
+        statistics.getAndResetStatistics().coalescedUpdateCount == 0
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "does not replace update that has already started"() {
+        given:
+        def updates = []
+        start(cacheAccessWorker)
+
+        when:
+        cacheAccessWorker.enqueueUpdate("a", {
+            instant.started
+            thread.block()
+            updates << "a1"
+        }, {})
+        thread.blockUntil.started
+        cacheAccessWorker.enqueueUpdate("a", { updates << "a2" }, {})
+        cacheAccessWorker.flush()
+
+        then:
+        updates == ["a1", "a2"]
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "runs operations of different caches in turn"() {
+        given:
+        def operations = []
+        def first = cacheAccessWorker.lane("first")
+        def second = cacheAccessWorker.lane("second")
+        3.times { i -> first.enqueue { operations << "first $i".toString() } }
+        3.times { i -> second.enqueue { operations << "second $i".toString() } }
+
+        when:
+        start(cacheAccessWorker)
+        first.flush()
+
+        then:
+        operations == ["first 0", "second 0", "first 1", "second 1", "first 2", "second 2"]
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
 }
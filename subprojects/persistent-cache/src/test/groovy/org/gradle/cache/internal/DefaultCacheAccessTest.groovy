@@ -18,15 +18,15 @@ package org.gradle.cache.internal
 import org.gradle.cache.AsyncCacheAccess
 import org.gradle.cache.CacheDecorator
 import org.gradle.cache.CrossProcessCacheAccess
+import org.gradle.cache.FileBackedIndexedCache
 import org.gradle.cache.FileLock
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.LockOptions
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache
 import org.gradle.cache.PersistentIndexedCacheParameters
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
+import org.gradle.internal.Factories
 import org.gradle.internal.Factory
 import org.gradle.internal.serialize.BaseSerializerFactory
-import org.gradle.internal.serialize.Serializer
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -45,13 +45,13 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     final File lockFile = tmpDir.file('lock.bin')
     final File cacheDir = tmpDir.file('caches')
     final FileLock lock = Mock()
-    final BTreePersistentIndexedCache<String, Integer> backingCache = Mock()
+    final FileBackedIndexedCache<String, Integer> backingCache = Mock()
 
     private DefaultCacheAccess newAccess(FileLockManager.LockMode lockMode) {
         new DefaultCacheAccess("<display-name>", lockFile, mode(lockMode), cacheDir, lockManager, initializationAction, cleanupAction, executorFactory) {
             @Override
-            <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-                return backingCache
+            <K, V> Factory<FileBackedIndexedCache<K, V>> createIndexedCacheFactory(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters) {
+                return Factories.constant(backingCache)
             }
         }
     }
@@ -679,6 +679,20 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         access?.close()
     }
 
+    def "throws InvalidCacheReuseException when cache storage format differs"() {
+        def access = newAccess(None)
+
+        when:
+        access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class))
+        access.newCache(new PersistentIndexedCacheParameters('cache', String.class, Integer.class).storageFormat(PersistentIndexedCacheParameters.StorageFormat.HASH_INDEX))
+
+        then:
+        thrown(DefaultCacheAccess.InvalidCacheReuseException)
+
+        cleanup:
+        access?.close()
+    }
+
     def "returns the same cache object when cache decorator match"() {
         def access = newAccess(None)
         def decorator = Mock(CacheDecorator)
@@ -728,4 +742,23 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
         cleanup:
         access?.close()
     }
+
+    def "reopens the same hash indexed cache each time the file lock is acquired again"() {
+        def access = new DefaultCacheAccess("<display-name>", lockFile, mode(None), cacheDir, lockManager, initializationAction, cleanupAction, executorFactory)
+        def parameters = new PersistentIndexedCacheParameters('cache', String.class, Integer.class).storageFormat(PersistentIndexedCacheParameters.StorageFormat.HASH_INDEX)
+        def factory = access.createIndexedCacheFactory(new File(cacheDir, "cache.log"), parameters)
+
+        when:
+        def cache1 = factory.create()
+        cache1.put("key", 12)
+        cache1.close()
+        def cache2 = factory.create()
+
+        then:
+        cache2.is(cache1)
+        cache2.get("key") == 12
+
+        cleanup:
+        cache2?.close()
+    }
 }
@@ -19,6 +19,8 @@ package org.gradle.cache.internal
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.internal.filelock.LockOptionsBuilder
 import org.gradle.test.fixtures.file.TestFile
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
 
 import static org.gradle.cache.FileLockManager.LockMode.Exclusive
 import static org.gradle.cache.FileLockManager.LockMode.Shared
@@ -242,6 +244,57 @@ class DefaultFileLockManagerWithNewProtocolTest extends AbstractFileLockManagerT
         lockMode << [Exclusive, Shared]
     }
 
+    def "can read lock state without locking"() {
+        given:
+        writeFile()
+
+        and:
+        def lock = createLock(Exclusive)
+        def state = lock.state
+        lock.close()
+
+        expect:
+        def stateReader = manager.openStateReader(testFile, options())
+        def unlockedState = stateReader.readState()
+        !unlockedState.inInitialState
+        !unlockedState.hasBeenUpdatedSince(state)
+
+        when:
+        writeFile()
+
+        then:
+        stateReader.readState().hasBeenUpdatedSince(state)
+    }
+
+    @Requires(TestPrecondition.NO_FILE_LOCK_ON_OPEN)
+    def "can read lock state while another process holds the lock"() {
+        given:
+        def lockManager = new DefaultFileLockManager(metaDataProvider, contentionHandler)
+        writeFile()
+        def lock = createLock(Exclusive, testFile, lockManager)
+        def state = lock.state
+        def stateReader = manager.openStateReader(testFile, options())
+
+        expect:
+        !stateReader.readState().hasBeenUpdatedSince(state)
+
+        when:
+        lock.writeFile {
+            assert stateReader.readState().inInitialState
+        }
+
+        then:
+        stateReader.readState().hasBeenUpdatedSince(state)
+
+        cleanup:
+        lock?.close()
+    }
+
+    def "lock state cannot be read when lock file does not exist"() {
+        expect:
+        manager.openStateReader(tmpDir.file("missing.bin"), options()) == null
+    }
+
     void isVersionLockFile(TestFile lockFile, boolean dirty) {
         assert lockFile.isFile()
         assert lockFile.length() <= 2048
@@ -30,6 +30,7 @@ import java.util.concurrent.locks.ReentrantLock
 class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
     def file = new TestFile("some-file.lock")
     def lockManager = Mock(FileLockManager)
+    def lockState = Stub(FileLock.State)
     def cacheAccess = new LockOnDemandCrossProcessCacheAccess("<cache>", file, LockOptionsBuilder.mode(FileLockManager.LockMode.Exclusive), lockManager, new ReentrantLock(), Stub(CacheInitializationAction), Stub(Action), Stub(Action))
 
     def "close when lock has never been acquired"() {
@@ -74,6 +75,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -92,6 +94,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
                 return lock
         }
         1 * action.create() >> { contendedAction.run(); "result" }
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -110,6 +113,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         cacheAccess.close()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -143,6 +147,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -170,6 +175,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -205,6 +211,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -233,6 +240,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -271,6 +279,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -306,6 +315,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -338,6 +348,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -373,6 +384,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         1 * action.create() >> { contendedAction.run() }
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
 
@@ -401,6 +413,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         contendedAction.run()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -483,6 +496,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         1 * onClose.execute(lock)
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
 
@@ -520,6 +534,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         1 * onClose.execute(lock)
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -555,6 +570,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         1 * onClose.execute(lock)
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
 
@@ -673,6 +689,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         cacheAccess.close()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -701,6 +718,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         cacheAccess.close()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -738,6 +756,7 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         cacheAccess.close()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
@@ -775,7 +794,220 @@ class LockOnDemandCrossProcessCacheAccessTest extends ConcurrentSpec {
         cacheAccess.close()
 
         then:
+        _ * lock.getState() >> lockState
         1 * lock.close()
         0 * _
     }
+
+    def "does not run action without file lock when lock has never been acquired"() {
+        def action = Mock(Factory)
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == null
+        0 * _
+    }
+
+    def "runs action without file lock while this process holds the lock"() {
+        def action = Mock(Factory)
+        def lock = Mock(FileLock)
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> lock
+        cacheAccess.withFileLock(Mock(Factory))
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == "result"
+        1 * action.create() >> "result"
+        0 * _
+    }
+
+    def "runs action without file lock when cache has not changed since lock was released"() {
+        def action = Mock(Factory)
+        def lock = Mock(FileLock)
+        def stateReader = Mock(FileLockManager.StateReader)
+        def stateAtRelease = Stub(FileLock.State) {
+            canDetectChanges() >> true
+        }
+        def currentState = Stub(FileLock.State) {
+            hasBeenUpdatedSince(stateAtRelease) >> false
+        }
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Runnable whenContended -> contendedAction = whenContended
+                return lock
+        }
+        _ * lock.getState() >> stateAtRelease
+        1 * lockManager.openStateReader(file, _) >> stateReader
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == "result"
+        1 * action.create() >> "result"
+        1 * stateReader.readState() >> currentState
+        0 * _
+    }
+
+    def "reuses state reader when the lock is released again without changes"() {
+        def lock = Mock(FileLock)
+        def stateReader = Mock(FileLockManager.StateReader)
+        def stateAtRelease = Stub(FileLock.State) {
+            canDetectChanges() >> true
+        }
+        def unchangedState = Stub(FileLock.State) {
+            hasBeenUpdatedSince(stateAtRelease) >> false
+        }
+        def replacedState = Stub(FileLock.State) {
+            hasBeenUpdatedSince(stateAtRelease) >> true
+        }
+        def contendedAction
+
+        given:
+        _ * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Runnable whenContended -> contendedAction = whenContended
+                return lock
+        }
+        _ * lock.getState() >> stateAtRelease
+        1 * lockManager.openStateReader(file, _) >> stateReader
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        when:
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        then:
+        1 * stateReader.readState() >> unchangedState
+        0 * lockManager.openStateReader(_, _)
+
+        when:
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        then:
+        1 * stateReader.readState() >> replacedState
+        1 * lockManager.openStateReader(file, _) >> Mock(FileLockManager.StateReader)
+    }
+
+    def "does not use result of action without file lock when cache has changed since lock was released"() {
+        def action = Mock(Factory)
+        def lock = Mock(FileLock)
+        def stateReader = Mock(FileLockManager.StateReader)
+        def stateAtRelease = Stub(FileLock.State) {
+            canDetectChanges() >> true
+        }
+        def changedState = Stub(FileLock.State) {
+            hasBeenUpdatedSince(stateAtRelease) >> true
+        }
+        def dirtyState = Stub(FileLock.State) {
+            isInInitialState() >> true
+        }
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Runnable whenContended -> contendedAction = whenContended
+                return lock
+        }
+        _ * lock.getState() >> stateAtRelease
+        1 * lockManager.openStateReader(file, _) >> stateReader
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == null
+        1 * action.create() >> "result"
+        1 * stateReader.readState() >> changedState
+        0 * _
+
+        when:
+        result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == null
+        1 * action.create() >> "result"
+        1 * stateReader.readState() >> dirtyState
+        0 * _
+    }
+
+    def "does not run action without file lock when state of lock file cannot be read"() {
+        def action = Mock(Factory)
+        def lock = Mock(FileLock)
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Runnable whenContended -> contendedAction = whenContended
+                return lock
+        }
+        _ * lock.getState() >> Stub(FileLock.State) {
+            canDetectChanges() >> true
+        }
+        1 * lockManager.openStateReader(file, _) >> null
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == null
+        0 * _
+    }
+
+    def "does not run action without file lock when changes to cache cannot be detected"() {
+        def action = Mock(Factory)
+        def lock = Mock(FileLock)
+        def contendedAction
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> {
+            File target, LockOptions options, String targetDisplayName, String operationDisplayName, Runnable whenContended -> contendedAction = whenContended
+                return lock
+        }
+        _ * lock.getState() >> lockState
+        cacheAccess.withFileLock(Mock(Factory))
+        contendedAction.run()
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == null
+        0 * _
+    }
+
+    def "does not run action without file lock after close"() {
+        def action = Mock(Factory)
+        def lock = Mock(FileLock)
+
+        given:
+        1 * lockManager.lock(file, _, _, _, _) >> lock
+        _ * lock.getState() >> Stub(FileLock.State) {
+            canDetectChanges() >> true
+        }
+        cacheAccess.withFileLock(Mock(Factory))
+        cacheAccess.close()
+
+        when:
+        def result = cacheAccess.tryWithoutFileLock(action)
+
+        then:
+        result == null
+        0 * _
+    }
 }
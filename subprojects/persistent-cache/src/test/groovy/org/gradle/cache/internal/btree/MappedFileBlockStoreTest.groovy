@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final TestFile cacheFile = tmpDir.file("cache.bin")
+
+    // Use tiny regions so that blocks straddle region boundaries
+    static final int REGION_SIZE = 64
+
+    def "persists entries across regions"() {
+        def cache = mappedCache()
+
+        when:
+        (0..<200).each { cache.put("key_$it".toString(), value(it)) }
+        cache.verify()
+        cache.close()
+        cache = mappedCache()
+
+        then:
+        (0..<200).every { cache.get("key_$it".toString()) == value(it) }
+        cache.get("unknown") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "persists updates and removals"() {
+        def cache = mappedCache()
+
+        when:
+        (0..<50).each { cache.put("key_$it".toString(), value(it)) }
+        (0..<50).each { cache.put("key_$it".toString(), value(it * 3)) }
+        (0..<50).step(2) { cache.remove("key_$it".toString()) }
+        cache.verify()
+        cache.close()
+        cache = mappedCache()
+
+        then:
+        (0..<50).every { cache.get("key_$it".toString()) == (it % 2 == 0 ? null : value(it * 3)) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "writes the same file content as the file backed store"() {
+        def otherFile = tmpDir.file("other.bin")
+        def mapped = mappedCache()
+        def fileBacked = cache(otherFile, new FileBackedBlockStore(otherFile))
+
+        when:
+        [mapped, fileBacked].each { cache ->
+            (0..<100).each { cache.put("key_$it".toString(), value(it)) }
+            (0..<100).step(3) { cache.remove("key_$it".toString()) }
+            cache.close()
+        }
+
+        then:
+        cacheFile.length() > 0
+        cacheFile.bytes == otherFile.bytes
+    }
+
+    def "reads files written by the file backed store and vice versa"() {
+        def cache = fileBackedCache()
+        (0..<100).each { cache.put("key_$it".toString(), value(it)) }
+        cache.close()
+
+        when:
+        cache = mappedCache()
+
+        then:
+        (0..<100).every { cache.get("key_$it".toString()) == value(it) }
+
+        when:
+        (100..<150).each { cache.put("key_$it".toString(), value(it)) }
+        cache.close()
+        cache = fileBackedCache()
+
+        then:
+        cache.verify()
+        (0..<150).every { cache.get("key_$it".toString()) == value(it) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reuses the store for caches opened after the file was changed by another store"() {
+        def store = new MappedFileBlockStore(cacheFile, REGION_SIZE)
+        def cache = cache(cacheFile, store)
+        (0..<100).each { cache.put("key_$it".toString(), value(it)) }
+        (0..<100).each { assert cache.get("key_$it".toString()) == value(it) }
+        cache.close()
+
+        when:
+        cache = fileBackedCache()
+        (0..<100).step(2) { cache.put("key_$it".toString(), value(it + 1)) }
+        (100..<200).each { cache.put("key_$it".toString(), value(it)) }
+        cache.close()
+        cache = cache(cacheFile, store)
+
+        then:
+        cache.verify()
+        (0..<200).every { cache.get("key_$it".toString()) == (it < 100 && it % 2 == 0 ? value(it + 1) : value(it)) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reuses the store for caches opened after the file was replaced"() {
+        def store = new MappedFileBlockStore(cacheFile, REGION_SIZE)
+        def cache = cache(cacheFile, store)
+        (0..<200).each { cache.put("key_$it".toString(), value(it)) }
+        (0..<200).each { assert cache.get("key_$it".toString()) == value(it) }
+        cache.close()
+
+        when:
+        cacheFile.delete()
+        cache = fileBackedCache()
+        (0..<50).each { cache.put("key_$it".toString(), value(it * 2)) }
+        cache.close()
+        cache = cache(cacheFile, store)
+
+        then:
+        cache.verify()
+        (0..<50).every { cache.get("key_$it".toString()) == value(it * 2) }
+        cache.get("key_100") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    private BTreePersistentIndexedCache<String, String> mappedCache() {
+        return cache(cacheFile, new MappedFileBlockStore(cacheFile, REGION_SIZE))
+    }
+
+    private BTreePersistentIndexedCache<String, String> fileBackedCache() {
+        return cache(cacheFile, new FileBackedBlockStore(cacheFile))
+    }
+
+    private static BTreePersistentIndexedCache<String, String> cache(File file, BlockStore store) {
+        return new BTreePersistentIndexedCache<String, String>(file, new DefaultSerializer<String>(), new DefaultSerializer<String>(), (short) 4, 100, store)
+    }
+
+    private static String value(int i) {
+        return "value_$i" * (1 + i % 7)
+    }
+}
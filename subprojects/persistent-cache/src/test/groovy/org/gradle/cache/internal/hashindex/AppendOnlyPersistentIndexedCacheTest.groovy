@@ -0,0 +1,326 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.hashindex
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class AppendOnlyPersistentIndexedCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    final TestFile logFile = tmpDir.file("cache.log")
+    final TestFile indexFile = tmpDir.file("cache.idx")
+    AppendOnlyPersistentIndexedCache<String, String> cache
+    int mappedRegionSize = 4096
+
+    def setup() {
+        cache = createCache()
+    }
+
+    def cleanup() {
+        cache?.close()
+    }
+
+    def "returns null for unknown entry"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "persists added entries"() {
+        when:
+        (0..<500).each { cache.put(key(it), value(it)) }
+
+        then:
+        (0..<500).every { cache.get(key(it)) == value(it) }
+
+        when:
+        reopen()
+
+        then:
+        (0..<500).every { cache.get(key(it)) == value(it) }
+        cache.get("unknown") == null
+    }
+
+    def "persists updates and removals"() {
+        when:
+        (0..<100).each { cache.put(key(it), value(it)) }
+        (0..<100).step(2) { cache.put(key(it), "updated $it".toString()) }
+        (0..<100).step(3) { cache.remove(key(it)) }
+
+        then:
+        (0..<100).every { cache.get(key(it)) == expectedAfterUpdates(it) }
+
+        when:
+        reopen()
+
+        then:
+        (0..<100).every { cache.get(key(it)) == expectedAfterUpdates(it) }
+    }
+
+    def "does not rewrite files when nothing has changed"() {
+        (0..<10).each { cache.put(key(it), value(it)) }
+        reopen()
+        def logContent = logFile.bytes
+        def indexContent = indexFile.bytes
+        indexFile.lastModified = 0
+
+        when:
+        (0..<10).each { cache.get(key(it)) }
+        reopen()
+
+        then:
+        logFile.bytes == logContent
+        indexFile.bytes == indexContent
+        indexFile.lastModified() == 0
+    }
+
+    def "compacts the log on close when most of it is garbage"() {
+        (0..<100).each { cache.put(key(it), value(it)) }
+        reopen()
+        def initialLength = logFile.length()
+
+        when:
+        3.times { (0..<100).each { cache.put(key(it), value(it)) } }
+        (0..<50).each { cache.remove(key(it)) }
+        reopen()
+
+        then:
+        logFile.length() < initialLength
+        (0..<50).every { cache.get(key(it)) == null }
+        (50..<100).every { cache.get(key(it)) == value(it) }
+    }
+
+    def "rebuilds index from the log when the index file is missing"() {
+        (0..<100).each { cache.put(key(it), value(it)) }
+        cache.remove(key(7))
+        cache.close()
+
+        when:
+        indexFile.delete()
+        cache = createCache()
+
+        then:
+        cache.get(key(7)) == null
+        (0..<100).findAll { it != 7 }.every { cache.get(key(it)) == value(it) }
+    }
+
+    def "indexes entries appended after the index file was written"() {
+        (0..<10).each { cache.put(key(it), value(it)) }
+        reopen()
+        def indexContent = indexFile.bytes
+
+        when:
+        (10..<20).each { cache.put(key(it), value(it)) }
+        cache.remove(key(3))
+        cache.close()
+        indexFile.bytes = indexContent
+        cache = createCache()
+
+        then:
+        cache.get(key(3)) == null
+        (0..<20).findAll { it != 3 }.every { cache.get(key(it)) == value(it) }
+    }
+
+    def "discards partially written entry at the end of the log"() {
+        (0..<10).each { cache.put(key(it), value(it)) }
+        cache.close()
+        def content = logFile.bytes
+
+        when:
+        logFile.withDataOutputStream { it.write(content); it.writeLong(12); it.writeInt(1000); it.write(new byte[10]) }
+        indexFile.delete()
+        cache = createCache()
+
+        then:
+        (0..<10).every { cache.get(key(it)) == value(it) }
+        logFile.length() == content.length
+
+        when:
+        cache.put(key(10), value(10))
+        reopen()
+
+        then:
+        (0..<11).every { cache.get(key(it)) == value(it) }
+    }
+
+    def "discards content of corrupt log"() {
+        (0..<10).each { cache.put(key(it), value(it)) }
+        cache.close()
+
+        when:
+        logFile.bytes = [1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17] as byte[]
+        cache = createCache()
+
+        then:
+        (0..<10).every { cache.get(key(it)) == null }
+
+        when:
+        cache.put(key(1), value(1))
+        reopen()
+
+        then:
+        cache.get(key(1)) == value(1)
+    }
+
+    def "reads entries written after the log was mapped"() {
+        (0..<100).each { cache.put(key(it), value(it)) }
+        reopen()
+        assert cache.get(key(1)) == value(1)
+
+        when:
+        (100..<5000).each { cache.put(key(it), value(it)) }
+
+        then:
+        (0..<5000).every { cache.get(key(it)) == value(it) }
+    }
+
+    def "reads the same entries whether or not the log is mapped"() {
+        cache.close()
+        this.mappedRegionSize = mappedRegionSize
+        cache = createCache()
+
+        when:
+        (0..<100).each { cache.put(key(it), value(it)) }
+        reopen()
+        3.times { (0..<100).step(2) { cache.put(key(it), "updated $it".toString()) } }
+        (0..<100).step(3) { cache.remove(key(it)) }
+
+        then:
+        (0..<100).every { cache.get(key(it)) == expectedAfterUpdates(it) }
+
+        when:
+        reopen()
+
+        then:
+        (0..<100).every { cache.get(key(it)) == expectedAfterUpdates(it) }
+
+        where:
+        mappedRegionSize << [4096, 0]
+    }
+
+    def "appends changes to the index file when closed"() {
+        (0..<100).each { cache.put(key(it), value(it)) }
+        cache.close()
+        def indexContent = indexFile.bytes
+
+        when:
+        cache.reopen()
+        cache.put(key(100), value(100))
+        cache.remove(key(7))
+        cache.close()
+
+        then:
+        indexFile.length() > indexContent.length
+        indexFile.bytes[0..<indexContent.length] == indexContent as List
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get(key(7)) == null
+        (0..100).findAll { it != 7 }.every { cache.get(key(it)) == value(it) }
+    }
+
+    def "reopened cache sees changes made by another cache in the meantime"() {
+        (0..<100).each { cache.put(key(it), value(it)) }
+        cache.close()
+
+        when:
+        def other = createCache()
+        (100..<200).each { other.put(key(it), value(it)) }
+        (0..<50).each { other.put(key(it), "updated $it".toString()) }
+        other.remove(key(60))
+        other.close()
+        cache.reopen()
+
+        then:
+        (0..<50).every { cache.get(key(it)) == "updated $it".toString() }
+        cache.get(key(60)) == null
+        (50..<200).findAll { it != 60 }.every { cache.get(key(it)) == value(it) }
+
+        when:
+        cache.put(key(200), value(200))
+        cache.close()
+        other.reopen()
+
+        then:
+        other.get(key(200)) == value(200)
+        other.get(key(60)) == null
+
+        cleanup:
+        other?.close()
+    }
+
+    def "reopened cache sees entries appended to the log without an index change"() {
+        (0..<10).each { cache.put(key(it), value(it)) }
+        cache.close()
+        def indexContent = indexFile.bytes
+
+        when:
+        def other = createCache()
+        (10..<20).each { other.put(key(it), value(it)) }
+        other.close()
+        indexFile.bytes = indexContent
+        cache.reopen()
+
+        then:
+        (0..<20).every { cache.get(key(it)) == value(it) }
+    }
+
+    def "reopened cache loads the whole index when another cache has compacted the log"() {
+        (0..<100).each { cache.put(key(it), value(it)) }
+        cache.close()
+
+        when:
+        def other = createCache()
+        3.times { (0..<100).each { other.put(key(it), "updated $it".toString()) } }
+        (0..<50).each { other.remove(key(it)) }
+        other.close()
+        cache.reopen()
+
+        then:
+        (0..<50).every { cache.get(key(it)) == null }
+        (50..<100).every { cache.get(key(it)) == "updated $it".toString() }
+    }
+
+    private AppendOnlyPersistentIndexedCache<String, String> createCache() {
+        return new AppendOnlyPersistentIndexedCache<String, String>(logFile, indexFile, new DefaultSerializer<String>(), new DefaultSerializer<String>(), mappedRegionSize)
+    }
+
+    private void reopen() {
+        cache.close()
+        cache = createCache()
+    }
+
+    private static String key(int i) {
+        return "key_$i"
+    }
+
+    private static String value(int i) {
+        return "value_$i" * (1 + i % 5)
+    }
+
+    private static String expectedAfterUpdates(int i) {
+        if (i % 3 == 0) {
+            return null
+        }
+        return i % 2 == 0 ? "updated $i".toString() : value(i)
+    }
+}
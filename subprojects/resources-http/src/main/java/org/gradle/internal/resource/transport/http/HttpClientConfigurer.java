@@ -97,8 +97,9 @@ public class HttpClientConfigurer {
         configureSocketConfig(builder);
         configureRedirectStrategy(builder);
         builder.setDefaultCredentialsProvider(credentialsProvider);
-        builder.setMaxConnTotal(MAX_HTTP_CONNECTIONS);
-        builder.setMaxConnPerRoute(MAX_HTTP_CONNECTIONS);
+        int maxConnectionsPerRoute = httpSettings.getMaxConnectionsPerRoute();
+        builder.setMaxConnTotal(Math.max(MAX_HTTP_CONNECTIONS, maxConnectionsPerRoute));
+        builder.setMaxConnPerRoute(maxConnectionsPerRoute);
     }
 
     private void configureSslSocketConnectionFactory(HttpClientBuilder builder, SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
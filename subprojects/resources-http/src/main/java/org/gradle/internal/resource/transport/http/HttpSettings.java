@@ -35,4 +35,6 @@ public interface HttpSettings {
     SslContextFactory getSslContextFactory();
 
     HostnameVerifier getHostnameVerifier();
+
+    int getMaxConnectionsPerRoute();
 }
@@ -126,4 +126,23 @@ public class HttpClientConfigurerTest extends Specification {
         httpClientBuilder.defaultRequestConfig.connectTimeout == 10000
         httpClientBuilder.defaultRequestConfig.socketTimeout == 30000
     }
+
+    def "configures http client connection pool size"() {
+        httpSettings.authenticationSettings >> []
+        httpSettings.sslContextFactory >> sslContextFactory
+        httpSettings.maxConnectionsPerRoute >> maxConnectionsPerRoute
+
+        when:
+        configurer.configure(httpClientBuilder)
+
+        then:
+        httpClientBuilder.maxConnPerRoute == maxConnectionsPerRoute
+        httpClientBuilder.maxConnTotal == maxConnectionsTotal
+
+        where:
+        maxConnectionsPerRoute | maxConnectionsTotal
+        4                      | 20
+        20                     | 20
+        64                     | 64
+    }
 }